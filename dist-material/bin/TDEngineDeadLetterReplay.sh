@@ -0,0 +1,38 @@
+#!/usr/bin/env sh
+# Licensed to the Apache Software Foundation (ASF) under one
+# or more contributor license agreements.  See the NOTICE file
+# distributed with this work for additional information
+# regarding copyright ownership.  The ASF licenses this file
+# to you under the Apache License, Version 2.0 (the
+# "License"); you may not use this file except in compliance
+# with the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+# Replay rows that failed to be written to TDengine.
+# Usage: TDEngineDeadLetterReplay.sh [deadLetterPath] [jdbcUrl] [user] [password]
+
+PRG="$0"
+PRGDIR=$(dirname "$PRG")
+[ -z "$IOT_SERVER_HOME" ] && IOT_SERVER_HOME=$(cd "$PRGDIR/.." > /dev/null || exit 1; pwd)
+
+JAVA_OPTS="${JAVA_OPTS:-  -Xms256M -Xmx512M}"
+
+_RUNJAVA=${JAVA_HOME}/bin/java
+[ -z "$JAVA_HOME" ] && _RUNJAVA=java
+
+CLASSPATH="$IOT_SERVER_HOME/config:$CLASSPATH"
+for i in "$IOT_SERVER_HOME"/iot-server-libs/*.jar
+do
+    CLASSPATH="$i:$CLASSPATH"
+done
+
+cd "$IOT_SERVER_HOME" || exit 1
+exec "$_RUNJAVA" ${JAVA_OPTS} -classpath "$CLASSPATH" \
+        com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.TDEngineDeadLetterReplay "$@"
@@ -0,0 +1,63 @@
+package com.zmops.iot.core.auth.cache;
+
+import com.zmops.iot.core.auth.model.LoginUser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 会话并发查询吞吐：8 个线程随机查询 sessions 个已登录会话。
+ * <ul>
+ * <li>legacy：改造前无上限、不过期的 ConcurrentHashMap</li>
+ * <li>current：{@link DefaultSessionManager}，带空闲过期和每用户会话数限制</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionManagerBenchmark {
+
+    @Param({"10000"})
+    private int sessions;
+
+    private String[] tokens;
+
+    private Map<String, LoginUser> legacy;
+
+    private DefaultSessionManager current;
+
+    @Setup
+    public void setup() {
+        SessionProperties properties = new SessionProperties();
+        properties.setMaxSize(sessions * 2L);
+        properties.setMaxIdle(3600);
+        properties.setMaxSessionsPerUser(5);
+        current = new DefaultSessionManager(properties, new MemorySessionStore());
+        legacy = new ConcurrentHashMap<>();
+
+        tokens = new String[sessions];
+        for (int i = 0; i < sessions; i++) {
+            tokens[i] = "token-" + i;
+            LoginUser user = new LoginUser((long) (i / 3), null);
+            legacy.put(SessionManager.SESSION_PREFIX + tokens[i], user);
+            current.createSession(tokens[i], user);
+        }
+    }
+
+    @Benchmark
+    public LoginUser legacy() {
+        return legacy.get(SessionManager.SESSION_PREFIX + tokens[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+
+    @Benchmark
+    public LoginUser current() {
+        return current.getSession(tokens[ThreadLocalRandom.current().nextInt(sessions)]);
+    }
+}
@@ -0,0 +1,72 @@
+package com.zmops.iot.core.auth.filter;
+
+import com.zmops.iot.constant.ConstantsContext;
+import com.zmops.iot.core.auth.jwt.JwtTokenUtil;
+import com.zmops.iot.core.auth.jwt.payload.JwtPayLoad;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtAuthorizationTokenFilter 每个请求的固定开销：静态资源判断、token 验签取账号、免鉴权接口判断。
+ * <ul>
+ * <li>legacy：每个模式 new AntPathMatcher，每次请求完整验签</li>
+ * <li>current：预编译的 {@link PathPatternMatcher}，已校验 token 取缓存</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthorizationFilterBenchmark {
+
+    @Param({"/device/list", "/static/js/app.js", "/oauth/callback/gitee"})
+    private String path;
+
+    private String token;
+
+    private PathPatternMatcher frontend;
+
+    private PathPatternMatcher backend;
+
+    @Setup
+    public void setup() {
+        ConstantsContext.putConstant("ZEUS_JWT_SECRET", "benchmark-secret-benchmark-secret");
+        ConstantsContext.putConstant("ZEUS_JWT_SECRET_EXPIRE", "86400");
+        token = JwtTokenUtil.generateToken(new JwtPayLoad(1L, "admin", "benchmark"));
+
+        frontend = new PathPatternMatcher(NoneAuthedResources.FRONTEND_RESOURCES);
+        backend = new PathPatternMatcher(NoneAuthedResources.BACKEND_RESOURCES);
+    }
+
+    @Benchmark
+    public Object legacy() {
+        for (String reg : NoneAuthedResources.FRONTEND_RESOURCES) {
+            if (new AntPathMatcher().match(reg, path)) {
+                return reg;
+            }
+        }
+        String account = JwtTokenUtil.getJwtPayLoad(token).getAccount();
+        for (String reg : NoneAuthedResources.BACKEND_RESOURCES) {
+            if (new AntPathMatcher().match(reg, path)) {
+                return reg;
+            }
+        }
+        return account;
+    }
+
+    @Benchmark
+    public Object current() {
+        if (frontend.matches(path)) {
+            return path;
+        }
+        String account = JwtTokenUtil.getVerifiedJwtPayLoad(token).getAccount();
+        if (backend.matches(path)) {
+            return path;
+        }
+        return account;
+    }
+}
@@ -0,0 +1,140 @@
+package com.zmops.iot.core.auth.filter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1 MB JSON 请求体：缓存请求体、补充 tenantId、业务按流读取一遍。
+ * <ul>
+ * <li>legacy：改造前的做法，按字符读成 String，fastjson 解析再序列化，getInputStream 复制字节后逐字节读</li>
+ * <li>current：{@link CommonHttpServletRequestWrapper} 按字节缓存，{@link TenantIdBodyRewriter} 扫描一遍追加字段，批量读</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    private static final long TENANT_ID = 1001L;
+
+    @Param({"1048576"})
+    private int bodySize;
+
+    private byte[] body;
+
+    private final byte[] readBuffer = new byte[8192];
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"deviceIds\":[");
+        for (int i = 0; sb.length() < bodySize - 64; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"deviceId\":\"device-").append(i).append("\",\"name\":\"温湿度传感器-").append(i).append("\"}");
+        }
+        sb.append("],\"remark\":\"batch\"}");
+        body = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long legacy() throws IOException {
+        InputStream in = new ByteArrayInputStream(body);
+        StringBuilder sb = new StringBuilder();
+        char[] chars = new char[128];
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        int n;
+        while ((n = reader.read(chars)) > 0) {
+            sb.append(chars, 0, n);
+        }
+        String text = sb.toString();
+
+        JSONObject param = JSONObject.parseObject(text);
+        param.put("tenantId", TENANT_ID);
+        text = JSON.toJSONString(param);
+
+        InputStream replay = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+        long sum = 0;
+        int b;
+        while ((b = replay.read()) >= 0) {
+            sum += b;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long current() throws IOException {
+        CommonHttpServletRequestWrapper wrapper = new CommonHttpServletRequestWrapper(request(body));
+        byte[] rewritten = TenantIdBodyRewriter.rewrite(wrapper.getBodyBytes(), TENANT_ID);
+        if (rewritten != null) {
+            wrapper.setBody(rewritten);
+        }
+
+        ServletInputStream replay = wrapper.getInputStream();
+        long sum = 0;
+        int n;
+        while ((n = replay.read(readBuffer, 0, readBuffer.length)) > 0) {
+            sum += n;
+        }
+        return sum;
+    }
+
+    private static HttpServletRequest request(byte[] body) {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        ServletInputStream servletInputStream = new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+            }
+
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+        };
+
+        return (HttpServletRequest) Proxy.newProxyInstance(RequestBodyBenchmark.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getInputStream":
+                            return servletInputStream;
+                        case "getContentLength":
+                            return body.length;
+                        case "getCharacterEncoding":
+                            return "UTF-8";
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
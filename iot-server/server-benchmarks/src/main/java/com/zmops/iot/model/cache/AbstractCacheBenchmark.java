@@ -0,0 +1,130 @@
+package com.zmops.iot.model.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 缓存读写竞争：每组 3 个读线程 + 1 个写线程，entries 条设备名称。
+ * <ul>
+ * <li>locked：改造前的读写锁实现，单条变更按原 DeviceService 的做法取全量、修改后整体 update</li>
+ * <li>current：{@link AbstractCache} 无锁读、单条 put</li>
+ * </ul>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AbstractCacheBenchmark {
+
+    @Param({"100000"})
+    private int entries;
+
+    private LockedCache locked;
+
+    private DeviceCache current;
+
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        Map<String, String> names = new HashMap<>();
+        keys = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = "device-" + i;
+            names.put(keys[i], "name-" + i);
+        }
+
+        locked = new LockedCache();
+        locked.update(names);
+        current = new DeviceCache();
+        current.update(names);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public String lockedRead(Cursor cursor) {
+        return locked.get(keys[cursor.next++ % keys.length]);
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWrite(Cursor cursor) {
+        Map<String, String> all = locked.getAll();
+        all.put(keys[cursor.next++ % keys.length], "renamed");
+        locked.update(all);
+    }
+
+    @Benchmark
+    @Group("current")
+    @GroupThreads(3)
+    public String currentRead(Cursor cursor) {
+        return current.get(keys[cursor.next++ % keys.length]);
+    }
+
+    @Benchmark
+    @Group("current")
+    @GroupThreads(1)
+    public void currentWrite(Cursor cursor) {
+        current.put(keys[cursor.next++ % keys.length], "renamed");
+    }
+
+    /**
+     * 改造前的 AbstractCache
+     */
+    static class LockedCache {
+
+        private final Map<String, String> cache = new HashMap<>();
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile Map<String, String> view;
+
+        String get(String key) {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return cache.get(key);
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        Map<String, String> getAll() {
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return view;
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        void update(Map<String, String> values) {
+            Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                cache.clear();
+                cache.putAll(values);
+                view = new ConcurrentHashMap<>(cache);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.zmops.zeus.driver.entity;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * history.get 响应解析，每次调用的耗时和分配，分配量用 -prof gc 看 gc.alloc.rate.norm。
+ * <ul>
+ * <li>legacy：改造前的做法，先解析成 {@code ZbxResponseData<String>}，result 转回字符串，调用方再解析成实体列表</li>
+ * <li>current：按 {@code ZbxResponseData<ZbxHistoryValues>} 一次解析，数据点按列写入数组</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZbxHistoryDecodeBenchmark {
+
+    private static final Type STRING_RESULT = new TypeReference<ZbxResponseData<String>>() {
+    }.getType();
+
+    private static final Type HISTORY_RESULT = new TypeReference<ZbxResponseData<ZbxHistoryValues>>() {
+    }.getType();
+
+    @Param({"100", "10000"})
+    private int points;
+
+    private String response;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("{\"jsonrpc\":\"2.0\",\"result\":[");
+        for (int i = 0; i < points; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"itemid\":\"").append(30000 + i % 20)
+                    .append("\",\"clock\":\"").append(1634486400 - i)
+                    .append("\",\"value\":\"").append(random.nextInt(10000) / 100.0)
+                    .append("\",\"ns\":\"").append(random.nextInt(1000000000))
+                    .append("\"}");
+        }
+        response = sb.append("],\"id\":1}").toString();
+    }
+
+    @Benchmark
+    public List<HistoryPoint> legacy() {
+        ZbxResponseData<String> responseData = JSON.parseObject(response, STRING_RESULT);
+        return JSON.parseArray(responseData.getResult(), HistoryPoint.class);
+    }
+
+    @Benchmark
+    public ZbxHistoryValues current() {
+        ZbxResponseData<ZbxHistoryValues> responseData = JSON.parseObject(response, HISTORY_RESULT);
+        return responseData.getResult();
+    }
+
+    /**
+     * 调用方原来解析成的实体，字段同 LatestDto 中取自 history.get 的部分
+     */
+    @Data
+    public static class HistoryPoint {
+
+        private String itemid;
+
+        private String clock;
+
+        private String value;
+
+        private String ns;
+    }
+}
@@ -0,0 +1,77 @@
+package com.zmops.zeus.driver.parser;
+
+import freemarker.cache.NullCacheStorage;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zabbix API 请求体构建，每次调用的耗时。
+ * <ul>
+ * <li>legacy：改造前的做法，NullCacheStorage 每次重新读取、解析模板，渲染后整体 unescapeJava</li>
+ * <li>current：{@link JsonParseUtil}，复用编译好的模板，渲染时转义</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBodyBuildBenchmark {
+
+    @Param({"/history/history.get.ftl", "/item/item.get.ftl", "/host/host.get.ftl"})
+    private String jsonPath;
+
+    private Configuration legacy;
+
+    private Map<String, Object> args;
+
+    @Setup
+    public void setup() throws Exception {
+        legacy = new Configuration(Configuration.DEFAULT_INCOMPATIBLE_IMPROVEMENTS);
+        legacy.setDefaultEncoding("utf-8");
+        legacy.setClassForTemplateLoading(JsonParseUtil.class, "/api-json");
+        legacy.setCacheStorage(new NullCacheStorage());
+        legacy.setTemplateUpdateDelayMilliseconds(1000);
+        legacy.setOutputFormat(JsonStringOutputFormat.INSTANCE);
+        legacy.setSetting("number_format", "computer");
+
+        List<String> itemIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            itemIds.add(String.valueOf(30000 + i));
+        }
+
+        args = new HashMap<>();
+        args.put("userAuth", "bd3eee6676ef363b4627c1d1f9ab83d5edc8ca741e56c7bd5a6cf64c3b4f7615");
+        args.put("hostid", "10084");
+        args.put("itemids", itemIds);
+        args.put("itemId", "[\"30001\",\"30002\"]");
+        args.put("hisNum", 100);
+        args.put("valueType", 0);
+        args.put("timeFrom", 1634400000L);
+        args.put("timeTill", 1634486400L);
+        args.put("host", "温湿度传感器-01");
+    }
+
+    @Benchmark
+    public String legacy() throws Exception {
+        Template template = legacy.getTemplate(jsonPath);
+        StringWriter out = new StringWriter();
+        template.process(args, out);
+        return StringEscapeUtils.unescapeJava(out.toString());
+    }
+
+    @Benchmark
+    public String current() {
+        return JsonParseUtil.parse(jsonPath, args);
+    }
+}
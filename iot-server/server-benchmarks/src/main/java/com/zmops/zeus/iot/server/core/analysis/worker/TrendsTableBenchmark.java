@@ -0,0 +1,65 @@
+package com.zmops.zeus.iot.server.core.analysis.worker;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 小时趋势聚合：单条数据更新 min/avg/max 的开销，以及一小时结束时输出全部监控项
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrendsTableBenchmark {
+
+    @Param({"100000"})
+    private int items;
+
+    private TrendsTable table;
+
+    private TrendsTable uintTable;
+
+    private String[] deviceIds;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        table = new TrendsTable(false);
+        uintTable = new TrendsTable(true);
+        deviceIds = new String[items];
+        for (int i = 0; i < items; i++) {
+            deviceIds[i] = "device-" + (i % 1000);
+            table.update(i, deviceIds[i], i * 0.5);
+            uintTable.update(i, deviceIds[i], (long) i);
+        }
+    }
+
+    @Benchmark
+    public void updateDouble() {
+        int itemid = next++ % items;
+        table.update(itemid, deviceIds[itemid], next * 0.5);
+    }
+
+    @Benchmark
+    public void updateLong() {
+        int itemid = next++ % items;
+        uintTable.update(itemid, deviceIds[itemid], (long) next);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 10)
+    public void drain(Blackhole blackhole) {
+        TrendsTable hour = new TrendsTable(false);
+        for (int i = 0; i < items; i++) {
+            hour.update(i, deviceIds[i], i * 0.5);
+        }
+        hour.drainTo(1637000000000L, blackhole::consume);
+    }
+}
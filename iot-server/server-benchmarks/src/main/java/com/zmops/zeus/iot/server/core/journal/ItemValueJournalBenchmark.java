@@ -0,0 +1,63 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import com.zmops.zeus.dto.ItemValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 溢出日志追加：一批数据编码 + 写入 mmap 分段，包含分段滚动和淘汰
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemValueJournalBenchmark {
+
+    @Param({"500"})
+    private int batchSize;
+
+    private Path dir;
+
+    private ItemValueJournal journal;
+
+    private List<ItemValue> itemValues;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("journal-benchmark");
+        journal = new ItemValueJournal(dir, 64 * 1024 * 1024, 4);
+        journal.open();
+
+        itemValues = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            ItemValue itemValue = new ItemValue("device-" + (i % 50), 1637000000L + i);
+            itemValue.setKey("attr_" + i);
+            itemValue.setValue(String.valueOf(i * 1.5));
+            itemValue.setNs(123456789L);
+            itemValues.add(itemValue);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public boolean append() {
+        return journal.append(itemValues);
+    }
+}
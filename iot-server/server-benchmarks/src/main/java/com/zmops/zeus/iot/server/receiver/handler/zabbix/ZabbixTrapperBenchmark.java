@@ -0,0 +1,95 @@
+package com.zmops.zeus.iot.server.receiver.handler.zabbix;
+
+import com.google.gson.Gson;
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import io.netty.buffer.ByteBuf;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发送 Zabbix 的一批数据封帧：
+ * <ul>
+ * <li>legacy：改造前的做法，Gson 序列化 {@link ZabbixTrapper}，逐字符正则计算长度，再拷贝到 ByteBuffer</li>
+ * <li>frame：直接写入 {@link ZabbixTrapperFrame}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZabbixTrapperBenchmark {
+
+    @Param({"500", "5000"})
+    private int batchSize;
+
+    private final Gson gson = new Gson();
+
+    private List<ItemValue> itemValues;
+
+    @Setup
+    public void setup() {
+        itemValues = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            ItemValue itemValue = new ItemValue("device-" + (i % 50), 1637000000L + i);
+            itemValue.setKey("attr_" + i);
+            itemValue.setValue(String.valueOf(i * 1.5));
+            itemValue.setNs(123456789L);
+            itemValues.add(itemValue);
+        }
+    }
+
+    @Benchmark
+    public int legacy() {
+        String message = gson.toJson(new ZabbixTrapper(itemValues));
+        int payloadLength = length(message);
+        byte[] header = new byte[]{
+                'Z', 'B', 'X', 'D', '\1',
+                (byte) (payloadLength & 0xFF),
+                (byte) ((payloadLength >> 8) & 0xFF),
+                (byte) ((payloadLength >> 16) & 0xFF),
+                (byte) ((payloadLength >> 24) & 0xFF),
+                '\0', '\0', '\0', '\0'};
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate(header.length + payloadLength);
+        byteBuffer.put(header);
+        byteBuffer.put(message.getBytes(StandardCharsets.UTF_8));
+        return byteBuffer.array().length;
+    }
+
+    @Benchmark
+    public int frame() {
+        ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(itemValues.size());
+        for (ItemValue value : itemValues) {
+            frame.append(value.getHost(), value.getKey(), value.getValue(), value.getClock(), value.getNs());
+        }
+        ByteBuf buf = frame.finish();
+        int length = buf.readableBytes();
+        buf.release();
+        return length;
+    }
+
+    /**
+     * 改造前计算 UTF-8 长度的方式，中文按 3 个字节
+     */
+    private static int length(String value) {
+        int valueLength = 0;
+        String chinese = "[\u0391-\uFFE5]";
+        for (int i = 0; i < value.length(); i++) {
+            String temp = value.substring(i, i + 1);
+            if (temp.matches(chinese)) {
+                valueLength += 3;
+            } else {
+                valueLength += 1;
+            }
+        }
+        return valueLength;
+    }
+}
@@ -0,0 +1,69 @@
+package com.zmops.zeus.iot.server.receiver.handler.zabbix.process;
+
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备上报 JSON 转 ItemValue，单个 Camel 消息包含 frames 个数据帧，每帧 attributes 个属性
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonToItemValueProcessBenchmark {
+
+    @Param({"1", "64"})
+    private int frames;
+
+    @Param({"10"})
+    private int attributes;
+
+    private final JsonToItemValueProcess process = new JsonToItemValueProcess();
+
+    private CamelContext camelContext;
+
+    private FrameBatch batch;
+
+    @Setup
+    public void setup() {
+        camelContext = new DefaultCamelContext();
+
+        List<byte[]> frameList = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            StringBuilder json = new StringBuilder("{\"deviceId\":\"device-").append(i).append("\",\"attributes\":{");
+            for (int a = 0; a < attributes; a++) {
+                if (a > 0) {
+                    json.append(',');
+                }
+                json.append("\"attr_").append(a).append("\":\"").append(a * 1.5).append('"');
+            }
+            json.append("},\"clock\":").append(1637000000000L + i).append('}');
+            frameList.add(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        batch = new FrameBatch(frameList, "127.0.0.1:10051");
+    }
+
+    @TearDown
+    public void tearDown() {
+        camelContext.stop();
+    }
+
+    @Benchmark
+    public Object process() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(batch);
+        process.process(exchange);
+        return exchange.getMessage().getBody();
+    }
+}
@@ -0,0 +1,88 @@
+package com.zmops.zeus.iot.server.receiver.handler.zabbix.worker;
+
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.server.datacarrier.DataCarrier;
+import com.zmops.zeus.server.datacarrier.buffer.BufferStrategy;
+import com.zmops.zeus.server.datacarrier.consumer.IConsumer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 发送队列入队、消费吞吐。
+ * <p>
+ * 与 {@link ItemDataTransferWorker} 相同的 DataCarrier 配置（4 通道 × 2000，IF_POSSIBLE，满时短暂 park 重试），
+ * 消费端只计数，不发送 Zabbix；worker 本身依赖模块管理器和遥测服务，这里不直接构造。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemDataTransferBenchmark {
+
+    private static final long OFFER_RETRY_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Param({"100"})
+    private int batchSize;
+
+    private DataCarrier<ItemValue> dataCarrier;
+
+    private final LongAdder consumed = new LongAdder();
+
+    private List<ItemValue> itemValues;
+
+    @Setup
+    public void setup() {
+        itemValues = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            ItemValue itemValue = new ItemValue("device-" + (i % 50), 1637000000000L + i);
+            itemValue.setKey("attr_" + i);
+            itemValue.setValue(String.valueOf(i));
+            itemValues.add(itemValue);
+        }
+
+        dataCarrier = new DataCarrier<>("ZABBIX_SENDER", "BENCHMARK_TRANSFER_TUNNEL", 4, 2000, BufferStrategy.IF_POSSIBLE);
+        dataCarrier.consume(new CountingConsumer(), 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataCarrier.shutdownConsumers();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void produce() {
+        for (ItemValue itemValue : itemValues) {
+            while (!dataCarrier.produce(itemValue)) {
+                LockSupport.parkNanos(OFFER_RETRY_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    public class CountingConsumer implements IConsumer<ItemValue> {
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void consume(List<ItemValue> data) {
+            consumed.add(data.size());
+        }
+
+        @Override
+        public void onError(List<ItemValue> data, Throwable t) {
+        }
+
+        @Override
+        public void onExit() {
+        }
+    }
+}
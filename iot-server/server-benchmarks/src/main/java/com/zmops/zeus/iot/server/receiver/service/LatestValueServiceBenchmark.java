@@ -0,0 +1,69 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 最新值表：百万监控项写入后的堆占用（Setup 时打印），单条更新和批量查询耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class LatestValueServiceBenchmark {
+
+    @Param({"1000000"})
+    private int items;
+
+    @Param({"1000"})
+    private int lookupSize;
+
+    private LatestValueService latestValues;
+
+    private int[][] lookups;
+
+    private int next;
+
+    private long clock = 1637000000000L;
+
+    @Setup
+    public void setup() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+
+        latestValues = new LatestValueService(items);
+        for (int i = 0; i < items; i++) {
+            latestValues.update(i, LatestValueService.TYPE_FLOAT, "1.5", clock, 0);
+        }
+
+        System.gc();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("%n# latest value table: %d items, about %d MB heap%n", items, (after - before) >> 20);
+
+        Random random = new Random(42);
+        lookups = new int[64][lookupSize];
+        for (int[] lookup : lookups) {
+            for (int i = 0; i < lookupSize; i++) {
+                lookup[i] = random.nextInt(items);
+            }
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        int itemid = next++ % items;
+        latestValues.update(itemid, LatestValueService.TYPE_FLOAT, "2.5", ++clock, 0);
+    }
+
+    @Benchmark
+    public Object batchGet() {
+        return latestValues.get(lookups[next++ & 63]);
+    }
+}
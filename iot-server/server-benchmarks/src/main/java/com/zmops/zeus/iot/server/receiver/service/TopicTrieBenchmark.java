@@ -0,0 +1,102 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQTT 通配主题路由查找，每次操作查 {@link #TOPICS} 个主题（命中 '+'、命中 '#'、未命中各占一部分）：
+ * <ul>
+ * <li>linear：逐个过滤器按 MQTT 规则比较</li>
+ * <li>trie：{@link TopicTrie}</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopicTrieBenchmark {
+
+    private static final int TOPICS = 1024;
+
+    @Param({"1000", "5000"})
+    private int filters;
+
+    private TopicTrie<String> trie;
+
+    private Map<String, String> linear;
+
+    private String[] topics;
+
+    @Setup
+    public void setup() {
+        trie = new TopicTrie<>();
+        linear = new LinkedHashMap<>();
+        for (int i = 0; i < filters; i++) {
+            String filter = i % 2 == 0 ? "tenant-" + i + "/+/telemetry" : "tenant-" + i + "/gateway/#";
+            trie.put(filter, "uid-" + i);
+            linear.put(filter, "uid-" + i);
+        }
+
+        Random random = new Random(42);
+        List<String> list = new ArrayList<>(TOPICS);
+        for (int i = 0; i < TOPICS; i++) {
+            int tenant = random.nextInt(filters);
+            switch (i % 3) {
+                case 0:
+                    list.add("tenant-" + tenant + "/device-" + i + "/telemetry");
+                    break;
+                case 1:
+                    list.add("tenant-" + tenant + "/gateway/device-" + i + "/up");
+                    break;
+                default:
+                    list.add("unknown-" + tenant + "/device-" + i + "/telemetry");
+                    break;
+            }
+        }
+        topics = list.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void linear(Blackhole bh) {
+        for (String topic : topics) {
+            String uniqueId = null;
+            for (Map.Entry<String, String> entry : linear.entrySet()) {
+                if (matches(entry.getKey(), topic)) {
+                    uniqueId = entry.getValue();
+                    break;
+                }
+            }
+            bh.consume(uniqueId);
+        }
+    }
+
+    @Benchmark
+    public void trie(Blackhole bh) {
+        for (String topic : topics) {
+            bh.consume(trie.match(topic));
+        }
+    }
+
+    private static boolean matches(String filter, String topic) {
+        String[] f = filter.split("/");
+        String[] t = topic.split("/");
+        for (int i = 0; i < f.length; i++) {
+            if ("#".equals(f[i])) {
+                return true;
+            }
+            if (i >= t.length || !("+".equals(f[i]) || f[i].equals(t[i]))) {
+                return false;
+            }
+        }
+        return f.length == t.length;
+    }
+}
@@ -0,0 +1,133 @@
+package com.zmops.zeus.iot.server.sender.provider;
+
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 向本地模拟 Trapper（每个连接处理一帧后关闭）发送数据，8 个线程并发：
+ * <ul>
+ * <li>perSocket：改造前的做法，每次新建阻塞 Socket，写完读到 EOF 后关闭</li>
+ * <li>pooled：{@link ZabbixSenderClient}，连接池限制并发连接数，非阻塞收发</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ZabbixSenderClientBenchmark {
+
+    private static final String RESPONSE = "{\"response\":\"success\",\"info\":\"processed: 50; failed: 0; total: 50; seconds spent: 0.000055\"}";
+
+    private EventLoopGroup serverGroup;
+
+    private ZabbixSenderClient client;
+
+    private int port;
+
+    private String message;
+
+    @Setup
+    public void setup() throws Exception {
+        serverGroup = new NioEventLoopGroup(2);
+        Channel server = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new LengthFieldBasedFrameDecoder(ByteOrder.LITTLE_ENDIAN, 16 * 1024 * 1024,
+                                        5, 4, 4, 0, true))
+                                .addLast(new SimpleChannelInboundHandler<ByteBuf>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                                        ctx.writeAndFlush(ZabbixTrapperFrame.wrap(RESPONSE)).addListener(ChannelFutureListener.CLOSE);
+                                    }
+                                });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+
+        ZabbixSenderModuleConfig config = new ZabbixSenderModuleConfig();
+        config.setHost("127.0.0.1");
+        config.setPort(port);
+        config.setPoolSize(8);
+        client = new ZabbixSenderClient(config);
+        client.start();
+
+        StringBuilder sb = new StringBuilder("{\"request\":\"sender data\",\"data\":[");
+        for (int i = 0; i < 50; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"host\":\"device-").append(i).append("\",\"key\":\"attr_").append(i)
+                    .append("\",\"value\":\"").append(i * 1.5).append("\",\"clock\":").append(1637000000L + i).append('}');
+        }
+        message = sb.append("]}").toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.shutdown();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public String perSocket() throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.setSoTimeout(1000);
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+
+            byte[] payload = message.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(ZabbixTrapperFrame.HEADER_LENGTH + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(new byte[]{'Z', 'B', 'X', 'D', 1}).putInt(payload.length).putInt(0).put(payload);
+
+            OutputStream out = socket.getOutputStream();
+            out.write(buffer.array());
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] response = new byte[2048];
+            StringBuilder resp = new StringBuilder();
+            int headLength = ZabbixTrapperFrame.HEADER_LENGTH;
+            int n;
+            while ((n = in.read(response)) > 0) {
+                resp.append(new String(Arrays.copyOfRange(response, headLength, n), StandardCharsets.UTF_8));
+                headLength = 0;
+            }
+            return resp.toString();
+        }
+    }
+
+    @Benchmark
+    public String pooled() throws Exception {
+        return client.send(ZabbixTrapperFrame.wrap(message)).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.dao;
+
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.storage.model.Model;
+import org.influxdb.dto.BatchPoints;
+import org.influxdb.dto.Point;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InfluxDB 行协议序列化，结果为每秒生成的数据点数。
+ * <ul>
+ * <li>legacy：改造前的做法，每条记录用 HashMap 字段构建 {@link Point}，放入 {@link BatchPoints} 后由 lineProtocol() 生成请求体</li>
+ * <li>current：{@link InfluxInsertRequest#appendTo(StringBuilder)} 直接追加到复用的 StringBuilder</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InfluxLineProtocolBenchmark {
+
+    private static final int POINTS = 1000;
+
+    private final StringBuilder body = new StringBuilder(128 * POINTS);
+
+    private List<History> histories;
+
+    private List<InfluxInsertRequest> requests;
+
+    @Setup
+    public void setup() {
+        Model model = new Model("history");
+        histories = new ArrayList<>(POINTS);
+        requests = new ArrayList<>(POINTS);
+        for (int i = 0; i < POINTS; i++) {
+            History history = new History();
+            history.setItemid(23000 + i);
+            history.setValue("device " + (i % 50), String.valueOf(i * 0.731), 1637000000000L + i);
+            histories.add(history);
+            requests.add(new InfluxInsertRequest(model, history));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int legacy() {
+        BatchPoints batch = BatchPoints.database("zeus_data").build();
+        for (History history : histories) {
+            Map<String, Object> fields = new HashMap<>();
+            fields.put("value", Double.parseDouble(history.getValue()));
+            batch.point(Point.measurement("h_" + history.getItemid())
+                    .fields(fields)
+                    .tag("deviceid", history.getDeviceId())
+                    .tag("itemid", history.getItemid() + "")
+                    .time(history.getClock(), TimeUnit.NANOSECONDS)
+                    .build());
+        }
+        return batch.lineProtocol().length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public int current() {
+        body.setLength(0);
+        for (InfluxInsertRequest request : requests) {
+            if (request.appendTo(body)) {
+                body.append('\n');
+            }
+        }
+        return body.length();
+    }
+}
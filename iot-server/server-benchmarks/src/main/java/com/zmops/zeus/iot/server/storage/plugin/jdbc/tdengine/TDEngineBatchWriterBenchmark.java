@@ -0,0 +1,46 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一批写入请求按子表分组并生成 SQL 文本（stmt 不可用时的写入路径）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TDEngineBatchWriterBenchmark {
+
+    @Param({"2500"})
+    private int batchSize;
+
+    @Param({"100"})
+    private int subTables;
+
+    private final TDEngineBatchWriter writer = new TDEngineBatchWriter(false, 65480);
+
+    private List<TDEngineInsertRequest> requests;
+
+    @Setup
+    public void setup() {
+        requests = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            int itemid = 23000 + i % subTables;
+            requests.add(new TDEngineInsertRequest(TDEngineTable.HISTORY, itemid, "device-" + (itemid % 10),
+                    1637000000000L + i, String.valueOf(i * 0.731)));
+        }
+    }
+
+    @Benchmark
+    public List<String> groupAndSql() {
+        return writer.toSql(TDEngineBatchWriter.group(requests));
+    }
+}
@@ -0,0 +1,35 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao;
+
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录转 TDengine 写入请求
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TDEngineSqlExecutorBenchmark {
+
+    private final TDEngineSqlExecutor executor = new TDEngineSqlExecutor();
+
+    private History history;
+
+    @Setup
+    public void setup() {
+        history = new History();
+        history.setItemid(23664);
+        history.setValue("device-1", "0.731", 1637000000123L);
+    }
+
+    @Benchmark
+    public TDEngineInsertRequest insertRequest() throws IOException {
+        return executor.getInsertExecutor("history", history);
+    }
+}
@@ -0,0 +1,50 @@
+package com.zmops.zeus.iot.server.telemetry.api;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 运行 {@link PipelineMetricsBenchmark}，流水线指标的单次记录开销超出预算时以非零状态退出，使 mvn -Pbenchmark verify 失败
+ */
+public class PipelineMetricsBudget {
+
+    /**
+     * finish 扣除 baseline（两次 nanoTime）后的预算，纳秒
+     */
+    static final double FINISH_BUDGET_NANOS = 100;
+
+    static final double COUNT_BUDGET_NANOS = 30;
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PipelineMetricsBenchmark.class.getName() + "\\.(baseline|prometheusFinish|prometheusCount)$")
+                .build();
+
+        Map<String, Double> scores = new HashMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String benchmark = result.getParams().getBenchmark();
+            scores.put(benchmark.substring(benchmark.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+        }
+
+        boolean withinBudget = check("prometheusFinish", scores.get("prometheusFinish") - scores.get("baseline"), FINISH_BUDGET_NANOS)
+                & check("prometheusCount", scores.get("prometheusCount"), COUNT_BUDGET_NANOS);
+        if (!withinBudget) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(String benchmark, double nanos, double budget) {
+        if (nanos > budget) {
+            System.err.printf("%s costs %.1f ns/op, over budget %.0f ns/op%n", benchmark, nanos, budget);
+            return false;
+        }
+        System.out.printf("%s costs %.1f ns/op, budget %.0f ns/op%n", benchmark, nanos, budget);
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.zmops.zeus.iot.server.telemetry.prometheus;
+
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.iot.server.telemetry.api.TelemetryRelatedContext;
+import com.zmops.zeus.iot.server.telemetry.prometheus.httpserver.ChunkedByteBufWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次抓取的耗时：series 个带标签的序列，对比原来的 String 拼接后整体拷贝和直接写入池化 ByteBuf 分块输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrometheusScrapeBenchmark {
+
+    @Param({"10000"})
+    private int series;
+
+    @Setup
+    public void setup() {
+        TelemetryRelatedContext.INSTANCE.setId("benchmark");
+        MetricsTag.Keys keys = new MetricsTag.Keys("stage", "protocol", "gateway");
+        PrometheusMetricsCreator creator = new PrometheusMetricsCreator();
+        for (int i = 0; i < series; i++) {
+            creator.createCounter("benchmark_series_count", "Benchmark series", keys,
+                    new MetricsTag.Values("parse", "tcp", "gateway-" + i)).inc(i);
+        }
+    }
+
+    /**
+     * 改造前：渲染为 String 后拷贝进非池化缓冲区
+     */
+    @Benchmark
+    public int stringBuilder() throws IOException {
+        StringWriter writer = new StringWriter();
+        TextFormat.write004(writer, CollectorRegistry.defaultRegistry.metricFamilySamples());
+        ByteBuf content = Unpooled.copiedBuffer(writer.toString(), StandardCharsets.UTF_8);
+        int size = content.readableBytes();
+        content.release();
+        return size;
+    }
+
+    /**
+     * 改造后：每次重新取快照，直接编码进 64KB 池化分块
+     */
+    @Benchmark
+    public int chunkedByteBuf() throws IOException {
+        MetricsSnapshot.setTtlMillis(0);
+        int[] size = new int[1];
+        ChunkedByteBufWriter writer = new ChunkedByteBufWriter(PooledByteBufAllocator.DEFAULT, 65536, chunk -> {
+            size[0] += chunk.readableBytes();
+            chunk.release();
+        });
+        TextFormat.write004(writer, Collections.enumeration(MetricsSnapshot.samples()));
+        writer.close();
+        return size[0];
+    }
+
+    /**
+     * 快照有效期内的读取，健康检查与抓取共享
+     */
+    @Benchmark
+    public Object sharedSnapshot() {
+        MetricsSnapshot.setTtlMillis(60000);
+        return MetricsSnapshot.families();
+    }
+}
@@ -0,0 +1,73 @@
+package com.zmops.zeus.iot.server.transfer.sender;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zabbix 历史数据导出行解析，样本按导出格式生成，含数值、字符、文本三种值类型和 item_tags、groups 等无用字段
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportLineParserBenchmark {
+
+    private static final int LINES = 10000;
+
+    private final ExportLineParser parser = new ExportLineParser();
+
+    private byte[][] lines;
+
+    @Setup
+    public void setup() {
+        lines = new byte[LINES][];
+        for (int i = 0; i < LINES; i++) {
+            String value;
+            int type;
+            switch (i % 10) {
+                case 0:
+                    type = 4;
+                    value = "\"Linux zabbix 5.4.0-90-generic #101-Ubuntu SMP x86_64\\n\"";
+                    break;
+                case 1:
+                    type = 1;
+                    value = "\"running\"";
+                    break;
+                case 2:
+                case 3:
+                case 4:
+                    type = 3;
+                    value = String.valueOf(1024L * i);
+                    break;
+                default:
+                    type = 0;
+                    value = String.valueOf(i * 0.731);
+            }
+            String line = "{\"host\":{\"host\":\"device-" + (i % 200) + "\",\"name\":\"设备 " + (i % 200) + "\"},"
+                    + "\"groups\":[\"Linux servers\",\"IoT\"],"
+                    + "\"item_tags\":[{\"tag\":\"Application\",\"value\":\"CPU\"},{\"tag\":\"component\",\"value\":\"system\"}],"
+                    + "\"itemid\":" + (23000 + i) + ",\"name\":\"CPU utilization\",\"clock\":" + (1637000000 + i)
+                    + ",\"ns\":" + (i * 7919 % 1000000000) + ",\"value\":" + value + ",\"type\":" + type + "}";
+            lines[i] = line.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 每次调用解析全部样本行，按行计数，结果即每秒解析行数
+     */
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long parse() {
+        long sum = 0;
+        for (byte[] line : lines) {
+            if (parser.parse(line)) {
+                sum += parser.timestamp() + parser.itemid;
+            }
+        }
+        return sum;
+    }
+}
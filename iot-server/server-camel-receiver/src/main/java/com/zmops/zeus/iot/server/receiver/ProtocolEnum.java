@@ -5,5 +5,5 @@ package com.zmops.zeus.iot.server.receiver;
  */
 public enum ProtocolEnum {
 
-    HttpServer, MqttClient, TcpServer, UdpServer, CoapServer, WebSocketServer
+    HttpServer, MqttClient, MqttBroker, TcpServer, UdpServer, CoapServer, WebSocketServer
 }
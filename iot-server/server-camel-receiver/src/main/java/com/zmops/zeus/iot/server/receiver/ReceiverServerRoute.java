@@ -1,7 +1,16 @@
 package com.zmops.zeus.iot.server.receiver;
 
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
+import com.zmops.zeus.server.library.module.ModuleManager;
 import lombok.Setter;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExtendedExchange;
+import org.apache.camel.Processor;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.support.SynchronizationAdapter;
 
 import java.util.Map;
 
@@ -20,4 +29,60 @@ public abstract class ReceiverServerRoute extends RouteBuilder {
         this.routeId = routeId;
         this.options = options;
     }
+
+    /**
+     * 读取整型参数，options 来自 JSON，可能是数字也可能是字符串
+     */
+    protected int optionInt(String key, int defaultValue) {
+        Object value = options == null ? null : options.get(key);
+        if (value == null || value.toString().isEmpty()) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return Integer.parseInt(value.toString().trim());
+    }
+
+    protected String optionString(String key, String defaultValue) {
+        Object value = options == null ? null : options.get(key);
+        if (value == null || value.toString().isEmpty()) {
+            return defaultValue;
+        }
+        return value.toString();
+    }
+
+    /**
+     * 接入阶段指标：FrameBatch 记录从解码完成到进入路由的耗时；
+     * HTTP、MQTT 客户端等逐条接收的消息记录从进入路由到交换结束（HTTP 响应、MQTT 消息处理完）的耗时，失败计入错误数
+     */
+    protected Processor receiveMetrics(String protocol) {
+        PipelineMetrics.Stage stage = PipelineMetrics.stage(metricsCreator(), PipelineMetrics.RECEIVE, protocol, routeId);
+        return exchange -> {
+            Object body = exchange.getMessage().getBody();
+            if (body instanceof FrameBatch) {
+                FrameBatch batch = (FrameBatch) body;
+                stage.finish(batch.getReceivedNanos(), batch.size());
+                return;
+            }
+
+            long start = stage.start();
+            exchange.adapt(ExtendedExchange.class).addOnCompletion(new SynchronizationAdapter() {
+                @Override
+                public void onComplete(Exchange exchange) {
+                    stage.finish(start, 1);
+                }
+
+                @Override
+                public void onFailure(Exchange exchange) {
+                    stage.observe(System.nanoTime() - start);
+                    stage.error(1);
+                }
+            });
+        };
+    }
+
+    protected MetricsCreator metricsCreator() {
+        return ModuleManager.getInstance().find(TelemetryModule.NAME).provider().getService(MetricsCreator.class);
+    }
 }
@@ -23,6 +23,6 @@ public class ArkBizComponent extends DefaultComponent {
         String uniqueId = getAndRemoveParameter(parameters, "uniqueId", String.class);
         String methodName = getAndRemoveParameter(parameters, "methodName", String.class);
 
-        return new ArkBizEndpoint(uri, this, moduleManager, uniqueId, methodName);
+        return new ArkBizEndpoint(uri, this, moduleManager, remaining, uniqueId, methodName);
     }
 }
@@ -19,10 +19,10 @@ public class ArkBizEndpoint extends DefaultEndpoint {
     private final ArkBizProducer producer;
 
     public ArkBizEndpoint(String endpointUri, Component component, ModuleManager moduleManager,
-                          String uniqueId, String methodName) {
+                          String protocol, String uniqueId, String methodName) {
         super(endpointUri, component);
         this.moduleManager = moduleManager;
-        this.producer = new ArkBizProducer(this, moduleManager, uniqueId, methodName);
+        this.producer = new ArkBizProducer(this, moduleManager, protocol, uniqueId, methodName);
     }
 
 
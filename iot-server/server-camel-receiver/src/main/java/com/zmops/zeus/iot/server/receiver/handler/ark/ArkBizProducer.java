@@ -3,19 +3,29 @@ package com.zmops.zeus.iot.server.receiver.handler.ark;
 import com.zmops.zeus.dto.DataMessage;
 import com.zmops.zeus.dto.ItemValue;
 import com.zmops.zeus.facade.DynamicProcotol;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
 import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.routes.NettyIngestRouteBuilder;
 import com.zmops.zeus.iot.server.receiver.service.ReferenceClientService;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.library.module.ModuleManager;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.Endpoint;
 import org.apache.camel.Exchange;
 import org.apache.camel.support.DefaultProducer;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author nantian created at 2021/12/2 22:35
  */
+@Slf4j
 @SuppressWarnings("all")
 public class ArkBizProducer extends DefaultProducer {
 
@@ -23,9 +33,20 @@ public class ArkBizProducer extends DefaultProducer {
 
     private final DynamicProcotol dynamicProcotol;
 
-    public ArkBizProducer(Endpoint endpoint, ModuleManager moduleManager, String uniqueId, String methodName) {
+    private final String protocol;
+
+    private final MetricsCreator metricsCreator;
+
+    /**
+     * 插件阶段指标，按来源路由（网关）缓存
+     */
+    private final Map<String, PipelineMetrics.Stage> pluginStages = new ConcurrentHashMap<>();
+
+    public ArkBizProducer(Endpoint endpoint, ModuleManager moduleManager, String protocol, String uniqueId, String methodName) {
         super(endpoint);
         this.moduleManager = moduleManager;
+        this.protocol = protocol;
+        this.metricsCreator = moduleManager.find(TelemetryModule.NAME).provider().getService(MetricsCreator.class);
 
         ReferenceClientService referenceClientService = moduleManager.find(CamelReceiverModule.NAME)
                 .provider().getService(ReferenceClientService.class);
@@ -34,17 +55,66 @@ public class ArkBizProducer extends DefaultProducer {
 
     @Override
     public void process(Exchange exchange) throws Exception {
+        PipelineMetrics.Stage stage = pluginStage(exchange.getFromRouteId());
+        long start = stage.start();
 
-        DataMessage message = new DataMessage();
-        message.setBody(exchange.getMessage().getBody());
-        message.setHeaders(exchange.getMessage().getHeaders());
+        Object body = exchange.getMessage().getBody();
 
-        List<ItemValue> itemValueList = dynamicProcotol.protocolHandler(message);
+        List<ItemValue> itemValueList;
+        if (body instanceof FrameBatch) {
+            // 同一连接的一批帧逐帧交给插件解析，结果合并后一次进入发送队列，解析失败的帧计数后跳过
+            FrameBatch batch = (FrameBatch) body;
+            itemValueList = new ArrayList<>();
+            int badFrames = 0;
+            for (byte[] frame : batch.getFrames()) {
+                try {
+                    List<ItemValue> values = protocolHandler(frame, exchange);
+                    if (values != null) {
+                        itemValueList.addAll(values);
+                    }
+                } catch (RuntimeException e) {
+                    badFrames++;
+                    log.debug("plugin failed to parse frame from {}: {}", batch.getRemoteAddress(), e.getMessage());
+                }
+            }
+            if (badFrames > 0) {
+                stage.error(badFrames);
+                log.warn("{} of {} frames from {} could not be parsed", badFrames, batch.size(), batch.getRemoteAddress());
+            }
+        } else {
+            try {
+                itemValueList = protocolHandler(body, exchange);
+            } catch (Exception e) {
+                stage.error(1);
+                throw e;
+            }
+        }
 
         if (itemValueList == null) {
             itemValueList = Collections.emptyList();
         }
 
+        stage.finish(start, itemValueList.size());
         exchange.getIn().setBody(itemValueList);
     }
+
+    private PipelineMetrics.Stage pluginStage(String fromRouteId) {
+        String routeId = fromRouteId == null ? PipelineMetrics.ALL : fromRouteId;
+        PipelineMetrics.Stage stage = pluginStages.get(routeId);
+        if (stage == null || stage.isRemoved()) {
+            // 路由停止后移除的指标不再缓存，重启的路由重新取得
+            pluginStages.values().removeIf(PipelineMetrics.Stage::isRemoved);
+            stage = pluginStages.computeIfAbsent(routeId, key -> PipelineMetrics.stage(metricsCreator,
+                    PipelineMetrics.PLUGIN, protocol, NettyIngestRouteBuilder.gatewayOf(key)));
+        }
+        return stage;
+    }
+
+    private List<ItemValue> protocolHandler(Object body, Exchange exchange) {
+        DataMessage message = new DataMessage();
+        message.setBody(body);
+        message.setHeaders(exchange.getMessage().getHeaders());
+
+        return dynamicProcotol.protocolHandler(message);
+    }
 }
@@ -0,0 +1,59 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 长连接的读取流控：一次读取结束后如果下游发送队列已满，关闭 autoRead，
+ * 数据留在 TCP 接收缓冲区，由 TCP 窗口向客户端施加背压；之后定时检查，队列恢复后再打开。
+ * 每个连接一个实例。
+ */
+public class BackpressureHandler extends ChannelInboundHandlerAdapter {
+
+    private static final long RESUME_CHECK_INTERVAL_MILLIS = 20;
+
+    private final BooleanSupplier saturated;
+
+    private final CounterMetrics pausedCounter;
+
+    private boolean paused;
+
+    /**
+     * @param saturated     下游是否已满
+     * @param pausedCounter 暂停读取次数
+     */
+    public BackpressureHandler(BooleanSupplier saturated, CounterMetrics pausedCounter) {
+        this.saturated = saturated;
+        this.pausedCounter = pausedCounter;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        ctx.fireChannelReadComplete();
+
+        if (!paused && saturated.getAsBoolean()) {
+            paused = true;
+            ctx.channel().config().setAutoRead(false);
+            pausedCounter.inc();
+            scheduleResume(ctx);
+        }
+    }
+
+    private void scheduleResume(ChannelHandlerContext ctx) {
+        ctx.executor().schedule(() -> {
+            if (!ctx.channel().isActive()) {
+                return;
+            }
+            if (saturated.getAsBoolean()) {
+                scheduleResume(ctx);
+                return;
+            }
+            paused = false;
+            ctx.channel().config().setAutoRead(true);
+        }, RESUME_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,255 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * CoAP（RFC 7252）服务端请求处理，只接收 POST/PUT 上报：
+ * <ul>
+ * <li>CON 请求在所属批次进入分发队列后回复 ACK（2.04 Changed），队列满被丢弃时回复 5.03，NON 请求不回复</li>
+ * <li>CON 重传（同一来源、同一 Message ID）只重发 ACK，不重复上报；入队前收到的重传忽略，5.03 不缓存，客户端可重试</li>
+ * <li>其他方法回复 4.05，报文格式错误回复 4.00，空 CON（CoAP ping）回复 RST</li>
+ * </ul>
+ * 请求 payload 作为一帧向后传递给 {@link FrameBatchHandler}。UDP 只有一个 channel，每个 Server 一个实例。
+ */
+public class CoapRequestHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private static final int VERSION = 1;
+
+    private static final int TYPE_CON = 0;
+    private static final int TYPE_NON = 1;
+    private static final int TYPE_ACK = 2;
+    private static final int TYPE_RST = 3;
+
+    private static final int CODE_EMPTY = 0x00;
+    private static final int CODE_POST = 0x02;
+    private static final int CODE_PUT = 0x03;
+    private static final int CODE_CHANGED = 0x44;
+    private static final int CODE_BAD_REQUEST = 0x80;
+    private static final int CODE_NOT_FOUND = 0x84;
+    private static final int CODE_METHOD_NOT_ALLOWED = 0x85;
+    private static final int CODE_SERVICE_UNAVAILABLE = 0xA3;
+
+    /**
+     * 请求已交给下游，等入队结果再回复
+     */
+    private static final int PENDING = -1;
+
+    private static final int OPTION_URI_PATH = 11;
+
+    private static final int PAYLOAD_MARKER = 0xFF;
+
+    /**
+     * 记录最近处理过的 CON 消息，用于识别重传
+     */
+    private static final int DEDUPLICATION_SIZE = 4096;
+
+    private final String path;
+
+    private final Map<String, Integer> recentMessages = new LinkedHashMap<String, Integer>(DEDUPLICATION_SIZE, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > DEDUPLICATION_SIZE;
+        }
+    };
+
+    /**
+     * @param path 只接收该 Uri-Path 的请求，如 data 或 device/data，为空时不校验
+     */
+    public CoapRequestHandler(String path) {
+        this.path = path;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        ByteBuf in = packet.content();
+        InetSocketAddress sender = packet.sender();
+
+        if (in.readableBytes() < 4) {
+            return;
+        }
+
+        int first = in.readUnsignedByte();
+        int version = first >> 6;
+        int type = (first >> 4) & 0x03;
+        int tokenLength = first & 0x0F;
+        int code = in.readUnsignedByte();
+        int messageId = in.readUnsignedShort();
+
+        // ACK/RST 是客户端对我方消息的回应，服务端不会主动发请求，直接忽略
+        if (version != VERSION || type == TYPE_ACK || type == TYPE_RST) {
+            return;
+        }
+
+        if (tokenLength > 8 || in.readableBytes() < tokenLength) {
+            reply(ctx, sender, TYPE_RST, CODE_EMPTY, messageId, null);
+            return;
+        }
+        byte[] token = new byte[tokenLength];
+        in.readBytes(token);
+
+        if (code == CODE_EMPTY) {
+            if (type == TYPE_CON) {
+                reply(ctx, sender, TYPE_RST, CODE_EMPTY, messageId, null);
+            }
+            return;
+        }
+
+        String key = sender + "#" + messageId;
+        if (type == TYPE_CON && recentMessages.containsKey(key)) {
+            int cached = recentMessages.get(key);
+            if (cached != PENDING) {
+                reply(ctx, sender, TYPE_ACK, cached, messageId, token);
+            }
+            return;
+        }
+
+        if (type == TYPE_CON) {
+            // 批次凑满时在 handle 内就会入队并回调，需先标记
+            recentMessages.put(key, PENDING);
+        }
+        int responseCode = handle(ctx, code, in, type == TYPE_CON ? new AckListener(ctx, sender, messageId, token, key) : null);
+
+        if (type == TYPE_CON) {
+            if (responseCode != PENDING) {
+                recentMessages.put(key, responseCode);
+                reply(ctx, sender, TYPE_ACK, responseCode, messageId, token);
+            }
+        } else if (type == TYPE_NON && responseCode != CODE_CHANGED) {
+            reply(ctx, sender, TYPE_NON, responseCode, messageId, token);
+        }
+    }
+
+    /**
+     * @param listener CON 请求的入队回调，NON 请求为 null
+     * @return 响应码，payload 已交给下游且需等待入队结果时返回 {@link #PENDING}
+     */
+    private int handle(ChannelHandlerContext ctx, int code, ByteBuf in, AckListener listener) {
+        if (code != CODE_POST && code != CODE_PUT) {
+            return CODE_METHOD_NOT_ALLOWED;
+        }
+
+        StringBuilder uriPath = new StringBuilder();
+        int optionNumber = 0;
+        while (in.isReadable()) {
+            int optionHeader = in.readUnsignedByte();
+            if (optionHeader == PAYLOAD_MARKER) {
+                break;
+            }
+
+            int delta = readOptionNibble(in, optionHeader >> 4);
+            int length = readOptionNibble(in, optionHeader & 0x0F);
+            if (delta < 0 || length < 0 || in.readableBytes() < length) {
+                return CODE_BAD_REQUEST;
+            }
+
+            optionNumber += delta;
+            if (optionNumber == OPTION_URI_PATH) {
+                if (uriPath.length() > 0) {
+                    uriPath.append('/');
+                }
+                uriPath.append(in.toString(in.readerIndex(), length, StandardCharsets.UTF_8));
+            }
+            in.skipBytes(length);
+        }
+
+        if (path != null && !path.contentEquals(uriPath)) {
+            return CODE_NOT_FOUND;
+        }
+
+        if (!in.isReadable()) {
+            return CODE_CHANGED;
+        }
+        if (listener == null) {
+            ctx.fireChannelRead(in.retainedSlice());
+            return CODE_CHANGED;
+        }
+        ctx.fireChannelRead(new DispatchFrame(in.retainedSlice(), listener));
+        return PENDING;
+    }
+
+    /**
+     * 选项 delta/length 的扩展编码：13 表示后跟 1 字节，14 表示后跟 2 字节，15 保留
+     */
+    private static int readOptionNibble(ByteBuf in, int nibble) {
+        if (nibble < 13) {
+            return nibble;
+        }
+        if (nibble == 13 && in.isReadable()) {
+            return in.readUnsignedByte() + 13;
+        }
+        if (nibble == 14 && in.readableBytes() >= 2) {
+            return in.readUnsignedShort() + 269;
+        }
+        return -1;
+    }
+
+    private static void reply(ChannelHandlerContext ctx, InetSocketAddress recipient,
+                              int type, int code, int messageId, byte[] token) {
+        int tokenLength = token == null ? 0 : token.length;
+
+        ByteBuf out = ctx.alloc().buffer(4 + tokenLength);
+        out.writeByte((VERSION << 6) | (type << 4) | tokenLength);
+        out.writeByte(code);
+        out.writeShort(messageId);
+        if (tokenLength > 0) {
+            out.writeBytes(token);
+        }
+        ctx.writeAndFlush(new DatagramPacket(out, recipient));
+    }
+
+    /**
+     * CON 请求所属批次的入队结果，回调可能不在 IO 线程，统一切回 channel 的 EventLoop 处理
+     */
+    private class AckListener implements FrameBatch.DispatchListener {
+
+        private final ChannelHandlerContext ctx;
+
+        private final InetSocketAddress sender;
+
+        private final int messageId;
+
+        private final byte[] token;
+
+        private final String key;
+
+        AckListener(ChannelHandlerContext ctx, InetSocketAddress sender, int messageId, byte[] token, String key) {
+            this.ctx = ctx;
+            this.sender = sender;
+            this.messageId = messageId;
+            this.token = token;
+            this.key = key;
+        }
+
+        @Override
+        public void onDispatched() {
+            inEventLoop(() -> {
+                recentMessages.put(key, CODE_CHANGED);
+                reply(ctx, sender, TYPE_ACK, CODE_CHANGED, messageId, token);
+            });
+        }
+
+        @Override
+        public void onRejected() {
+            inEventLoop(() -> {
+                recentMessages.remove(key);
+                reply(ctx, sender, TYPE_ACK, CODE_SERVICE_UNAVAILABLE, messageId, token);
+            });
+        }
+
+        private void inEventLoop(Runnable task) {
+            if (ctx.executor().inEventLoop()) {
+                task.run();
+            } else {
+                ctx.executor().execute(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限制单个接入端口的最大连接数，超出时直接关闭新连接，被拒绝的连接不计入连接数
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class ConnectionLimitHandler extends ChannelInboundHandlerAdapter {
+
+    private static final AttributeKey<Boolean> ACCEPTED = AttributeKey.valueOf(ConnectionLimitHandler.class, "accepted");
+
+    private final int maxConnections;
+
+    private final GaugeMetrics connectionGauge;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public ConnectionLimitHandler(int maxConnections, GaugeMetrics connectionGauge) {
+        this.maxConnections = maxConnections;
+        this.connectionGauge = connectionGauge;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        int current = connections.incrementAndGet();
+        if (current > maxConnections) {
+            connections.decrementAndGet();
+            log.warn("connection limit {} reached, reject {}", maxConnections, ctx.channel().remoteAddress());
+            ctx.close();
+            return;
+        }
+
+        ctx.channel().attr(ACCEPTED).set(Boolean.TRUE);
+        connectionGauge.setValue(current);
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().attr(ACCEPTED).getAndSet(null) != null) {
+            connectionGauge.setValue(connections.decrementAndGet());
+        }
+        super.channelInactive(ctx);
+    }
+}
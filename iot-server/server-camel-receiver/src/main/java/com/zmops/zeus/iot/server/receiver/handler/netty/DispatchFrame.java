@@ -0,0 +1,21 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+
+/**
+ * 需要在所属批次入队（或被丢弃）后得到通知的数据帧，{@link FrameBatchHandler} 将监听器挂到所在批次上
+ */
+public class DispatchFrame extends DefaultByteBufHolder {
+
+    private final FrameBatch.DispatchListener listener;
+
+    public DispatchFrame(ByteBuf content, FrameBatch.DispatchListener listener) {
+        super(content);
+        this.listener = listener;
+    }
+
+    public FrameBatch.DispatchListener listener() {
+        return listener;
+    }
+}
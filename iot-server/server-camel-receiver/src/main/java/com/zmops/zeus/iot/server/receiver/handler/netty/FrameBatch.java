@@ -0,0 +1,77 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 同一连接上一次读取中解码出的多个数据帧，作为一个 Camel 消息进入路由。
+ * MQTT Broker 模式下同一批次的帧属于同一个发布主题。
+ * <p>
+ * 需要确认的协议（CoAP CON、MQTT QoS 1）通过 {@link DispatchListener} 得知批次是否已进入分发队列，
+ * 入队成功后才回复确认。
+ */
+@Getter
+public class FrameBatch {
+
+    private final List<byte[]> frames;
+
+    private final String remoteAddress;
+
+    private final String topic;
+
+    /**
+     * 解码完成时间，System.nanoTime()，用于接入阶段耗时
+     */
+    private final long receivedNanos;
+
+    private List<DispatchListener> listeners;
+
+    public FrameBatch(List<byte[]> frames, String remoteAddress) {
+        this(frames, remoteAddress, null);
+    }
+
+    public FrameBatch(List<byte[]> frames, String remoteAddress, String topic) {
+        this.frames = frames;
+        this.remoteAddress = remoteAddress;
+        this.topic = topic;
+        this.receivedNanos = System.nanoTime();
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    public void addListener(DispatchListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * 批次已进入分发队列
+     */
+    public void dispatched() {
+        if (listeners != null) {
+            listeners.forEach(DispatchListener::onDispatched);
+        }
+    }
+
+    /**
+     * 批次被丢弃，如分发队列已满
+     */
+    public void rejected() {
+        if (listeners != null) {
+            listeners.forEach(DispatchListener::onRejected);
+        }
+    }
+
+    public interface DispatchListener {
+
+        void onDispatched();
+
+        void onRejected();
+    }
+}
@@ -0,0 +1,98 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按连接聚合已解码的数据帧：凑满 batchSize 或一次读取结束（channelReadComplete）时，
+ * 以 {@link FrameBatch} 向后传递，每个连接一个实例。
+ * <p>
+ * UDP 下整个 Server 只有一个 channel，一次读取循环内收到的多个报文（{@link DatagramPacket}）聚合为一批。
+ * {@link DispatchFrame} 的监听器随帧挂到所在批次上。
+ */
+public class FrameBatchHandler extends ChannelInboundHandlerAdapter {
+
+    private final int batchSize;
+
+    private final CounterMetrics frameCounter;
+
+    private final CounterMetrics byteCounter;
+
+    private List<byte[]> frames;
+
+    private List<FrameBatch.DispatchListener> listeners;
+
+    public FrameBatchHandler(int batchSize, CounterMetrics frameCounter, CounterMetrics byteCounter) {
+        this.batchSize = batchSize;
+        this.frameCounter = frameCounter;
+        this.byteCounter = byteCounter;
+        this.frames = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        ByteBuf frame;
+        if (msg instanceof DispatchFrame) {
+            frame = ((DispatchFrame) msg).content();
+            if (listeners == null) {
+                listeners = new ArrayList<>();
+            }
+            listeners.add(((DispatchFrame) msg).listener());
+        } else if (msg instanceof ByteBuf) {
+            frame = (ByteBuf) msg;
+        } else if (msg instanceof DatagramPacket) {
+            frame = ((DatagramPacket) msg).content();
+        } else {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        try {
+            frameCounter.inc();
+            byteCounter.inc(frame.readableBytes());
+            frames.add(ByteBufUtil.getBytes(frame));
+        } finally {
+            ReferenceCountUtil.release(frame);
+        }
+
+        if (frames.size() >= batchSize) {
+            flush(ctx);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        flush(ctx);
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        flush(ctx);
+        ctx.fireChannelInactive();
+    }
+
+    private void flush(ChannelHandlerContext ctx) {
+        if (frames.isEmpty()) {
+            return;
+        }
+
+        SocketAddress remoteAddress = ctx.channel().remoteAddress();
+        FrameBatch batch = new FrameBatch(frames, remoteAddress == null ? null : remoteAddress.toString());
+        frames = new ArrayList<>(batchSize);
+        if (listeners != null) {
+            listeners.forEach(batch::addListener);
+            listeners = null;
+        }
+        ctx.fireChannelRead(batch);
+    }
+}
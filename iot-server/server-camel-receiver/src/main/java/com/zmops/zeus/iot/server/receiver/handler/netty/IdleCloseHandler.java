@@ -0,0 +1,27 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 配合 IdleStateHandler 使用，连接空闲超时后关闭
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class IdleCloseHandler extends ChannelInboundHandlerAdapter {
+
+    public static final IdleCloseHandler INSTANCE = new IdleCloseHandler();
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent) {
+            log.debug("connection {} idle, close it", ctx.channel().remoteAddress());
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
@@ -0,0 +1,387 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.receiver.service.TopicTrie;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.mqtt.MqttConnAckMessage;
+import io.netty.handler.codec.mqtt.MqttConnAckVariableHeader;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPubAckMessage;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttSubAckMessage;
+import io.netty.handler.codec.mqtt.MqttSubAckPayload;
+import io.netty.handler.codec.mqtt.MqttSubscribeMessage;
+import io.netty.handler.codec.mqtt.MqttUnacceptableProtocolVersionException;
+import io.netty.handler.codec.mqtt.MqttUnsubscribeMessage;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内置 MQTT Broker 的连接处理，只做数据接入：
+ * <ul>
+ * <li>支持 MQTT 3.1.1 / 5 的 CONNECT、PUBLISH（QoS 0/1）、PING、DISCONNECT</li>
+ * <li>配置了用户名密码时校验 CONNECT 携带的凭据，不匹配返回用户名或密码错误并断开</li>
+ * <li>QoS 1 在所属批次交给下游（{@link FrameBatch.DispatchListener}）后回复 PUBACK；下游处理失败或丢弃了数据时断开连接，
+ * 未确认的消息由客户端重连后重发</li>
+ * <li>QoS 2 不支持，断开连接；SUBSCRIBE 一律返回失败码，Broker 不向客户端转发消息，也不保存保留消息</li>
+ * <li>按客户端限速，超出速率时暂停读取，直到令牌恢复</li>
+ * </ul>
+ * 一次读取中同一主题的消息聚合为一个 {@link FrameBatch}，主题用于选择协议插件。每个连接一个实例。
+ */
+@Slf4j
+public class MqttBrokerHandler extends ChannelInboundHandlerAdapter {
+
+    private static final int SUBACK_FAILURE = 0x80;
+
+    private static final String KEEP_ALIVE_HANDLER = "mqttKeepAlive";
+
+    private final TopicTrie<Boolean> topicFilters;
+
+    private final String username;
+
+    private final byte[] password;
+
+    private final boolean discardRetained;
+
+    private final int maxPublishRate;
+
+    private final int batchSize;
+
+    private final CounterMetrics frameCounter;
+
+    private final CounterMetrics byteCounter;
+
+    private final CounterMetrics rateLimitedCounter;
+
+    private boolean connected;
+
+    private String clientId;
+
+    private final Map<String, PendingBatch> pending = new LinkedHashMap<>();
+
+    private int pendingCount;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private boolean paused;
+
+    /**
+     * @param topicFilters       接收的主题过滤器，为 null 时接收全部主题
+     * @param username           CONNECT 必须携带的用户名，为 null 时不校验
+     * @param password           CONNECT 必须携带的密码，username 为 null 时忽略
+     * @param discardRetained    丢弃带 retain 标志的消息，避免设备重连时重复上报旧值
+     * @param maxPublishRate     单个客户端每秒最多消息数，0 不限速
+     * @param batchSize          每个连接聚合多少条消息后投递
+     * @param frameCounter       接收消息数
+     * @param byteCounter        接收 payload 字节数
+     * @param rateLimitedCounter 限速触发次数
+     */
+    public MqttBrokerHandler(TopicTrie<Boolean> topicFilters, String username, String password,
+                             boolean discardRetained, int maxPublishRate, int batchSize,
+                             CounterMetrics frameCounter, CounterMetrics byteCounter, CounterMetrics rateLimitedCounter) {
+        this.topicFilters = topicFilters;
+        this.username = username;
+        this.password = password == null ? new byte[0] : password.getBytes(StandardCharsets.UTF_8);
+        this.discardRetained = discardRetained;
+        this.maxPublishRate = maxPublishRate;
+        this.batchSize = batchSize;
+        this.frameCounter = frameCounter;
+        this.byteCounter = byteCounter;
+        this.rateLimitedCounter = rateLimitedCounter;
+        this.tokens = maxPublishRate;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof MqttMessage)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        MqttMessage message = (MqttMessage) msg;
+        try {
+            if (message.decoderResult().isFailure()) {
+                decodeFailure(ctx, message.decoderResult().cause());
+                return;
+            }
+
+            MqttMessageType type = message.fixedHeader().messageType();
+            if (!connected && type != MqttMessageType.CONNECT) {
+                ctx.close();
+                return;
+            }
+
+            switch (type) {
+                case CONNECT:
+                    connect(ctx, (MqttConnectMessage) message);
+                    break;
+                case PUBLISH:
+                    publish(ctx, (MqttPublishMessage) message);
+                    break;
+                case SUBSCRIBE:
+                    subscribe(ctx, (MqttSubscribeMessage) message);
+                    break;
+                case UNSUBSCRIBE:
+                    ctx.write(new MqttMessage(fixedHeader(MqttMessageType.UNSUBACK),
+                            MqttMessageIdVariableHeader.from(((MqttUnsubscribeMessage) message).variableHeader().messageId())));
+                    break;
+                case PINGREQ:
+                    ctx.write(new MqttMessage(fixedHeader(MqttMessageType.PINGRESP)));
+                    break;
+                case DISCONNECT:
+                    flushPending(ctx);
+                    ctx.close();
+                    break;
+                default:
+                    break;
+            }
+        } finally {
+            ReferenceCountUtil.release(message);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        flushPending(ctx);
+        ctx.flush();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        flushPending(ctx);
+        ctx.fireChannelInactive();
+    }
+
+    private void decodeFailure(ChannelHandlerContext ctx, Throwable cause) {
+        if (cause instanceof MqttUnacceptableProtocolVersionException) {
+            connAck(ctx, MqttConnectReturnCode.CONNECTION_REFUSED_UNACCEPTABLE_PROTOCOL_VERSION)
+                    .addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+        log.warn("mqtt client {} sent a malformed packet, close it: {}", ctx.channel().remoteAddress(), cause.getMessage());
+        ctx.close();
+    }
+
+    private void connect(ChannelHandlerContext ctx, MqttConnectMessage message) {
+        if (connected) {
+            // 同一连接重复 CONNECT 属于协议错误
+            ctx.close();
+            return;
+        }
+
+        if (!authenticate(message)) {
+            log.warn("mqtt client {} from {} sent bad credentials, refuse it",
+                    message.payload().clientIdentifier(), ctx.channel().remoteAddress());
+            MqttConnectReturnCode returnCode = message.variableHeader().version() >= 5
+                    ? MqttConnectReturnCode.CONNECTION_REFUSED_BAD_USERNAME_OR_PASSWORD
+                    : MqttConnectReturnCode.CONNECTION_REFUSED_BAD_USER_NAME_OR_PASSWORD;
+            connAck(ctx, returnCode).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+
+        connected = true;
+        clientId = message.payload().clientIdentifier();
+
+        int keepAlive = message.variableHeader().keepAliveTimeSeconds();
+        if (keepAlive > 0) {
+            ctx.pipeline().addFirst(KEEP_ALIVE_HANDLER,
+                    new IdleStateHandler(keepAlive * 3L / 2, 0, 0, TimeUnit.SECONDS));
+        }
+
+        connAck(ctx, MqttConnectReturnCode.CONNECTION_ACCEPTED);
+        log.debug("mqtt client {} connected from {}", clientId, ctx.channel().remoteAddress());
+    }
+
+    private void publish(ChannelHandlerContext ctx, MqttPublishMessage message) {
+        MqttQoS qos = message.fixedHeader().qosLevel();
+        if (qos == MqttQoS.EXACTLY_ONCE) {
+            log.warn("mqtt client {} published with qos 2, which is not supported, close it", clientId);
+            ctx.close();
+            return;
+        }
+
+        ByteBuf payload = message.payload();
+        frameCounter.inc();
+        byteCounter.inc(payload.readableBytes());
+
+        String topic = message.variableHeader().topicName();
+        boolean accepted = !(discardRetained && message.fixedHeader().isRetain())
+                && (topicFilters == null || topicFilters.match(topic) != null);
+
+        int packetId = message.variableHeader().packetId();
+        if (accepted) {
+            PendingBatch batch = pending.computeIfAbsent(topic, t -> new PendingBatch());
+            batch.frames.add(ByteBufUtil.getBytes(payload));
+            if (qos == MqttQoS.AT_LEAST_ONCE) {
+                batch.packetIds.add(packetId);
+            }
+            if (++pendingCount >= batchSize) {
+                flushPending(ctx);
+            }
+        } else if (qos == MqttQoS.AT_LEAST_ONCE) {
+            // 按配置丢弃的消息直接确认
+            ctx.write(pubAck(packetId));
+        }
+
+        acquirePermit(ctx);
+    }
+
+    private void subscribe(ChannelHandlerContext ctx, MqttSubscribeMessage message) {
+        int[] codes = new int[message.payload().topicSubscriptions().size()];
+        Arrays.fill(codes, SUBACK_FAILURE);
+
+        ctx.write(new MqttSubAckMessage(fixedHeader(MqttMessageType.SUBACK),
+                MqttMessageIdVariableHeader.from(message.variableHeader().messageId()),
+                new MqttSubAckPayload(codes)));
+    }
+
+    /**
+     * 令牌桶限速，令牌不足时关闭 autoRead，按欠缺的令牌数计算恢复时间
+     */
+    private void acquirePermit(ChannelHandlerContext ctx) {
+        if (maxPublishRate <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        tokens = Math.min(maxPublishRate, tokens + (now - lastRefillNanos) * maxPublishRate / 1e9);
+        lastRefillNanos = now;
+        tokens -= 1;
+
+        if (tokens >= 0 || paused) {
+            return;
+        }
+
+        paused = true;
+        rateLimitedCounter.inc();
+        ctx.channel().config().setAutoRead(false);
+
+        long delayNanos = (long) (-tokens * 1e9 / maxPublishRate);
+        ctx.executor().schedule(() -> {
+            paused = false;
+            ctx.channel().config().setAutoRead(true);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void flushPending(ChannelHandlerContext ctx) {
+        if (pendingCount == 0) {
+            return;
+        }
+
+        SocketAddress remoteAddress = ctx.channel().remoteAddress();
+        List<FrameBatch> batches = new ArrayList<>(pending.size());
+        for (Map.Entry<String, PendingBatch> entry : pending.entrySet()) {
+            FrameBatch batch = new FrameBatch(entry.getValue().frames,
+                    remoteAddress == null ? null : remoteAddress.toString(), entry.getKey());
+            if (!entry.getValue().packetIds.isEmpty()) {
+                batch.addListener(new PubAckListener(ctx, entry.getValue().packetIds));
+            }
+            batches.add(batch);
+        }
+        // 先清空再向后传递，下游同步回调时不会看到已交出的数据
+        pending.clear();
+        pendingCount = 0;
+
+        for (FrameBatch batch : batches) {
+            ctx.fireChannelRead(batch);
+        }
+    }
+
+    private boolean authenticate(MqttConnectMessage message) {
+        if (username == null) {
+            return true;
+        }
+        if (!message.variableHeader().hasUserName() || !username.equals(message.payload().userName())) {
+            return false;
+        }
+        byte[] actual = message.variableHeader().hasPassword() ? message.payload().passwordInBytes() : new byte[0];
+        return MessageDigest.isEqual(password, actual == null ? new byte[0] : actual);
+    }
+
+    private ChannelFuture connAck(ChannelHandlerContext ctx, MqttConnectReturnCode returnCode) {
+        return ctx.writeAndFlush(new MqttConnAckMessage(fixedHeader(MqttMessageType.CONNACK),
+                new MqttConnAckVariableHeader(returnCode, false)));
+    }
+
+    private static MqttPubAckMessage pubAck(int packetId) {
+        return new MqttPubAckMessage(fixedHeader(MqttMessageType.PUBACK), MqttMessageIdVariableHeader.from(packetId));
+    }
+
+    private static MqttFixedHeader fixedHeader(MqttMessageType type) {
+        return new MqttFixedHeader(type, false, MqttQoS.AT_MOST_ONCE, false, 0);
+    }
+
+    private static class PendingBatch {
+
+        private final List<byte[]> frames = new ArrayList<>();
+
+        private final List<Integer> packetIds = new ArrayList<>();
+    }
+
+    /**
+     * 批次交给下游后回复其中 QoS 1 消息的 PUBACK，回调可能不在 IO 线程，切回 channel 的 EventLoop
+     */
+    private class PubAckListener implements FrameBatch.DispatchListener {
+
+        private final ChannelHandlerContext ctx;
+
+        private final List<Integer> packetIds;
+
+        PubAckListener(ChannelHandlerContext ctx, List<Integer> packetIds) {
+            this.ctx = ctx;
+            this.packetIds = packetIds;
+        }
+
+        @Override
+        public void onDispatched() {
+            inEventLoop(() -> {
+                for (Integer packetId : packetIds) {
+                    ctx.write(pubAck(packetId));
+                }
+                ctx.flush();
+            });
+        }
+
+        @Override
+        public void onRejected() {
+            inEventLoop(() -> {
+                log.warn("mqtt client {} has {} unacknowledged messages rejected downstream, close it", clientId, packetIds.size());
+                ctx.close();
+            });
+        }
+
+        private void inEventLoop(Runnable task) {
+            if (ctx.executor().inEventLoop()) {
+                task.run();
+            } else {
+                ctx.executor().execute(task);
+            }
+        }
+    }
+}
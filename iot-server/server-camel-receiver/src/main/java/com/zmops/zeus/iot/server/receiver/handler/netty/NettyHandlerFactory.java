@@ -0,0 +1,23 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import io.netty.channel.ChannelHandler;
+import org.apache.camel.component.netty.DefaultChannelHandlerFactory;
+
+import java.util.function.Supplier;
+
+/**
+ * 非共享的 ChannelHandler 工厂，camel-netty 为每个新连接调用一次
+ */
+public class NettyHandlerFactory extends DefaultChannelHandlerFactory {
+
+    private final Supplier<ChannelHandler> supplier;
+
+    public NettyHandlerFactory(Supplier<ChannelHandler> supplier) {
+        this.supplier = supplier;
+    }
+
+    @Override
+    public ChannelHandler newChannelHandler() {
+        return supplier.get();
+    }
+}
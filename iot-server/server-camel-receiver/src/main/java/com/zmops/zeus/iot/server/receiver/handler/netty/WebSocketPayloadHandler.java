@@ -0,0 +1,46 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * 位于 WebSocketServerProtocolHandler 之后，把数据帧（包括分片的 continuation 帧）的内容作为字节流向后传递，
+ * 由后面的解码器增量切分，不需要先聚合成完整消息。
+ * <p>
+ * 非 WebSocket 路径的 HTTP 请求直接返回 404。
+ */
+@ChannelHandler.Sharable
+public class WebSocketPayloadHandler extends ChannelInboundHandlerAdapter {
+
+    public static final WebSocketPayloadHandler INSTANCE = new WebSocketPayloadHandler();
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof TextWebSocketFrame
+                || msg instanceof BinaryWebSocketFrame
+                || msg instanceof ContinuationWebSocketFrame) {
+            ctx.fireChannelRead(((WebSocketFrame) msg).content());
+            return;
+        }
+
+        if (msg instanceof FullHttpRequest) {
+            FullHttpRequest request = (FullHttpRequest) msg;
+            DefaultFullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.NOT_FOUND);
+            ReferenceCountUtil.release(request);
+            ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+}
@@ -1,5 +1,6 @@
 package com.zmops.zeus.iot.server.receiver.handler.zabbix;
 
+import com.zmops.zeus.iot.server.receiver.provider.CamelReceiverConfig;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import org.apache.camel.Endpoint;
 import org.apache.camel.support.DefaultComponent;
@@ -12,9 +13,11 @@ import java.util.Map;
 public class ZabbixSenderComponent extends DefaultComponent {
 
     private final ModuleManager moduleManager;
+    private final CamelReceiverConfig receiverConfig;
 
-    public ZabbixSenderComponent(ModuleManager moduleManager) {
+    public ZabbixSenderComponent(ModuleManager moduleManager, CamelReceiverConfig receiverConfig) {
         this.moduleManager = moduleManager;
+        this.receiverConfig = receiverConfig;
     }
 
     @Override
@@ -23,6 +26,6 @@ public class ZabbixSenderComponent extends DefaultComponent {
         // parameters 里面的参数 必须要清空
         String value = getAndRemoveParameter(parameters, "method", String.class);
 
-        return new ZabbixSenderEndpoint(uri, this, moduleManager);
+        return new ZabbixSenderEndpoint(uri, this, moduleManager, remaining, receiverConfig);
     }
 }
@@ -1,5 +1,7 @@
 package com.zmops.zeus.iot.server.receiver.handler.zabbix;
 
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.worker.ItemDataTransferWorker;
+import com.zmops.zeus.iot.server.receiver.provider.CamelReceiverConfig;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import org.apache.camel.Component;
 import org.apache.camel.Consumer;
@@ -15,10 +17,11 @@ public class ZabbixSenderEndpoint extends DefaultEndpoint {
     private final ModuleManager moduleManager;
     private final ZabbixTrapperProducer producer;
 
-    public ZabbixSenderEndpoint(String endpointUri, Component component, ModuleManager moduleManager) {
+    public ZabbixSenderEndpoint(String endpointUri, Component component, ModuleManager moduleManager,
+                                String protocol, CamelReceiverConfig receiverConfig) {
         super(endpointUri, component);
         this.moduleManager = moduleManager;
-        this.producer = new ZabbixTrapperProducer(this, moduleManager);
+        this.producer = new ZabbixTrapperProducer(this, moduleManager, protocol, receiverConfig);
     }
 
     @Override
@@ -31,6 +34,13 @@ public class ZabbixSenderEndpoint extends DefaultEndpoint {
         return new ZabbixSenderConsumer(this, processor); //TODO
     }
 
+    /**
+     * 本端点的发送队列，每个路由各自创建端点
+     */
+    public ItemDataTransferWorker getTransferWorker() {
+        return producer.getTransferWorker();
+    }
+
     @Override
     public boolean isSingleton() {
         return false;
@@ -1,8 +1,14 @@
 package com.zmops.zeus.iot.server.receiver.handler.zabbix;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.zmops.zeus.dto.ItemValue;
 import com.zmops.zeus.iot.server.receiver.handler.zabbix.worker.ItemDataTransferWorker;
+import com.zmops.zeus.iot.server.receiver.provider.CamelReceiverConfig;
+import com.zmops.zeus.iot.server.receiver.routes.NettyIngestRouteBuilder;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import com.zmops.zeus.server.library.util.StringUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -11,9 +17,14 @@ import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.support.DefaultProducer;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author nantian created at 2021/8/16 22:48
@@ -23,15 +34,52 @@ import java.util.concurrent.Executors;
 @Slf4j
 public class ZabbixTrapperProducer extends DefaultProducer {
 
+    private static final Gson gson = new Gson();
+
+    /**
+     * 需要确认入队结果的路由（如 MQTT QoS 1）置为 true，本批在路由线程中直接入队，不经过 transferThreads
+     */
+    public static final String CONFIRM_PROPERTY = "ZeusTransferConfirm";
+
+    /**
+     * 设置了 {@link #CONFIRM_PROPERTY} 时，入队时因发送队列已满而丢弃的条数
+     */
+    public static final String DROPPED_PROPERTY = "ZeusTransferDropped";
+
     private final ModuleManager moduleManager;
     private final ItemDataTransferWorker itemDataTransferWorker;
-    private final ExecutorService itemValueThread = Executors.newFixedThreadPool(20);
 
+    /**
+     * 默认为 null，在路由线程中直接入队；配置 transferThreads 后才启用
+     */
+    private final ExecutorService itemValueThread;
+
+    private final String protocol;
+
+    private final MetricsCreator metricsCreator;
+
+    /**
+     * 校验、入队阶段指标，按来源路由（网关）缓存
+     */
+    private final Map<String, PipelineMetrics.Stage> transferStages = new ConcurrentHashMap<>();
 
-    public ZabbixTrapperProducer(Endpoint endpoint, ModuleManager moduleManager) {
+
+    public ZabbixTrapperProducer(Endpoint endpoint, ModuleManager moduleManager, String protocol, CamelReceiverConfig receiverConfig) {
         super(endpoint);
         this.moduleManager = moduleManager;
-        this.itemDataTransferWorker = new ItemDataTransferWorker(moduleManager);
+        this.protocol = protocol;
+        this.metricsCreator = moduleManager.find(TelemetryModule.NAME).provider().getService(MetricsCreator.class);
+        this.itemDataTransferWorker = new ItemDataTransferWorker(moduleManager, protocol, receiverConfig.getTransferOfferTimeout());
+
+        int threads = receiverConfig.getTransferThreads();
+        if (threads > 0) {
+            this.itemValueThread = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(receiverConfig.getTransferQueueSize()),
+                    new ThreadFactoryBuilder().setNameFormat("zabbix-trapper-producer-%d").setDaemon(true).build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.itemValueThread = null;
+        }
     }
 
     /**
@@ -43,25 +91,54 @@ public class ZabbixTrapperProducer extends DefaultProducer {
     public void process(Exchange exchange) {
         Message message = exchange.getIn();
 
-        if (message.getBody() == null && !(message.getBody() instanceof List)) {
+        if (!(message.getBody() instanceof List)) {
             return;
         }
 
+        PipelineMetrics.Stage stage = transferStage(exchange.getFromRouteId());
+        long start = stage.start();
+
         List<ItemValue> values = (List<ItemValue>) message.getBody();
+        List<ItemValue> validValues = new ArrayList<>(values.size());
 
         for (ItemValue itemValue : values) {
             if (StringUtil.isEmpty(itemValue.getHost())
                     || StringUtil.isEmpty(itemValue.getKey())
                     || StringUtil.isEmpty(itemValue.getValue())) {
-                log.error(" process item data error，{}", new Gson().toJson(itemValue));
+                log.error(" process item data error，{}", gson.toJson(itemValue));
                 continue;
             }
 
-            itemValueThread.submit(() -> {
-                itemDataTransferWorker.in(itemValue);
-            });
+            validValues.add(itemValue);
+        }
+
+        if (!validValues.isEmpty()) {
+            if (itemValueThread == null || exchange.getProperty(CONFIRM_PROPERTY, false, Boolean.class)) {
+                exchange.setProperty(DROPPED_PROPERTY, itemDataTransferWorker.in(validValues));
+            } else {
+                itemValueThread.execute(() -> itemDataTransferWorker.in(validValues));
+            }
         }
 
+        stage.error(values.size() - validValues.size());
+        stage.finish(start, validValues.size());
+
         exchange.getMessage().setBody("{\"success\":\"true\"}");
     }
+
+    public ItemDataTransferWorker getTransferWorker() {
+        return itemDataTransferWorker;
+    }
+
+    private PipelineMetrics.Stage transferStage(String fromRouteId) {
+        String routeId = fromRouteId == null ? PipelineMetrics.ALL : fromRouteId;
+        PipelineMetrics.Stage stage = transferStages.get(routeId);
+        if (stage == null || stage.isRemoved()) {
+            // 路由停止后移除的指标不再缓存，重启的路由重新取得
+            transferStages.values().removeIf(PipelineMetrics.Stage::isRemoved);
+            stage = transferStages.computeIfAbsent(routeId, key -> PipelineMetrics.stage(metricsCreator,
+                    PipelineMetrics.TRANSFER, protocol, NettyIngestRouteBuilder.gatewayOf(key)));
+        }
+        return stage;
+    }
 }
@@ -2,7 +2,13 @@ package com.zmops.zeus.iot.server.receiver.handler.zabbix.process;
 
 import com.google.gson.Gson;
 import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
 import com.zmops.zeus.iot.server.receiver.handler.zabbix.IoTDeviceValue;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
+import com.zmops.zeus.server.library.module.ModuleManager;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.apache.camel.Processor;
@@ -10,6 +16,7 @@ import org.apache.camel.Processor;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,20 +25,70 @@ import java.util.List;
  * <p>
  * Json 转 对象，进队列，一定要转成 ItemValue 对象，{@link ItemValue}
  */
+@Slf4j
 public class JsonToItemValueProcess implements Processor {
 
     private final Gson gson = new Gson();
 
+    private final PipelineMetrics.Stage parseStage;
+
+    /**
+     * 不采集解析阶段指标
+     */
+    public JsonToItemValueProcess() {
+        this.parseStage = PipelineMetrics.noop();
+    }
+
+    /**
+     * @param protocol 接入协议
+     * @param gateway  网关路由 ID
+     */
+    public JsonToItemValueProcess(String protocol, String gateway) {
+        MetricsCreator metricsCreator = ModuleManager.getInstance().find(TelemetryModule.NAME)
+                .provider().getService(MetricsCreator.class);
+        this.parseStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, protocol, gateway);
+    }
+
     @Override
     public void process(Exchange exchange) throws Exception {
+        long start = parseStage.start();
         Message message = exchange.getIn();
-        InputStream bodyStream = (InputStream) message.getBody();
-        String inputContext = this.analysisMessage(bodyStream);
 
+        List<ItemValue> itemValueList = new ArrayList<>();
 
-        IoTDeviceValue iotValue = gson.fromJson(inputContext, IoTDeviceValue.class);
+        if (message.getBody() instanceof FrameBatch) {
+            FrameBatch batch = (FrameBatch) message.getBody();
+            int badFrames = 0;
+            for (byte[] frame : batch.getFrames()) {
+                try {
+                    addItemValues(new String(frame, StandardCharsets.UTF_8), itemValueList);
+                } catch (RuntimeException e) {
+                    // 一帧格式错误不影响同批次的其它帧
+                    badFrames++;
+                    log.debug("bad frame from {}: {}", batch.getRemoteAddress(), e.getMessage());
+                }
+            }
+            if (badFrames > 0) {
+                parseStage.error(badFrames);
+                log.warn("{} of {} frames from {} could not be parsed", badFrames, batch.size(), batch.getRemoteAddress());
+            }
+        } else {
+            try {
+                InputStream bodyStream = (InputStream) message.getBody();
+                addItemValues(this.analysisMessage(bodyStream), itemValueList);
+            } catch (Exception e) {
+                parseStage.error(1);
+                throw e;
+            }
+        }
+
+        parseStage.finish(start, itemValueList.size());
+        exchange.getMessage().setBody(itemValueList);
+    }
 
-        List<ItemValue> itemValueList = new ArrayList<>();
+
+    private void addItemValues(String inputContext, List<ItemValue> itemValueList) {
+        IoTDeviceValue iotValue = gson.fromJson(inputContext, IoTDeviceValue.class);
 
         iotValue.getAttributes().forEach((key, value) -> {
             ItemValue item = new ItemValue(iotValue.getDeviceId(), iotValue.getClock());
@@ -40,8 +97,6 @@ public class JsonToItemValueProcess implements Processor {
 
             itemValueList.add(item);
         });
-
-        exchange.getMessage().setBody(itemValueList);
     }
 
 
@@ -1,25 +1,34 @@
 package com.zmops.zeus.iot.server.receiver.handler.zabbix.worker;
 
-import com.google.gson.Gson;
 import com.zmops.zeus.dto.ItemValue;
-import com.zmops.zeus.iot.server.receiver.handler.zabbix.ZabbixTrapper;
+import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.service.TransferOverflowService;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
 import com.zmops.zeus.iot.server.sender.module.ZabbixSenderModule;
 import com.zmops.zeus.iot.server.sender.service.ZabbixSenderService;
 import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
 import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
 import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
 import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.datacarrier.DataCarrier;
+import com.zmops.zeus.server.datacarrier.buffer.BufferStrategy;
 import com.zmops.zeus.server.datacarrier.consumer.BulkConsumePool;
 import com.zmops.zeus.server.datacarrier.consumer.ConsumerPoolFactory;
 import com.zmops.zeus.server.datacarrier.consumer.IConsumer;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author nantian created at 2021/8/23 15:11
@@ -30,12 +39,40 @@ import java.util.List;
 public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
 
 
+    private static final long OFFER_RETRY_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    /**
+     * 本 worker 的发送队列已满，入队失败时置位，消费线程取走一批后清除；长连接接入据此暂停读取
+     */
+    private volatile boolean saturated = false;
+
     private final DataCarrier<ItemValue> dataCarrier;
     private final CounterMetrics iotDataTransferCounter;
-    private final Gson gson = new Gson();
+    private final CounterMetrics iotDataDroppedCounter;
+    private final TransferOverflowService overflowService;
+
+    /**
+     * 队列深度、排队时间和 Zabbix 发送往返耗时
+     */
+    private final GaugeMetrics queueDepth;
+    private final PipelineMetrics.Stage queueStage;
+    private final PipelineMetrics.Stage sendStage;
+
+    /**
+     * 排队时间采样：同一时刻只跟踪一条数据，消费时按引用找到后记录并清除，不给每条数据包装时间戳
+     */
+    private final AtomicReference<DwellSample> dwellSample = new AtomicReference<>();
 
-    public ItemDataTransferWorker(ModuleManager moduleManager) {
+    /**
+     * 队列满时最多等待的时间，纳秒，超时后转存或丢弃
+     */
+    private final long offerTimeoutNanos;
+
+    public ItemDataTransferWorker(ModuleManager moduleManager, String protocol, long offerTimeoutMillis) {
         super(moduleManager);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+
+        this.overflowService = moduleManager.find(CamelReceiverModule.NAME).provider().getService(TransferOverflowService.class);
 
         String name = "ITEMVALUE_TRANSFER_TUNNEL";
 
@@ -50,7 +87,7 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
             e.printStackTrace();
         }
 
-        this.dataCarrier = new DataCarrier<>("ZABBIX_SENDER", name, 4, 2000);
+        this.dataCarrier = new DataCarrier<>("ZABBIX_SENDER", name, 4, 2000, BufferStrategy.IF_POSSIBLE);
         this.dataCarrier.consume(ConsumerPoolFactory.INSTANCE.get(name), new SenderConsumer());
 
         // #### 发送数量 指标采集
@@ -63,13 +100,105 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
                 new MetricsTag.Keys("name"),
                 new MetricsTag.Values("transfer_data_count")
         );
+
+        iotDataDroppedCounter = metricsCreator.createCounter(
+                "transfer_data_dropped_count", "The count number of iot device data dropped because the transfer queue is full",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("transfer_data_dropped_count")
+        );
+
+        queueDepth = metricsCreator.createGauge(
+                "pipeline_queue_depth", "The number of iot device data waiting in the transfer queue",
+                new MetricsTag.Keys("protocol"),
+                new MetricsTag.Values(protocol)
+        );
+        queueStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.QUEUE, protocol, PipelineMetrics.ALL);
+        sendStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.ZABBIX_SEND, protocol, PipelineMetrics.ALL);
     }
 
 
     @Override
     public void in(ItemValue itemValue) {
-        iotDataTransferCounter.inc();
-        dataCarrier.produce(itemValue);
+        in(Collections.singletonList(itemValue));
+    }
+
+    /**
+     * 批量入队，在调用线程中直接完成，不再逐条切换线程。
+     * 队列满时等待至多 offerTimeout，超时后本批剩余数据交给溢出转存，没有转存时丢弃并计数。
+     *
+     * @param itemValues 设备属性值
+     * @return 丢弃的条数，已转存的不计入
+     */
+    public int in(List<ItemValue> itemValues) {
+        long deadline = 0;
+        List<ItemValue> overflow = null;
+
+        // 先登记采样再入队，避免消费线程先于登记取走该数据
+        DwellSample sample = null;
+        if (!itemValues.isEmpty() && dwellSample.get() == null) {
+            sample = new DwellSample(itemValues.get(0), System.nanoTime());
+            if (!dwellSample.compareAndSet(null, sample)) {
+                sample = null;
+            }
+        }
+
+        for (ItemValue itemValue : itemValues) {
+            if (dataCarrier.produce(itemValue)) {
+                continue;
+            }
+
+            if (deadline == 0) {
+                deadline = System.nanoTime() + offerTimeoutNanos;
+                saturated = true;
+            }
+
+            while (!dataCarrier.produce(itemValue)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    if (overflow == null) {
+                        overflow = new ArrayList<>();
+                    }
+                    overflow.add(itemValue);
+                    break;
+                }
+                LockSupport.parkNanos(OFFER_RETRY_INTERVAL_NANOS);
+            }
+        }
+
+        if (overflow == null) {
+            iotDataTransferCounter.inc(itemValues.size());
+            queueDepth.inc(itemValues.size());
+            queueStage.count(itemValues.size());
+            return 0;
+        }
+
+        if (sample != null && overflow.get(0) == sample.value) {
+            dwellSample.compareAndSet(sample, null);
+        }
+        iotDataTransferCounter.inc(itemValues.size() - overflow.size());
+        queueDepth.inc(itemValues.size() - overflow.size());
+        queueStage.count(itemValues.size() - overflow.size());
+        queueStage.error(overflow.size());
+        return overflow(overflow, "transfer queue is full") ? 0 : overflow.size();
+    }
+
+    /**
+     * 未能入队或发送失败的数据交给溢出转存
+     *
+     * @return 是否已转存，false 表示已丢弃
+     */
+    private boolean overflow(List<ItemValue> itemValues, String reason) {
+        if (overflowService.store(itemValues)) {
+            log.warn("{}, {} item values moved to overflow store", reason, itemValues.size());
+            return true;
+        }
+
+        iotDataDroppedCounter.inc(itemValues.size());
+        log.warn("{}, dropped {} item values", reason, itemValues.size());
+        return false;
+    }
+
+    public boolean isSaturated() {
+        return saturated;
     }
 
     @Override
@@ -81,37 +210,72 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
 
         int maxBatchGetSize = 500;
         final int batchSize = Math.min(maxBatchGetSize, lastCollection.size());
-        List<ItemValue> valueList = new ArrayList<>();
+        List<List<ItemValue>> batches = new ArrayList<>();
+        List<CompletableFuture<String>> sendFutures = new ArrayList<>();
 
+        List<ItemValue> valueList = new ArrayList<>(batchSize);
         for (ItemValue data : lastCollection) {
             valueList.add(data);
             if (valueList.size() == batchSize) {
-                batchSenderDataToZabbix(valueList);
+                batches.add(valueList);
+                sendFutures.add(batchSenderDataToZabbix(valueList));
+                valueList = new ArrayList<>(batchSize);
             }
         }
 
         if (valueList.size() > 0) {
-            batchSenderDataToZabbix(valueList);
+            batches.add(valueList);
+            sendFutures.add(batchSenderDataToZabbix(valueList));
+        }
+
+        // 多个批次并发占用连接池，全部返回后再消费下一批，保持 DataCarrier 的背压
+        for (int i = 0; i < sendFutures.size(); i++) {
+            try {
+                log.debug(sendFutures.get(i).join());
+            } catch (CompletionException e) {
+                log.error(" itemvalue data sender error，msg ：{}", e.getCause().getMessage());
+                overflow(batches.get(i), "zabbix sender failed");
+            }
         }
 
         log.debug("batch sender data size：{}, took time: {}", lastCollection.size(), System.currentTimeMillis() - start);
     }
 
 
-    private void batchSenderDataToZabbix(List<ItemValue> valueList) {
-        ZabbixTrapper zabbixTrapper = new ZabbixTrapper(valueList);
+    private CompletableFuture<String> batchSenderDataToZabbix(List<ItemValue> valueList) {
+        ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(valueList.size());
+        for (ItemValue value : valueList) {
+            frame.append(value.getHost(), value.getKey(), value.getValue(), value.getClock(), value.getNs());
+        }
 
         ZabbixSenderService senderService = getModuleDefineHolder()
                 .find(ZabbixSenderModule.NAME).provider().getService(ZabbixSenderService.class);
 
-        try {
-            String sendResult = senderService.sendData(gson.toJson(zabbixTrapper));
-            log.debug(sendResult);
-        } catch (IOException e) {
-            log.error(" itemvalue data sender error，msg ：{}", e.getMessage());
-            e.printStackTrace();
-        } finally {
-            valueList.clear();
+        long start = sendStage.start();
+        return senderService.sendDataAsync(frame).whenComplete((response, t) -> {
+            if (t == null) {
+                sendStage.finish(start, valueList.size());
+            } else {
+                sendStage.finish(start, 0);
+                sendStage.error(valueList.size());
+            }
+        });
+    }
+
+    /**
+     * 消费到采样数据时记录排队时间
+     */
+    private void observeDwell(List<ItemValue> data) {
+        DwellSample sample = dwellSample.get();
+        if (sample == null) {
+            return;
+        }
+        for (ItemValue value : data) {
+            if (value == sample.value) {
+                queueStage.observe(System.nanoTime() - sample.enqueueNanos);
+                dwellSample.compareAndSet(sample, null);
+                return;
+            }
         }
     }
 
@@ -124,7 +288,10 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
 
         @Override
         public void consume(List<ItemValue> data) {
+            queueDepth.dec(data.size());
+            observeDwell(data);
             ItemDataTransferWorker.this.onWork(data);
+            saturated = false;
         }
 
         @Override
@@ -137,5 +304,17 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
         }
     }
 
+    private static class DwellSample {
+
+        private final ItemValue value;
+
+        private final long enqueueNanos;
+
+        DwellSample(ItemValue value, long enqueueNanos) {
+            this.value = value;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
 
 }
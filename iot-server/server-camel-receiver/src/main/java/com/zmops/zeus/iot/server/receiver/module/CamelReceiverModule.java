@@ -1,7 +1,10 @@
 package com.zmops.zeus.iot.server.receiver.module;
 
 import com.zmops.zeus.iot.server.receiver.service.CamelContextHolderService;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
+import com.zmops.zeus.iot.server.receiver.service.MqttTopicRouteService;
 import com.zmops.zeus.iot.server.receiver.service.ReferenceClientService;
+import com.zmops.zeus.iot.server.receiver.service.TransferOverflowService;
 import com.zmops.zeus.server.library.module.ModuleDefine;
 
 import java.util.ArrayList;
@@ -25,6 +28,9 @@ public class CamelReceiverModule extends ModuleDefine {
         List<Class<?>> classes = new ArrayList<>();
         classes.add(CamelContextHolderService.class);
         classes.add(ReferenceClientService.class);
+        classes.add(MqttTopicRouteService.class);
+        classes.add(TransferOverflowService.class);
+        classes.add(LatestValueService.class);
         return classes.toArray(new Class[]{});
     }
 }
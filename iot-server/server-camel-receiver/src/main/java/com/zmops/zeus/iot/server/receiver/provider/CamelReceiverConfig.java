@@ -13,4 +13,24 @@ import lombok.Setter;
 public class CamelReceiverConfig extends ModuleConfig {
 
     private String version;
+
+    /**
+     * ZabbixTrapperProducer 投递线程数，0 表示在 Camel 路由线程中直接批量入队
+     */
+    private int transferThreads = 0;
+
+    /**
+     * 投递线程池队列长度，transferThreads > 0 时生效，队列满时由路由线程自己投递
+     */
+    private int transferQueueSize = 1024;
+
+    /**
+     * 发送队列满时的最长等待时间，毫秒，超时后丢弃数据
+     */
+    private long transferOfferTimeout = 100;
+
+    /**
+     * 最新值表初始容量（监控项数），超出后自动扩容
+     */
+    private int latestValueCapacity = 65536;
 }
@@ -5,7 +5,10 @@ import com.zmops.zeus.iot.server.receiver.handler.ark.ArkBizComponent;
 import com.zmops.zeus.iot.server.receiver.handler.zabbix.ZabbixSenderComponent;
 import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
 import com.zmops.zeus.iot.server.receiver.service.CamelContextHolderService;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
+import com.zmops.zeus.iot.server.receiver.service.MqttTopicRouteService;
 import com.zmops.zeus.iot.server.receiver.service.ReferenceClientService;
+import com.zmops.zeus.iot.server.receiver.service.TransferOverflowService;
 import com.zmops.zeus.iot.server.sender.module.ZabbixSenderModule;
 import com.zmops.zeus.server.library.module.*;
 import com.zmops.zeus.server.runtime.SofaStarter;
@@ -58,11 +61,14 @@ public class CamelReceiverProvider extends ModuleProvider {
 
         this.registerServiceImplementation(CamelContextHolderService.class, new CamelContextHolderService(camelContext, getManager()));
         this.registerServiceImplementation(ReferenceClientService.class, new ReferenceClientService(referenceClient, getManager()));
+        this.registerServiceImplementation(MqttTopicRouteService.class, new MqttTopicRouteService(getManager()));
+        this.registerServiceImplementation(TransferOverflowService.class, new TransferOverflowService());
+        this.registerServiceImplementation(LatestValueService.class, new LatestValueService(camelReceiverConfig.getLatestValueCapacity()));
     }
 
     @Override
     public void start() throws ServiceNotProvidedException, ModuleStartException {
-        camelContext.addComponent(Const.CAMEL_ZABBIX_COMPONENT_NAME, new ZabbixSenderComponent(getManager()));
+        camelContext.addComponent(Const.CAMEL_ZABBIX_COMPONENT_NAME, new ZabbixSenderComponent(getManager(), camelReceiverConfig));
         camelContext.addComponent(Const.CAMEL_ARK_COMPONENT_NAME, new ArkBizComponent(getManager()));
     }
 
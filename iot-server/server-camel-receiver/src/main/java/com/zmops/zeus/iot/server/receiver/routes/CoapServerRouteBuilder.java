@@ -1,20 +1,63 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.CoapRequestHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatchHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.NettyHandlerFactory;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.channel.epoll.Epoll;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.LoggingLevel;
 
 import java.util.Map;
 
 /**
  * @author nantian created at 2021/10/24 14:23
+ * <p>
+ * CoAP Server 接入，接收 POST/PUT 上报，CON 请求进入分发队列后回复 ACK，队列满时回复 5.03，options：
+ * <pre>
+ * port                 监听端口，默认 5683
+ * path                 Uri-Path，如 data，为空时不校验
+ * receiveBufferSize    SO_RCVBUF 字节数，默认 4194304
+ * maxDatagramSize      单个报文最大字节数，默认 2048
+ * batchSize            聚合多少个请求后投递，默认 200
+ * queueSize            待分发批次队列长度，队列满时丢弃，默认 1024
+ * dispatchThreads      分发线程数，默认 2
+ * uniqueId             协议插件 ID，为空时按 IoTDeviceValue JSON 解析
+ * </pre>
  */
-public class CoapServerRouteBuilder extends ReceiverServerRoute {
+@Slf4j
+public class CoapServerRouteBuilder extends NettyIngestRouteBuilder {
 
     public CoapServerRouteBuilder(String routeId, Map<String, Object> options) {
         super(routeId, options);
+        log.info("CoAP Route Created ====> port : {}，path : {}", options.get("port"), options.get("path"));
+    }
+
+    @Override
+    protected String protocol() {
+        return "coap";
     }
 
     @Override
     public void configure() throws Exception {
+        int batchSize = optionInt("batchSize", 200);
+        String path = optionString("path", null);
+
+        CounterMetrics requestCounter = createCounter("received_frames_count", "The count number of requests received by coap server");
+        CounterMetrics byteCounter = createCounter("received_bytes_count", "The count number of payload bytes received by coap server");
+
+        String decoders = bindHandler("request", new NettyHandlerFactory(() -> new CoapRequestHandler(path)))
+                + "," + bindHandler("batch", new NettyHandlerFactory(() -> new FrameBatchHandler(batchSize, requestCounter, byteCounter)));
 
+        toDispatchQueue(
+                fromF("netty:udp://0.0.0.0:%s?sync=false&allowDefaultCodec=false&nativeTransport=%s"
+                                + "&receiveBufferSize=%d&receiveBufferSizePredictor=%d&decoders=%s",
+                        optionInt("port", 5683), Epoll.isAvailable(),
+                        optionInt("receiveBufferSize", 4 * 1024 * 1024), optionInt("maxDatagramSize", 2048), decoders)
+                        .routeId(routeId)
+                        .log(LoggingLevel.DEBUG, log, ">>> Requests received from CoAP Server : ${body.size}"),
+                optionInt("queueSize", 1024),
+                optionInt("dispatchThreads", 2)
+        );
     }
 }
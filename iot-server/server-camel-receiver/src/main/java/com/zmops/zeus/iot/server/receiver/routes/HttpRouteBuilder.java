@@ -22,7 +22,8 @@ public class HttpRouteBuilder extends ReceiverServerRoute {
     public void configure() throws Exception {
         fromF("netty4-http:http://0.0.0.0:%s/data?sync=true", options.get("port"))
                 .routeId(routeId)
-                .log(LoggingLevel.DEBUG, log, ">>> Message received from Netty4 Http Server : ${body}");
+                .log(LoggingLevel.DEBUG, log, ">>> Message received from Netty4 Http Server : ${body}")
+                .process(receiveMetrics("http"));
     }
 
 
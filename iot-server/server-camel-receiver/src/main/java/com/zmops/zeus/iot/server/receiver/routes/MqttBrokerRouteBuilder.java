@@ -1,20 +1,144 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.ConnectionLimitHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
+import com.zmops.zeus.iot.server.receiver.handler.netty.IdleCloseHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.MqttBrokerHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.NettyHandlerFactory;
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.ZabbixTrapperProducer;
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.process.JsonToItemValueProcess;
+import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.service.MqttTopicRouteService;
+import com.zmops.zeus.iot.server.receiver.service.TopicTrie;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.server.library.module.ModuleManager;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.LoggingLevel;
+import org.apache.camel.Message;
+import org.apache.camel.component.netty.ShareableChannelHandlerFactory;
+import org.apache.camel.model.RouteDefinition;
 
 import java.util.Map;
 
 /**
  * @author nantian created at 2021/11/26 13:54
+ * <p>
+ * 内置 MQTT Broker，设备直接连接 IoT Server 发布数据，消息在进程内进入接入流程，不再经过外部 Broker 和订阅客户端。
+ * 主题到协议插件的映射与 MQTT Client 模式共用 {@link MqttTopicRouteService}，没有映射的主题按 IoTDeviceValue JSON 解析。
+ * options：
+ * <pre>
+ * port                 监听端口，默认 1883
+ * topicNames           接收的主题过滤器，逗号分隔，支持 + 和 #，为空时接收全部主题
+ * username             CONNECT 必须携带的用户名，为空时不校验
+ * password             CONNECT 必须携带的密码
+ * discardRetained      丢弃带 retain 标志的消息，默认 false
+ * maxConnections       最大连接数，默认 10000
+ * maxPublishRate       单个客户端每秒最多消息数，0 不限速，默认 0
+ * maxMessageSize       单个报文最大字节数，默认 65536
+ * batchSize            每个连接聚合多少条消息后投递，默认 100
+ * </pre>
+ * QoS 1 消息在所属批次交给 Zabbix 发送队列后才回复 PUBACK；处理失败或发送队列已满丢弃了数据时断开客户端，由客户端重发。
  */
-public class MqttBrokerRouteBuilder extends ReceiverServerRoute {
+@Slf4j
+public class MqttBrokerRouteBuilder extends NettyIngestRouteBuilder {
+
+    private static final String TOPIC_HEADER = "CamelMqttTopic";
+
+    private static final String UNIQUE_ID_HEADER = "ZeusProtocolUniqueId";
+
+    private static final String BATCH_PROPERTY = "ZeusFrameBatch";
 
     public MqttBrokerRouteBuilder(String routeId, Map<String, Object> options) {
         super(routeId, options);
+        log.info("Mqtt Broker Route Created ====> port : {}，topics : {}", options.get("port"), options.get("topicNames"));
+    }
+
+    @Override
+    protected String protocol() {
+        return "mqtt_broker";
     }
 
     @Override
     public void configure() throws Exception {
+        MqttTopicRouteService topicRouteService = ModuleManager.getInstance().find(CamelReceiverModule.NAME).provider()
+                .getService(MqttTopicRouteService.class);
+        topicRouteService.reload();
+
+        TopicTrie<Boolean> topicFilters = topicFilters(optionString("topicNames", null));
+        boolean discardRetained = Boolean.parseBoolean(optionString("discardRetained", "false"));
+        int maxPublishRate = optionInt("maxPublishRate", 0);
+        int maxMessageSize = optionInt("maxMessageSize", 65536);
+        int batchSize = optionInt("batchSize", 100);
+        String username = optionString("username", null);
+        String password = optionString("password", null);
+
+        CounterMetrics messageCounter = createCounter("received_frames_count", "The count number of messages published to mqtt broker");
+        CounterMetrics byteCounter = createCounter("received_bytes_count", "The count number of payload bytes published to mqtt broker");
+        CounterMetrics rateLimitedCounter = createCounter("rate_limited_count", "The count number of mqtt clients paused by publish rate limit");
+
+        String decoders = bindHandler("limit", new ShareableChannelHandlerFactory(new ConnectionLimitHandler(optionInt("maxConnections", 10000),
+                createGauge("active_connections", "The number of active mqtt broker connections"))))
+                + "," + bindHandler("idleClose", new ShareableChannelHandlerFactory(IdleCloseHandler.INSTANCE))
+                + "," + bindHandler("decoder", new NettyHandlerFactory(() -> new MqttDecoder(maxMessageSize)))
+                + "," + bindHandler("encoder", new ShareableChannelHandlerFactory(MqttEncoder.INSTANCE))
+                + "," + bindHandler("broker", new NettyHandlerFactory(() -> new MqttBrokerHandler(topicFilters,
+                username, password, discardRetained, maxPublishRate, batchSize, messageCounter, byteCounter, rateLimitedCounter)));
+
+        RouteDefinition route = fromF("netty:tcp://0.0.0.0:%s?sync=false&allowDefaultCodec=false&decoders=%s", optionInt("port", 1883), decoders)
+                .routeId(routeId);
+
+        route.onException(Exception.class)
+                .handled(true)
+                .log(LoggingLevel.WARN, log, "Mqtt Broker batch failed : ${exception.message}")
+                .process(exchange -> {
+                    FrameBatch batch = exchange.getProperty(BATCH_PROPERTY, FrameBatch.class);
+                    if (batch != null) {
+                        batch.rejected();
+                    }
+                })
+                .end();
+
+        route.log(LoggingLevel.DEBUG, log, ">>> Messages received from Mqtt Broker : ${body.topic}, ${body.size}")
+                .process(receiveMetrics(protocol()))
+                .process(exchange -> {
+                    Message message = exchange.getMessage();
+                    FrameBatch batch = message.getBody(FrameBatch.class);
+                    exchange.setProperty(BATCH_PROPERTY, batch);
+                    exchange.setProperty(ZabbixTrapperProducer.CONFIRM_PROPERTY, true);
+                    message.setHeader(TOPIC_HEADER, batch.getTopic());
+                    message.setHeader(UNIQUE_ID_HEADER, topicRouteService.route(batch.getTopic()));
+                })
+                .choice()
+                    .when(header(UNIQUE_ID_HEADER).isNotNull())
+                        .toD("ArkBiz:mqtt?uniqueId=${header." + UNIQUE_ID_HEADER + "}")
+                    .otherwise()
+                        .process(new JsonToItemValueProcess(protocol(), routeId))
+                .end()
+                .to("Zabbix:mqtt")
+                .process(exchange -> {
+                    FrameBatch batch = exchange.getProperty(BATCH_PROPERTY, FrameBatch.class);
+                    // 发送队列已满丢弃了部分数据时不确认，断开后由客户端重发
+                    if (exchange.getProperty(ZabbixTrapperProducer.DROPPED_PROPERTY, 0, Integer.class) > 0) {
+                        batch.rejected();
+                    } else {
+                        batch.dispatched();
+                    }
+                });
+    }
+
+    private static TopicTrie<Boolean> topicFilters(String topicNames) {
+        if (topicNames == null) {
+            return null;
+        }
 
+        TopicTrie<Boolean> filters = new TopicTrie<>();
+        for (String filter : topicNames.split(",")) {
+            if (!filter.trim().isEmpty()) {
+                filters.put(filter.trim(), Boolean.TRUE);
+            }
+        }
+        return filters.size() == 0 ? null : filters;
     }
 }
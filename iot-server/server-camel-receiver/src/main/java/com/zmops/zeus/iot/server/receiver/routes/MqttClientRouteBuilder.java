@@ -1,16 +1,13 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.h2.module.LocalH2Module;
-import com.zmops.zeus.iot.server.h2.service.InsertDAO;
 import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.service.MqttTopicRouteService;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.Message;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,14 +24,22 @@ public class MqttClientRouteBuilder extends ReceiverServerRoute {
 
     @Override
     public void configure() throws Exception {
+        // 路由启动时加载主题路由表
+        ModuleManager.getInstance().find(CamelReceiverModule.NAME).provider()
+                .getService(MqttTopicRouteService.class).reload();
+
         fromF("paho-mqtt5:%s?brokerUrl=tcp://%s:%s", options.get("topicNames"), options.get("hostIp"), options.get("port"))
                 .routeId(routeId)
                 .log(LoggingLevel.DEBUG, log, ">>> Message received from Mqtt Client : \n${body}")
+                .process(receiveMetrics("mqtt"))
                 .dynamicRouter(method(RouteJudge.class, "slip")).to("Zabbix:mqtt");
     }
 
 
     static class RouteJudge {
+
+        private static volatile MqttTopicRouteService topicRouteService;
+
         public static String slip(Exchange exchange) {
             Message message = exchange.getMessage();
 
@@ -43,37 +48,22 @@ public class MqttClientRouteBuilder extends ReceiverServerRoute {
             }
 
             String topicName = exchange.getIn().getHeader("CamelMqttTopic").toString();
-            InsertDAO localH2InsertDAO = ModuleManager.getInstance()
-                    .find(LocalH2Module.NAME).provider().getService(InsertDAO.class);
-            //TODO 这里需要动态加载规则
-            ResultSet rs = localH2InsertDAO.queryRes("select pm.topic,pc.unique_id from protocol_gateway_mqtt pm left join protocol_component pc on pc.id=pm.protocol_component_id");
-            Map<String, String> map = new HashMap<>();
-            while (true) {
-                try {
-                    if (!rs.next()) {
-                        break;
-                    }
-
-                    map.put(rs.getString(1), rs.getString(2));
-
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+            String uniqueId = topicRouteService().route(topicName);
+            if (uniqueId != null) {
+                return "ArkBiz:mqtt?uniqueId=" + uniqueId;
             }
-            if (map.containsKey(topicName)) {
-                return "ArkBiz:mqtt?uniqueId=" + map.get(topicName);
-            }
-
-//            if ("zeus11".equals(topicName)) {
-//                return "ArkBiz:mqtt?uniqueId=19890918";
-//            }
-//
-//            if ("zeus22".equals(topicName)) {
-//                return "ArkBiz:mqtt?uniqueId=20211225";
-//            }
 
             return null;
         }
 
+        private static MqttTopicRouteService topicRouteService() {
+            MqttTopicRouteService service = topicRouteService;
+            if (service == null) {
+                service = ModuleManager.getInstance().find(CamelReceiverModule.NAME).provider()
+                        .getService(MqttTopicRouteService.class);
+                topicRouteService = service;
+            }
+            return service;
+        }
     }
 }
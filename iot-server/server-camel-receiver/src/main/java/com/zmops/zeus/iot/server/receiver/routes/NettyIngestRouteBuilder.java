@@ -0,0 +1,124 @@
+package com.zmops.zeus.iot.server.receiver.routes;
+
+import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.ZabbixSenderEndpoint;
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.process.JsonToItemValueProcess;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import org.apache.camel.model.RouteDefinition;
+
+import java.util.Map;
+
+/**
+ * 基于 camel-netty 的原生 Socket 接入路由公共部分：
+ * ChannelHandler 注册到 Camel Registry、接入指标，以及统一的 ArkBiz -> Zabbix 后续处理。
+ */
+public abstract class NettyIngestRouteBuilder extends ReceiverServerRoute {
+
+    /**
+     * 解码后的批次经 seda 队列转交给分发路由，分发路由 ID 为 routeId + 该后缀
+     */
+    public static final String DISPATCH_ROUTE_SUFFIX = "-dispatch";
+
+    /**
+     * 本路由的 Zabbix 发送端点，toIngestPipeline 时创建，IO 线程据此判断发送队列是否已满
+     */
+    private volatile ZabbixSenderEndpoint senderEndpoint;
+
+    public NettyIngestRouteBuilder(String routeId, Map<String, Object> options) {
+        super(routeId, options);
+    }
+
+    /**
+     * 协议名，用于 Registry 命名、指标标签和 Zabbix/ArkBiz endpoint
+     */
+    protected abstract String protocol();
+
+    /**
+     * 将 ChannelHandler（或工厂）注册到 Registry，返回 camel-netty decoders 参数可用的引用
+     */
+    protected String bindHandler(String name, Object handler) {
+        String id = protocol() + "-" + routeId + "-" + name;
+        bindToRegistry(id, handler);
+        return "#" + id;
+    }
+
+    /**
+     * 有协议插件时先经过插件解析，否则按 IoTDeviceValue JSON 解析，最后进入 Zabbix 发送队列
+     */
+    protected RouteDefinition toIngestPipeline(RouteDefinition route) {
+        route.process(receiveMetrics(protocol()));
+
+        String uniqueId = optionString("uniqueId", null);
+        if (uniqueId != null) {
+            route.toF("ArkBiz:%s?uniqueId=%s", protocol(), uniqueId);
+        } else {
+            route.process(new JsonToItemValueProcess(protocol(), routeId));
+        }
+        senderEndpoint = getContext().getEndpoint("Zabbix:" + protocol(), ZabbixSenderEndpoint.class);
+        return route.to(senderEndpoint);
+    }
+
+    /**
+     * 本路由的发送队列是否已满，路由尚未创建发送端点时为 false
+     */
+    protected boolean isTransferSaturated() {
+        ZabbixSenderEndpoint endpoint = senderEndpoint;
+        return endpoint != null && endpoint.getTransferWorker().isSaturated();
+    }
+
+    /**
+     * IO 线程只负责解码和聚合，批次放入有界队列后立即返回，由 dispatchThreads 个线程执行后续解析和发送。
+     * 队列满时丢弃该批次并计数，不阻塞 IO 线程。入队结果通知批次的 {@link FrameBatch.DispatchListener}。
+     */
+    protected void toDispatchQueue(RouteDefinition route, int queueSize, int dispatchThreads) {
+        CounterMetrics droppedCounter = createCounter("dropped_frames_count",
+                "The count number of " + protocol() + " frames dropped because the dispatch queue is full");
+        String queue = String.format("seda:%s-%s?size=%d", protocol(), routeId, queueSize);
+
+        route.onException(IllegalStateException.class)
+                .handled(true)
+                .process(exchange -> {
+                    Object body = exchange.getMessage().getBody();
+                    if (body instanceof FrameBatch) {
+                        droppedCounter.inc(((FrameBatch) body).size());
+                        ((FrameBatch) body).rejected();
+                    } else {
+                        droppedCounter.inc();
+                    }
+                })
+                .end()
+                .to(queue + "&blockWhenFull=false")
+                .process(exchange -> {
+                    Object body = exchange.getMessage().getBody();
+                    if (body instanceof FrameBatch) {
+                        ((FrameBatch) body).dispatched();
+                    }
+                });
+
+        toIngestPipeline(from(queue + "&concurrentConsumers=" + dispatchThreads)
+                .routeId(routeId + DISPATCH_ROUTE_SUFFIX));
+    }
+
+    /**
+     * 分发路由归到接入路由名下，作为指标的 gateway 标签
+     */
+    public static String gatewayOf(String routeId) {
+        if (routeId != null && routeId.endsWith(DISPATCH_ROUTE_SUFFIX)) {
+            return routeId.substring(0, routeId.length() - DISPATCH_ROUTE_SUFFIX.length());
+        }
+        return routeId;
+    }
+
+    protected CounterMetrics createCounter(String name, String tips) {
+        return metricsCreator().createCounter(protocol() + "_" + name, tips,
+                new MetricsTag.Keys("route"), new MetricsTag.Values(routeId));
+    }
+
+    protected GaugeMetrics createGauge(String name, String tips) {
+        return metricsCreator().createGauge(protocol() + "_" + name, tips,
+                new MetricsTag.Keys("route"), new MetricsTag.Values(routeId));
+    }
+}
@@ -1,20 +1,113 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.ConnectionLimitHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatchHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.IdleCloseHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.NettyHandlerFactory;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.DelimiterBasedFrameDecoder;
+import io.netty.handler.codec.FixedLengthFrameDecoder;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.LoggingLevel;
+import org.apache.camel.component.netty.ShareableChannelHandlerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author nantian created at 2021/10/24 0:11
+ * <p>
+ * TCP Server 接入，options：
+ * <pre>
+ * port                 监听端口
+ * framing              lengthField（默认）| delimiter | fixed
+ * maxFrameLength       单帧最大字节数，默认 65536
+ * lengthFieldOffset    lengthField 模式，默认 0
+ * lengthFieldLength    lengthField 模式，默认 4
+ * lengthAdjustment     lengthField 模式，默认 0
+ * initialBytesToStrip  lengthField 模式，默认 4
+ * delimiter            delimiter 模式分隔符，默认 \n
+ * frameLength          fixed 模式帧长度，必填
+ * maxConnections       最大连接数，默认 1024
+ * idleTimeout          读空闲超时秒数，超时关闭连接，默认 300，0 不检测
+ * batchSize            每个连接聚合多少帧后投递，默认 100
+ * uniqueId             协议插件 ID，为空时按 IoTDeviceValue JSON 解析
+ * </pre>
+ * framing 取值或解码参数不合法时，创建路由即失败。
  */
-public class TcpServerRouteBuilder extends ReceiverServerRoute {
+@Slf4j
+public class TcpServerRouteBuilder extends NettyIngestRouteBuilder {
 
     public TcpServerRouteBuilder(String routeId, Map<String, Object> options) {
         super(routeId, options);
+        log.info("Tcp Route Created ====> port : {}，framing : {}", options.get("port"), options.get("framing"));
+    }
+
+    @Override
+    protected String protocol() {
+        return "tcp";
     }
 
     @Override
     public void configure() throws Exception {
+        int maxConnections = optionInt("maxConnections", 1024);
+        int idleTimeout = optionInt("idleTimeout", 300);
+        int batchSize = optionInt("batchSize", 100);
+
+        String framing = optionString("framing", "lengthField");
+        if ("fixed".equals(framing) && optionInt("frameLength", 0) <= 0) {
+            throw new IllegalArgumentException("tcp framing fixed requires frameLength > 0");
+        }
+        // 先构造一次，未知的 framing 和解码器拒绝的参数在这里报错，而不是每个连接建立时
+        frameDecoder(framing);
+
+        CounterMetrics frameCounter = createCounter("received_frames_count", "The count number of frames received by tcp server");
+        CounterMetrics byteCounter = createCounter("received_bytes_count", "The count number of bytes received by tcp server");
+
+        StringBuilder decoders = new StringBuilder();
+        decoders.append(bindHandler("limit", new ShareableChannelHandlerFactory(new ConnectionLimitHandler(maxConnections,
+                createGauge("active_connections", "The number of active tcp server connections")))));
+        if (idleTimeout > 0) {
+            decoders.append(',').append(bindHandler("idle",
+                    new NettyHandlerFactory(() -> new IdleStateHandler(idleTimeout, 0, 0, TimeUnit.SECONDS))));
+            decoders.append(',').append(bindHandler("idleClose", new ShareableChannelHandlerFactory(IdleCloseHandler.INSTANCE)));
+        }
+        decoders.append(',').append(bindHandler("frame", new NettyHandlerFactory(() -> frameDecoder(framing))));
+        decoders.append(',').append(bindHandler("batch",
+                new NettyHandlerFactory(() -> new FrameBatchHandler(batchSize, frameCounter, byteCounter))));
+
+        toIngestPipeline(
+                fromF("netty:tcp://0.0.0.0:%s?sync=false&allowDefaultCodec=false&decoders=%s", options.get("port"), decoders)
+                        .routeId(routeId)
+                        .log(LoggingLevel.DEBUG, log, ">>> Frames received from Tcp Server : ${body.size}")
+        );
+    }
+
+    private ChannelHandler frameDecoder(String framing) {
+        int maxFrameLength = optionInt("maxFrameLength", 65536);
 
+        switch (framing) {
+            case "delimiter":
+                String delimiter = optionString("delimiter", "\n")
+                        .replace("\\r", "\r")
+                        .replace("\\n", "\n");
+                return new DelimiterBasedFrameDecoder(maxFrameLength,
+                        Unpooled.copiedBuffer(delimiter.getBytes(StandardCharsets.UTF_8)));
+            case "fixed":
+                return new FixedLengthFrameDecoder(optionInt("frameLength", 0));
+            case "lengthField":
+                return new LengthFieldBasedFrameDecoder(maxFrameLength,
+                        optionInt("lengthFieldOffset", 0),
+                        optionInt("lengthFieldLength", 4),
+                        optionInt("lengthAdjustment", 0),
+                        optionInt("initialBytesToStrip", 4));
+            default:
+                throw new IllegalArgumentException("unknown tcp framing: " + framing + ", expected lengthField, delimiter or fixed");
+        }
     }
 }
@@ -1,20 +1,61 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatchHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.NettyHandlerFactory;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.channel.epoll.Epoll;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.LoggingLevel;
 
 import java.util.Map;
 
 /**
  * @author nantian created at 2021/10/24 0:12
+ * <p>
+ * UDP Server 接入，一个报文即一帧，options：
+ * <pre>
+ * port                 监听端口
+ * receiveBufferSize    SO_RCVBUF 字节数，默认 4194304
+ * maxDatagramSize      单个报文最大字节数，默认 2048
+ * batchSize            聚合多少个报文后投递，默认 200
+ * queueSize            待分发批次队列长度，队列满时丢弃，默认 1024
+ * dispatchThreads      分发线程数，默认 2
+ * uniqueId             协议插件 ID，为空时按 IoTDeviceValue JSON 解析
+ * </pre>
+ * Linux 下有 epoll 时使用 native transport。
  */
-public class UdpServerRouteBuilder extends ReceiverServerRoute {
+@Slf4j
+public class UdpServerRouteBuilder extends NettyIngestRouteBuilder {
 
     public UdpServerRouteBuilder(String routeId, Map<String, Object> options) {
         super(routeId, options);
+        log.info("Udp Route Created ====> port : {}", options.get("port"));
+    }
+
+    @Override
+    protected String protocol() {
+        return "udp";
     }
 
     @Override
     public void configure() throws Exception {
+        int batchSize = optionInt("batchSize", 200);
+
+        CounterMetrics datagramCounter = createCounter("received_frames_count", "The count number of datagrams received by udp server");
+        CounterMetrics byteCounter = createCounter("received_bytes_count", "The count number of bytes received by udp server");
+
+        String decoders = bindHandler("batch",
+                new NettyHandlerFactory(() -> new FrameBatchHandler(batchSize, datagramCounter, byteCounter)));
 
+        toDispatchQueue(
+                fromF("netty:udp://0.0.0.0:%s?sync=false&allowDefaultCodec=false&nativeTransport=%s"
+                                + "&receiveBufferSize=%d&receiveBufferSizePredictor=%d&decoders=%s",
+                        options.get("port"), Epoll.isAvailable(),
+                        optionInt("receiveBufferSize", 4 * 1024 * 1024), optionInt("maxDatagramSize", 2048), decoders)
+                        .routeId(routeId)
+                        .log(LoggingLevel.DEBUG, log, ">>> Datagrams received from Udp Server : ${body.size}"),
+                optionInt("queueSize", 1024),
+                optionInt("dispatchThreads", 2)
+        );
     }
 }
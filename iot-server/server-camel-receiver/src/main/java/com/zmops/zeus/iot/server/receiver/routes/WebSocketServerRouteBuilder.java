@@ -1,20 +1,90 @@
 package com.zmops.zeus.iot.server.receiver.routes;
 
-import com.zmops.zeus.iot.server.receiver.ReceiverServerRoute;
+import com.zmops.zeus.iot.server.receiver.handler.netty.BackpressureHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.ConnectionLimitHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatchHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.IdleCloseHandler;
+import com.zmops.zeus.iot.server.receiver.handler.netty.NettyHandlerFactory;
+import com.zmops.zeus.iot.server.receiver.handler.netty.WebSocketPayloadHandler;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.json.JsonObjectDecoder;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.LoggingLevel;
+import org.apache.camel.component.netty.ShareableChannelHandlerFactory;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author nantian created at 2021/10/24 14:23
+ * <p>
+ * WebSocket Server 接入，长连接持续上报 IoTDeviceValue JSON，
+ * 消息内可以是换行分隔的多个对象，也可以是对象数组，跨帧的对象按字节流增量解码。options：
+ * <pre>
+ * port                 监听端口
+ * path                 WebSocket 路径，默认 /data
+ * maxFrameSize         单个 WebSocket 帧最大字节数，默认 65536
+ * maxObjectLength      单个 JSON 对象最大字节数，默认 65536
+ * maxConnections       最大连接数，默认 1024
+ * idleTimeout          读空闲超时秒数，超时关闭连接，默认 300，0 不检测
+ * batchSize            每个会话聚合多少个对象后投递，默认 100
+ * uniqueId             协议插件 ID，为空时按 IoTDeviceValue JSON 解析
+ * </pre>
+ * 发送队列已满时暂停该会话的读取，队列恢复后继续。
  */
-public class WebSocketServerRouteBuilder extends ReceiverServerRoute {
+@Slf4j
+public class WebSocketServerRouteBuilder extends NettyIngestRouteBuilder {
 
     public WebSocketServerRouteBuilder(String routeId, Map<String, Object> options) {
         super(routeId, options);
+        log.info("WebSocket Route Created ====> port : {}，path : {}", options.get("port"), options.get("path"));
+    }
+
+    @Override
+    protected String protocol() {
+        return "websocket";
     }
 
     @Override
     public void configure() throws Exception {
+        String path = optionString("path", "/data");
+        int maxFrameSize = optionInt("maxFrameSize", 65536);
+        int maxObjectLength = optionInt("maxObjectLength", 65536);
+        int maxConnections = optionInt("maxConnections", 1024);
+        int idleTimeout = optionInt("idleTimeout", 300);
+        int batchSize = optionInt("batchSize", 100);
+
+        CounterMetrics messageCounter = createCounter("received_frames_count", "The count number of json messages received by websocket server");
+        CounterMetrics byteCounter = createCounter("received_bytes_count", "The count number of bytes received by websocket server");
+        CounterMetrics pausedCounter = createCounter("read_paused_count", "The count number of websocket sessions paused by a full transfer queue");
+
+        StringBuilder decoders = new StringBuilder();
+        decoders.append(bindHandler("limit", new ShareableChannelHandlerFactory(new ConnectionLimitHandler(maxConnections,
+                createGauge("active_connections", "The number of active websocket sessions")))));
+        if (idleTimeout > 0) {
+            decoders.append(',').append(bindHandler("idle",
+                    new NettyHandlerFactory(() -> new IdleStateHandler(idleTimeout, 0, 0, TimeUnit.SECONDS))));
+            decoders.append(',').append(bindHandler("idleClose", new ShareableChannelHandlerFactory(IdleCloseHandler.INSTANCE)));
+        }
+        decoders.append(',').append(bindHandler("http", new NettyHandlerFactory(HttpServerCodec::new)));
+        decoders.append(',').append(bindHandler("handshake", new NettyHandlerFactory(() -> new HttpObjectAggregator(8192))));
+        decoders.append(',').append(bindHandler("ws",
+                new NettyHandlerFactory(() -> new WebSocketServerProtocolHandler(path, null, true, maxFrameSize))));
+        decoders.append(',').append(bindHandler("payload", new ShareableChannelHandlerFactory(WebSocketPayloadHandler.INSTANCE)));
+        decoders.append(',').append(bindHandler("json", new NettyHandlerFactory(() -> new JsonObjectDecoder(maxObjectLength, true))));
+        decoders.append(',').append(bindHandler("backpressure",
+                new NettyHandlerFactory(() -> new BackpressureHandler(this::isTransferSaturated, pausedCounter))));
+        decoders.append(',').append(bindHandler("batch",
+                new NettyHandlerFactory(() -> new FrameBatchHandler(batchSize, messageCounter, byteCounter))));
 
+        toIngestPipeline(
+                fromF("netty:tcp://0.0.0.0:%s?sync=false&allowDefaultCodec=false&decoders=%s", options.get("port"), decoders)
+                        .routeId(routeId)
+                        .log(LoggingLevel.DEBUG, log, ">>> Messages received from WebSocket Server : ${body.size}")
+        );
     }
 }
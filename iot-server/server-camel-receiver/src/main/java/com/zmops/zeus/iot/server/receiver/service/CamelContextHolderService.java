@@ -1,5 +1,7 @@
 package com.zmops.zeus.iot.server.receiver.service;
 
+import com.zmops.zeus.iot.server.receiver.routes.NettyIngestRouteBuilder;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import com.zmops.zeus.server.library.module.Service;
 import lombok.extern.slf4j.Slf4j;
@@ -52,6 +54,15 @@ public class CamelContextHolderService implements Service {
         try {
             camelContext.getRouteController().stopRoute(routeId);
             camelContext.removeRoute(routeId);
+
+            // 先停接入路由，再停分发路由，队列中已有的批次处理完
+            String dispatchRouteId = routeId + NettyIngestRouteBuilder.DISPATCH_ROUTE_SUFFIX;
+            if (camelContext.getRoute(dispatchRouteId) != null) {
+                camelContext.getRouteController().stopRoute(dispatchRouteId);
+                camelContext.removeRoute(dispatchRouteId);
+            }
+
+            PipelineMetrics.remove(routeId);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -66,6 +77,12 @@ public class CamelContextHolderService implements Service {
     public void routeStartUp(String routeId) {
         Route route = camelContext.getRoute(routeId);
         try {
+            Route dispatchRoute = camelContext.getRoute(routeId + NettyIngestRouteBuilder.DISPATCH_ROUTE_SUFFIX);
+            if (dispatchRoute != null) {
+                dispatchRoute.getEndpoint().start();
+                dispatchRoute.getConsumer().start();
+            }
+
             route.getEndpoint().start();
             route.getConsumer().start();
         } catch (Exception e) {
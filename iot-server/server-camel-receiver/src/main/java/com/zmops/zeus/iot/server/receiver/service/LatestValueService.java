@@ -0,0 +1,299 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import com.zmops.zeus.server.library.module.Service;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 监控项最新值，按 itemid 保存最后一条数据（value、clock、ns、type），供最新数据查询直接读内存，不再查历史库。
+ * <p>
+ * 按 itemid 分成 {@link #SEGMENTS} 段，每段是开放寻址哈希表 + 基本类型并行数组，各自加锁，
+ * 不同段的写入互不阻塞。每个槽位约 29 字节加上字符串值的引用，数值类型不创建对象；
+ * 百万监控项约 60MB。查询加段的乐观读锁，冲突时退化为读锁。
+ */
+public class LatestValueService implements Service {
+
+    /**
+     * Zabbix 值类型
+     */
+    public static final byte TYPE_FLOAT = 0;
+    public static final byte TYPE_STR = 1;
+    public static final byte TYPE_UINT = 3;
+    public static final byte TYPE_TEXT = 4;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int SEGMENT_BITS = 6;
+
+    static final int SEGMENTS = 1 << SEGMENT_BITS;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public LatestValueService(int initialCapacity) {
+        int segmentCapacity = tableSizeFor(Math.max(16, (int) (initialCapacity / SEGMENTS / LOAD_FACTOR) + 1));
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * 更新最新值，时间早于已有值的数据忽略
+     *
+     * @param type  Zabbix 值类型，见 TYPE_*
+     * @param value 原始值，数值类型无法解析时忽略
+     */
+    public void update(int itemid, byte type, String value, long clock, int ns) {
+        if (value == null) {
+            return;
+        }
+
+        long number = 0;
+        String text = null;
+        try {
+            switch (type) {
+                case TYPE_FLOAT:
+                    number = Double.doubleToRawLongBits(Double.parseDouble(value));
+                    break;
+                case TYPE_UINT:
+                    number = Long.parseLong(value);
+                    break;
+                case TYPE_STR:
+                case TYPE_TEXT:
+                    text = value;
+                    break;
+                default:
+                    return;
+            }
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        int hash = mix(itemid);
+        segmentFor(hash).update(itemid, hash, type, number, text, clock, ns);
+    }
+
+    /**
+     * 批量查询，没有数据的 itemid 不返回
+     */
+    public List<LatestValue> get(int[] itemids) {
+        List<LatestValue> result = new ArrayList<>(itemids.length);
+        for (int itemid : itemids) {
+            int hash = mix(itemid);
+            LatestValue value = segmentFor(hash).get(itemid, hash);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 高位选段，低位选槽位
+     */
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    private static String format(byte type, long number, String text) {
+        switch (type) {
+            case TYPE_FLOAT:
+                return Double.toString(Double.longBitsToDouble(number));
+            case TYPE_UINT:
+                return Long.toString(number);
+            default:
+                return text;
+        }
+    }
+
+    private static int mix(int itemid) {
+        int h = itemid * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(capacity - 1);
+        return n < 0 ? 1 : Math.min(n + 1, 1 << 30);
+    }
+
+    private static class Segment {
+
+        private final StampedLock lock = new StampedLock();
+
+        private int[] keys;
+
+        /**
+         * 值类型 + 1，0 表示空槽位
+         */
+        private byte[] types;
+
+        private long[] clocks;
+
+        private int[] nss;
+
+        /**
+         * 浮点数存 doubleToRawLongBits，整数直接存
+         */
+        private long[] numbers;
+
+        /**
+         * 字符、文本类型的值
+         */
+        private String[] texts;
+
+        private int mask;
+
+        private int threshold;
+
+        private volatile int size;
+
+        Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        void update(int itemid, int hash, byte type, long number, String text, long clock, int ns) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = slotOf(itemid, hash);
+                if (types[slot] == 0) {
+                    if (size + 1 > threshold) {
+                        resize();
+                        slot = slotOf(itemid, hash);
+                    }
+                    keys[slot] = itemid;
+                    size++;
+                } else if (clocks[slot] > clock || (clocks[slot] == clock && nss[slot] > ns)) {
+                    return;
+                }
+
+                types[slot] = (byte) (type + 1);
+                clocks[slot] = clock;
+                nss[slot] = ns;
+                numbers[slot] = number;
+                texts[slot] = text;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        LatestValue get(int itemid, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                LatestValue value = find(itemid, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return find(itemid, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private LatestValue find(int itemid, int hash) {
+            // 乐观读期间数组可能被扩容替换，先取局部引用，越界等不一致由 validate 兜底
+            int[] keys = this.keys;
+            byte[] types = this.types;
+            long[] clocks = this.clocks;
+            int[] nss = this.nss;
+            long[] numbers = this.numbers;
+            String[] texts = this.texts;
+            int mask = keys.length - 1;
+            if (types.length != keys.length || clocks.length != keys.length || nss.length != keys.length
+                    || numbers.length != keys.length || texts.length != keys.length) {
+                return null;
+            }
+
+            int slot = hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                byte type = types[slot];
+                if (type == 0) {
+                    return null;
+                }
+                if (keys[slot] == itemid) {
+                    return new LatestValue(itemid, (byte) (type - 1),
+                            format((byte) (type - 1), numbers[slot], texts[slot]), clocks[slot], nss[slot]);
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slotOf(int itemid, int hash) {
+            int slot = hash & mask;
+            while (types[slot] != 0 && keys[slot] != itemid) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            byte[] oldTypes = types;
+            long[] oldClocks = clocks;
+            int[] oldNss = nss;
+            long[] oldNumbers = numbers;
+            String[] oldTexts = texts;
+
+            allocate(oldKeys.length << 1);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldTypes[i] == 0) {
+                    continue;
+                }
+                int slot = slotOf(oldKeys[i], mix(oldKeys[i]));
+                keys[slot] = oldKeys[i];
+                types[slot] = oldTypes[i];
+                clocks[slot] = oldClocks[i];
+                nss[slot] = oldNss[i];
+                numbers[slot] = oldNumbers[i];
+                texts[slot] = oldTexts[i];
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            types = new byte[capacity];
+            clocks = new long[capacity];
+            nss = new int[capacity];
+            numbers = new long[capacity];
+            texts = new String[capacity];
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+    }
+
+    @Getter
+    public static class LatestValue {
+
+        private final int itemid;
+
+        private final byte type;
+
+        private final String value;
+
+        private final long clock;
+
+        private final int ns;
+
+        LatestValue(int itemid, byte type, String value, long clock, int ns) {
+            this.itemid = itemid;
+            this.type = type;
+            this.value = value;
+            this.clock = clock;
+            this.ns = ns;
+        }
+    }
+}
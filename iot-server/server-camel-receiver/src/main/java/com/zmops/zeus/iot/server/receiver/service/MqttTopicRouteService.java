@@ -0,0 +1,189 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import com.zmops.zeus.iot.server.h2.module.LocalH2Module;
+import com.zmops.zeus.iot.server.h2.service.InsertDAO;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.server.library.module.ModuleManager;
+import com.zmops.zeus.server.library.module.Service;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MQTT 主题到协议插件 uniqueId 的路由表，常驻内存。
+ * <p>
+ * MQTT 路由启动时加载，网关变更时由 ProtocolGatewayController 调用 {@link #reload()} 刷新；
+ * 查询不再访问 H2，精确主题走 HashMap，通配主题走 {@link TopicTrie}。
+ * <p>
+ * 加载失败时继续使用上一份路由表，消息线程每隔 {@link #RELOAD_RETRY_INTERVAL} 毫秒最多有一个去重试，
+ * 其他线程不等待，不会让 MQTT 接入排队等 H2。
+ */
+@Slf4j
+public class MqttTopicRouteService implements Service {
+
+    private static final String ROUTE_SQL = "select pm.topic,pc.unique_id from protocol_gateway_mqtt pm " +
+            "left join protocol_component pc on pc.id=pm.protocol_component_id";
+
+    private static final long RELOAD_RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private final ModuleManager moduleManager;
+
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile RouteTable routeTable = new RouteTable();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * 未加载成功时，下次允许消息线程触发加载的时间
+     */
+    private volatile long nextLoadAttempt;
+
+    private volatile CounterMetrics routeHitCounter;
+    private volatile CounterMetrics routeMissCounter;
+
+    public MqttTopicRouteService(ModuleManager moduleManager) {
+        this.moduleManager = moduleManager;
+    }
+
+    /**
+     * 根据发布主题查找协议插件 uniqueId
+     *
+     * @param topic 发布主题
+     * @return uniqueId，没有匹配返回 null
+     */
+    public String route(String topic) {
+        if (!loaded && System.currentTimeMillis() >= nextLoadAttempt) {
+            tryReload();
+        }
+        if (routeHitCounter == null) {
+            initMetrics();
+        }
+
+        String uniqueId = routeTable.match(topic);
+        if (uniqueId != null) {
+            routeHitCounter.inc();
+        } else {
+            routeMissCounter.inc();
+        }
+        return uniqueId;
+    }
+
+    /**
+     * 从 H2 重新加载路由表，加载完成后整体替换，查询线程无锁
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            load();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * 消息线程触发的加载，已有线程在加载或者还没到重试时间时直接返回
+     */
+    private void tryReload() {
+        if (!reloadLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!loaded && System.currentTimeMillis() >= nextLoadAttempt) {
+                load();
+            }
+        } catch (RuntimeException e) {
+            log.error("load mqtt topic routes failed, keep {} routes", routeTable.size(), e);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void load() {
+        nextLoadAttempt = System.currentTimeMillis() + RELOAD_RETRY_INTERVAL;
+
+        InsertDAO localH2InsertDAO = moduleManager.find(LocalH2Module.NAME).provider().getService(InsertDAO.class);
+        RouteTable table = new RouteTable();
+
+        ResultSet rs = localH2InsertDAO.queryRes(ROUTE_SQL);
+        if (rs == null) {
+            log.error("load mqtt topic routes failed, keep {} routes", routeTable.size());
+            return;
+        }
+
+        try {
+            while (rs.next()) {
+                String topic = rs.getString(1);
+                String uniqueId = rs.getString(2);
+                if (topic != null && uniqueId != null) {
+                    table.put(topic, uniqueId);
+                }
+            }
+        } catch (SQLException e) {
+            log.error("load mqtt topic routes failed, keep {} routes", routeTable.size(), e);
+            return;
+        } finally {
+            localH2InsertDAO.close(rs);
+        }
+
+        routeTable = table;
+        loaded = true;
+        log.info("mqtt topic routes loaded, size: {}", table.size());
+    }
+
+    private synchronized void initMetrics() {
+        if (routeHitCounter != null) {
+            return;
+        }
+
+        MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                .provider()
+                .getService(MetricsCreator.class);
+
+        routeMissCounter = metricsCreator.createCounter(
+                "mqtt_topic_route_miss_count", "The count number of mqtt messages without a matched topic route",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("mqtt_topic_route_miss_count")
+        );
+        routeHitCounter = metricsCreator.createCounter(
+                "mqtt_topic_route_hit_count", "The count number of mqtt messages routed by topic",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("mqtt_topic_route_hit_count")
+        );
+    }
+
+    private static class RouteTable {
+
+        private final Map<String, String> exactRoutes = new HashMap<>();
+
+        private final TopicTrie<String> wildcardRoutes = new TopicTrie<>();
+
+        void put(String topic, String uniqueId) {
+            if (topic.indexOf('+') >= 0 || topic.indexOf('#') >= 0) {
+                wildcardRoutes.put(topic, uniqueId);
+            } else {
+                exactRoutes.put(topic, uniqueId);
+            }
+        }
+
+        String match(String topic) {
+            String uniqueId = exactRoutes.get(topic);
+            if (uniqueId == null && wildcardRoutes.size() > 0) {
+                uniqueId = wildcardRoutes.match(topic);
+            }
+            return uniqueId;
+        }
+
+        int size() {
+            return exactRoutes.size() + wildcardRoutes.size();
+        }
+    }
+}
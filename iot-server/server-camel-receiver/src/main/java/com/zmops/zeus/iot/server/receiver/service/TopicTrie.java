@@ -0,0 +1,125 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MQTT 主题过滤器前缀树，支持 '+' 单层通配和 '#' 多层通配。
+ * <p>
+ * 匹配优先级：精确层级 > '+' > '#'，同一主题只返回一个结果。
+ * 构建完成后只读，可以被多个线程并发查询。
+ *
+ * @param <V> 过滤器绑定的值
+ */
+public class TopicTrie<V> {
+
+    private static final String SINGLE_LEVEL = "+";
+    private static final String MULTI_LEVEL = "#";
+
+    private final Node<V> root = new Node<>();
+
+    private int size;
+
+    /**
+     * 添加主题过滤器，重复添加时后者覆盖前者
+     *
+     * @param filter 主题过滤器，如 device/+/data、device/#
+     * @param value  绑定值
+     */
+    public void put(String filter, V value) {
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            int end = filter.indexOf('/', start);
+            String level = end < 0 ? filter.substring(start) : filter.substring(start, end);
+
+            if (MULTI_LEVEL.equals(level)) {
+                if (node.multiLevelValue == null) {
+                    size++;
+                }
+                node.multiLevelValue = value;
+                return;
+            }
+
+            if (SINGLE_LEVEL.equals(level)) {
+                if (node.singleLevel == null) {
+                    node.singleLevel = new Node<>();
+                }
+                node = node.singleLevel;
+            } else {
+                node = node.children.computeIfAbsent(level, k -> new Node<>());
+            }
+
+            if (end < 0) {
+                if (node.value == null) {
+                    size++;
+                }
+                node.value = value;
+                return;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * 查找与主题匹配的过滤器绑定值
+     *
+     * @param topic 发布主题，不含通配符
+     * @return 绑定值，没有匹配返回 null
+     */
+    public V match(String topic) {
+        // $SYS 等以 $ 开头的主题不参与首层通配匹配
+        return match(root, topic, 0, !topic.startsWith("$"));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private V match(Node<V> node, String topic, int start, boolean wildcardAllowed) {
+        int end = topic.indexOf('/', start);
+        String level = end < 0 ? topic.substring(start) : topic.substring(start, end);
+
+        Node<V> literal = node.children.get(level);
+        if (literal != null) {
+            V v = end < 0 ? literal.valueOrMultiLevel() : match(literal, topic, end + 1, true);
+            if (v != null) {
+                return v;
+            }
+        }
+
+        if (!wildcardAllowed) {
+            return null;
+        }
+
+        if (node.singleLevel != null) {
+            V v = end < 0 ? node.singleLevel.valueOrMultiLevel() : match(node.singleLevel, topic, end + 1, true);
+            if (v != null) {
+                return v;
+            }
+        }
+
+        return node.multiLevelValue;
+    }
+
+    private static class Node<V> {
+
+        private final Map<String, Node<V>> children = new HashMap<>();
+
+        private Node<V> singleLevel;
+
+        /**
+         * 过滤器在该层结束
+         */
+        private V value;
+
+        /**
+         * 该层之后是 '#'，同时匹配父层本身，如 a/# 匹配 a
+         */
+        private V multiLevelValue;
+
+        private V valueOrMultiLevel() {
+            return value != null ? value : multiLevelValue;
+        }
+    }
+}
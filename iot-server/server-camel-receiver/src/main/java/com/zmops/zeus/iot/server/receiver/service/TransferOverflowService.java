@@ -0,0 +1,33 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.server.library.module.Service;
+
+import java.util.List;
+
+/**
+ * 发送队列溢出转存。发送队列放不下或者发送 Zabbix 失败的数据交给这里，
+ * 默认没有转存实现，数据直接丢弃；由其他模块（如 core 的磁盘日志）通过 {@link #setOverflow(Overflow)} 安装。
+ */
+public class TransferOverflowService implements Service {
+
+    private volatile Overflow overflow;
+
+    public void setOverflow(Overflow overflow) {
+        this.overflow = overflow;
+    }
+
+    /**
+     * @param itemValues 未能发送的数据
+     * @return 是否已经转存，false 表示数据丢弃
+     */
+    public boolean store(List<ItemValue> itemValues) {
+        Overflow current = overflow;
+        return current != null && current.store(itemValues);
+    }
+
+    public interface Overflow {
+
+        boolean store(List<ItemValue> itemValues);
+    }
+}
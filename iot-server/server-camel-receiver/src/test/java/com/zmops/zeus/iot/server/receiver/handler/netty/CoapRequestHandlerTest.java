@@ -0,0 +1,243 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * 本机 UDP 回环：CoapRequestHandler + FrameBatchHandler，分发队列由测试 handler 模拟，可接受、拒绝或暂不处理批次
+ */
+public class CoapRequestHandlerTest {
+
+    private static final int CHANGED = 0x44;
+    private static final int SERVICE_UNAVAILABLE = 0xA3;
+    private static final int NOT_FOUND = 0x84;
+
+    private static final int TYPE_CON = 0;
+    private static final int TYPE_NON = 1;
+    private static final int TYPE_ACK = 2;
+    private static final int TYPE_RST = 3;
+
+    private final BlockingQueue<FrameBatch> dispatched = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<FrameBatch> held = new LinkedBlockingQueue<>();
+
+    private volatile Mode mode = Mode.ACCEPT;
+
+    private EventLoopGroup group;
+
+    private DatagramSocket client;
+
+    private InetSocketAddress server;
+
+    private enum Mode {
+        ACCEPT, REJECT, HOLD
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        CounterMetrics noop = new CounterMetrics() {
+            @Override
+            public void inc() {
+            }
+
+            @Override
+            public void inc(double value) {
+            }
+        };
+
+        group = new NioEventLoopGroup(1);
+        Channel channel = new Bootstrap()
+                .group(group)
+                .channel(NioDatagramChannel.class)
+                .handler(new ChannelInitializer<DatagramChannel>() {
+                    @Override
+                    protected void initChannel(DatagramChannel ch) {
+                        ch.pipeline()
+                                .addLast(new CoapRequestHandler("data"))
+                                .addLast(new FrameBatchHandler(100, noop, noop))
+                                .addLast(new ChannelInboundHandlerAdapter() {
+                                    @Override
+                                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                        FrameBatch batch = (FrameBatch) msg;
+                                        switch (mode) {
+                                            case ACCEPT:
+                                                dispatched.add(batch);
+                                                batch.dispatched();
+                                                break;
+                                            case REJECT:
+                                                batch.rejected();
+                                                break;
+                                            default:
+                                                held.add(batch);
+                                                break;
+                                        }
+                                    }
+                                });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        server = (InetSocketAddress) channel.localAddress();
+
+        client = new DatagramSocket();
+        client.setSoTimeout(2000);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void conIsAcknowledgedAfterDispatch() throws Exception {
+        send(request(TYPE_CON, 0x02, 1, "data", "{\"deviceId\":\"d1\"}"));
+
+        byte[] ack = receive();
+        assertHeader(ack, TYPE_ACK, CHANGED, 1);
+        assertArrayEquals(token(1), tokenOf(ack));
+
+        FrameBatch batch = dispatched.poll(1, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals("{\"deviceId\":\"d1\"}", new String(batch.getFrames().get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void noAckBeforeBatchIsQueued() throws Exception {
+        mode = Mode.HOLD;
+        send(request(TYPE_CON, 0x02, 2, "data", "{}"));
+        FrameBatch batch = held.poll(2, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertNoReply();
+
+        // 入队前的重传忽略，不重复上报
+        send(request(TYPE_CON, 0x02, 2, "data", "{}"));
+        assertNoReply();
+        assertNull(held.poll(100, TimeUnit.MILLISECONDS));
+
+        // 在其他线程回调，ACK 仍经 EventLoop 发出
+        new Thread(batch::dispatched).start();
+        assertHeader(receive(), TYPE_ACK, CHANGED, 2);
+    }
+
+    @Test
+    public void rejectedBatchRepliesServiceUnavailableAndAllowsRetry() throws Exception {
+        mode = Mode.REJECT;
+        send(request(TYPE_CON, 0x02, 3, "data", "{}"));
+        assertHeader(receive(), TYPE_ACK, SERVICE_UNAVAILABLE, 3);
+
+        // 5.03 不缓存，重传重新上报
+        mode = Mode.ACCEPT;
+        send(request(TYPE_CON, 0x02, 3, "data", "{}"));
+        assertHeader(receive(), TYPE_ACK, CHANGED, 3);
+        assertNotNull(dispatched.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void retransmissionAfterAckIsNotDispatchedAgain() throws Exception {
+        send(request(TYPE_CON, 0x03, 4, "data", "{}"));
+        assertHeader(receive(), TYPE_ACK, CHANGED, 4);
+        assertNotNull(dispatched.poll(1, TimeUnit.SECONDS));
+
+        send(request(TYPE_CON, 0x03, 4, "data", "{}"));
+        assertHeader(receive(), TYPE_ACK, CHANGED, 4);
+        assertNull(dispatched.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void immediateRepliesAreUnchanged() throws Exception {
+        send(request(TYPE_CON, 0x02, 5, "other", "{}"));
+        assertHeader(receive(), TYPE_ACK, NOT_FOUND, 5);
+
+        send(new byte[]{0x40, 0x00, 0x00, 0x06});
+        assertHeader(receive(), TYPE_RST, 0, 6);
+
+        mode = Mode.REJECT;
+        send(request(TYPE_NON, 0x02, 7, "data", "{}"));
+        assertNoReply();
+    }
+
+    private static byte[] request(int type, int code, int messageId, String path, String payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] token = token(messageId);
+        out.write((1 << 6) | (type << 4) | token.length);
+        out.write(code);
+        out.write(messageId >> 8);
+        out.write(messageId);
+        out.write(token, 0, token.length);
+        byte[] uri = path.getBytes(StandardCharsets.UTF_8);
+        out.write((11 << 4) | uri.length);
+        out.write(uri, 0, uri.length);
+        out.write(0xFF);
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] token(int messageId) {
+        return new byte[]{(byte) 0xCA, (byte) messageId};
+    }
+
+    private static byte[] tokenOf(byte[] reply) {
+        byte[] token = new byte[reply[0] & 0x0F];
+        System.arraycopy(reply, 4, token, 0, token.length);
+        return token;
+    }
+
+    private static void assertHeader(byte[] reply, int type, int code, int messageId) {
+        assertEquals("type", type, (reply[0] >> 4) & 0x03);
+        assertEquals("code", code, reply[1] & 0xFF);
+        assertEquals("message id", messageId, ((reply[2] & 0xFF) << 8) | (reply[3] & 0xFF));
+    }
+
+    private void send(byte[] datagram) throws Exception {
+        client.send(new DatagramPacket(datagram, datagram.length, server));
+    }
+
+    private byte[] receive() throws Exception {
+        byte[] buf = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        client.receive(packet);
+        byte[] data = new byte[packet.getLength()];
+        System.arraycopy(buf, 0, data, 0, data.length);
+        return data;
+    }
+
+    private void assertNoReply() throws Exception {
+        client.setSoTimeout(300);
+        try {
+            receive();
+            fail("unexpected reply");
+        } catch (SocketTimeoutException expected) {
+            // 没有回复
+        } finally {
+            client.setSoTimeout(2000);
+        }
+    }
+}
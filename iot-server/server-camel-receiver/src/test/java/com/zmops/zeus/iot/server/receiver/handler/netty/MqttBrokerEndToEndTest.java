@@ -0,0 +1,253 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.iot.server.receiver.handler.zabbix.process.JsonToItemValueProcess;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import com.zmops.zeus.iot.server.sender.provider.ZabbixSenderModuleConfig;
+import com.zmops.zeus.iot.server.sender.service.ZabbixSenderService;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.eclipse.paho.mqttv5.client.IMqttToken;
+import org.eclipse.paho.mqttv5.client.MqttAsyncClient;
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * paho 客户端连接内置 Broker，批次经 JsonToItemValueProcess 解析后发给替身 ZabbixSenderService，
+ * 发送结果决定 PUBACK 或断开
+ */
+public class MqttBrokerEndToEndTest {
+
+    private static final String USERNAME = "device";
+
+    private static final String PASSWORD = "secret";
+
+    private final BlockingQueue<Send> sends = new LinkedBlockingQueue<>();
+
+    private EventLoopGroup group;
+
+    private String serverUri;
+
+    private MqttAsyncClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        CounterMetrics noop = new CounterMetrics() {
+            @Override
+            public void inc() {
+            }
+
+            @Override
+            public void inc(double value) {
+            }
+        };
+        StubSenderService senderService = new StubSenderService();
+        JsonToItemValueProcess process = new JsonToItemValueProcess();
+        DefaultCamelContext camelContext = new DefaultCamelContext();
+
+        group = new NioEventLoopGroup(2);
+        Channel server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new MqttDecoder(65536))
+                                .addLast(MqttEncoder.INSTANCE)
+                                .addLast(new MqttBrokerHandler(null, USERNAME, PASSWORD, false, 0, 100, noop, noop, noop))
+                                .addLast(new SimpleChannelInboundHandler<FrameBatch>() {
+                                    @Override
+                                    @SuppressWarnings("unchecked")
+                                    protected void channelRead0(ChannelHandlerContext ctx, FrameBatch batch) throws Exception {
+                                        Exchange exchange = new DefaultExchange(camelContext);
+                                        exchange.getIn().setBody(batch);
+                                        process.process(exchange);
+
+                                        List<ItemValue> values = exchange.getMessage().getBody(List.class);
+                                        ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(values.size());
+                                        for (ItemValue value : values) {
+                                            frame.append(value.getHost(), value.getKey(), value.getValue(), value.getClock(), value.getNs());
+                                        }
+                                        senderService.sendDataAsync(frame).whenComplete((response, t) -> {
+                                            if (t == null) {
+                                                batch.dispatched();
+                                            } else {
+                                                batch.rejected();
+                                            }
+                                        });
+                                    }
+                                });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        serverUri = "tcp://127.0.0.1:" + ((InetSocketAddress) server.localAddress()).getPort();
+
+        client = new MqttAsyncClient(serverUri, "e2e-client", new MemoryPersistence());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client.isConnected()) {
+            client.disconnectForcibly(100, 100, false);
+        }
+        client.close(true);
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void pubAckWaitsForZabbixSender() throws Exception {
+        client.connect(options(PASSWORD)).waitForCompletion(5000);
+
+        IMqttToken token = client.publish("device/d1/data",
+                message("{\"deviceId\":\"d1\",\"clock\":1637000000000,\"attributes\":{\"temp\":\"21.5\"}}", 1));
+
+        Send send = sends.poll(5, TimeUnit.SECONDS);
+        assertNotNull("zabbix sender not called", send);
+        assertTrue(send.json, send.json.contains("\"host\":\"d1\""));
+        assertTrue(send.json, send.json.contains("\"key\":\"temp\""));
+        assertTrue(send.json, send.json.contains("\"value\":\"21.5\""));
+
+        Thread.sleep(300);
+        assertFalse("PUBACK sent before zabbix sender completed", token.isComplete());
+
+        send.result.complete("{\"response\":\"success\"}");
+        token.waitForCompletion(5000);
+        assertTrue(token.isComplete());
+        assertTrue(client.isConnected());
+    }
+
+    @Test
+    public void qos0IsForwardedWithoutAck() throws Exception {
+        client.connect(options(PASSWORD)).waitForCompletion(5000);
+        client.publish("device/d2/data", message("{\"deviceId\":\"d2\",\"attributes\":{\"hum\":\"40\"}}", 0));
+
+        Send send = sends.poll(5, TimeUnit.SECONDS);
+        assertNotNull(send);
+        assertTrue(send.json, send.json.contains("\"host\":\"d2\""));
+        send.result.complete("{\"response\":\"success\"}");
+    }
+
+    @Test
+    public void senderFailureClosesConnectionWithoutAck() throws Exception {
+        client.connect(options(PASSWORD)).waitForCompletion(5000);
+        IMqttToken token = client.publish("device/d3/data",
+                message("{\"deviceId\":\"d3\",\"attributes\":{\"temp\":\"1\"}}", 1));
+
+        Send send = sends.poll(5, TimeUnit.SECONDS);
+        assertNotNull(send);
+        send.result.completeExceptionally(new IllegalStateException("trapper down"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.isConnected() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse("connection should be closed", client.isConnected());
+        assertTrue(token.getException() != null || !token.isComplete());
+    }
+
+    @Test
+    public void wrongPasswordIsRefused() throws Exception {
+        try {
+            client.connect(options("wrong")).waitForCompletion(5000);
+            fail("expected connection refused");
+        } catch (MqttException e) {
+            assertEquals(0x86, e.getReasonCode());
+        }
+        assertFalse(client.isConnected());
+    }
+
+    @Test
+    public void missingCredentialsAreRefused() throws Exception {
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setConnectionTimeout(5);
+        try {
+            client.connect(options).waitForCompletion(5000);
+            fail("expected connection refused");
+        } catch (MqttException e) {
+            assertEquals(0x86, e.getReasonCode());
+        }
+    }
+
+    private static MqttConnectionOptions options(String password) {
+        MqttConnectionOptions options = new MqttConnectionOptions();
+        options.setUserName(USERNAME);
+        options.setPassword(password.getBytes(StandardCharsets.UTF_8));
+        options.setConnectionTimeout(5);
+        options.setAutomaticReconnect(false);
+        return options;
+    }
+
+    private static MqttMessage message(String json, int qos) {
+        MqttMessage message = new MqttMessage(json.getBytes(StandardCharsets.UTF_8));
+        message.setQos(qos);
+        return message;
+    }
+
+    private static class Send {
+
+        private final String json;
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Send(String json) {
+            this.json = json;
+        }
+    }
+
+    /**
+     * 不连接 Trapper，记录发送的数据帧，由测试决定发送结果
+     */
+    private class StubSenderService extends ZabbixSenderService {
+
+        StubSenderService() {
+            super(null, null, new ZabbixSenderModuleConfig());
+        }
+
+        @Override
+        public CompletableFuture<String> sendDataAsync(ZabbixTrapperFrame frame) {
+            ByteBuf buf = frame.finish();
+            try {
+                Send send = new Send(buf.toString(ZabbixTrapperFrame.HEADER_LENGTH,
+                        buf.readableBytes() - ZabbixTrapperFrame.HEADER_LENGTH, StandardCharsets.UTF_8));
+                sends.add(send);
+                return send.result;
+            } finally {
+                buf.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TCP 客户端连到与 TcpServerRouteBuilder 相同的 handler 链（连接数限制、长度字段解码、按连接聚合）
+ */
+public class TcpFrameBatchTest {
+
+    private static final int BATCH_SIZE = 4;
+
+    private final BlockingQueue<FrameBatch> batches = new LinkedBlockingQueue<>();
+
+    private final AtomicLong frameCount = new AtomicLong();
+
+    private final AtomicLong byteCount = new AtomicLong();
+
+    private final TestGauge connectionGauge = new TestGauge();
+
+    private EventLoopGroup group;
+
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        ConnectionLimitHandler limitHandler = new ConnectionLimitHandler(1, connectionGauge);
+        CounterMetrics frameCounter = new TestCounter(frameCount);
+        CounterMetrics byteCounter = new TestCounter(byteCount);
+
+        group = new NioEventLoopGroup(2);
+        Channel server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(limitHandler)
+                                .addLast(new LengthFieldBasedFrameDecoder(65536, 0, 4, 0, 4))
+                                .addLast(new FrameBatchHandler(BATCH_SIZE, frameCounter, byteCounter))
+                                .addLast(new ChannelInboundHandlerAdapter() {
+                                    @Override
+                                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                        batches.add((FrameBatch) msg);
+                                    }
+                                });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+    }
+
+    @After
+    public void tearDown() {
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void framesFromOneWriteAreBatchedPerConnection() throws Exception {
+        List<String> sent = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < 10; i++) {
+            String frame = "{\"deviceId\":\"d" + i + "\",\"attributes\":{\"温度\":\"" + i + "\"}}";
+            byte[] payload = frame.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(payload.length);
+            out.write(payload);
+            sent.add(frame);
+        }
+
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(bytes.toByteArray());
+            socket.getOutputStream().flush();
+
+            List<String> received = new ArrayList<>();
+            while (received.size() < sent.size()) {
+                FrameBatch batch = batches.poll(5, TimeUnit.SECONDS);
+                assertNotNull("frames missing, received " + received.size(), batch);
+                assertTrue("batch size " + batch.size(), batch.size() <= BATCH_SIZE);
+                assertNotNull(batch.getRemoteAddress());
+                for (byte[] frame : batch.getFrames()) {
+                    received.add(new String(frame, StandardCharsets.UTF_8));
+                }
+            }
+            assertEquals(sent, received);
+        }
+
+        assertEquals(10, frameCount.get());
+        assertEquals(bytes.size() - 10 * 4, byteCount.get());
+    }
+
+    @Test
+    public void partialFrameIsHeldUntilComplete() throws Exception {
+        byte[] payload = "{\"deviceId\":\"d1\"}".getBytes(StandardCharsets.UTF_8);
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(payload.length);
+            out.write(payload, 0, 5);
+            out.flush();
+            assertNull(batches.poll(300, TimeUnit.MILLISECONDS));
+
+            out.write(payload, 5, payload.length - 5);
+            out.flush();
+            FrameBatch batch = batches.poll(5, TimeUnit.SECONDS);
+            assertNotNull(batch);
+            assertEquals(1, batch.size());
+            assertEquals(new String(payload, StandardCharsets.UTF_8), new String(batch.getFrames().get(0), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void connectionOverLimitIsClosedWithoutCounting() throws Exception {
+        try (Socket first = connect()) {
+            waitForGauge(1);
+
+            try (Socket second = connect()) {
+                second.setSoTimeout(5000);
+                InputStream in = second.getInputStream();
+                try {
+                    assertEquals(-1, in.read());
+                } catch (IOException e) {
+                    // 连接被重置也视为拒绝
+                }
+            }
+            assertEquals(1, connectionGauge.max, 0);
+            assertEquals(1, connectionGauge.getValue(), 0);
+
+            first.setSoTimeout(200);
+            try {
+                first.getInputStream().read();
+                fail("accepted connection should stay open");
+            } catch (SocketTimeoutException expected) {
+                // 已接受的连接不受影响
+            }
+        }
+        waitForGauge(0);
+
+        try (Socket again = connect()) {
+            waitForGauge(1);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress("127.0.0.1", port), 1000);
+        return socket;
+    }
+
+    private void waitForGauge(double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectionGauge.getValue() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("connections " + connectionGauge.getValue() + ", expected " + expected);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestCounter implements CounterMetrics {
+
+        private final AtomicLong count;
+
+        TestCounter(AtomicLong count) {
+            this.count = count;
+        }
+
+        @Override
+        public void inc() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void inc(double value) {
+            count.addAndGet((long) value);
+        }
+    }
+
+    private static class TestGauge implements GaugeMetrics {
+
+        private volatile double value;
+
+        private volatile double max;
+
+        @Override
+        public void inc() {
+            setValue(value + 1);
+        }
+
+        @Override
+        public void inc(double value) {
+            setValue(this.value + value);
+        }
+
+        @Override
+        public void dec() {
+            setValue(value - 1);
+        }
+
+        @Override
+        public void dec(double value) {
+            setValue(this.value - value);
+        }
+
+        @Override
+        public synchronized void setValue(double value) {
+            this.value = value;
+            this.max = Math.max(max, value);
+        }
+
+        @Override
+        public double getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.zmops.zeus.iot.server.receiver.handler.netty;
+
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
+import io.netty.handler.codec.http.websocketx.WebSocketClientProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+import io.netty.handler.codec.http.websocketx.WebSocketVersion;
+import io.netty.handler.codec.json.JsonObjectDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * WebSocket 客户端连到与 WebSocketServerRouteBuilder 相同的 handler 链（握手、帧内容转字节流、JSON 增量解码、读取流控、按会话聚合）
+ */
+public class WebSocketIngestTest {
+
+    private static final String PATH = "/data";
+
+    private final BlockingQueue<String> objects = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean saturated = new AtomicBoolean();
+
+    private final AtomicLong pausedCount = new AtomicLong();
+
+    private EventLoopGroup group;
+
+    private int port;
+
+    private Channel client;
+
+    @Before
+    public void setUp() throws Exception {
+        CounterMetrics noop = new TestCounter(new AtomicLong());
+        CounterMetrics pausedCounter = new TestCounter(pausedCount);
+        ConnectionLimitHandler limitHandler = new ConnectionLimitHandler(16, new TestGauge());
+
+        group = new NioEventLoopGroup(2);
+        Channel server = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(limitHandler)
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(8192))
+                                .addLast(new WebSocketServerProtocolHandler(PATH, null, true, 65536))
+                                .addLast(WebSocketPayloadHandler.INSTANCE)
+                                .addLast(new JsonObjectDecoder(65536, true))
+                                .addLast(new BackpressureHandler(saturated::get, pausedCounter))
+                                .addLast(new FrameBatchHandler(100, noop, noop))
+                                .addLast(new ChannelInboundHandlerAdapter() {
+                                    @Override
+                                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                        for (byte[] frame : ((FrameBatch) msg).getFrames()) {
+                                            objects.add(new String(frame, StandardCharsets.UTF_8));
+                                        }
+                                    }
+                                });
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+
+        client = connect();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void newlineDelimitedObjectsInOneMessage() throws Exception {
+        List<String> sent = Arrays.asList(
+                "{\"deviceId\":\"d1\",\"attributes\":{\"温度\":\"21.5\"}}",
+                "{\"deviceId\":\"d2\",\"attributes\":{\"note\":\"a\\nb}\"}}",
+                "{\"deviceId\":\"d3\"}");
+        send(new TextWebSocketFrame(String.join("\n", sent) + "\n"));
+
+        assertEquals(sent, receive(sent.size()));
+    }
+
+    @Test
+    public void arrayElementsAreStreamedAsObjects() throws Exception {
+        send(new TextWebSocketFrame("[{\"deviceId\":\"d1\",\"values\":[1,2]}, {\"deviceId\":\"d2\"}]"));
+        send(new TextWebSocketFrame("[{\"deviceId\":\"d3\"}]"));
+
+        assertEquals(Arrays.asList(
+                "{\"deviceId\":\"d1\",\"values\":[1,2]}",
+                "{\"deviceId\":\"d2\"}",
+                "{\"deviceId\":\"d3\"}"), receive(3));
+    }
+
+    @Test
+    public void objectSplitAcrossFramesIsDecodedIncrementally() throws Exception {
+        String object = "{\"deviceId\":\"d1\",\"attributes\":{\"湿度\":\"60\"}}";
+        byte[] bytes = object.getBytes(StandardCharsets.UTF_8);
+        // 在多字节字符中间切分
+        int cut = object.indexOf('湿') + 1;
+
+        send(new TextWebSocketFrame(false, 0, Unpooled.wrappedBuffer(bytes, 0, cut)));
+        assertNull(objects.poll(300, TimeUnit.MILLISECONDS));
+        send(new ContinuationWebSocketFrame(true, 0, Unpooled.wrappedBuffer(bytes, cut, bytes.length - cut)));
+        assertEquals(object, objects.poll(5, TimeUnit.SECONDS));
+
+        // 跨消息的对象同样拼接
+        send(new TextWebSocketFrame("{\"deviceId\":"));
+        assertNull(objects.poll(300, TimeUnit.MILLISECONDS));
+        send(new TextWebSocketFrame("\"d2\"}"));
+        assertEquals("{\"deviceId\":\"d2\"}", objects.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readsPauseWhileTransferIsSaturated() throws Exception {
+        saturated.set(true);
+        // 握手请求那次读取结束时也可能已经暂停，d1 是否读到取决于时序
+        send(new TextWebSocketFrame("{\"deviceId\":\"d1\"}"));
+        waitForPaused();
+
+        send(new TextWebSocketFrame("{\"deviceId\":\"d2\"}"));
+        List<String> received = new ArrayList<>();
+        objects.drainTo(received);
+        String object;
+        while ((object = objects.poll(300, TimeUnit.MILLISECONDS)) != null) {
+            received.add(object);
+        }
+        assertFalse("read while saturated", received.contains("{\"deviceId\":\"d2\"}"));
+
+        saturated.set(false);
+        received.addAll(receive(2 - received.size()));
+        assertEquals(Arrays.asList("{\"deviceId\":\"d1\"}", "{\"deviceId\":\"d2\"}"), received);
+        assertEquals(1, pausedCount.get());
+    }
+
+    private Channel connect() throws Exception {
+        CompletableFuture<Void> handshake = new CompletableFuture<>();
+        URI uri = new URI("ws://127.0.0.1:" + port + PATH);
+        Channel channel = new Bootstrap()
+                .group(group)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpClientCodec())
+                                .addLast(new HttpObjectAggregator(8192))
+                                .addLast(new WebSocketClientProtocolHandler(WebSocketClientHandshakerFactory.newHandshaker(
+                                        uri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders())))
+                                .addLast(new ChannelInboundHandlerAdapter() {
+                                    @Override
+                                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                                        if (evt == WebSocketClientProtocolHandler.ClientHandshakeStateEvent.HANDSHAKE_COMPLETE) {
+                                            handshake.complete(null);
+                                        }
+                                        ctx.fireUserEventTriggered(evt);
+                                    }
+                                });
+                    }
+                })
+                .connect(new InetSocketAddress("127.0.0.1", port)).sync().channel();
+        handshake.get(5, TimeUnit.SECONDS);
+        return channel;
+    }
+
+    private void send(Object frame) throws InterruptedException {
+        client.writeAndFlush(frame).sync();
+    }
+
+    private List<String> receive(int count) throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        while (received.size() < count) {
+            String object = objects.poll(5, TimeUnit.SECONDS);
+            assertNotNull("objects missing, received " + received, object);
+            received.add(object);
+        }
+        return received;
+    }
+
+    private void waitForPaused() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pausedCount.get() == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("reads not paused");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static class TestCounter implements CounterMetrics {
+
+        private final AtomicLong count;
+
+        TestCounter(AtomicLong count) {
+            this.count = count;
+        }
+
+        @Override
+        public void inc() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void inc(double value) {
+            count.addAndGet((long) value);
+        }
+    }
+
+    private static class TestGauge implements GaugeMetrics {
+
+        private volatile double value;
+
+        @Override
+        public void inc() {
+            value++;
+        }
+
+        @Override
+        public void inc(double value) {
+            this.value += value;
+        }
+
+        @Override
+        public void dec() {
+            value--;
+        }
+
+        @Override
+        public void dec(double value) {
+            this.value -= value;
+        }
+
+        @Override
+        public void setValue(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.zmops.zeus.iot.server.receiver.handler.zabbix.process;
+
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.iot.server.receiver.handler.netty.FrameBatch;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.support.DefaultExchange;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonToItemValueProcessTest {
+
+    private final JsonToItemValueProcess process = new JsonToItemValueProcess();
+
+    @Test
+    public void badFrameDoesNotDropBatch() throws Exception {
+        FrameBatch batch = new FrameBatch(Arrays.asList(
+                bytes("{\"deviceId\":\"d1\",\"clock\":1637000000000,\"attributes\":{\"temp\":\"1\",\"hum\":\"2\"}}"),
+                bytes("{\"deviceId\":\"d2\",\"attributes\""),
+                bytes("not json"),
+                bytes("{\"deviceId\":\"d3\"}"),
+                bytes("{\"deviceId\":\"d4\",\"attributes\":{\"temp\":\"4\"}}")
+        ), "/127.0.0.1:40000");
+
+        List<ItemValue> values = process(batch);
+
+        List<String> keys = new ArrayList<>();
+        for (ItemValue value : values) {
+            keys.add(value.getHost() + "/" + value.getKey() + "=" + value.getValue());
+        }
+        assertEquals(3, values.size());
+        assertEquals(Arrays.asList("d1/temp=1", "d1/hum=2", "d4/temp=4"), keys);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void badStreamBodyStillFails() throws Exception {
+        process(new ByteArrayInputStream(bytes("not json")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ItemValue> process(Object body) throws Exception {
+        Exchange exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.getIn().setBody(body);
+        process.process(exchange);
+        return exchange.getMessage().getBody(List.class);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
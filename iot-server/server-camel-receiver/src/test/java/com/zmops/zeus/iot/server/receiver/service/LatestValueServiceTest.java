@@ -0,0 +1,82 @@
+package com.zmops.zeus.iot.server.receiver.service;
+
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService.LatestValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatestValueServiceTest {
+
+    @Test
+    public void keepsNewestValuePerItem() {
+        LatestValueService latest = new LatestValueService(16);
+        latest.update(1, LatestValueService.TYPE_FLOAT, "1.5", 100, 0);
+        latest.update(1, LatestValueService.TYPE_FLOAT, "0.5", 99, 0);
+        latest.update(1, LatestValueService.TYPE_FLOAT, "2.5", 100, 1);
+        latest.update(2, LatestValueService.TYPE_UINT, "9007199254740993", 100, 0);
+        latest.update(3, LatestValueService.TYPE_STR, "on", 100, 0);
+        latest.update(4, LatestValueService.TYPE_UINT, "not a number", 100, 0);
+
+        List<LatestValue> values = latest.get(new int[]{1, 2, 3, 4, 5});
+        assertEquals(3, values.size());
+        assertEquals("2.5", values.get(0).getValue());
+        assertEquals(1, values.get(0).getNs());
+        assertEquals("9007199254740993", values.get(1).getValue());
+        assertEquals(LatestValueService.TYPE_STR, values.get(2).getType());
+        assertEquals("on", values.get(2).getValue());
+        assertEquals(3, latest.getSize());
+    }
+
+    @Test
+    public void concurrentWritersAndReadersAcrossResize() throws Exception {
+        LatestValueService latest = new LatestValueService(16);
+        int items = 50000;
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            writers.add(executor.submit(() -> {
+                for (int clock = 1; clock <= 3; clock++) {
+                    for (int itemid = offset; itemid < items; itemid += threads) {
+                        latest.update(itemid, LatestValueService.TYPE_UINT, String.valueOf(clock), clock, 0);
+                    }
+                }
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            int[] lookup = {0, 1, items / 2, items - 1};
+            while (!writers.stream().allMatch(Future::isDone)) {
+                for (LatestValue value : latest.get(lookup)) {
+                    assertEquals(Long.toString(value.getClock()), value.getValue());
+                }
+            }
+        });
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        reader.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(items, latest.getSize());
+        int[] all = new int[items];
+        for (int i = 0; i < items; i++) {
+            all[i] = i;
+        }
+        List<LatestValue> values = latest.get(all);
+        assertEquals(items, values.size());
+        for (LatestValue value : values) {
+            assertTrue(value.getItemid() >= 0 && value.getItemid() < items);
+            assertEquals("3", value.getValue());
+        }
+    }
+}
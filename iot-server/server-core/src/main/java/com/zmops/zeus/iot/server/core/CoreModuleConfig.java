@@ -46,4 +46,23 @@ public class CoreModuleConfig extends ModuleConfig {
      */
     private int httpMaxRequestHeaderSize = 8192;
 
+    /**
+     * 发送队列溢出时写入磁盘日志，Zabbix 恢复后按顺序回放；关闭时溢出数据直接丢弃
+     */
+    private boolean journalEnabled = false;
+    private String journalPath = "journal";
+    private int journalSegmentSize = 64 * 1024 * 1024;
+    private int journalMaxSegments = 16;
+    private long journalReplayInterval = 1000;
+    private long journalReplayTimeout = 10000;
+
+    /**
+     * 数值类历史数据按小时聚合为 trends / trends_uint；小时结束后等待迟到数据的时间和检查间隔，毫秒；
+     * 迟到容忍时间过后到达的数据不再聚合；停止时全部聚合状态保存在 trendsStatePath，启动时恢复
+     */
+    private boolean trendsEnabled = true;
+    private long trendsLateTolerance = 5 * 60 * 1000;
+    private long trendsFlushInterval = 10000;
+    private String trendsStatePath = "trends";
+
 }
@@ -1,15 +1,23 @@
 package com.zmops.zeus.iot.server.core;
 
 import com.zmops.zeus.iot.server.core.analysis.StreamAnnotationListener;
+import com.zmops.zeus.iot.server.core.analysis.worker.RecordStreamProcessor;
+import com.zmops.zeus.iot.server.core.analysis.worker.TrendsAggregateWorker;
 import com.zmops.zeus.iot.server.core.annotation.AnnotationScan;
+import com.zmops.zeus.iot.server.core.journal.ItemValueJournal;
+import com.zmops.zeus.iot.server.core.journal.JournalOverflow;
 import com.zmops.zeus.iot.server.core.storage.StorageException;
 import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
+import com.zmops.zeus.iot.server.receiver.service.TransferOverflowService;
+import com.zmops.zeus.iot.server.sender.module.ZabbixSenderModule;
 import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
 import com.zmops.zeus.server.jetty.JettyServer;
 import com.zmops.zeus.server.jetty.JettyServerConfig;
 import com.zmops.zeus.server.library.module.*;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * @author nantian created at 2021/8/16 22:26
@@ -22,6 +30,10 @@ public class CoreModuleProvider extends ModuleProvider {
 
     private final AnnotationScan annotationScan;
 
+    private JournalOverflow journalOverflow;
+
+    private TrendsAggregateWorker trendsWorker;
+
 
     public CoreModuleProvider() {
         super();
@@ -74,10 +86,50 @@ public class CoreModuleProvider extends ModuleProvider {
         } catch (IOException | StorageException e) {
             throw new ModuleStartException(e.getMessage(), e);
         }
+
+        if (moduleConfig.isJournalEnabled()) {
+            startJournal();
+        }
+
+        RecordStreamProcessor processor = RecordStreamProcessor.getInstance();
+        processor.setLatestValues(getManager().find(CamelReceiverModule.NAME).provider()
+                .getService(LatestValueService.class));
+
+        if (moduleConfig.isTrendsEnabled()) {
+            trendsWorker = new TrendsAggregateWorker(getManager(),
+                    moduleConfig.getTrendsLateTolerance(), moduleConfig.getTrendsFlushInterval(),
+                    Paths.get(moduleConfig.getTrendsStatePath()), processor::in);
+            // 先恢复上次停止时保存的聚合状态，再接收数据
+            trendsWorker.start();
+            processor.setTrendsWorker(trendsWorker);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "core-shutdown"));
     }
 
-    public void shutdown() {
+    private void startJournal() throws ModuleStartException {
+        ItemValueJournal journal = new ItemValueJournal(Paths.get(moduleConfig.getJournalPath()),
+                moduleConfig.getJournalSegmentSize(), moduleConfig.getJournalMaxSegments());
+        try {
+            journal.open();
+        } catch (IOException e) {
+            throw new ModuleStartException("open journal failed: " + e.getMessage(), e);
+        }
+
+        journalOverflow = new JournalOverflow(journal, getManager(),
+                moduleConfig.getJournalReplayInterval(), moduleConfig.getJournalReplayTimeout());
+        getManager().find(CamelReceiverModule.NAME).provider()
+                .getService(TransferOverflowService.class).setOverflow(journalOverflow);
+        journalOverflow.start();
+    }
 
+    public void shutdown() {
+        if (trendsWorker != null) {
+            trendsWorker.shutdown();
+        }
+        if (journalOverflow != null) {
+            journalOverflow.shutdown();
+        }
     }
 
     @Override
@@ -95,7 +147,8 @@ public class CoreModuleProvider extends ModuleProvider {
     public String[] requiredModules() {
         return new String[]{
                 TelemetryModule.NAME,
-                CamelReceiverModule.NAME
+                CamelReceiverModule.NAME,
+                ZabbixSenderModule.NAME
         };
     }
 }
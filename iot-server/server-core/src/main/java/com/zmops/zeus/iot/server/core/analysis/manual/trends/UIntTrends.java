@@ -1,7 +1,40 @@
 package com.zmops.zeus.iot.server.core.analysis.manual.trends;
 
+import com.zmops.zeus.iot.server.core.analysis.Stream;
+import com.zmops.zeus.iot.server.core.analysis.record.Record;
+import com.zmops.zeus.iot.server.core.analysis.worker.RecordStreamProcessor;
+import lombok.Getter;
+import lombok.Setter;
+
 /**
  * @author nantian created at 2021/9/6 17:32
+ * <p>
+ * 整数监控项的小时趋势，由 {@link com.zmops.zeus.iot.server.core.analysis.worker.TrendsAggregateWorker} 聚合 UIntHistory 生成
  */
-public class UIntTrends {
+@Getter
+@Setter
+@Stream(name = "trends_uint", processor = RecordStreamProcessor.class)
+public class UIntTrends extends Record {
+
+    private Long clock; // 小时开始时间
+
+    private String deviceId;
+
+    private Long valueMin;
+
+    private Long valueAvg;
+
+    private Long valueMax;
+
+    @Override
+    public Integer itemid() {
+        return getItemid();
+    }
+
+    @Override
+    public void setValue(String deviceId, String value, Long clock) {
+        this.deviceId = deviceId;
+        this.clock = clock;
+        this.valueMin = this.valueAvg = this.valueMax = Long.valueOf(value);
+    }
 }
@@ -7,6 +7,9 @@ import com.zmops.zeus.iot.server.core.storage.StorageModule;
 import com.zmops.zeus.iot.server.core.storage.model.Model;
 import com.zmops.zeus.iot.server.core.worker.AbstractWorker;
 import com.zmops.zeus.iot.server.client.request.InsertRequest;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.library.module.ModuleDefineHolder;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,19 +22,32 @@ public class RecordPersistentWorker extends AbstractWorker<Record> {
     private final IRecordDAO recordDAO;
     private final IBatchDAO batchDAO;
 
+    /**
+     * 生成插入请求并放入存储队列的耗时，存储队列满时阻塞，耗时上升说明存储写入跟不上
+     */
+    private final PipelineMetrics.Stage persistStage;
+
     public RecordPersistentWorker(ModuleDefineHolder moduleDefineHolder, Model model, IRecordDAO recordDAO) {
         super(moduleDefineHolder);
         this.model = model;
         this.recordDAO = recordDAO;
         this.batchDAO = moduleDefineHolder.find(StorageModule.NAME).provider().getService(IBatchDAO.class);
+
+        MetricsCreator metricsCreator = moduleDefineHolder.find(TelemetryModule.NAME)
+                .provider()
+                .getService(MetricsCreator.class);
+        this.persistStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PERSIST, model.getName(), PipelineMetrics.ALL);
     }
 
     @Override
     public void in(Record record) {
+        long start = persistStage.start();
         try {
             InsertRequest insertRequest = recordDAO.prepareBatchInsert(model, record);
             batchDAO.insert(insertRequest);
+            persistStage.finish(start, 1);
         } catch (IOException e) {
+            persistStage.error(1);
             log.error(e.getMessage(), e);
         }
     }
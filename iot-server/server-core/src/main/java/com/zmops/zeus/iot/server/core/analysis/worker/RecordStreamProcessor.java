@@ -2,11 +2,16 @@ package com.zmops.zeus.iot.server.core.analysis.worker;
 
 import com.zmops.zeus.iot.server.core.analysis.Stream;
 import com.zmops.zeus.iot.server.core.analysis.StreamProcessor;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.StrHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.TextHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
 import com.zmops.zeus.iot.server.core.analysis.record.Record;
 import com.zmops.zeus.iot.server.core.storage.IRecordDAO;
 import com.zmops.zeus.iot.server.core.storage.StorageDAO;
 import com.zmops.zeus.iot.server.core.storage.StorageModule;
 import com.zmops.zeus.iot.server.core.storage.model.Model;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
 import com.zmops.zeus.server.library.module.ModuleDefineHolder;
 
 import java.util.HashMap;
@@ -21,6 +26,16 @@ public class RecordStreamProcessor implements StreamProcessor<Record> {
 
     private final static RecordStreamProcessor PROCESSOR = new RecordStreamProcessor();
 
+    /**
+     * 小时趋势聚合，未开启时为 null
+     */
+    private volatile TrendsAggregateWorker trendsWorker;
+
+    /**
+     * 监控项最新值，未设置时为 null
+     */
+    private volatile LatestValueService latestValues;
+
     public static RecordStreamProcessor getInstance() {
         return PROCESSOR;
     }
@@ -31,6 +46,52 @@ public class RecordStreamProcessor implements StreamProcessor<Record> {
         if (worker != null) {
             worker.in(record);
         }
+
+        TrendsAggregateWorker trends = trendsWorker;
+        if (trends != null) {
+            trends.in(record);
+        }
+
+        LatestValueService latest = latestValues;
+        if (latest != null) {
+            updateLatest(latest, record);
+        }
+    }
+
+    private static void updateLatest(LatestValueService latest, Record record) {
+        Integer itemid = record.itemid();
+        if (itemid == null) {
+            return;
+        }
+
+        if (record instanceof History) {
+            History history = (History) record;
+            update(latest, itemid, LatestValueService.TYPE_FLOAT, history.getValue(), history.getClock(), history.getNs());
+        } else if (record instanceof UIntHistory) {
+            UIntHistory history = (UIntHistory) record;
+            update(latest, itemid, LatestValueService.TYPE_UINT, history.getValue(), history.getClock(), history.getNs());
+        } else if (record instanceof StrHistory) {
+            StrHistory history = (StrHistory) record;
+            update(latest, itemid, LatestValueService.TYPE_STR, history.getValue(), history.getClock(), history.getNs());
+        } else if (record instanceof TextHistory) {
+            TextHistory history = (TextHistory) record;
+            update(latest, itemid, LatestValueService.TYPE_TEXT, history.getValue(), history.getClock(), history.getNs());
+        }
+    }
+
+    private static void update(LatestValueService latest, int itemid, byte type, String value, Long clock, Long ns) {
+        if (clock == null) {
+            return;
+        }
+        latest.update(itemid, type, value, clock, ns == null ? 0 : ns.intValue());
+    }
+
+    public void setTrendsWorker(TrendsAggregateWorker trendsWorker) {
+        this.trendsWorker = trendsWorker;
+    }
+
+    public void setLatestValues(LatestValueService latestValues) {
+        this.latestValues = latestValues;
     }
 
     public void create(ModuleDefineHolder moduleDefineHolder, Stream stream, Class<? extends Record> recordClass) {
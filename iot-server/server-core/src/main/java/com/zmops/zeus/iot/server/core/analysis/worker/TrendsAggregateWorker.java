@@ -0,0 +1,451 @@
+package com.zmops.zeus.iot.server.core.analysis.worker;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
+import com.zmops.zeus.iot.server.core.analysis.record.Record;
+import com.zmops.zeus.iot.server.core.worker.AbstractWorker;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.server.library.module.ModuleDefineHolder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 流式小时趋势聚合：History / UIntHistory 经过 {@link RecordStreamProcessor} 时按 (小时, itemid)
+ * 累计 min / max / sum / count，小时结束并超过迟到容忍时间后输出 Trends / UIntTrends（min / avg / max，
+ * 超级表没有 count 列），再交给 RecordStreamProcessor 通过 IBatchDAO 持久化。
+ * <p>
+ * 聚合状态按 itemid 分成 {@link #STRIPES} 段，各段单独加锁，不同监控项的写入互不阻塞。
+ * 所在小时结束加迟到容忍时间已经过去，或该监控项的这个小时已经输出的数据只计数，不再聚合，
+ * 避免补传的历史数据为旧的小时生成只有部分数据的趋势。
+ * <p>
+ * 停止时不输出任何小时（存储的 DataCarrier 在进程退出前不会刷写，输出的趋势会丢失），
+ * 而是把全部聚合状态保存到 statePath，启动时恢复，到期的小时由定时任务输出。
+ */
+@Slf4j
+public class TrendsAggregateWorker extends AbstractWorker<Record> {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    static final int STRIPES = 16;
+
+    static final String STATE_FILE = "trends.state";
+
+    private static final String STATE_TMP = "trends.state.tmp";
+
+    private static final int STATE_VERSION = 2;
+
+    private final long lateTolerance;
+
+    private final long flushInterval;
+
+    /**
+     * 聚合状态保存目录，为 null 时停止后状态丢失
+     */
+    private final Path statePath;
+
+    private final Consumer<Record> downstream;
+
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final ScheduledExecutorService flushExecutor;
+
+    private final CounterMetrics emittedCounter;
+    private final CounterMetrics lateCounter;
+
+    /**
+     * @param lateTolerance 小时结束后继续接收迟到数据的时间，毫秒
+     * @param flushInterval 检查小时是否可以输出的间隔，毫秒
+     * @param statePath     停止时保存未输出的聚合状态的目录
+     * @param downstream    趋势记录的去向
+     */
+    public TrendsAggregateWorker(ModuleDefineHolder moduleDefineHolder, long lateTolerance, long flushInterval,
+                                 Path statePath, Consumer<Record> downstream) {
+        this(moduleDefineHolder, moduleDefineHolder.find(TelemetryModule.NAME)
+                        .provider()
+                        .getService(MetricsCreator.class),
+                lateTolerance, flushInterval, statePath, downstream, System::currentTimeMillis);
+    }
+
+    TrendsAggregateWorker(ModuleDefineHolder moduleDefineHolder, MetricsCreator metricsCreator,
+                          long lateTolerance, long flushInterval, Path statePath, Consumer<Record> downstream,
+                          LongSupplier clock) {
+        super(moduleDefineHolder);
+        this.lateTolerance = lateTolerance;
+        this.flushInterval = flushInterval;
+        this.statePath = statePath;
+        this.downstream = downstream;
+        this.clock = clock;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("trends-aggregator").setDaemon(true).build());
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        emittedCounter = metricsCreator.createCounter(
+                "trends_emitted_count", "The count number of hourly trends records emitted",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("trends_emitted_count")
+        );
+        lateCounter = metricsCreator.createCounter(
+                "trends_late_records_count", "The count number of history records arrived after their hour was closed",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("trends_late_records_count")
+        );
+    }
+
+    /**
+     * 恢复上次停止时保存的聚合状态，开始定时输出结束的小时
+     */
+    public void start() {
+        restoreState();
+
+        flushExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                closeHours(clock.getAsLong());
+            } catch (Throwable t) {
+                log.error("close trends hours failed", t);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时输出，全部聚合状态保存到 statePath，包括已经可以结束的小时
+     */
+    public void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        saveState();
+    }
+
+    @Override
+    public void in(Record record) {
+        Integer itemid = record.getItemid();
+        if (itemid == null) {
+            return;
+        }
+
+        if (record instanceof History) {
+            History history = (History) record;
+            if (history.getClock() == null || history.getValue() == null) {
+                return;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(history.getValue());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return;
+            }
+
+            Stripe stripe = stripe(itemid);
+            synchronized (stripe) {
+                HourBucket bucket = bucket(stripe, itemid, history.getClock());
+                if (bucket != null) {
+                    bucket.history.update(itemid, history.getDeviceId(), value);
+                }
+            }
+        } else if (record instanceof UIntHistory) {
+            UIntHistory history = (UIntHistory) record;
+            if (history.getClock() == null || history.getValue() == null) {
+                return;
+            }
+            long value;
+            try {
+                value = Long.parseLong(history.getValue());
+            } catch (NumberFormatException e) {
+                return;
+            }
+
+            Stripe stripe = stripe(itemid);
+            synchronized (stripe) {
+                HourBucket bucket = bucket(stripe, itemid, history.getClock());
+                if (bucket != null) {
+                    bucket.uint.update(itemid, history.getDeviceId(), value);
+                }
+            }
+        }
+    }
+
+    private Stripe stripe(int itemid) {
+        return stripes[stripeIndex(itemid)];
+    }
+
+    static int stripeIndex(int itemid) {
+        int h = itemid * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * 调用方持有 stripe 的锁
+     *
+     * @return 所在小时已经到期或者该监控项的这个小时已经输出时返回 null
+     */
+    private HourBucket bucket(Stripe stripe, int itemid, long clock) {
+        long hour = clock - Math.floorMod(clock, HOUR);
+        if (hour + HOUR + lateTolerance <= this.clock.getAsLong() || hour < stripe.closedBefore.get(itemid)) {
+            lateCounter.inc();
+            return null;
+        }
+        return stripe.buckets.computeIfAbsent(hour, h -> new HourBucket());
+    }
+
+    /**
+     * 输出结束时间加迟到容忍时间不晚于 now 的小时
+     */
+    void closeHours(long now) {
+        List<Map.Entry<Long, HourBucket>> closed = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                while (!stripe.buckets.isEmpty()) {
+                    long hour = stripe.buckets.firstKey();
+                    if (hour + HOUR + lateTolerance > now) {
+                        break;
+                    }
+                    HourBucket bucket = stripe.buckets.pollFirstEntry().getValue();
+                    bucket.history.forEachItem(itemid -> stripe.closedBefore.advance(itemid, hour + HOUR));
+                    bucket.uint.forEachItem(itemid -> stripe.closedBefore.advance(itemid, hour + HOUR));
+                    closed.add(new AbstractMap.SimpleImmutableEntry<>(hour, bucket));
+                }
+            }
+        }
+
+        // 在锁外输出，写入存储可能阻塞
+        for (Map.Entry<Long, HourBucket> entry : closed) {
+            HourBucket bucket = entry.getValue();
+            bucket.history.drainTo(entry.getKey(), downstream);
+            bucket.uint.drainTo(entry.getKey(), downstream);
+
+            int emitted = bucket.history.size() + bucket.uint.size();
+            emittedCounter.inc(emitted);
+            log.debug("trends of hour {} closed, {} records emitted", entry.getKey(), emitted);
+        }
+    }
+
+    /**
+     * 状态文件：version(4) + n(4) + [itemid(4) + closedBefore(8)] * n
+     * + [hour(8) + history 表 + uint 表] * n + hour = -1 结束，先写临时文件再原子替换
+     */
+    private void saveState() {
+        if (statePath == null) {
+            return;
+        }
+
+        TreeMap<Long, List<HourBucket>> hours = new TreeMap<>();
+        List<ClosedHours> closedBefore = new ArrayList<>(STRIPES);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                closedBefore.add(stripe.closedBefore.copy());
+                stripe.buckets.forEach((hour, bucket) -> hours.computeIfAbsent(hour, h -> new ArrayList<>()).add(bucket));
+            }
+        }
+
+        int entries = 0;
+        try {
+            Files.createDirectories(statePath);
+            Path tmp = statePath.resolve(STATE_TMP);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(STATE_VERSION);
+                out.writeInt(closedBefore.stream().mapToInt(ClosedHours::size).sum());
+                for (ClosedHours closed : closedBefore) {
+                    closed.writeTo(out);
+                }
+                for (Map.Entry<Long, List<HourBucket>> entry : hours.entrySet()) {
+                    for (HourBucket bucket : entry.getValue()) {
+                        out.writeLong(entry.getKey());
+                        bucket.history.writeTo(out);
+                        bucket.uint.writeTo(out);
+                        entries += bucket.history.size() + bucket.uint.size();
+                    }
+                }
+                out.writeLong(-1);
+            }
+            Files.move(tmp, statePath.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("trends state of {} hours, {} items saved to {}", hours.size(), entries, statePath);
+        } catch (IOException e) {
+            log.error("save trends state failed, open hours are lost", e);
+        }
+    }
+
+    private void restoreState() {
+        if (statePath == null) {
+            return;
+        }
+        Path file = statePath.resolve(STATE_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != STATE_VERSION) {
+                log.warn("unknown trends state version in {}, ignored", file);
+                return;
+            }
+
+            for (int n = in.readInt(); n > 0; n--) {
+                int itemid = in.readInt();
+                long closedBefore = in.readLong();
+                Stripe stripe = stripe(itemid);
+                synchronized (stripe) {
+                    stripe.closedBefore.advance(itemid, closedBefore);
+                }
+            }
+
+            int entries = 0;
+            long hour;
+            while ((hour = in.readLong()) >= 0) {
+                long bucketHour = hour;
+                entries += TrendsTable.readFrom(in, itemid -> bucketOf(itemid, bucketHour).history);
+                entries += TrendsTable.readFrom(in, itemid -> bucketOf(itemid, bucketHour).uint);
+            }
+            log.info("trends state of {} items restored from {}", entries, statePath);
+        } catch (IOException e) {
+            log.error("restore trends state failed, open hours are lost", e);
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (IOException e) {
+                log.warn("delete trends state {} failed", file, e);
+            }
+        }
+    }
+
+    /**
+     * 恢复状态时使用，在开始接收数据之前调用
+     */
+    private HourBucket bucketOf(int itemid, long hour) {
+        Stripe stripe = stripe(itemid);
+        synchronized (stripe) {
+            return stripe.buckets.computeIfAbsent(hour, h -> new HourBucket());
+        }
+    }
+
+    /**
+     * 一段监控项的聚合状态，访问时持有自身的锁
+     */
+    private static class Stripe {
+
+        /**
+         * 小时开始时间 -> 该小时的聚合状态
+         */
+        private final TreeMap<Long, HourBucket> buckets = new TreeMap<>();
+
+        /**
+         * 各监控项在该时间之前的小时已经输出
+         */
+        private final ClosedHours closedBefore = new ClosedHours();
+    }
+
+    /**
+     * itemid -> 已输出小时的结束时间，开放寻址（线性探测）哈希表，不存在时为 0。
+     * 非线程安全，访问时持有所在 Stripe 的锁
+     */
+    private static class ClosedHours {
+
+        private int[] keys = new int[64];
+
+        private long[] values = new long[64];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        ClosedHours copy() {
+            ClosedHours copy = new ClosedHours();
+            copy.keys = keys.clone();
+            copy.values = values.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        long get(int itemid) {
+            return values[indexOf(keys, values, itemid)];
+        }
+
+        void advance(int itemid, long closedBefore) {
+            int i = indexOf(keys, values, itemid);
+            if (values[i] == 0) {
+                if ((size + 1) * 2 > keys.length) {
+                    resize();
+                    i = indexOf(keys, values, itemid);
+                }
+                keys[i] = itemid;
+                size++;
+            }
+            values[i] = Math.max(values[i], closedBefore);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != 0) {
+                    out.writeInt(keys[i]);
+                    out.writeLong(values[i]);
+                }
+            }
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != 0) {
+                    int i = indexOf(keys, values, oldKeys[j]);
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int indexOf(int[] keys, long[] values, int itemid) {
+            int mask = keys.length - 1;
+            int h = itemid * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & mask;
+            while (values[i] != 0 && keys[i] != itemid) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+
+    private static class HourBucket {
+
+        private final TrendsTable history = new TrendsTable(false);
+
+        private final TrendsTable uint = new TrendsTable(true);
+    }
+}
@@ -0,0 +1,276 @@
+package com.zmops.zeus.iot.server.core.analysis.worker;
+
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.Trends;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.UIntTrends;
+import com.zmops.zeus.iot.server.core.analysis.record.Record;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * 一个小时内各监控项的聚合状态。以 itemid 为 key 的开放寻址（线性探测）哈希表，
+ * 状态放在并行的基本类型数组里，更新时没有装箱和对象分配。count 为 0 的槽位为空。
+ * <p>
+ * 非线程安全，由 {@link TrendsAggregateWorker} 按分段加锁访问。
+ */
+final class TrendsTable {
+
+    private static final int DEFAULT_CAPACITY = 128;
+
+    private final boolean unsigned;
+
+    private int[] keys;
+    private int[] counts;
+    private String[] deviceIds;
+    private double[] sums;
+
+    // 浮点数使用 doubleMin/doubleMax，整数使用 longMin/longMax，避免超过 2^53 的整数丢失精度
+    private double[] doubleMin;
+    private double[] doubleMax;
+    private long[] longMin;
+    private long[] longMax;
+
+    private int size;
+
+    TrendsTable(boolean unsigned) {
+        this.unsigned = unsigned;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    void update(int itemid, String deviceId, double value) {
+        int i = slotForUpdate(itemid, deviceId);
+        if (counts[i] == 0) {
+            doubleMin[i] = value;
+            doubleMax[i] = value;
+        } else {
+            if (value < doubleMin[i]) {
+                doubleMin[i] = value;
+            }
+            if (value > doubleMax[i]) {
+                doubleMax[i] = value;
+            }
+        }
+        sums[i] += value;
+        counts[i]++;
+    }
+
+    void update(int itemid, String deviceId, long value) {
+        int i = slotForUpdate(itemid, deviceId);
+        if (counts[i] == 0) {
+            longMin[i] = value;
+            longMax[i] = value;
+        } else {
+            if (value < longMin[i]) {
+                longMin[i] = value;
+            }
+            if (value > longMax[i]) {
+                longMax[i] = value;
+            }
+        }
+        sums[i] += value;
+        counts[i]++;
+    }
+
+    /**
+     * 合并已有的聚合结果，用于恢复停止前保存的状态
+     */
+    void merge(int itemid, String deviceId, int count, double sum, double min, double max) {
+        int i = slotForUpdate(itemid, deviceId);
+        if (counts[i] == 0 || min < doubleMin[i]) {
+            doubleMin[i] = min;
+        }
+        if (counts[i] == 0 || max > doubleMax[i]) {
+            doubleMax[i] = max;
+        }
+        sums[i] += sum;
+        counts[i] += count;
+    }
+
+    void merge(int itemid, String deviceId, int count, double sum, long min, long max) {
+        int i = slotForUpdate(itemid, deviceId);
+        if (counts[i] == 0 || min < longMin[i]) {
+            longMin[i] = min;
+        }
+        if (counts[i] == 0 || max > longMax[i]) {
+            longMax[i] = max;
+        }
+        sums[i] += sum;
+        counts[i] += count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEachItem(IntConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] != 0) {
+                action.accept(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * unsigned(1) + size(4) + [itemid(4), deviceId, count(4), sum(8), min(8), max(8)] * size，
+     * deviceId 为 hasDeviceId(1) + UTF
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(unsigned);
+        out.writeInt(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            out.writeInt(keys[i]);
+            out.writeBoolean(deviceIds[i] != null);
+            if (deviceIds[i] != null) {
+                out.writeUTF(deviceIds[i]);
+            }
+            out.writeInt(counts[i]);
+            out.writeDouble(sums[i]);
+            if (unsigned) {
+                out.writeLong(longMin[i]);
+                out.writeLong(longMax[i]);
+            } else {
+                out.writeDouble(doubleMin[i]);
+                out.writeDouble(doubleMax[i]);
+            }
+        }
+    }
+
+    /**
+     * 读取 {@link #writeTo(DataOutput)} 写入的一个表，按 itemid 合并到 tableOf 返回的表中
+     *
+     * @return 读取的监控项数
+     */
+    static int readFrom(DataInput in, IntFunction<TrendsTable> tableOf) throws IOException {
+        boolean unsigned = in.readBoolean();
+        int size = in.readInt();
+        for (int n = 0; n < size; n++) {
+            int itemid = in.readInt();
+            String deviceId = in.readBoolean() ? in.readUTF() : null;
+            int count = in.readInt();
+            double sum = in.readDouble();
+
+            TrendsTable table = tableOf.apply(itemid);
+            if (unsigned) {
+                table.merge(itemid, deviceId, count, sum, in.readLong(), in.readLong());
+            } else {
+                table.merge(itemid, deviceId, count, sum, in.readDouble(), in.readDouble());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 每个监控项生成一条趋势记录。count 只用于计算平均值，trends / trends_uint 超级表没有保存条数的列
+     *
+     * @param clock 小时开始时间
+     */
+    void drainTo(long clock, Consumer<Record> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            int count = counts[i];
+            if (count == 0) {
+                continue;
+            }
+
+            Record record;
+            if (unsigned) {
+                UIntTrends trends = new UIntTrends();
+                trends.setDeviceId(deviceIds[i]);
+                trends.setClock(clock);
+                trends.setValueMin(longMin[i]);
+                trends.setValueAvg(Math.round(sums[i] / count));
+                trends.setValueMax(longMax[i]);
+                record = trends;
+            } else {
+                Trends trends = new Trends();
+                trends.setDeviceId(deviceIds[i]);
+                trends.setClock(clock);
+                trends.setValueMin(doubleMin[i]);
+                trends.setValueAvg(sums[i] / count);
+                trends.setValueMax(doubleMax[i]);
+                record = trends;
+            }
+            record.setItemid(keys[i]);
+            consumer.accept(record);
+        }
+    }
+
+    /**
+     * 找到 itemid 的槽位，不存在时占用一个空槽位（count 仍为 0，由调用方初始化最值）
+     */
+    private int slotForUpdate(int itemid, String deviceId) {
+        int i = indexOf(itemid);
+        if (counts[i] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                i = indexOf(itemid);
+            }
+            keys[i] = itemid;
+            deviceIds[i] = deviceId;
+            sums[i] = 0;
+            size++;
+        }
+        return i;
+    }
+
+    private int indexOf(int itemid) {
+        int mask = keys.length - 1;
+        int h = itemid * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (counts[i] != 0 && keys[i] != itemid) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        String[] oldDeviceIds = deviceIds;
+        double[] oldSums = sums;
+        double[] oldDoubleMin = doubleMin;
+        double[] oldDoubleMax = doubleMax;
+        long[] oldLongMin = longMin;
+        long[] oldLongMax = longMax;
+
+        allocate(oldKeys.length * 2);
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCounts[j] == 0) {
+                continue;
+            }
+            int i = indexOf(oldKeys[j]);
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+            deviceIds[i] = oldDeviceIds[j];
+            sums[i] = oldSums[j];
+            if (unsigned) {
+                longMin[i] = oldLongMin[j];
+                longMax[i] = oldLongMax[j];
+            } else {
+                doubleMin[i] = oldDoubleMin[j];
+                doubleMax[i] = oldDoubleMax[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        counts = new int[capacity];
+        deviceIds = new String[capacity];
+        sums = new double[capacity];
+        if (unsigned) {
+            longMin = new long[capacity];
+            longMax = new long[capacity];
+        } else {
+            doubleMin = new double[capacity];
+            doubleMax = new double[capacity];
+        }
+    }
+}
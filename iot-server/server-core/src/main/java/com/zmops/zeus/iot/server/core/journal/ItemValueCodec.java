@@ -0,0 +1,94 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import com.zmops.zeus.dto.ItemValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 日志记录内容：一批 ItemValue 的紧凑二进制编码。
+ * <p>
+ * count(4) + [host, key, value, clock, ns] * count，字符串为 length(4) + UTF-8，null 的 length 为 -1；
+ * clock/ns 为 null 时写 {@link Long#MIN_VALUE}。
+ */
+final class ItemValueCodec {
+
+    private static final long NULL_LONG = Long.MIN_VALUE;
+
+    private ItemValueCodec() {
+    }
+
+    static byte[] encode(List<ItemValue> itemValues) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * itemValues.size() + 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(itemValues.size());
+            for (ItemValue itemValue : itemValues) {
+                writeString(out, itemValue.getHost());
+                writeString(out, itemValue.getKey());
+                writeString(out, itemValue.getValue());
+                writeLong(out, itemValue.getClock());
+                writeLong(out, itemValue.getNs());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<ItemValue> decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            List<ItemValue> itemValues = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String host = readString(in);
+                String key = readString(in);
+                String value = readString(in);
+                Long clock = readLong(in);
+                Long ns = readLong(in);
+
+                ItemValue itemValue = new ItemValue(host, clock);
+                itemValue.setKey(key);
+                itemValue.setValue(value);
+                itemValue.setNs(ns);
+                itemValues.add(itemValue);
+            }
+            return itemValues;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeLong(value == null ? NULL_LONG : value);
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        long value = in.readLong();
+        return value == NULL_LONG ? null : value;
+    }
+}
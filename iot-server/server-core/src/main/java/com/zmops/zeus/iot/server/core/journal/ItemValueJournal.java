@@ -0,0 +1,358 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import com.zmops.zeus.dto.ItemValue;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 发送队列溢出日志：分段滚动的 mmap 预写日志，按写入顺序回放。
+ * <p>
+ * 目录结构：
+ * <pre>
+ * 00000000000000000001.seg   分段文件，固定大小，写满后滚动到下一个
+ * checkpoint                 已回放位置：segmentId(8) + position(4) + crc32(4)，先写临时文件再原子替换
+ * </pre>
+ * 分段数量超过 maxSegments 时删除最老的分段（其中未回放的数据丢弃并计数）；
+ * 回放越过的分段在 checkpoint 更新后删除。
+ * <p>
+ * 每次追加后 force，追加成功的数据在掉电后仍可回放。checkpoint 每 {@link #CHECKPOINT_RECORDS} 条或
+ * {@link #CHECKPOINT_INTERVAL_MILLIS} 毫秒写一次，崩溃重启后最多重复回放这部分记录。
+ * 记录 CRC 校验失败时向后查找下一条有效记录继续回放，只跳过损坏的部分。
+ */
+@Slf4j
+public class ItemValueJournal {
+
+    private static final String CHECKPOINT = "checkpoint";
+    private static final String CHECKPOINT_TMP = "checkpoint.tmp";
+
+    static final int CHECKPOINT_RECORDS = 64;
+    static final long CHECKPOINT_INTERVAL_MILLIS = 1000;
+
+    private final Path dir;
+
+    private final int segmentSize;
+
+    private final int maxSegments;
+
+    private final TreeMap<Long, JournalSegment> segments = new TreeMap<>();
+
+    private JournalSegment writeSegment;
+
+    /**
+     * 下一条待回放记录的位置
+     */
+    private long readSegmentId;
+    private int readPosition;
+
+    /**
+     * 上次写 checkpoint 之后提交的记录数和时间
+     */
+    private int uncheckpointed;
+    private long lastCheckpointMillis;
+
+    /**
+     * 回放时跳过的损坏记录次数
+     */
+    @Getter
+    private volatile long corruptedRecords;
+
+    private boolean closed;
+
+    /**
+     * 分段淘汰时丢弃的记录数
+     */
+    @Getter
+    private volatile long droppedRecords;
+
+    public ItemValueJournal(Path dir, int segmentSize, int maxSegments) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+    }
+
+    /**
+     * 打开目录，恢复分段写入位置和回放位置
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                long id = JournalSegment.parseId(file.getFileName().toString());
+                if (id >= 0) {
+                    segments.put(id, JournalSegment.open(dir, id, segmentSize));
+                }
+            }
+        }
+
+        int records = 0;
+        for (JournalSegment segment : segments.values()) {
+            records += segment.recover();
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(1L, JournalSegment.open(dir, 1L, segmentSize));
+        }
+        writeSegment = segments.lastEntry().getValue();
+
+        readCheckpoint();
+        if (!segments.containsKey(readSegmentId)) {
+            // checkpoint 指向的分段已删除或 checkpoint 丢失，从最老的分段开始
+            readSegmentId = segments.firstKey();
+            readPosition = 0;
+        }
+
+        log.info("journal opened at {}, segments: {}, records: {}, replay from {}:{}",
+                dir, segments.size(), records, readSegmentId, readPosition);
+    }
+
+    /**
+     * 追加一批数据
+     *
+     * @return 单批数据超过分段大小或写入失败时返回 false
+     */
+    public synchronized boolean append(List<ItemValue> itemValues) {
+        if (closed) {
+            return false;
+        }
+
+        byte[] payload = ItemValueCodec.encode(itemValues);
+        if (payload.length > JournalSegment.maxPayload(segmentSize)) {
+            log.warn("journal record of {} bytes exceeds segment size {}", payload.length, segmentSize);
+            return false;
+        }
+
+        try {
+            if (writeSegment.append(payload) < 0) {
+                roll();
+                writeSegment.append(payload);
+            }
+            writeSegment.force();
+            return true;
+        } catch (IOException e) {
+            log.error("journal append failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * 读取下一条待回放记录，不移动回放位置，回放成功后调用 {@link #commit(Entry)}
+     *
+     * @return 没有待回放数据时返回 null
+     */
+    public synchronized Entry peek() {
+        if (closed) {
+            return null;
+        }
+        while (true) {
+            JournalSegment segment = segments.get(readSegmentId);
+            if (segment == null) {
+                return null;
+            }
+
+            byte[] payload = segment.read(readPosition);
+            if (payload != null) {
+                int nextPosition = readPosition + JournalSegment.RECORD_HEADER_LENGTH + payload.length;
+                try {
+                    return new Entry(ItemValueCodec.decode(payload), readSegmentId, nextPosition);
+                } catch (IOException e) {
+                    corruptedRecords++;
+                    log.error("journal record at {}:{} is unreadable, skip it", readSegmentId, readPosition, e);
+                    readPosition = nextPosition;
+                    continue;
+                }
+            }
+
+            if (readPosition < segment.writePosition()) {
+                // 记录损坏，跳到同一分段内的下一条有效记录
+                corruptedRecords++;
+                int next = segment.nextValid(readPosition + 1, segment.writePosition());
+                log.error("journal record at {}:{} failed crc check, resume at {}", readSegmentId, readPosition,
+                        next < 0 ? segment.writePosition() : next);
+                readPosition = next < 0 ? segment.writePosition() : next;
+                continue;
+            }
+            if (segment == writeSegment) {
+                return null;
+            }
+
+            // 当前分段读完，进入下一个分段
+            Long next = segments.higherKey(readSegmentId);
+            if (next == null) {
+                return null;
+            }
+            readSegmentId = next;
+            readPosition = 0;
+        }
+    }
+
+    /**
+     * 记录已回放，推进回放位置；攒够条数、超过间隔或越过分段时写 checkpoint，并删除已经回放完的分段
+     */
+    public synchronized void commit(Entry entry) {
+        if (closed || entry.nextSegmentId < segments.firstKey()) {
+            // 回放期间该分段已被淘汰，回放位置已经移到最老的分段
+            return;
+        }
+
+        readSegmentId = entry.nextSegmentId;
+        readPosition = entry.nextPosition;
+        uncheckpointed++;
+
+        boolean segmentDone = segments.firstKey() < readSegmentId;
+        if (segmentDone || uncheckpointed >= CHECKPOINT_RECORDS
+                || System.currentTimeMillis() - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * 立即写 checkpoint 并删除已经回放完的分段，回放暂停或结束时调用
+     */
+    public synchronized void checkpoint() {
+        if (closed || (uncheckpointed == 0 && segments.firstKey() >= readSegmentId)) {
+            return;
+        }
+        try {
+            writeCheckpoint();
+            while (segments.firstKey() < readSegmentId) {
+                segments.pollFirstEntry().getValue().delete();
+            }
+        } catch (IOException e) {
+            log.error("journal checkpoint failed", e);
+        }
+    }
+
+    /**
+     * @return 未回放的分段数，包括正在写的分段
+     */
+    public synchronized int pendingSegments() {
+        if (closed) {
+            return 0;
+        }
+        return segments.tailMap(readSegmentId, true).size();
+    }
+
+    /**
+     * 写 checkpoint，刷盘并解除所有分段的映射，之后追加返回 false
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeCheckpoint();
+        } catch (IOException e) {
+            log.error("journal checkpoint failed", e);
+        }
+        for (JournalSegment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+    }
+
+    private void roll() throws IOException {
+        writeSegment.force();
+
+        long id = writeSegment.id() + 1;
+        writeSegment = JournalSegment.open(dir, id, segmentSize);
+        segments.put(id, writeSegment);
+
+        while (segments.size() > maxSegments) {
+            Map.Entry<Long, JournalSegment> oldest = segments.pollFirstEntry();
+            JournalSegment segment = oldest.getValue();
+            if (oldest.getKey() >= readSegmentId) {
+                int lost = countRecords(segment, oldest.getKey() == readSegmentId ? readPosition : 0);
+                droppedRecords += lost;
+                log.warn("journal exceeds {} segments, drop segment {} with {} unreplayed records",
+                        maxSegments, oldest.getKey(), lost);
+
+                readSegmentId = segments.firstKey();
+                readPosition = 0;
+                writeCheckpoint();
+            }
+            segment.delete();
+        }
+    }
+
+    private static int countRecords(JournalSegment segment, int position) {
+        int records = 0;
+        byte[] payload;
+        while ((payload = segment.read(position)) != null) {
+            position += JournalSegment.RECORD_HEADER_LENGTH + payload.length;
+            records++;
+        }
+        return records;
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path file = dir.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() != 16) {
+            log.warn("journal checkpoint is broken, replay from the oldest segment");
+            return;
+        }
+
+        long segmentId = buffer.getLong();
+        int position = buffer.getInt();
+        if (crc(segmentId, position) != buffer.getInt()) {
+            log.warn("journal checkpoint failed crc check, replay from the oldest segment");
+            return;
+        }
+        readSegmentId = segmentId;
+        readPosition = position;
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(readSegmentId).putInt(readPosition).putInt(crc(readSegmentId, readPosition));
+
+        Path tmp = dir.resolve(CHECKPOINT_TMP);
+        Files.write(tmp, buffer.array());
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        uncheckpointed = 0;
+        lastCheckpointMillis = System.currentTimeMillis();
+    }
+
+    private static int crc(long segmentId, int position) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(12).putLong(segmentId).putInt(position).array());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 一条待回放记录，以及回放后的下一个位置
+     */
+    @Getter
+    public static class Entry {
+
+        private final List<ItemValue> itemValues;
+
+        private final long nextSegmentId;
+
+        private final int nextPosition;
+
+        Entry(List<ItemValue> itemValues, long nextSegmentId, int nextPosition) {
+            this.itemValues = itemValues;
+            this.nextSegmentId = nextSegmentId;
+            this.nextPosition = nextPosition;
+        }
+    }
+}
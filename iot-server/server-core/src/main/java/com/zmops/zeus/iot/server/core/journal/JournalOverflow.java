@@ -0,0 +1,147 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zmops.zeus.dto.ItemValue;
+import com.zmops.zeus.iot.server.receiver.service.TransferOverflowService;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import com.zmops.zeus.iot.server.sender.module.ZabbixSenderModule;
+import com.zmops.zeus.iot.server.sender.service.ZabbixSenderService;
+import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.GaugeMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.server.library.module.ModuleManager;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 {@link ItemValueJournal} 的发送队列溢出转存：溢出数据写入磁盘日志，
+ * 单线程定时按顺序回放到 Zabbix，发送失败时停在当前记录，等下一个周期重试。
+ */
+@Slf4j
+public class JournalOverflow implements TransferOverflowService.Overflow {
+
+    private final ItemValueJournal journal;
+
+    private final ModuleManager moduleManager;
+
+    private final long replayInterval;
+
+    private final long sendTimeout;
+
+    private final ScheduledExecutorService replayExecutor;
+
+    private final CounterMetrics appendedCounter;
+    private final CounterMetrics replayedCounter;
+    private final CounterMetrics droppedCounter;
+    private final GaugeMetrics pendingSegmentsGauge;
+
+    private long reportedDropped;
+
+    /**
+     * @param replayInterval 回放检查间隔，毫秒
+     * @param sendTimeout    单条记录回放的发送超时，毫秒
+     */
+    public JournalOverflow(ItemValueJournal journal, ModuleManager moduleManager, long replayInterval, long sendTimeout) {
+        this.journal = journal;
+        this.moduleManager = moduleManager;
+        this.replayInterval = replayInterval;
+        this.sendTimeout = sendTimeout;
+        this.replayExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("journal-replayer").setDaemon(true).build());
+
+        MetricsCreator metricsCreator = moduleManager.find(TelemetryModule.NAME)
+                .provider()
+                .getService(MetricsCreator.class);
+
+        appendedCounter = metricsCreator.createCounter(
+                "journal_appended_count", "The count number of item values appended to the overflow journal",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("journal_appended_count")
+        );
+        replayedCounter = metricsCreator.createCounter(
+                "journal_replayed_count", "The count number of item values replayed from the overflow journal",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("journal_replayed_count")
+        );
+        droppedCounter = metricsCreator.createCounter(
+                "journal_dropped_records_count", "The count number of journal records dropped by segment retention",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("journal_dropped_records_count")
+        );
+        pendingSegmentsGauge = metricsCreator.createGauge(
+                "journal_pending_segments", "The number of journal segments waiting for replay",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("journal_pending_segments")
+        );
+    }
+
+    public void start() {
+        replayExecutor.scheduleWithFixedDelay(this::replay, replayInterval, replayInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        replayExecutor.shutdown();
+        try {
+            // 等当前回放结束，避免关闭后继续访问已解除映射的分段
+            replayExecutor.awaitTermination(sendTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    @Override
+    public boolean store(List<ItemValue> itemValues) {
+        if (!journal.append(itemValues)) {
+            return false;
+        }
+        appendedCounter.inc(itemValues.size());
+        return true;
+    }
+
+    /**
+     * 按顺序回放直到日志读完或发送失败
+     */
+    private void replay() {
+        try {
+            ZabbixSenderService senderService = moduleManager.find(ZabbixSenderModule.NAME)
+                    .provider().getService(ZabbixSenderService.class);
+
+            ItemValueJournal.Entry entry;
+            while ((entry = journal.peek()) != null) {
+                List<ItemValue> itemValues = entry.getItemValues();
+
+                ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(itemValues.size());
+                for (ItemValue value : itemValues) {
+                    frame.append(value.getHost(), value.getKey(), value.getValue(), value.getClock(), value.getNs());
+                }
+
+                try {
+                    log.debug(senderService.sendDataAsync(frame).get(sendTimeout, TimeUnit.MILLISECONDS));
+                } catch (Exception e) {
+                    log.warn("journal replay paused, zabbix sender is unavailable: {}", e.getMessage());
+                    return;
+                }
+
+                journal.commit(entry);
+                replayedCounter.inc(itemValues.size());
+            }
+        } catch (Throwable t) {
+            log.error("journal replay failed", t);
+        } finally {
+            journal.checkpoint();
+            long dropped = journal.getDroppedRecords();
+            if (dropped > reportedDropped) {
+                droppedCounter.inc(dropped - reportedDropped);
+                reportedDropped = dropped;
+            }
+            pendingSegmentsGauge.setValue(journal.pendingSegments());
+        }
+    }
+}
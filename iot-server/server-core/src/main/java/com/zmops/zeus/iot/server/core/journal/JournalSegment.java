@@ -0,0 +1,220 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 日志分段文件，固定大小，整体 mmap。
+ * <p>
+ * 记录格式：length(4) + crc32(4) + payload(length)，length 为 0 表示分段内后面没有数据（文件初始全 0）。
+ * 只有一个写线程（由 {@link ItemValueJournal} 加锁保证），读写位置各自独立。
+ * <p>
+ * 删除前先解除映射，不等 GC 回收 MappedByteBuffer；解除映射后不能再访问，读写返回无数据。
+ */
+class JournalSegment {
+
+    static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final String SUFFIX = ".seg";
+
+    private final long id;
+
+    private final Path file;
+
+    private final int capacity;
+
+    private final MappedByteBuffer buffer;
+
+    private int writePosition;
+
+    /**
+     * 最近一次 force 时的写入位置
+     */
+    private int forcedPosition;
+
+    private boolean closed;
+
+    private JournalSegment(long id, Path file, int capacity, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    static JournalSegment open(Path dir, long id, int capacity) throws IOException {
+        Path file = dir.resolve(fileName(id));
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new JournalSegment(id, file, capacity, buffer);
+        }
+    }
+
+    static String fileName(long id) {
+        return String.format("%020d%s", id, SUFFIX);
+    }
+
+    /**
+     * @return 文件名不是分段文件时返回 -1
+     */
+    static long parseId(String fileName) {
+        if (!fileName.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 重启后扫描有效记录：遇到无效记录（CRC 不一致）时向后查找下一条有效记录继续，
+     * 最后一条有效记录之后作为写入位置（未写完的记录被覆盖），并清零其后的记录头
+     *
+     * @return 有效记录数
+     */
+    int recover() {
+        int position = 0;
+        int end = 0;
+        int records = 0;
+        while (true) {
+            byte[] payload = read(position);
+            if (payload == null) {
+                position = nextValid(position + 1, capacity);
+                if (position < 0) {
+                    break;
+                }
+                continue;
+            }
+            position += RECORD_HEADER_LENGTH + payload.length;
+            end = position;
+            records++;
+        }
+        writePosition = end;
+        forcedPosition = end;
+
+        for (int i = end; i < capacity && i < end + RECORD_HEADER_LENGTH; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        return records;
+    }
+
+    /**
+     * @return 写入位置，空间不足时返回 -1
+     */
+    int append(byte[] payload) {
+        int position = writePosition;
+        if (closed || position + RECORD_HEADER_LENGTH + payload.length > capacity) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        // 先写 payload 和 crc，最后写 length，崩溃时要么整条可见，要么 length/crc 校验失败
+        buffer.putInt(position + 4, (int) crc.getValue());
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + RECORD_HEADER_LENGTH);
+        target.put(payload);
+        buffer.putInt(position, payload.length);
+
+        writePosition = position + RECORD_HEADER_LENGTH + payload.length;
+        return position;
+    }
+
+    /**
+     * @return 记录内容，到达分段末尾或者记录无效时返回 null
+     */
+    byte[] read(int position) {
+        if (closed || position < 0 || position + RECORD_HEADER_LENGTH > capacity) {
+            return null;
+        }
+
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_LENGTH + length > capacity) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + RECORD_HEADER_LENGTH);
+        source.get(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * 损坏记录之后的重新同步：逐字节查找 length 合法且 CRC 一致的记录头
+     *
+     * @param from  起始位置
+     * @param limit 记录必须在此之前开始
+     * @return 下一条有效记录的位置，没有时返回 -1
+     */
+    int nextValid(int from, int limit) {
+        int end = Math.min(limit, capacity - RECORD_HEADER_LENGTH);
+        for (int position = Math.max(from, 0); position < end; position++) {
+            int length = buffer.getInt(position);
+            if (length > 0 && position + RECORD_HEADER_LENGTH + length <= capacity && read(position) != null) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把上次 force 之后写入的数据刷到磁盘，没有新数据时不调用 msync
+     */
+    void force() {
+        if (closed || forcedPosition == writePosition) {
+            return;
+        }
+        buffer.force();
+        forcedPosition = writePosition;
+    }
+
+    /**
+     * 刷盘并解除映射
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        force();
+        closed = true;
+        PlatformDependent.freeDirectBuffer(buffer);
+    }
+
+    void delete() throws IOException {
+        if (!closed) {
+            closed = true;
+            PlatformDependent.freeDirectBuffer(buffer);
+        }
+        Files.deleteIfExists(file);
+    }
+
+    long id() {
+        return id;
+    }
+
+    int writePosition() {
+        return writePosition;
+    }
+
+    static int maxPayload(int capacity) {
+        return capacity - RECORD_HEADER_LENGTH;
+    }
+}
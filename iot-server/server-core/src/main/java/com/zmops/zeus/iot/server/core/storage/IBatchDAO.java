@@ -46,4 +46,14 @@ public interface IBatchDAO extends DAO {
      * @param prepareRequests data to insert or update. No delete happens in streaming mode.
      */
     void flush(List<PrepareRequest> prepareRequests);
+
+    /**
+     * 等待调用之前 insert 的数据全部处理完（写入存储，或者重试失败后进入死信），
+     * 上游据此提交读取位置，重启后不会丢掉只进入了存储队列的数据。
+     *
+     * @return 超时返回 false
+     */
+    default boolean awaitPersisted(long timeoutMillis) throws InterruptedException {
+        return true;
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.zmops.zeus.iot.server.core.storage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跟踪已经进入存储队列、还没有处理完（写入存储或者进入死信）的请求，见 {@link IBatchDAO#awaitPersisted(long)}。
+ * <p>
+ * 按代计数：请求进入队列时记入当前代，处理完后从所属的代减去；
+ * {@link #await(long)} 开启新的一代，再等待之前所有代的计数归零，之后进入的请求不影响等待。
+ */
+public class PersistenceTracker {
+
+    private volatile Epoch current = new Epoch(null);
+
+    /**
+     * 请求放入存储队列前调用
+     */
+    public void enter(Tracked request) {
+        while (true) {
+            Epoch epoch = current;
+            epoch.pending.incrementAndGet();
+            if (epoch == current) {
+                request.setEpoch(epoch);
+                return;
+            }
+            // 计数期间开启了新的一代，记到新的一代里
+            epoch.done(1);
+        }
+    }
+
+    /**
+     * 请求处理完后调用，没有经过 {@link #enter(Tracked)} 的请求忽略
+     */
+    public void exit(List<? extends Tracked> requests) {
+        Epoch epoch = null;
+        int count = 0;
+        for (Tracked request : requests) {
+            Epoch e = request.getEpoch();
+            if (e == null) {
+                continue;
+            }
+            request.setEpoch(null);
+            if (e != epoch) {
+                if (epoch != null) {
+                    epoch.done(count);
+                }
+                epoch = e;
+                count = 0;
+            }
+            count++;
+        }
+        if (epoch != null) {
+            epoch.done(count);
+        }
+    }
+
+    /**
+     * 等待调用之前进入的请求全部处理完
+     *
+     * @return 超时返回 false，未完成的请求在下次调用时继续等待
+     */
+    public boolean await(long timeoutMillis) throws InterruptedException {
+        Epoch previous;
+        Epoch next;
+        synchronized (this) {
+            previous = current;
+            next = new Epoch(previous);
+            current = next;
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Epoch epoch = previous; epoch != null; epoch = epoch.previous) {
+            if (!epoch.await(deadline)) {
+                return false;
+            }
+        }
+        // 之前的代都已完成，不再保留
+        next.previous = null;
+        return true;
+    }
+
+    /**
+     * 由存储插件的请求类实现，保存请求所属的代
+     */
+    public interface Tracked {
+
+        Epoch getEpoch();
+
+        void setEpoch(Epoch epoch);
+    }
+
+    public static final class Epoch {
+
+        private final AtomicLong pending = new AtomicLong();
+
+        private volatile Epoch previous;
+
+        private Epoch(Epoch previous) {
+            this.previous = previous;
+        }
+
+        private void done(long count) {
+            if (pending.addAndGet(-count) == 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized boolean await(long deadline) throws InterruptedException {
+            while (pending.get() > 0) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return false;
+                }
+                wait(wait);
+            }
+            return true;
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package com.zmops.zeus.iot.server.core.worker;
 
-import com.google.gson.Gson;
 import com.zmops.zeus.iot.server.core.UnexpectedException;
 import com.zmops.zeus.iot.server.core.worker.data.ItemValue;
-import com.zmops.zeus.iot.server.core.worker.data.ZabbixTrapper;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
 import com.zmops.zeus.iot.server.sender.module.ZabbixSenderModule;
 import com.zmops.zeus.iot.server.sender.service.ZabbixSenderService;
 import com.zmops.zeus.iot.server.telemetry.TelemetryModule;
@@ -17,10 +16,10 @@ import com.zmops.zeus.server.datacarrier.consumer.IConsumer;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * @author nantian created at 2021/8/23 15:11
@@ -33,7 +32,6 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
 
     private final DataCarrier<ItemValue> dataCarrier;
     private final CounterMetrics iotDataTransferCounter;
-    private final Gson gson = new Gson();
 
     public ItemDataTransferWorker(ModuleManager moduleManager) {
         super(moduleManager);
@@ -100,19 +98,20 @@ public class ItemDataTransferWorker extends TransferWorker<ItemValue> {
 
 
     private void batchSenderDataToZabbix(List<ItemValue> valueList) {
-        ZabbixTrapper zabbixTrapper = new ZabbixTrapper(valueList);
+        ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(valueList.size());
+        for (ItemValue value : valueList) {
+            frame.append(value.getHost(), value.getKey(), value.getValue(), value.getClock(), value.getNs());
+        }
+        valueList.clear();
 
         ZabbixSenderService senderService = getModuleDefineHolder()
                 .find(ZabbixSenderModule.NAME).provider().getService(ZabbixSenderService.class);
 
         try {
-            String sendResult = senderService.sendData(gson.toJson(zabbixTrapper));
+            String sendResult = senderService.sendDataAsync(frame).join();
             log.debug(sendResult);
-        } catch (IOException e) {
-            log.error(" itemvalue data sender error，msg ：{}", e.getMessage());
-            e.printStackTrace();
-        } finally {
-            valueList.clear();
+        } catch (CompletionException e) {
+            log.error(" itemvalue data sender error，msg ：{}", e.getCause().getMessage());
         }
     }
 
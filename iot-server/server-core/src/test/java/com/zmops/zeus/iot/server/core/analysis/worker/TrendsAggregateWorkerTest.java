@@ -0,0 +1,244 @@
+package com.zmops.zeus.iot.server.core.analysis.worker;
+
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.Trends;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.UIntTrends;
+import com.zmops.zeus.iot.server.core.analysis.record.Record;
+import com.zmops.zeus.iot.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TrendsAggregateWorkerTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final long LATE_TOLERANCE = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 整点，测试中的时间都相对它计算
+     */
+    private static final long BASE = 1637002800000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(BASE + TimeUnit.MINUTES.toMillis(10));
+
+    private final List<Record> emitted = new CopyOnWriteArrayList<>();
+
+    private final List<TrendsAggregateWorker> workers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        workers.forEach(TrendsAggregateWorker::shutdown);
+    }
+
+    @Test
+    public void shutdownKeepsOpenHourAndRestartContinuesIt() {
+        Path state = folder.getRoot().toPath();
+
+        TrendsAggregateWorker before = start(state);
+        before.in(history(1, BASE + 1000, "1.0"));
+        before.in(history(1, BASE + 2000, "5.0"));
+        before.in(uintHistory(2, BASE + 1000, "9007199254740993"));
+        stop(before);
+
+        assertTrue(emitted.isEmpty());
+        assertTrue(Files.exists(state.resolve(TrendsAggregateWorker.STATE_FILE)));
+
+        TrendsAggregateWorker after = start(state);
+        assertFalse(Files.exists(state.resolve(TrendsAggregateWorker.STATE_FILE)));
+        after.in(history(1, BASE + 3000, "3.0"));
+        after.in(uintHistory(2, BASE + 3000, "1"));
+        after.closeHours(BASE + HOUR + LATE_TOLERANCE);
+
+        assertEquals(2, emitted.size());
+        Trends trends = find(Trends.class, 1);
+        assertEquals(BASE, trends.getClock().longValue());
+        assertEquals(1.0, trends.getValueMin(), 0);
+        assertEquals(3.0, trends.getValueAvg(), 0);
+        assertEquals(5.0, trends.getValueMax(), 0);
+        assertEquals("device-1", trends.getDeviceId());
+
+        UIntTrends uintTrends = find(UIntTrends.class, 2);
+        assertEquals(1L, uintTrends.getValueMin().longValue());
+        assertEquals(9007199254740993L, uintTrends.getValueMax().longValue());
+    }
+
+    @Test
+    public void shutdownSavesDueHoursInsteadOfEmittingThem() {
+        Path state = folder.getRoot().toPath();
+
+        TrendsAggregateWorker before = start(state);
+        before.in(history(1, BASE + 1000, "2.0"));
+        now.set(BASE + HOUR + LATE_TOLERANCE);
+        stop(before);
+        assertTrue(emitted.isEmpty());
+
+        TrendsAggregateWorker after = start(state);
+        after.closeHours(now.get());
+        assertEquals(1, emitted.size());
+        assertEquals(2.0, find(Trends.class, 1).getValueAvg(), 0);
+    }
+
+    @Test
+    public void closedHourStaysClosedAfterRestart() {
+        Path state = folder.getRoot().toPath();
+
+        TrendsAggregateWorker before = start(state);
+        before.in(history(1, BASE, "1.0"));
+        before.closeHours(BASE + HOUR + LATE_TOLERANCE);
+        assertEquals(1, emitted.size());
+        stop(before);
+
+        // 时钟回拨后该小时仍在迟到容忍时间内，已输出的监控项也不再接收
+        TrendsAggregateWorker after = start(state);
+        after.in(history(1, BASE + 1000, "2.0"));
+        after.closeHours(Long.MAX_VALUE);
+        assertEquals(1, emitted.size());
+    }
+
+    @Test
+    public void backfilledRecordsOfExpiredHoursAreNotAggregated() {
+        TrendsAggregateWorker worker = start(null);
+        now.set(BASE + 3 * HOUR);
+
+        worker.in(history(1, BASE, "1.0"));
+        worker.in(history(1, BASE + 2 * HOUR - 1, "1.0"));
+        worker.in(history(1, BASE + 2 * HOUR, "7.0"));
+        worker.closeHours(now.get());
+        assertTrue(emitted.isEmpty());
+
+        worker.closeHours(BASE + 3 * HOUR + LATE_TOLERANCE);
+        assertEquals(1, emitted.size());
+        assertEquals(BASE + 2 * HOUR, find(Trends.class, 1).getClock().longValue());
+        assertEquals(7.0, find(Trends.class, 1).getValueMin(), 0);
+    }
+
+    @Test
+    public void closedHourIsTrackedPerItem() {
+        int other = 2;
+        while (TrendsAggregateWorker.stripeIndex(other) != TrendsAggregateWorker.stripeIndex(1)) {
+            other++;
+        }
+
+        TrendsAggregateWorker worker = start(null);
+        worker.in(history(1, BASE, "1.0"));
+        worker.closeHours(BASE + HOUR + LATE_TOLERANCE);
+        assertEquals(1, emitted.size());
+
+        // 同一分段中没有输出过这个小时的监控项仍然可以写入
+        worker.in(history(1, BASE + 1000, "2.0"));
+        worker.in(history(other, BASE + 1000, "3.0"));
+        worker.closeHours(BASE + HOUR + LATE_TOLERANCE);
+        assertEquals(2, emitted.size());
+        assertEquals(3.0, find(Trends.class, other).getValueAvg(), 0);
+    }
+
+    @Test
+    public void concurrentItemsAreAggregatedIndependently() throws Exception {
+        TrendsAggregateWorker worker = start(null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    for (int itemid = 0; itemid < 64; itemid++) {
+                        worker.in(history(itemid, BASE + i, String.valueOf(i)));
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        worker.closeHours(BASE + HOUR + LATE_TOLERANCE);
+        assertEquals(64, emitted.size());
+        for (Record record : emitted) {
+            Trends trends = (Trends) record;
+            assertEquals(0.0, trends.getValueMin(), 0);
+            assertEquals(499.5, trends.getValueAvg(), 1e-9);
+            assertEquals(999.0, trends.getValueMax(), 0);
+        }
+    }
+
+    @Test
+    public void unclosedHoursAreNotEmittedBeforeTolerance() {
+        TrendsAggregateWorker worker = start(null);
+        now.set(BASE + HOUR + 1000);
+        worker.in(history(1, BASE, "1"));
+        worker.in(history(1, BASE + HOUR, "2"));
+
+        worker.closeHours(BASE + HOUR + LATE_TOLERANCE - 1);
+        assertTrue(emitted.isEmpty());
+
+        now.set(BASE + HOUR + LATE_TOLERANCE);
+        worker.closeHours(now.get());
+        assertEquals(1, emitted.size());
+
+        worker.in(history(1, BASE + 10, "3"));
+        worker.closeHours(BASE + 2 * HOUR + LATE_TOLERANCE);
+        assertEquals(2, emitted.size());
+        assertEquals(2.0, ((Trends) emitted.get(1)).getValueAvg(), 0);
+    }
+
+    private TrendsAggregateWorker start(Path state) {
+        TrendsAggregateWorker worker = new TrendsAggregateWorker(null, new MetricsCreatorNoop(),
+                LATE_TOLERANCE, HOUR, state, emitted::add, now::get);
+        worker.start();
+        workers.add(worker);
+        return worker;
+    }
+
+    private void stop(TrendsAggregateWorker worker) {
+        worker.shutdown();
+        workers.remove(worker);
+    }
+
+    private <T extends Record> T find(Class<T> type, int itemid) {
+        Map<Integer, T> found = new TreeMap<>();
+        for (Record record : emitted) {
+            if (type.isInstance(record)) {
+                found.put(record.getItemid(), type.cast(record));
+            }
+        }
+        return found.get(itemid);
+    }
+
+    private static History history(int itemid, long clock, String value) {
+        History history = new History();
+        history.setItemid(itemid);
+        history.setValue("device-" + itemid, value, clock);
+        return history;
+    }
+
+    private static UIntHistory uintHistory(int itemid, long clock, String value) {
+        UIntHistory history = new UIntHistory();
+        history.setItemid(itemid);
+        history.setValue("device-" + itemid, value, clock);
+        return history;
+    }
+}
@@ -0,0 +1,195 @@
+package com.zmops.zeus.iot.server.core.journal;
+
+import com.zmops.zeus.dto.ItemValue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 崩溃恢复：不调用 close 直接用新实例打开同一目录，模拟进程被杀
+ */
+public class ItemValueJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ItemValueJournal> journals = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        journals.forEach(ItemValueJournal::close);
+    }
+
+    @Test
+    public void crashAfterAppendReplaysEverything() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ItemValueJournal crashed = open(dir, 64 * 1024);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(crashed.append(batch(i)));
+        }
+
+        ItemValueJournal journal = open(dir, 64 * 1024);
+        assertEquals(range(0, 10), replay(journal));
+    }
+
+    @Test
+    public void tornTailRecordIsDiscardedAndAppendContinues() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ItemValueJournal crashed = open(dir, 64 * 1024);
+        int end = 0;
+        for (int i = 0; i < 3; i++) {
+            crashed.append(batch(i));
+            end += recordLength(i);
+        }
+
+        // 只写了记录头，payload 和 crc 没有落盘
+        ByteBuffer header = ByteBuffer.allocate(JournalSegment.RECORD_HEADER_LENGTH).putInt(100).putInt(0);
+        header.flip();
+        write(dir.resolve(JournalSegment.fileName(1)), end, header);
+
+        ItemValueJournal journal = open(dir, 64 * 1024);
+        assertTrue(journal.append(batch(3)));
+        assertEquals(range(0, 4), replay(journal));
+        assertEquals(0, journal.getCorruptedRecords());
+    }
+
+    @Test
+    public void corruptedRecordIsSkippedAndLaterRecordsReplay() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ItemValueJournal writer = open(dir, 64 * 1024);
+        int corrupted = 0;
+        for (int i = 0; i < 5; i++) {
+            writer.append(batch(i));
+            if (i < 2) {
+                corrupted += recordLength(i);
+            }
+        }
+        writer.close();
+
+        ByteBuffer garbage = ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF});
+        write(dir.resolve(JournalSegment.fileName(1)), corrupted + JournalSegment.RECORD_HEADER_LENGTH + 10, garbage);
+
+        ItemValueJournal journal = open(dir, 64 * 1024);
+        assertEquals(toList(0, 1, 3, 4), replay(journal));
+        assertEquals(1, journal.getCorruptedRecords());
+    }
+
+    @Test
+    public void crashBetweenCheckpointsReplaysBoundedDuplicates() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ItemValueJournal crashed = open(dir, 64 * 1024);
+        for (int i = 0; i < 200; i++) {
+            crashed.append(batch(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            crashed.commit(crashed.peek());
+        }
+
+        ItemValueJournal journal = open(dir, 64 * 1024);
+        List<Integer> replayed = replay(journal);
+        assertEquals(Integer.valueOf(199), replayed.get(replayed.size() - 1));
+        assertTrue("replayed " + replayed.size(), replayed.size() >= 100);
+        assertTrue("replayed " + replayed.size(), replayed.size() <= 100 + ItemValueJournal.CHECKPOINT_RECORDS);
+        assertEquals(range(200 - replayed.size(), 200), replayed);
+    }
+
+    @Test
+    public void replayedSegmentsAreDeleted() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ItemValueJournal journal = open(dir, 256);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(journal.append(batch(i)));
+        }
+        assertTrue(segmentFiles(dir) > 1);
+
+        assertEquals(range(0, 20), replay(journal));
+        journal.checkpoint();
+        assertEquals(1, segmentFiles(dir));
+        assertEquals(1, journal.pendingSegments());
+
+        journal.close();
+        assertFalse(journal.append(batch(20)));
+        assertNull(journal.peek());
+
+        ItemValueJournal reopened = open(dir, 256);
+        assertTrue(replay(reopened).isEmpty());
+    }
+
+    private ItemValueJournal open(Path dir, int segmentSize) throws IOException {
+        ItemValueJournal journal = new ItemValueJournal(dir, segmentSize, 100);
+        journal.open();
+        journals.add(journal);
+        return journal;
+    }
+
+    private static List<Integer> replay(ItemValueJournal journal) {
+        List<Integer> replayed = new ArrayList<>();
+        ItemValueJournal.Entry entry;
+        while ((entry = journal.peek()) != null) {
+            for (ItemValue itemValue : entry.getItemValues()) {
+                replayed.add(Integer.valueOf(itemValue.getValue()));
+            }
+            journal.commit(entry);
+        }
+        return replayed;
+    }
+
+    private static List<ItemValue> batch(int i) {
+        ItemValue itemValue = new ItemValue("device-" + i, 1637000000L + i);
+        itemValue.setKey("temp");
+        itemValue.setValue(String.valueOf(i));
+        itemValue.setNs(0L);
+        return Collections.singletonList(itemValue);
+    }
+
+    private static int recordLength(int i) {
+        return JournalSegment.RECORD_HEADER_LENGTH + ItemValueCodec.encode(batch(i)).length;
+    }
+
+    private static void write(Path file, int position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+
+    private static int segmentFiles(Path dir) throws IOException {
+        int count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.seg")) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private static List<Integer> toList(Integer... values) {
+        List<Integer> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+}
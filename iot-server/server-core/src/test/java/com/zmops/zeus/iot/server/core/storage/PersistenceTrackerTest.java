@@ -0,0 +1,110 @@
+package com.zmops.zeus.iot.server.core.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceTrackerTest {
+
+    private final PersistenceTracker tracker = new PersistenceTracker();
+
+    @Test
+    public void waitsForRequestsEnteredBefore() throws InterruptedException {
+        Request first = enter();
+        Request second = enter();
+
+        assertFalse(tracker.await(10));
+
+        tracker.exit(Collections.singletonList(first));
+        assertFalse(tracker.await(10));
+
+        tracker.exit(Collections.singletonList(second));
+        assertTrue(tracker.await(10));
+    }
+
+    @Test
+    public void requestsEnteredDuringAwaitAreNotWaitedFor() throws Exception {
+        Request before = enter();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Boolean> awaited = executor.submit(() -> tracker.await(TimeUnit.SECONDS.toMillis(10)));
+        Thread.sleep(50);
+
+        Request during = enter();
+        tracker.exit(Collections.singletonList(before));
+        assertTrue(awaited.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertFalse(tracker.await(10));
+        tracker.exit(Collections.singletonList(during));
+        assertTrue(tracker.await(10));
+    }
+
+    @Test
+    public void untrackedAndRepeatedExitsAreIgnored() throws InterruptedException {
+        Request tracked = enter();
+        tracker.exit(Arrays.asList(new Request(), tracked, tracked));
+        assertTrue(tracker.await(10));
+    }
+
+    @Test
+    public void awaitReturnsWhenConcurrentWritersDrain() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch entered = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                List<Request> requests = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    requests.add(enter());
+                }
+                entered.countDown();
+                release.await();
+                tracker.exit(requests);
+                return null;
+            }));
+        }
+        entered.await(10, TimeUnit.SECONDS);
+
+        assertFalse(tracker.await(10));
+        release.countDown();
+        assertTrue(tracker.await(TimeUnit.SECONDS.toMillis(10)));
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private Request enter() {
+        Request request = new Request();
+        tracker.enter(request);
+        return request;
+    }
+
+    private static class Request implements PersistenceTracker.Tracked {
+
+        private PersistenceTracker.Epoch epoch;
+
+        @Override
+        public PersistenceTracker.Epoch getEpoch() {
+            return epoch;
+        }
+
+        @Override
+        public void setEpoch(PersistenceTracker.Epoch epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
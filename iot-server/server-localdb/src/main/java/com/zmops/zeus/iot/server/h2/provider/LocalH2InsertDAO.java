@@ -4,8 +4,10 @@ import com.zmops.zeus.iot.server.client.jdbc.JDBCClientException;
 import com.zmops.zeus.iot.server.client.jdbc.hikaricp.JDBCHikariCPClient;
 import com.zmops.zeus.iot.server.h2.service.InsertDAO;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
  * @author yefei
@@ -58,4 +60,20 @@ public class LocalH2InsertDAO implements InsertDAO {
         }
     }
 
+    @Override
+    public void close(ResultSet rs) {
+        if (rs == null) {
+            return;
+        }
+        try {
+            Statement statement = rs.getStatement();
+            Connection connection = statement.getConnection();
+            rs.close();
+            statement.close();
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
 }
@@ -16,4 +16,9 @@ public interface InsertDAO extends Service {
     ResultSet queryRes(String sql, Object... params);
 
     void delete(String sql);
+
+    /**
+     * 关闭 {@link #queryRes} 返回的结果集，连同其 Statement 和连接
+     */
+    void close(ResultSet rs);
 }
@@ -0,0 +1,238 @@
+package com.zmops.zeus.iot.server.sender.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Zabbix Trapper 数据帧，ZBXD 协议头与 "sender data" JSON 一次性写入池化的直接内存，
+ * 写完后回填长度字段，不再经过 String 中转和二次拷贝。
+ * <p>
+ * 用法：{@link #create(int)} -> 多次 {@link #append} -> {@link #finish()}，
+ * finish 之后 ByteBuf 的所有权交给发送方，由 Netty 写出后释放。
+ */
+public final class ZabbixTrapperFrame {
+
+    /**
+     * ZBXD 协议头：'ZBXD' + flags(1) + data length(4, little endian) + reserved(4)
+     */
+    public static final int HEADER_LENGTH = 13;
+
+    private static final int LENGTH_OFFSET = 5;
+
+    private static final byte[] HEADER_MAGIC = {'Z', 'B', 'X', 'D', 1};
+
+    private static final byte[] REQUEST_PREFIX = ascii("{\"request\":\"sender data\",\"data\":[");
+    private static final byte[] REQUEST_SUFFIX = ascii("]}");
+
+    private static final byte[] HOST = ascii("\"host\":");
+    private static final byte[] KEY = ascii("\"key\":");
+    private static final byte[] VALUE = ascii("\"value\":");
+    private static final byte[] CLOCK = ascii("\"clock\":");
+    private static final byte[] NS = ascii("\"ns\":");
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    /**
+     * 单条数据预估字节数，用于初始化 buffer 容量
+     */
+    private static final int ESTIMATED_ITEM_BYTES = 96;
+
+    private final ByteBuf buf;
+
+    private int itemCount;
+
+    private boolean finished;
+
+    private ZabbixTrapperFrame(ByteBuf buf) {
+        this.buf = buf;
+    }
+
+    public static ZabbixTrapperFrame create(int expectedItems) {
+        return create(PooledByteBufAllocator.DEFAULT, expectedItems);
+    }
+
+    public static ZabbixTrapperFrame create(ByteBufAllocator allocator, int expectedItems) {
+        ByteBuf buf = allocator.directBuffer(HEADER_LENGTH + REQUEST_PREFIX.length
+                + REQUEST_SUFFIX.length + expectedItems * ESTIMATED_ITEM_BYTES);
+        writeHeader(buf);
+        buf.writeBytes(REQUEST_PREFIX);
+        return new ZabbixTrapperFrame(buf);
+    }
+
+    /**
+     * 已经序列化好的 JSON 请求直接封帧
+     *
+     * @param message trapper 请求 JSON
+     * @return 完整数据帧
+     */
+    public static ByteBuf wrap(CharSequence message) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(HEADER_LENGTH + message.length());
+        writeHeader(buf);
+        ByteBufUtil.writeUtf8(buf, message);
+        patchLength(buf);
+        return buf;
+    }
+
+    /**
+     * 追加一条数据，为 null 的字段不输出，与 Gson 默认行为一致
+     */
+    public ZabbixTrapperFrame append(String host, String key, String value, Long clock, Long ns) {
+        if (finished) {
+            throw new IllegalStateException("Zabbix trapper frame already finished");
+        }
+
+        if (itemCount++ > 0) {
+            buf.writeByte(',');
+        }
+
+        buf.writeByte('{');
+        boolean first = true;
+        if (host != null) {
+            first = writeName(HOST, first);
+            writeString(host);
+        }
+        if (key != null) {
+            first = writeName(KEY, first);
+            writeString(key);
+        }
+        if (value != null) {
+            first = writeName(VALUE, first);
+            writeString(value);
+        }
+        if (clock != null) {
+            first = writeName(CLOCK, first);
+            writeLong(clock);
+        }
+        if (ns != null) {
+            writeName(NS, first);
+            writeLong(ns);
+        }
+        buf.writeByte('}');
+        return this;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    /**
+     * 结束 JSON 并回填长度字段
+     *
+     * @return 完整数据帧
+     */
+    public ByteBuf finish() {
+        if (!finished) {
+            buf.writeBytes(REQUEST_SUFFIX);
+            patchLength(buf);
+            finished = true;
+        }
+        return buf;
+    }
+
+    /**
+     * 未发送时释放 buffer
+     */
+    public void release() {
+        buf.release();
+    }
+
+    private static void writeHeader(ByteBuf buf) {
+        buf.writeBytes(HEADER_MAGIC);
+        buf.writeIntLE(0); // data length, patch later
+        buf.writeIntLE(0); // reserved
+    }
+
+    private static void patchLength(ByteBuf buf) {
+        buf.setIntLE(buf.readerIndex() + LENGTH_OFFSET, buf.readableBytes() - HEADER_LENGTH);
+    }
+
+    /**
+     * @return 写入后不再是第一个字段，固定返回 false
+     */
+    private boolean writeName(byte[] name, boolean first) {
+        if (!first) {
+            buf.writeByte(',');
+        }
+        buf.writeBytes(name);
+        return false;
+    }
+
+    private void writeString(String value) {
+        buf.writeByte('"');
+        int len = value.length();
+        int runStart = 0;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+
+            if (i > runStart) {
+                ByteBufUtil.writeUtf8(buf, value, runStart, i);
+            }
+            runStart = i + 1;
+
+            buf.writeByte('\\');
+            switch (c) {
+                case '"':
+                    buf.writeByte('"');
+                    break;
+                case '\\':
+                    buf.writeByte('\\');
+                    break;
+                case '\n':
+                    buf.writeByte('n');
+                    break;
+                case '\r':
+                    buf.writeByte('r');
+                    break;
+                case '\t':
+                    buf.writeByte('t');
+                    break;
+                case '\b':
+                    buf.writeByte('b');
+                    break;
+                case '\f':
+                    buf.writeByte('f');
+                    break;
+                default:
+                    buf.writeByte('u').writeByte('0').writeByte('0')
+                            .writeByte(HEX[c >> 4]).writeByte(HEX[c & 0xF]);
+            }
+        }
+        if (runStart < len) {
+            ByteBufUtil.writeUtf8(buf, value, runStart, len);
+        }
+        buf.writeByte('"');
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            buf.writeBytes(ascii(Long.toString(value)));
+            return;
+        }
+        if (value < 0) {
+            buf.writeByte('-');
+            value = -value;
+        }
+
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buf.writeByte((int) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -1,46 +1,205 @@
 package com.zmops.zeus.iot.server.sender.provider;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author nantian created at 2021/8/14 14:46
  * <p>
  * Zabbix 发送 Socket Client
+ * <p>
+ * 基于 Netty 的非阻塞连接池，连接数、连接超时、响应超时由 {@link ZabbixSenderModuleConfig} 配置。
+ * Zabbix Trapper 每个连接只处理一个请求，响应后即关闭，因此请求结束后连接一律关闭再归还，
+ * 不复用可能已经半关闭的连接；连接池只用来限制并发连接数和排队获取。
  */
 
 @Slf4j
 public class ZabbixSenderClient {
 
-    private static ZabbixSenderModuleConfig socketConfig;
+    private static final int MAX_RESPONSE_LENGTH = 16 * 1024 * 1024;
+
+    private final ZabbixSenderModuleConfig socketConfig;
+
+    private EventLoopGroup workerGroup;
+
+    private FixedChannelPool channelPool;
 
     public ZabbixSenderClient(ZabbixSenderModuleConfig config) {
-        socketConfig = config;
+        this.socketConfig = config;
     }
 
     /**
      * 启动 TCP Sender 客户端
      */
     public void start() {
-        log.debug("Zabbix Sender 模块已经启动，Trapper 服务地址：{}:{}", socketConfig.getHost(), socketConfig.getPort());
+        workerGroup = new NioEventLoopGroup(socketConfig.getIoThreads(),
+                new ThreadFactoryBuilder().setNameFormat("zabbix-sender-%d").setDaemon(true).build());
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(workerGroup)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, socketConfig.getConnectTimeout())
+                .remoteAddress(new InetSocketAddress(socketConfig.getHost(), socketConfig.getPort()));
+
+        channelPool = new FixedChannelPool(bootstrap, new TrapperChannelPoolHandler(), ChannelHealthChecker.ACTIVE,
+                FixedChannelPool.AcquireTimeoutAction.FAIL, socketConfig.getAcquireTimeout(),
+                socketConfig.getPoolSize(), socketConfig.getMaxPendingAcquires());
+
+        log.debug("Zabbix Sender 模块已经启动，Trapper 服务地址：{}:{}，连接池大小：{}",
+                socketConfig.getHost(), socketConfig.getPort(), socketConfig.getPoolSize());
     }
 
+    /**
+     * 关闭连接池
+     */
+    public void shutdown() {
+        if (channelPool != null) {
+            channelPool.close();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully();
+        }
+    }
 
     /**
-     * 获取 Socket 实例
+     * 异步发送一帧完整的 ZBXD 数据，发送完成后 frame 由 Netty 负责释放
      *
-     * @return Socket
+     * @param frame 包含协议头的完整数据帧
+     * @return Trapper 响应内容（去掉协议头）
      */
-    public static Socket getSocket() {
-        Socket trapperSocket = new Socket();
-        try {
-            trapperSocket.setSoTimeout(1000);
-            trapperSocket.connect(new InetSocketAddress(socketConfig.getHost(), socketConfig.getPort()));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return trapperSocket;
+    public CompletableFuture<String> send(ByteBuf frame) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+
+        channelPool.acquire().addListener((FutureListener<Channel>) acquired -> {
+            if (!acquired.isSuccess()) {
+                frame.release();
+                result.completeExceptionally(acquired.cause());
+                return;
+            }
+
+            Channel channel = acquired.getNow();
+            result.whenComplete((resp, t) -> {
+                channel.close();
+                channelPool.release(channel);
+            });
+
+            if (channel.eventLoop().inEventLoop()) {
+                write(channel, frame, result);
+            } else {
+                channel.eventLoop().execute(() -> write(channel, frame, result));
+            }
+        });
+
+        return result;
+    }
+
+    private void write(Channel channel, ByteBuf frame, CompletableFuture<String> result) {
+        TrapperResponseHandler handler = channel.pipeline().get(TrapperResponseHandler.class);
+        if (handler == null) {
+            frame.release();
+            result.completeExceptionally(new IOException("Zabbix Trapper connection closed"));
+            return;
+        }
+
+        handler.await(channel, result, socketConfig.getReadTimeout());
+        channel.writeAndFlush(frame).addListener(written -> {
+            if (!written.isSuccess()) {
+                result.completeExceptionally(written.cause());
+            }
+        });
+    }
+
+
+    private static class TrapperChannelPoolHandler extends AbstractChannelPoolHandler {
+
+        @Override
+        public void channelCreated(Channel ch) {
+            ch.pipeline()
+                    .addLast(new LengthFieldBasedFrameDecoder(ByteOrder.LITTLE_ENDIAN, MAX_RESPONSE_LENGTH,
+                            5, 4, 4, ZabbixTrapperFrame.HEADER_LENGTH, true))
+                    .addLast(new TrapperResponseHandler());
+        }
+    }
+
+    /**
+     * 每个连接同一时刻只处理一个请求，请求的 Future 与超时任务挂在 handler 上
+     */
+    private static class TrapperResponseHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+        private CompletableFuture<String> pending;
+
+        private ScheduledFuture<?> timeoutTask;
+
+        /**
+         * 必须在 channel 的 EventLoop 中调用
+         */
+        void await(Channel channel, CompletableFuture<String> future, long readTimeout) {
+            pending = future;
+            timeoutTask = channel.eventLoop().schedule(
+                    () -> fail(new TimeoutException("Zabbix Trapper response timeout: " + readTimeout + "ms")),
+                    readTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+            CompletableFuture<String> future = take();
+            if (future != null) {
+                future.complete(msg.toString(StandardCharsets.UTF_8));
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            fail(new IOException("Zabbix Trapper connection closed before response"));
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            fail(cause);
+            ctx.close();
+        }
+
+        private void fail(Throwable cause) {
+            CompletableFuture<String> future = take();
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        private CompletableFuture<String> take() {
+            CompletableFuture<String> future = pending;
+            pending = null;
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+                timeoutTask = null;
+            }
+            return future;
+        }
     }
 }
@@ -21,4 +21,34 @@ public class ZabbixSenderModuleConfig extends ModuleConfig {
      * Bind to host
      */
     private String host = "127.0.0.1";
+
+    /**
+     * Trapper 连接池最大连接数，即同时发送的最大并发连接数
+     */
+    private int poolSize = 8;
+
+    /**
+     * 连接池排队等待获取连接的最大请求数，超出后直接失败
+     */
+    private int maxPendingAcquires = 1024;
+
+    /**
+     * 获取连接超时时间，毫秒
+     */
+    private long acquireTimeout = 5000;
+
+    /**
+     * 建立连接超时时间，毫秒
+     */
+    private int connectTimeout = 1000;
+
+    /**
+     * 等待 Trapper 响应超时时间，毫秒
+     */
+    private long readTimeout = 3000;
+
+    /**
+     * Netty IO 线程数，0 表示使用 Netty 默认值
+     */
+    private int ioThreads = 0;
 }
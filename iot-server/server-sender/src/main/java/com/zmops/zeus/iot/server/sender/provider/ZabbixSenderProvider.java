@@ -13,6 +13,8 @@ public class ZabbixSenderProvider extends ModuleProvider {
 
     private final ZabbixSenderModuleConfig senderConfig;
 
+    private ZabbixSenderClient senderClient;
+
     public ZabbixSenderProvider() {
         this.senderConfig = new ZabbixSenderModuleConfig();
     }
@@ -34,12 +36,13 @@ public class ZabbixSenderProvider extends ModuleProvider {
 
     @Override
     public void prepare() throws ServiceNotProvidedException, ModuleStartException {
-        this.registerServiceImplementation(ZabbixSenderService.class, new ZabbixSenderService(getManager()));
+        senderClient = new ZabbixSenderClient(senderConfig);
+        this.registerServiceImplementation(ZabbixSenderService.class,
+                new ZabbixSenderService(getManager(), senderClient, senderConfig));
     }
 
     @Override
     public void start() throws ServiceNotProvidedException, ModuleStartException {
-        ZabbixSenderClient senderClient = new ZabbixSenderClient(senderConfig);
         senderClient.start();
     }
 
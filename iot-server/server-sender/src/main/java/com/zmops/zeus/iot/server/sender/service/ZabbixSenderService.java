@@ -1,20 +1,21 @@
 package com.zmops.zeus.iot.server.sender.service;
 
 import com.google.gson.Gson;
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
 import com.zmops.zeus.iot.server.sender.provider.ZabbixSenderClient;
+import com.zmops.zeus.iot.server.sender.provider.ZabbixSenderModuleConfig;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import com.zmops.zeus.server.library.module.Service;
+import io.netty.buffer.ByteBuf;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author nantian created at 2021/8/14 18:39
@@ -25,10 +26,17 @@ public class ZabbixSenderService implements Service {
 
     private final ModuleManager moduleManager;
 
+    private final ZabbixSenderClient senderClient;
+
+    private final ZabbixSenderModuleConfig senderConfig;
+
     private static final Gson gson = new Gson();
 
-    public ZabbixSenderService(ModuleManager moduleManager) {
+    public ZabbixSenderService(ModuleManager moduleManager, ZabbixSenderClient senderClient,
+                               ZabbixSenderModuleConfig senderConfig) {
         this.moduleManager = moduleManager;
+        this.senderClient = senderClient;
+        this.senderConfig = senderConfig;
     }
 
     /**
@@ -51,52 +59,46 @@ public class ZabbixSenderService implements Service {
      * @throws IOException ex
      */
     public String sendData(String message) throws IOException {
-
-        Socket trapperSocket = ZabbixSenderClient.getSocket();
-
-        int payloadLength = length(message);
-        byte[] header = new byte[]{
-                'Z', 'B', 'X', 'D', '\1',
-                (byte) (payloadLength & 0xFF),
-                (byte) ((payloadLength >> 8) & 0xFF),
-                (byte) ((payloadLength >> 16) & 0xFF),
-                (byte) ((payloadLength >> 24) & 0xFF),
-                '\0', '\0', '\0', '\0'};
-
-        ByteBuffer byteBuffer = ByteBuffer.allocate(header.length + payloadLength);
-        byteBuffer.put(header);
-        byteBuffer.put(message.getBytes(StandardCharsets.UTF_8));
-
-        byte[] response = new byte[2048];
-
-        OutputStream reqStream = trapperSocket.getOutputStream();
-        reqStream.write(byteBuffer.array());
-        reqStream.flush();
-
-        byteBuffer = null;
-
-        InputStream resStream = trapperSocket.getInputStream();
-
-        StringBuilder resp = new StringBuilder();
-
-        int headLength = 13;
-        int bRead = 0;
-
-        while (true) {
-            bRead = resStream.read(response);
-            if (bRead <= 0) break;
-            resp.append(new String(Arrays.copyOfRange(response, headLength, bRead)));
-            headLength = 0;
+        CompletableFuture<String> future = sendDataAsync(message);
+        long timeout = senderConfig.getAcquireTimeout() + senderConfig.getConnectTimeout() + senderConfig.getReadTimeout();
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Zabbix Trapper send interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new IOException("Zabbix Trapper send timeout: " + timeout + "ms", e);
         }
+    }
 
-        log.debug(" Zabbix Trapper 响应数据：{} ", resp.toString());
+    /**
+     * 异步发送，连接从连接池获取，Trapper 响应后回调
+     *
+     * @param message 同 {@link #sendData(String)}
+     * @return Trapper 响应结果
+     */
+    public CompletableFuture<String> sendDataAsync(String message) {
+        return send(ZabbixTrapperFrame.wrap(message));
+    }
 
-        resStream.close();
-        reqStream.close();
-        trapperSocket.close();
-        trapperSocket = null;
+    /**
+     * 异步发送已经编码好的数据帧，避免中间 JSON 字符串
+     *
+     * @param frame 由 {@link ZabbixTrapperFrame#create(int)} 构建的数据帧
+     * @return Trapper 响应结果
+     */
+    public CompletableFuture<String> sendDataAsync(ZabbixTrapperFrame frame) {
+        return send(frame.finish());
+    }
 
-        return zabbixResponseToMap(resp.toString());
+    private CompletableFuture<String> send(ByteBuf frame) {
+        return senderClient.send(frame).thenApply(resp -> {
+            log.debug(" Zabbix Trapper 响应数据：{} ", resp);
+            return zabbixResponseToMap(resp);
+        });
     }
 
 
@@ -125,23 +127,4 @@ public class ZabbixSenderService implements Service {
         resultMap.put("response", result.get("response"));
         return gson.toJson(resultMap);
     }
-
-    /**
-     * 计算字符串长度 中文3个字节
-     * @param value
-     * @return
-     */
-    public static int length(String value) {
-        int valueLength = 0;
-        String chinese = "[\u0391-\uFFE5]";
-        for (int i = 0; i < value.length(); i++) {
-            String temp = value.substring(i, i + 1);
-            if (temp.matches(chinese)) {
-                valueLength += 3;
-            } else {
-                valueLength += 1;
-            }
-        }
-        return valueLength;
-    }
 }
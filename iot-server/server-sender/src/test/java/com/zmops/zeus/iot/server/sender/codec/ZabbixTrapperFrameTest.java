@@ -0,0 +1,83 @@
+package com.zmops.zeus.iot.server.sender.codec;
+
+import com.google.gson.Gson;
+import io.netty.buffer.ByteBuf;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ZabbixTrapperFrameTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void sameJsonAsGson() {
+        List<Item> items = Arrays.asList(
+                new Item("device-1", "temp", "36.5", 1637000000L, 123456789L),
+                new Item(null, "temp", "1", 1637000001L, null),
+                new Item("设备\"2\"", "key\\path", "line1\nline2\t\u0001", null, 0L),
+                new Item("device-3", null, null, -1L, Long.MIN_VALUE),
+                new Item(null, null, null, null, null));
+
+        ZabbixTrapperFrame frame = ZabbixTrapperFrame.create(items.size());
+        for (Item item : items) {
+            frame.append(item.host, item.key, item.value, item.clock, item.ns);
+        }
+        ByteBuf buf = frame.finish();
+        try {
+            assertEquals(gson.toJson(new Request(items)), payload(buf));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void lengthFieldCountsUtf8Bytes() {
+        String message = "{\"request\":\"sender data\",\"data\":[{\"host\":\"温湿度\"}]}";
+        ByteBuf buf = ZabbixTrapperFrame.wrap(message);
+        try {
+            assertEquals('Z', buf.getByte(0));
+            assertEquals(1, buf.getByte(4));
+            assertEquals(message.getBytes(StandardCharsets.UTF_8).length, buf.getIntLE(5));
+            assertEquals(message, payload(buf));
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static String payload(ByteBuf buf) {
+        assertEquals(buf.readableBytes() - ZabbixTrapperFrame.HEADER_LENGTH, buf.getIntLE(5));
+        return buf.toString(ZabbixTrapperFrame.HEADER_LENGTH, buf.readableBytes() - ZabbixTrapperFrame.HEADER_LENGTH,
+                StandardCharsets.UTF_8);
+    }
+
+    private static class Request {
+        private final String request = "sender data";
+        private final List<Item> data;
+
+        Request(List<Item> data) {
+            this.data = new ArrayList<>(data);
+        }
+    }
+
+    private static class Item {
+        private final String host;
+        private final String key;
+        private final String value;
+        private final Long clock;
+        private final Long ns;
+
+        Item(String host, String key, String value, Long clock, Long ns) {
+            this.host = host;
+            this.key = key;
+            this.value = value;
+            this.clock = clock;
+            this.ns = ns;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.zmops.zeus.iot.server.sender.provider;
+
+import com.zmops.zeus.iot.server.sender.codec.ZabbixTrapperFrame;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 模拟 Zabbix Trapper：每个连接只读一帧，响应后立即关闭连接
+ */
+public class ZabbixSenderClientTest {
+
+    private static final String RESPONSE = "{\"response\":\"success\",\"info\":\"processed: 1; failed: 0; total: 1; seconds spent: 0.000055\"}";
+
+    private EventLoopGroup serverGroup;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile boolean silent;
+
+    private ZabbixSenderClient client;
+
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        serverGroup = new NioEventLoopGroup(2);
+        Channel server = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        int current = connections.incrementAndGet();
+                        maxConcurrent.accumulateAndGet(current, Math::max);
+                        ch.closeFuture().addListener(f -> connections.decrementAndGet());
+                        ch.pipeline()
+                                .addLast(new LengthFieldBasedFrameDecoder(ByteOrder.LITTLE_ENDIAN, 1024 * 1024,
+                                        5, 4, 4, 0, true))
+                                .addLast(new FakeTrapperHandler());
+                    }
+                })
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sequentialSendsNeverReuseClosedConnection() throws Exception {
+        client = startClient(1);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(RESPONSE, client.send(frame(i)).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(50, requests.get());
+    }
+
+    @Test
+    public void concurrentSendsBoundedByPoolSize() throws Exception {
+        client = startClient(4);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(client.send(frame(i)));
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertEquals(RESPONSE, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(200, requests.get());
+        assertTrue("max concurrent connections " + maxConcurrent.get(), maxConcurrent.get() <= 4);
+    }
+
+    @Test
+    public void responseTimeoutReleasesConnection() throws Exception {
+        silent = true;
+        client = startClient(1);
+        for (int i = 0; i < 2; i++) {
+            try {
+                client.send(frame(i)).get(5, TimeUnit.SECONDS);
+                fail("expected response timeout");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        }
+
+        silent = false;
+        assertEquals(RESPONSE, client.send(frame(2)).get(5, TimeUnit.SECONDS));
+    }
+
+    private ZabbixSenderClient startClient(int poolSize) {
+        ZabbixSenderModuleConfig config = new ZabbixSenderModuleConfig();
+        config.setHost("127.0.0.1");
+        config.setPort(port);
+        config.setPoolSize(poolSize);
+        config.setReadTimeout(200);
+        config.setAcquireTimeout(2000);
+        ZabbixSenderClient senderClient = new ZabbixSenderClient(config);
+        senderClient.start();
+        return senderClient;
+    }
+
+    private static ByteBuf frame(int i) {
+        return ZabbixTrapperFrame.create(1).append("device-" + i, "temp", String.valueOf(i), 1637000000L, 0L).finish();
+    }
+
+    private class FakeTrapperHandler extends SimpleChannelInboundHandler<ByteBuf> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+            if (silent) {
+                return;
+            }
+            requests.incrementAndGet();
+            ctx.writeAndFlush(ZabbixTrapperFrame.wrap(RESPONSE)).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
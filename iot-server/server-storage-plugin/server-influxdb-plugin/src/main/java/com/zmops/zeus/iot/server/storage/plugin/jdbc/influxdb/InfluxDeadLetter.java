@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 重试后仍写入失败的数据块，原样（行协议，每行一个点）追加到本地死信文件，服务启动时回放。
+ * <p>
+ * 回放前先把当前文件原子改名为 *.replay，回放期间新的失败数据写入新文件；回放失败的剩余数据写回死信文件。
+ * 被 InfluxDB 拒绝（4xx）的数据重放也不会成功，回放时丢弃。
+ */
+@Slf4j
+public class InfluxDeadLetter {
+
+    private static final String ACTIVE_FILE = "influxdb.dlq";
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final Path dir;
+
+    public InfluxDeadLetter(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param lines 以换行结尾的行协议文本
+     */
+    public synchronized void append(CharSequence lines, int points) {
+        try {
+            Files.createDirectories(dir);
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(ACTIVE_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.append(lines);
+            }
+        } catch (IOException e) {
+            log.error("write influxdb dead letter failed, {} points lost", points, e);
+        }
+    }
+
+    /**
+     * 回放全部死信数据，遇到写入失败即停止
+     *
+     * @param chunkSize 每次写入的未压缩字节数
+     * @return 回放成功的点数
+     */
+    public int replay(Writer writer, int chunkSize) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+
+        synchronized (this) {
+            Path active = dir.resolve(ACTIVE_FILE);
+            if (Files.exists(active)) {
+                Files.move(active, dir.resolve("influxdb-" + System.currentTimeMillis() + REPLAY_SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        // 包括上次回放中断留下的文件
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + REPLAY_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        int replayed = 0;
+        for (Path file : files) {
+            int points = replayFile(file, writer, chunkSize);
+            if (points < 0) {
+                break;
+            }
+            replayed += points;
+        }
+        return replayed;
+    }
+
+    /**
+     * @return 回放点数，写入失败时返回 -1
+     */
+    private int replayFile(Path file, Writer writer, int chunkSize) throws IOException {
+        int replayed = 0;
+        boolean failed = false;
+        StringBuilder chunk = new StringBuilder(chunkSize + 1024);
+        int points = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                chunk.append(line).append('\n');
+                points++;
+                if (chunk.length() >= chunkSize) {
+                    failed = replayChunk(file, writer, chunk, points, failed);
+                    replayed += failed ? 0 : points;
+                    chunk.setLength(0);
+                    points = 0;
+                }
+            }
+        }
+
+        if (points > 0) {
+            failed = replayChunk(file, writer, chunk, points, failed);
+            replayed += failed ? 0 : points;
+        }
+
+        Files.delete(file);
+        log.info("replayed {} points from influxdb dead letter {}", replayed, file);
+        return failed ? -1 : replayed;
+    }
+
+    /**
+     * 之前的块已经失败时不再尝试，直接写回死信文件
+     *
+     * @return 是否失败
+     */
+    private boolean replayChunk(Path file, Writer writer, CharSequence chunk, int points, boolean failed) {
+        if (!failed) {
+            Result result = writer.write(chunk, points);
+            if (result != Result.FAILED) {
+                return false;
+            }
+            log.warn("replay influxdb dead letter {} failed", file);
+        }
+        append(chunk, points);
+        return true;
+    }
+
+    public enum Result {
+
+        WRITTEN,
+
+        /**
+         * InfluxDB 拒绝（4xx），重试也不会成功
+         */
+        REJECTED,
+
+        /**
+         * 重试用尽仍然失败
+         */
+        FAILED
+    }
+
+    public interface Writer {
+
+        Result write(CharSequence lines, int points);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb;
+
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.InfluxDeadLetter.Result;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.dao.InfluxInsertRequest;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 行协议批量写入：记录直接序列化到复用的缓冲区，按 chunkSize 字节切块，gzip 压缩后 POST 到 /write。
+ * <p>
+ * 5xx、429 和网络超时按指数退避重试，响应带 Retry-After 时按其等待，重试用尽的数据块写入 {@link InfluxDeadLetter}；
+ * 其他 4xx（数据格式错误等）不重试，直接丢弃。
+ * 同一时间只有一个批次在写（DataCarrier 单消费线程），缓冲区不需要按线程区分。
+ */
+@Slf4j
+public class InfluxLineWriter {
+
+    private static final MediaType TEXT = MediaType.parse("text/plain; charset=utf-8");
+
+    private final OkHttpClient httpClient;
+
+    private final HttpUrl writeUrl;
+
+    private final String authorization;
+
+    private final int chunkSize;
+
+    private final int maxRetries;
+
+    private final long retryBackoff;
+
+    private final long maxRetryBackoff;
+
+    private final StringBuilder lines;
+
+    private final Buffer compressed = new Buffer();
+
+    private final InfluxDeadLetter deadLetter;
+
+    public InfluxLineWriter(InfluxStorageConfig config) {
+        this.httpClient = new OkHttpClient.Builder()
+                .connectTimeout(config.getWriteTimeout(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getWriteTimeout(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeout(), TimeUnit.MILLISECONDS)
+                .build();
+
+        HttpUrl url = HttpUrl.parse(config.getUrl());
+        if (url == null) {
+            throw new IllegalArgumentException("illegal influxdb url: " + config.getUrl());
+        }
+        this.writeUrl = url.newBuilder()
+                .addPathSegment("write")
+                .addQueryParameter("db", config.getDatabase())
+                .addQueryParameter("precision", "ms")
+                .build();
+        this.authorization = config.getUser() == null || config.getUser().isEmpty()
+                ? null : Credentials.basic(config.getUser(), config.getPassword());
+
+        this.chunkSize = config.getWriteChunkSize();
+        this.maxRetries = config.getMaxRetries();
+        this.retryBackoff = config.getRetryBackoff();
+        this.maxRetryBackoff = config.getMaxRetryBackoff();
+        this.lines = new StringBuilder(chunkSize + 1024);
+        this.deadLetter = new InfluxDeadLetter(Paths.get(config.getDeadLetterPath()));
+    }
+
+    /**
+     * @return 写入成功的点数
+     */
+    public synchronized int write(List<InfluxInsertRequest> requests) {
+        int written = 0;
+        int invalid = 0;
+        int points = 0;
+
+        lines.setLength(0);
+        for (InfluxInsertRequest request : requests) {
+            if (!request.appendTo(lines)) {
+                invalid++;
+                continue;
+            }
+            lines.append('\n');
+            points++;
+
+            if (lines.length() >= chunkSize) {
+                written += writeChunk(points);
+                lines.setLength(0);
+                points = 0;
+            }
+        }
+        if (points > 0) {
+            written += writeChunk(points);
+            lines.setLength(0);
+        }
+
+        if (invalid > 0) {
+            log.warn("drop {} influxdb points with invalid clock or value", invalid);
+        }
+        return written;
+    }
+
+    private int writeChunk(int points) {
+        Result result = post(lines, points);
+        if (result == Result.FAILED) {
+            deadLetter.append(lines, points);
+        }
+        return result == Result.WRITTEN ? points : 0;
+    }
+
+    /**
+     * 回放上次运行留下的死信数据，逐块加锁，与正常写入交替进行
+     *
+     * @return 回放的点数
+     */
+    public int replayDeadLetter() {
+        try {
+            return deadLetter.replay(this::postChunk, chunkSize);
+        } catch (IOException e) {
+            log.error("replay influxdb dead letter failed", e);
+            return 0;
+        }
+    }
+
+    private synchronized Result postChunk(CharSequence chunk, int points) {
+        return post(chunk, points);
+    }
+
+    /**
+     * 压缩并发送，调用方持有锁（compressed 缓冲区复用）
+     */
+    private Result post(CharSequence body, int points) {
+        compressed.reset();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed, 8192), StandardCharsets.UTF_8)) {
+            writer.append(body);
+        } catch (IOException e) {
+            log.error("compress influxdb points failed", e);
+            return Result.FAILED;
+        }
+
+        Request.Builder builder = new Request.Builder()
+                .url(writeUrl)
+                .header("Content-Encoding", "gzip")
+                .post(RequestBody.create(TEXT, compressed.array(), 0, compressed.size()));
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        Request request = builder.build();
+
+        for (int attempt = 0; ; attempt++) {
+            long wait;
+            try (Response response = httpClient.newCall(request).execute()) {
+                int code = response.code();
+                if (code / 100 == 2) {
+                    return Result.WRITTEN;
+                }
+                if (code < 500 && code != 429) {
+                    log.error("influxdb rejected {} points, status: {}, {}", points, code, errorOf(response));
+                    return Result.REJECTED;
+                }
+                wait = retryAfter(response.header("Retry-After"), attempt);
+                log.warn("influxdb write failed, status: {}, retry in {} ms", code, wait);
+            } catch (IOException e) {
+                wait = backoff(attempt);
+                log.warn("influxdb write failed: {}, retry in {} ms", e.getMessage(), wait);
+            }
+
+            if (attempt >= maxRetries) {
+                log.error("influxdb write failed after {} retries, {} points go to dead letter", attempt, points);
+                return Result.FAILED;
+            }
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Result.FAILED;
+            }
+        }
+    }
+
+    private static String errorOf(Response response) {
+        ResponseBody body = response.body();
+        try {
+            return body == null ? "" : body.string();
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Retry-After 为秒数或者 HTTP 日期，无法解析时使用退避时间；等待时间不超过 maxRetryBackoff
+     */
+    private long retryAfter(String retryAfter, int attempt) {
+        if (retryAfter == null || retryAfter.isEmpty()) {
+            return backoff(attempt);
+        }
+
+        long wait;
+        try {
+            wait = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                wait = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli() - System.currentTimeMillis();
+            } catch (DateTimeParseException de) {
+                return backoff(attempt);
+            }
+        }
+        return Math.max(0, Math.min(wait, maxRetryBackoff));
+    }
+
+    /**
+     * 指数退避，在 [delay/2, delay] 之间随机
+     */
+    private long backoff(int attempt) {
+        long delay = Math.min(maxRetryBackoff, retryBackoff << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    /**
+     * 可以直接取到内部数组的 ByteArrayOutputStream，避免 toByteArray 复制
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        private Buffer() {
+            super(64 * 1024);
+        }
+
+        private byte[] array() {
+            return buf;
+        }
+    }
+}
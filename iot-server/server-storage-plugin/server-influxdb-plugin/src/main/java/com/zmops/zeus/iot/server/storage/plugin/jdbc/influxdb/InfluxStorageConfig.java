@@ -32,8 +32,18 @@ public class InfluxStorageConfig extends ModuleConfig {
 
     private int actions;
     private int duration;
-    private boolean batchEnabled = true;
+    private boolean batchEnabled = false; // 客户端自带的批量写，记录写入走 InfluxLineWriter，不再需要
 
     private int fetchTaskLogMaxSize = 5000;
     private String connectionResponseFormat = "MSGPACK";
+
+    /**
+     * 行协议写入：每块未压缩的字节数、请求超时和重试，时间单位毫秒
+     */
+    private int writeChunkSize = 1024 * 1024;
+    private int writeTimeout = 10000;
+    private int maxRetries = 3;
+    private long retryBackoff = 500;
+    private long maxRetryBackoff = 30000;
+    private String deadLetterPath = "deadletter"; // 重试失败数据的保存目录，启动时回放
 }
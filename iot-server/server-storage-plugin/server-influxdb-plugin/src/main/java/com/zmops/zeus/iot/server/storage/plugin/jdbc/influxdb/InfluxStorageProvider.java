@@ -36,6 +36,8 @@ import lombok.extern.slf4j.Slf4j;
 public class InfluxStorageProvider extends ModuleProvider {
     private final InfluxStorageConfig config;
     private       InfluxClient        client;
+    private       BatchDAO            batchDAO;
+    private       InfluxLineWriter    lineWriter;
 
     public InfluxStorageProvider() {
         config = new InfluxStorageConfig();
@@ -61,7 +63,9 @@ public class InfluxStorageProvider extends ModuleProvider {
 
         client = new InfluxClient(config);
 
-        this.registerServiceImplementation(IBatchDAO.class, new BatchDAO(client));
+        lineWriter = new InfluxLineWriter(config);
+        batchDAO = new BatchDAO(lineWriter);
+        this.registerServiceImplementation(IBatchDAO.class, batchDAO);
         this.registerServiceImplementation(StorageDAO.class, new InfluxStorageDAO(client));
 
     }
@@ -71,9 +75,14 @@ public class InfluxStorageProvider extends ModuleProvider {
         MetricsCreator metricCreator = getManager().find(TelemetryModule.NAME).provider().getService(MetricsCreator.class);
         HealthCheckMetrics healthChecker = metricCreator.createHealthCheckerGauge(
                 "storage_influxdb", MetricsTag.EMPTY_KEY, MetricsTag.EMPTY_VALUE);
+        batchDAO.setMetricsCreator(metricCreator);
 
         client.registerChecker(healthChecker);
         client.connect();
+
+        Thread replay = new Thread(lineWriter::replayDeadLetter, "influxdb-dead-letter-replay");
+        replay.setDaemon(true);
+        replay.start();
     }
 
     @Override
@@ -20,25 +20,73 @@ package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.dao;
 
 import com.zmops.zeus.iot.server.client.request.InsertRequest;
 import com.zmops.zeus.iot.server.client.request.PrepareRequest;
+import com.zmops.zeus.iot.server.core.UnexpectedException;
 import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
-import com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.InfluxClient;
+import com.zmops.zeus.iot.server.core.storage.PersistenceTracker;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.InfluxLineWriter;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
+import com.zmops.zeus.server.datacarrier.DataCarrier;
+import com.zmops.zeus.server.datacarrier.consumer.BulkConsumePool;
+import com.zmops.zeus.server.datacarrier.consumer.ConsumerPoolFactory;
+import com.zmops.zeus.server.datacarrier.consumer.IConsumer;
 import com.zmops.zeus.server.library.util.CollectionUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.influxdb.dto.BatchPoints;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 记录先进入 DataCarrier，消费线程按批交给 {@link InfluxLineWriter} 以行协议写入
+ */
 @Slf4j
 public class BatchDAO implements IBatchDAO {
-    private final InfluxClient client;
 
-    public BatchDAO(InfluxClient client) {
-        this.client = client;
+    private static final String NAME = "INFLUXDB_ASYNCHRONOUS_BATCH_PERSISTENT";
+
+    private final InfluxLineWriter writer;
+
+    private final DataCarrier<PrepareRequest> dataCarrier;
+
+    private final PersistenceTracker tracker = new PersistenceTracker();
+
+    /**
+     * 遥测模块启动前不采集
+     */
+    private volatile PipelineMetrics.Stage flushStage = PipelineMetrics.noop();
+
+    public BatchDAO(InfluxLineWriter writer) {
+        this.writer = writer;
+
+        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(NAME, 1, 20);
+        try {
+            ConsumerPoolFactory.INSTANCE.createIfAbsent(NAME, creator);
+        } catch (Exception e) {
+            throw new UnexpectedException(e.getMessage(), e);
+        }
+
+        this.dataCarrier = new DataCarrier<>(4, 2500);
+        this.dataCarrier.consume(ConsumerPoolFactory.INSTANCE.get(NAME), new InfluxBatchConsumer(this));
+    }
+
+    /**
+     * 遥测模块就绪后由 InfluxStorageProvider 在启动时调用
+     */
+    public void setMetricsCreator(MetricsCreator metricsCreator) {
+        this.flushStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.STORAGE_FLUSH, "influxdb", PipelineMetrics.ALL);
     }
 
     @Override
     public void insert(InsertRequest insertRequest) {
-        client.write(((InfluxInsertRequest) insertRequest).getPoint());
+        if (insertRequest instanceof PersistenceTracker.Tracked) {
+            tracker.enter((PersistenceTracker.Tracked) insertRequest);
+        }
+        this.dataCarrier.produce(insertRequest);
+    }
+
+    @Override
+    public boolean awaitPersisted(long timeoutMillis) throws InterruptedException {
+        return tracker.await(timeoutMillis);
     }
 
     @Override
@@ -51,11 +99,50 @@ public class BatchDAO implements IBatchDAO {
             log.debug("batch sql statements execute, data size: {}", prepareRequests.size());
         }
 
-        final BatchPoints.Builder builder = BatchPoints.builder();
-        prepareRequests.forEach(e -> {
-            builder.point(((InfluxInsertRequest) e).getPoint());
-        });
+        PipelineMetrics.Stage stage = flushStage;
+        long start = stage.start();
+
+        List<InfluxInsertRequest> requests = new ArrayList<>(prepareRequests.size());
+        for (PrepareRequest prepareRequest : prepareRequests) {
+            requests.add((InfluxInsertRequest) prepareRequest);
+        }
+        int written;
+        try {
+            written = writer.write(requests);
+        } finally {
+            // 写入失败的已经进入死信，也算处理完
+            tracker.exit(requests);
+        }
+
+        stage.finish(start, written);
+        stage.error(requests.size() - written);
+    }
+
+    private static class InfluxBatchConsumer implements IConsumer<PrepareRequest> {
+
+        private final BatchDAO batchDAO;
+
+        private InfluxBatchConsumer(BatchDAO batchDAO) {
+            this.batchDAO = batchDAO;
+        }
+
+        @Override
+        public void init() {
+
+        }
+
+        @Override
+        public void consume(List<PrepareRequest> prepareRequests) {
+            batchDAO.flush(prepareRequests);
+        }
+
+        @Override
+        public void onError(List<PrepareRequest> prepareRequests, Throwable t) {
+            log.error(t.getMessage(), t);
+        }
 
-        client.write(builder.build());
+        @Override
+        public void onExit() {
+        }
     }
 }
@@ -18,60 +18,159 @@
 
 package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.dao;
 
-import com.google.common.collect.Maps;
 import com.zmops.zeus.iot.server.client.request.InsertRequest;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.StrHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.TextHistory;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.Trends;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.UIntTrends;
+import com.zmops.zeus.iot.server.core.storage.PersistenceTracker;
 import com.zmops.zeus.iot.server.core.storage.StorageData;
 import com.zmops.zeus.iot.server.core.storage.model.Model;
-import org.influxdb.dto.Point;
-
-import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.Setter;
 
 /**
- * InfluxDB Point wrapper.
+ * 一条待写入的记录，由 {@link #appendTo(StringBuilder)} 直接序列化为 InfluxDB 行协议：
+ * <pre>
+ * h_10001,deviceid=dev,itemid=10001 value=1.5 1638000000000
+ * </pre>
+ * 时间戳精度为毫秒，写入时使用 precision=ms。
  */
-public class InfluxInsertRequest implements InsertRequest {
-    private final Point.Builder       builder;
-    private final Map<String, Object> fields = Maps.newHashMap();
+public class InfluxInsertRequest implements InsertRequest, PersistenceTracker.Tracked {
+
+    private final String modelName;
+
+    private final StorageData storageData;
+
+    @Getter
+    @Setter
+    private PersistenceTracker.Epoch epoch;
 
     public <T extends StorageData> InfluxInsertRequest(Model model, T storageData) {
-        String  deviceid = "";
-        Integer itemid   = 0;
-        String  value    = "";
-        Long    time     = 0L;
+        this.modelName = model.getName();
+        this.storageData = storageData;
+    }
+
+    /**
+     * 追加一行（不含换行符）
+     *
+     * @return 记录不完整或者数值无法转换时返回 false，buffer 不变
+     */
+    public boolean appendTo(StringBuilder line) {
+        int mark = line.length();
+        try {
+            switch (modelName) {
+                case "history":
+                    History history = (History) storageData;
+                    appendSeries(line, "h_", history.getDeviceId());
+                    appendDouble(line.append(" value="), history.getValue());
+                    return appendTime(line, history.getClock(), mark);
+                case "history_uint":
+                    UIntHistory uihistory = (UIntHistory) storageData;
+                    // 与改造前一致，整数历史数据也写入 h_<itemid>，已有数据和查询不受影响
+                    appendSeries(line, "h_", uihistory.getDeviceId());
+                    appendLong(line.append(" value="), uihistory.getValue());
+                    return appendTime(line, uihistory.getClock(), mark);
+                case "history_text":
+                    TextHistory textHistory = (TextHistory) storageData;
+                    appendSeries(line, "htxt_", textHistory.getDeviceId());
+                    appendString(line.append(" value="), textHistory.getValue());
+                    return appendTime(line, textHistory.getClock(), mark);
+                case "history_str":
+                    StrHistory strHistory = (StrHistory) storageData;
+                    appendSeries(line, "hstr_", strHistory.getDeviceId());
+                    appendString(line.append(" value="), strHistory.getValue());
+                    return appendTime(line, strHistory.getClock(), mark);
+                case "trends":
+                    Trends trends = (Trends) storageData;
+                    appendSeries(line, "t_", trends.getDeviceId());
+                    line.append(" value_min=").append(finite(trends.getValueMin()))
+                            .append(",value_avg=").append(finite(trends.getValueAvg()))
+                            .append(",value_max=").append(finite(trends.getValueMax()));
+                    return appendTime(line, trends.getClock(), mark);
+                case "trends_uint":
+                    UIntTrends uintTrends = (UIntTrends) storageData;
+                    appendSeries(line, "tuint_", uintTrends.getDeviceId());
+                    line.append(" value_min=").append(uintTrends.getValueMin().longValue()).append('i')
+                            .append(",value_avg=").append(uintTrends.getValueAvg().longValue()).append('i')
+                            .append(",value_max=").append(uintTrends.getValueMax().longValue()).append('i');
+                    return appendTime(line, uintTrends.getClock(), mark);
+                default:
+                    return false;
+            }
+        } catch (NullPointerException | NumberFormatException e) {
+            line.setLength(mark);
+            return false;
+        }
+    }
+
+    /**
+     * measurement,deviceid=..,itemid=..，deviceid 为空时不写该标签
+     */
+    private void appendSeries(StringBuilder line, String prefix, String deviceId) {
+        Integer itemid = storageData.itemid();
+        line.append(prefix).append(itemid);
+        if (deviceId != null && !deviceId.isEmpty()) {
+            line.append(",deviceid=");
+            escapeTag(line, deviceId);
+        }
+        line.append(",itemid=").append(itemid);
+    }
 
-        if (model.getName().equals("history")) {
+    private static boolean appendTime(StringBuilder line, Long clock, int mark) {
+        if (clock == null) {
+            line.setLength(mark);
+            return false;
+        }
+        line.append(' ').append(clock.longValue());
+        return true;
+    }
 
-            History history = (History) storageData;
-            deviceid = history.getDeviceId();
-            itemid = history.getItemid();
-            value = history.getValue();
-            time = history.getClock();
-            fields.put("value", Double.parseDouble(value));
-        } else {
-            UIntHistory uihistory = (UIntHistory) storageData;
-            deviceid = uihistory.getDeviceId();
-            itemid = uihistory.getItemid();
-            value = uihistory.getValue();
-            time = uihistory.getClock();
-            fields.put("value", Long.parseLong(value));
+    private static void appendDouble(StringBuilder line, String value) {
+        line.append(finite(Double.parseDouble(value)));
+    }
+
+    private static double finite(Double value) {
+        if (value.isNaN() || value.isInfinite()) {
+            throw new NumberFormatException("not a finite number: " + value);
         }
+        return value;
+    }
 
-        builder = Point.measurement("h_" + itemid)
-                .fields(fields);
-        builder.tag("deviceid", deviceid);
-        builder.tag("itemid", itemid + "");
-        builder.time(time, TimeUnit.NANOSECONDS);
+    private static void appendLong(StringBuilder line, String value) {
+        line.append(Long.parseLong(value.trim())).append('i');
     }
 
-    public InfluxInsertRequest time(long time, TimeUnit unit) {
-        builder.time(time, unit);
-        return this;
+    /**
+     * 字符串字段值：双引号包围，转义 " 和 \
+     */
+    private static void appendString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+        line.append('"');
     }
 
-    public Point getPoint() {
-        return builder.build();
+    /**
+     * 标签值：转义逗号、等号、空格；换行在行协议里无法转义，替换为空格
+     */
+    private static void escapeTag(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r') {
+                c = ' ';
+            }
+            if (c == ',' || c == '=' || c == ' ') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
     }
-}
\ No newline at end of file
+}
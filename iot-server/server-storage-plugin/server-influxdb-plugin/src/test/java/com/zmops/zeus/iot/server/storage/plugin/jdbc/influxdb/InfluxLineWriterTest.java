@@ -0,0 +1,219 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.StrHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
+import com.zmops.zeus.iot.server.core.analysis.record.Record;
+import com.zmops.zeus.iot.server.core.storage.model.Model;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.influxdb.dao.InfluxInsertRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地 HTTP 桩模拟 InfluxDB /write，按顺序返回预设的状态码
+ */
+public class InfluxLineWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    /**
+     * 每个请求的 gzip 解压后的行
+     */
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    /**
+     * 依次返回的状态码，为空时返回 204
+     */
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+
+    private Path deadLetterDir;
+
+    private InfluxStorageConfig config;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/write", this::handle);
+        server.start();
+
+        deadLetterDir = folder.getRoot().toPath().resolve("deadletter");
+        config = new InfluxStorageConfig();
+        config.setUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setDatabase("zeus_data");
+        config.setWriteTimeout(2000);
+        config.setMaxRetries(2);
+        config.setRetryBackoff(1);
+        config.setMaxRetryBackoff(10);
+        config.setDeadLetterPath(deadLetterDir.toString());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void writesGzippedLineProtocol() {
+        int written = new InfluxLineWriter(config).write(Arrays.asList(
+                request("history", history(new History(), 10001, "dev 1", "1.5")),
+                request("history_uint", history(new UIntHistory(), 10002, "dev,2", "42")),
+                request("history_str", history(new StrHistory(), 10003, "dev3", "say \"hi\""))));
+
+        assertEquals(3, written);
+        assertEquals(1, requests.size());
+        assertEquals(Arrays.asList(
+                "h_10001,deviceid=dev\\ 1,itemid=10001 value=1.5 1637000000000",
+                "h_10002,deviceid=dev\\,2,itemid=10002 value=42i 1637000000000",
+                "hstr_10003,deviceid=dev3,itemid=10003 value=\"say \\\"hi\\\"\" 1637000000000"), requests.get(0));
+        assertEquals("db=zeus_data&precision=ms", queries.get(0));
+    }
+
+    @Test
+    public void emptyDeviceIdSkipsTagAndBackslashIsKept() {
+        new InfluxLineWriter(config).write(Arrays.asList(
+                request("history", history(new History(), 10001, "", "1.5")),
+                request("history", history(new History(), 10002, "dev\\", "2.5"))));
+
+        assertEquals(Arrays.asList(
+                "h_10001,itemid=10001 value=1.5 1637000000000",
+                "h_10002,deviceid=dev\\,itemid=10002 value=2.5 1637000000000"), requests.get(0));
+    }
+
+    @Test
+    public void splitsRequestsAtChunkSize() {
+        config.setWriteChunkSize(200);
+        int written = new InfluxLineWriter(config).write(histories(20));
+
+        assertEquals(20, written);
+        assertTrue(requests.size() > 1);
+        assertEquals(20, requests.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    public void retriesServerErrorsAndThrottling() {
+        statuses.add(503);
+        statuses.add(429);
+
+        int written = new InfluxLineWriter(config).write(histories(5));
+
+        assertEquals(5, written);
+        assertEquals(3, requests.size());
+        assertFalse(Files.exists(deadLetterDir));
+    }
+
+    @Test
+    public void rejectedPointsAreNotRetriedOrDeadLettered() {
+        statuses.add(400);
+
+        int written = new InfluxLineWriter(config).write(histories(5));
+
+        assertEquals(0, written);
+        assertEquals(1, requests.size());
+        assertFalse(Files.exists(deadLetterDir));
+    }
+
+    @Test
+    public void exhaustedRetriesGoToDeadLetterAndReplay() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            statuses.add(503);
+        }
+        InfluxLineWriter writer = new InfluxLineWriter(config);
+
+        assertEquals(0, writer.write(histories(5)));
+        assertEquals(3, requests.size());
+        assertEquals(5, Files.readAllLines(deadLetterDir.resolve("influxdb.dlq")).size());
+
+        requests.clear();
+        assertEquals(5, new InfluxLineWriter(config).replayDeadLetter());
+        assertEquals(1, requests.size());
+        assertEquals(5, requests.get(0).size());
+        try (Stream<Path> files = Files.list(deadLetterDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void failedReplayKeepsPointsInDeadLetter() throws IOException {
+        new InfluxDeadLetter(deadLetterDir).append("h_1,deviceid=d,itemid=1 value=1 1\n", 1);
+        for (int i = 0; i < 3; i++) {
+            statuses.add(503);
+        }
+
+        assertEquals(0, new InfluxLineWriter(config).replayDeadLetter());
+        try (Stream<Path> files = Files.list(deadLetterDir)) {
+            assertEquals(Arrays.asList("influxdb.dlq"),
+                    files.map(file -> file.getFileName().toString()).collect(Collectors.toList()));
+        }
+        assertEquals(1, Files.readAllLines(deadLetterDir.resolve("influxdb.dlq")).size());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(exchange.getRequestBody()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        requests.add(lines);
+        queries.add(exchange.getRequestURI().getRawQuery());
+
+        Integer status = statuses.poll();
+        if (status != null && status == 503) {
+            // 等待时间不超过 maxRetryBackoff；Retry-After: 0 时 OkHttp 自己会重发一次，这里不用 0
+            exchange.getResponseHeaders().add("Retry-After", "1");
+        }
+        exchange.sendResponseHeaders(status == null ? 204 : status, -1);
+        exchange.close();
+    }
+
+    private static List<InfluxInsertRequest> histories(int count) {
+        List<InfluxInsertRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(request("history", history(new History(), 20000 + i, "device-" + i, String.valueOf(i))));
+        }
+        return requests;
+    }
+
+    private static InfluxInsertRequest request(String model, Record record) {
+        return new InfluxInsertRequest(new Model(model), record);
+    }
+
+    private static Record history(Record record, int itemid, String deviceId, String value) {
+        record.setItemid(itemid);
+        record.setValue(deviceId, value, 1637000000000L);
+        return record;
+    }
+}
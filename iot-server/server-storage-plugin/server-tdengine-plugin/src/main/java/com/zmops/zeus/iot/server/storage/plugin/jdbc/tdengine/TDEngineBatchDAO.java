@@ -1,13 +1,18 @@
 package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zmops.zeus.iot.server.core.UnexpectedException;
 import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
+import com.zmops.zeus.iot.server.core.storage.PersistenceTracker;
 import com.zmops.zeus.iot.server.client.jdbc.JDBCClientException;
 import com.zmops.zeus.iot.server.client.jdbc.hikaricp.JDBCHikariCPClient;
 import com.zmops.zeus.iot.server.client.request.InsertRequest;
 import com.zmops.zeus.iot.server.client.request.PrepareRequest;
-import com.zmops.zeus.iot.server.storage.plugin.jdbc.SQLBuilder;
-import com.zmops.zeus.iot.server.storage.plugin.jdbc.SQLExecutor;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.telemetry.api.CounterMetrics;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsCreator;
+import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
+import com.zmops.zeus.iot.server.telemetry.api.PipelineMetrics;
 import com.zmops.zeus.server.datacarrier.DataCarrier;
 import com.zmops.zeus.server.datacarrier.consumer.BulkConsumePool;
 import com.zmops.zeus.server.datacarrier.consumer.ConsumerPoolFactory;
@@ -15,40 +20,96 @@ import com.zmops.zeus.server.datacarrier.consumer.IConsumer;
 import com.zmops.zeus.server.library.util.CollectionUtils;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * @author nantian created at 2021/9/4 0:31
+ * <p>
+ * 写入线程池有界，队列满时由 DataCarrier 消费线程自己执行写入，消费变慢后 DataCarrier 写满阻塞
+ * RecordPersistentWorker，以此向上游施加背压。
+ * <p>
+ * 写入失败按指数退避加随机抖动重试，语句过长时对半拆分后分别写入，重试用尽的数据写入 {@link TDEngineDeadLetter}。
+ * 启动时回放死信走同样的重试和拆分。
+ * <p>
+ * 重试和回放可能重复写入部分已成功的子表。TDengine 每个子表同一时间戳只保留一行，不会产生重复行。
  */
 @Slf4j
 public class TDEngineBatchDAO implements IBatchDAO {
 
+    private static final String NAME = "TDENGINE_ASYNCHRONOUS_BATCH_PERSISTENT";
+
     private final JDBCHikariCPClient tdengineClient;
     private final DataCarrier<PrepareRequest> dataCarrier;
+    private final TDEngineBatchWriter batchWriter;
+    private final TDEngineDeadLetter deadLetter;
+    private final TDEngineStorageConfig config;
+    private final PersistenceTracker tracker = new PersistenceTracker();
+
+    private final ThreadPoolExecutor executor;
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private CounterMetrics writeRowsCounter;
+    private CounterMetrics retryCounter;
+    private CounterMetrics failedRowsCounter;
+    private PipelineMetrics.Stage flushStage;
 
-    public TDEngineBatchDAO(JDBCHikariCPClient client) {
+    public TDEngineBatchDAO(JDBCHikariCPClient client, TDEngineStorageConfig config) {
         this.tdengineClient = client;
+        this.config = config;
+        this.batchWriter = new TDEngineBatchWriter(config.isUseStmt(), config.getMaxSqlLength());
+        this.deadLetter = new TDEngineDeadLetter(Paths.get(config.getDeadLetterPath()));
 
-        String name = "TDENGINE_ASYNCHRONOUS_BATCH_PERSISTENT";
+        this.executor = new ThreadPoolExecutor(config.getWriteThreads(), config.getWriteThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getWriteQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("tdengine-writer-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
 
-        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(name, 1, 20);
+        BulkConsumePool.Creator creator = new BulkConsumePool.Creator(NAME, 1, 20);
         try {
-            ConsumerPoolFactory.INSTANCE.createIfAbsent(name, creator);
+            ConsumerPoolFactory.INSTANCE.createIfAbsent(NAME, creator);
         } catch (Exception e) {
             throw new UnexpectedException(e.getMessage(), e);
         }
 
+        // 默认阻塞策略，队列满时阻塞生产者
         this.dataCarrier = new DataCarrier<>(4, 2500);
-        this.dataCarrier.consume(ConsumerPoolFactory.INSTANCE.get(name), new TDEngineBatchConsumer(this));
     }
 
+    /**
+     * 开始消费，在数据库连接建立后调用；之前写入的数据暂存在 DataCarrier 中
+     */
+    public void start(MetricsCreator metricsCreator) {
+        writeRowsCounter = metricsCreator.createCounter(
+                "tdengine_write_rows_count", "The count number of rows written to tdengine",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("tdengine_write_rows_count")
+        );
+        retryCounter = metricsCreator.createCounter(
+                "tdengine_write_retry_count", "The count number of tdengine batch write retries",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("tdengine_write_retry_count")
+        );
+        failedRowsCounter = metricsCreator.createCounter(
+                "tdengine_write_failed_rows_count", "The count number of rows moved to the tdengine dead letter",
+                new MetricsTag.Keys("name"),
+                new MetricsTag.Values("tdengine_write_failed_rows_count")
+        );
+        flushStage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.STORAGE_FLUSH, "tdengine", PipelineMetrics.ALL);
+
+        executor.execute(this::replayDeadLetter);
+
+        this.dataCarrier.consume(ConsumerPoolFactory.INSTANCE.get(NAME), new TDEngineBatchConsumer(this));
+    }
 
     @Override
     public void flush(List<PrepareRequest> prepareRequests) {
@@ -60,41 +121,122 @@ public class TDEngineBatchDAO implements IBatchDAO {
             log.debug("batch sql statements execute, data size: {}", prepareRequests.size());
         }
 
-        SQLBuilder execSql = new SQLBuilder(" INSERT INTO ");
+        List<TDEngineInsertRequest> requests = new ArrayList<>(prepareRequests.size());
         for (PrepareRequest prepareRequest : prepareRequests) {
-            SQLExecutor sqlExecutor = (SQLExecutor) prepareRequest;
-            execSql.appendLine(sqlExecutor.getSql());
+            requests.add((TDEngineInsertRequest) prepareRequest);
         }
-        execSql.append(";");
 
-        executor.submit(() -> {
-            PreparedStatement preparedStatement;
-            Connection connection = null;
+        executor.execute(() -> {
+            long start = flushStage.start();
             try {
-                connection = tdengineClient.getConnection();
-                preparedStatement = connection.prepareStatement(execSql.toString());
-                preparedStatement.execute();
-            } catch (SQLException | JDBCClientException e) {
-                e.printStackTrace();
+                writeWithRetry(requests);
             } finally {
-                try {
-                    if (connection != null) {
-                        connection.close();
-                    }
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+                // 写入失败的已经进入死信，也算处理完
+                tracker.exit(requests);
             }
+            flushStage.observe(System.nanoTime() - start);
         });
-
-
     }
 
     @Override
     public void insert(InsertRequest insertRequest) {
+        if (insertRequest instanceof PersistenceTracker.Tracked) {
+            tracker.enter((PersistenceTracker.Tracked) insertRequest);
+        }
         this.dataCarrier.produce(insertRequest);
     }
 
+    @Override
+    public boolean awaitPersisted(long timeoutMillis) throws InterruptedException {
+        return tracker.await(timeoutMillis);
+    }
+
+    void writeWithRetry(List<TDEngineInsertRequest> requests) {
+        writeWithRetry(requests, this::toDeadLetter);
+    }
+
+    /**
+     * @param failed 接收重试用尽仍然失败的行，拆分后可能被调用多次
+     * @return 是否全部写入成功
+     */
+    private boolean writeWithRetry(List<TDEngineInsertRequest> requests, Consumer<List<TDEngineInsertRequest>> failed) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                write(requests);
+                writeRowsCounter.inc(requests.size());
+                flushStage.count(requests.size());
+                return true;
+            } catch (SQLException | JDBCClientException e) {
+                if (requests.size() > 1 && TDEngineBatchWriter.isStatementTooLong(e)) {
+                    log.warn("tdengine statement of {} rows is too long, split and retry", requests.size());
+                    int half = requests.size() / 2;
+                    boolean first = writeWithRetry(requests.subList(0, half), failed);
+                    boolean second = writeWithRetry(requests.subList(half, requests.size()), failed);
+                    return first && second;
+                }
+
+                if (attempt >= config.getMaxRetries()) {
+                    log.error("tdengine batch insert failed after {} retries, {} rows go to dead letter",
+                            attempt, requests.size(), e);
+                    failed.accept(requests);
+                    return false;
+                }
+
+                long backoff = backoff(attempt);
+                log.warn("tdengine batch insert failed, retry in {} ms: {}", backoff, e.getMessage());
+                retryCounter.inc();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    failed.accept(requests);
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void write(List<TDEngineInsertRequest> requests) throws SQLException, JDBCClientException {
+        try (Connection connection = tdengineClient.getConnection()) {
+            batchWriter.write(connection, requests);
+        }
+    }
+
+    private void toDeadLetter(List<TDEngineInsertRequest> requests) {
+        failedRowsCounter.inc(requests.size());
+        flushStage.error(requests.size());
+        deadLetter.append(requests);
+    }
+
+    /**
+     * 指数退避，在 [delay/2, delay] 之间随机，避免多个写线程同时重试
+     */
+    private long backoff(int attempt) {
+        long delay = Math.min(config.getMaxRetryBackoff(), config.getRetryBackoff() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    /**
+     * 回放上次运行留下的死信数据。每批按 {@link #writeWithRetry} 重试和拆分，仍有失败的行时整批写回死信并停止回放
+     *
+     * @return 回放成功的行数
+     */
+    int replayDeadLetter() {
+        try {
+            return deadLetter.replay(this::replayBatch, config.getDeadLetterReplayBatchSize());
+        } catch (IOException e) {
+            log.error("replay tdengine dead letter failed", e);
+            return 0;
+        }
+    }
+
+    private void replayBatch(List<TDEngineInsertRequest> requests) throws JDBCClientException {
+        int[] failedRows = new int[1];
+        if (!writeWithRetry(requests, failed -> failedRows[0] += failed.size())) {
+            throw new JDBCClientException(failedRows[0] + " of " + requests.size() + " rows failed after retries");
+        }
+    }
+
     private static class TDEngineBatchConsumer implements IConsumer<PrepareRequest> {
 
         private final TDEngineBatchDAO tdengineBatchDAO;
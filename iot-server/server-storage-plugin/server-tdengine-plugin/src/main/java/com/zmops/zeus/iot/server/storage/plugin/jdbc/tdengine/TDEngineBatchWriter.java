@@ -0,0 +1,315 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.taosdata.jdbc.TSDBPreparedStatement;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineTable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 历史 / 趋势数据批量写入：一批数据按子表分组，每个子表的标签只发送一次，数据合并到同一个 VALUES 子句。
+ * <p>
+ * JNI 驱动（jdbc:TAOS）使用 stmt 参数绑定接口，每个超级表一条 {@code INSERT INTO ? USING stable TAGS(?, ?) VALUES(?, ?...)}，
+ * 按列绑定后一次执行；驱动不支持时（如 RESTful 驱动）退回 SQL 文本：
+ * <pre>
+ * INSERT INTO h_1 USING history TAGS ('dev','1') VALUES (t1,v1) (t2,v2) h_2 USING history TAGS ('dev','2') VALUES (t1,v1) ...
+ * </pre>
+ * SQL 文本超过 maxSqlLength 时拆成多条语句，字符串按 TDengine 规则转义。
+ */
+@Slf4j
+public class TDEngineBatchWriter {
+
+    private static final String INSERT_INTO = "INSERT INTO";
+
+    /**
+     * TSDB_CODE_TSC_EXCEED_SQL_LIMIT，语句超过服务端 maxSQLLength。
+     * JNI 驱动的 vendorCode 带模块标志位（0x80000219），RESTful 驱动只有低 16 位
+     */
+    static final int CODE_SQL_TOO_LONG = 0x0219;
+
+    private final int maxSqlLength;
+
+    private volatile boolean stmtEnabled;
+
+    public TDEngineBatchWriter(boolean stmtEnabled, int maxSqlLength) {
+        this.stmtEnabled = stmtEnabled;
+        this.maxSqlLength = maxSqlLength;
+    }
+
+    public void write(Connection connection, List<TDEngineInsertRequest> requests) throws SQLException {
+        Collection<SubTable> subTables = group(requests);
+        if (subTables.isEmpty()) {
+            return;
+        }
+
+        if (stmtEnabled) {
+            try {
+                if (writeStmt(connection, subTables)) {
+                    return;
+                }
+            } catch (LinkageError e) {
+                // 驱动版本没有 stmt 接口，之后都用 SQL 文本；已写入的子表重复写同一时间戳会被覆盖
+                log.warn("tdengine stmt api is unavailable, fallback to sql text: {}", e.toString());
+                stmtEnabled = false;
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : toSql(subTables)) {
+                statement.executeUpdate(sql);
+            }
+        }
+    }
+
+    /**
+     * 按驱动错误码判断语句是否过长，沿 cause 查找（连接池把 SQLException 包在 JDBCClientException 中）
+     */
+    static boolean isStatementTooLong(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && (((SQLException) cause).getErrorCode() & 0xFFFF) == CODE_SQL_TOO_LONG) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按子表分组，数值转换失败的行丢弃
+     */
+    static Collection<SubTable> group(List<TDEngineInsertRequest> requests) {
+        Map<String, SubTable> subTables = new LinkedHashMap<>();
+        int invalid = 0;
+
+        for (TDEngineInsertRequest request : requests) {
+            Object[] values = parseValues(request);
+            if (values == null || request.getClock() == null) {
+                invalid++;
+                continue;
+            }
+            subTables.computeIfAbsent(request.subTable(), name -> new SubTable(name, request))
+                    .add(request.getClock(), values);
+        }
+
+        if (invalid > 0) {
+            log.warn("drop {} tdengine rows with invalid clock or value", invalid);
+        }
+        return subTables.values();
+    }
+
+    /**
+     * @return 列数不对或者任意一列转换失败时返回 null
+     */
+    private static Object[] parseValues(TDEngineInsertRequest request) {
+        String[] values = request.getValues();
+        TDEngineTable table = request.getTable();
+        if (values == null || values.length != table.getColumns()) {
+            return null;
+        }
+
+        Object[] parsed = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            parsed[i] = parseValue(table, values[i]);
+            if (parsed[i] == null) {
+                return null;
+            }
+        }
+        return parsed;
+    }
+
+    private static Object parseValue(TDEngineTable table, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            switch (table.getValueType()) {
+                case DOUBLE:
+                    double d = Double.parseDouble(value);
+                    return Double.isNaN(d) || Double.isInfinite(d) ? null : d;
+                case BIGINT:
+                    return Long.parseLong(value.trim());
+                default:
+                    return value;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 驱动不支持 stmt 接口时返回 false，此时没有写入任何数据
+     */
+    @SuppressWarnings("unchecked")
+    private boolean writeStmt(Connection connection, Collection<SubTable> subTables) throws SQLException {
+        Map<TDEngineTable, List<SubTable>> byStable = new LinkedHashMap<>();
+        for (SubTable subTable : subTables) {
+            byStable.computeIfAbsent(subTable.table, t -> new ArrayList<>()).add(subTable);
+        }
+
+        for (Map.Entry<TDEngineTable, List<SubTable>> entry : byStable.entrySet()) {
+            TDEngineTable table = entry.getKey();
+            StringBuilder sql = new StringBuilder(INSERT_INTO).append(" ? USING ").append(table.getStable())
+                    .append(" TAGS(?, ?) VALUES(?");
+            for (int column = 0; column < table.getColumns(); column++) {
+                sql.append(", ?");
+            }
+            sql.append(')');
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+                if (!preparedStatement.isWrapperFor(TSDBPreparedStatement.class)) {
+                    log.info("tdengine driver does not support stmt api, fallback to sql text");
+                    stmtEnabled = false;
+                    return false;
+                }
+
+                TSDBPreparedStatement stmt = preparedStatement.unwrap(TSDBPreparedStatement.class);
+                try {
+                    for (SubTable subTable : entry.getValue()) {
+                        stmt.setTableName(subTable.name);
+                        stmt.setTagString(0, subTable.deviceId);
+                        stmt.setTagString(1, subTable.itemid);
+                        stmt.setTimestamp(0, subTable.clocks);
+                        for (int column = 0; column < subTable.columns.length; column++) {
+                            ArrayList<?> values = subTable.columns[column];
+                            switch (table.getValueType()) {
+                                case DOUBLE:
+                                    stmt.setDouble(column + 1, (ArrayList<Double>) values);
+                                    break;
+                                case BIGINT:
+                                    stmt.setLong(column + 1, (ArrayList<Long>) values);
+                                    break;
+                                default:
+                                    stmt.setNString(column + 1, (ArrayList<String>) values, table.getValueLength());
+                            }
+                        }
+                        stmt.columnDataAddBatch();
+                    }
+                    stmt.columnDataExecuteBatch();
+                } finally {
+                    stmt.columnDataCloseBatch();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成 SQL 文本，单条语句不超过 maxSqlLength（单行数据本身超长时除外），
+     * 子表拆到下一条语句时重新写表头
+     */
+    List<String> toSql(Collection<SubTable> subTables) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(Math.min(maxSqlLength, 64 * 1024)).append(INSERT_INTO);
+
+        for (SubTable subTable : subTables) {
+            boolean headerWritten = false;
+            for (int i = 0; i < subTable.clocks.size(); i++) {
+                int mark = sql.length();
+                if (!headerWritten) {
+                    appendHeader(sql, subTable);
+                }
+                appendValues(sql, subTable, i);
+
+                if (sql.length() > maxSqlLength && mark > INSERT_INTO.length()) {
+                    sql.setLength(mark);
+                    statements.add(sql.toString());
+
+                    sql.setLength(INSERT_INTO.length());
+                    appendHeader(sql, subTable);
+                    appendValues(sql, subTable, i);
+                }
+                headerWritten = true;
+            }
+        }
+
+        if (sql.length() > INSERT_INTO.length()) {
+            statements.add(sql.toString());
+        }
+        return statements;
+    }
+
+    private static void appendHeader(StringBuilder sql, SubTable subTable) {
+        sql.append(' ').append(subTable.name)
+                .append(" USING ").append(subTable.table.getStable())
+                .append(" TAGS (");
+        appendString(sql, subTable.deviceId);
+        sql.append(',');
+        appendString(sql, subTable.itemid);
+        sql.append(") VALUES");
+    }
+
+    private static void appendValues(StringBuilder sql, SubTable subTable, int index) {
+        sql.append(" (").append(subTable.clocks.get(index));
+        for (ArrayList<Object> column : subTable.columns) {
+            Object value = column.get(index);
+            sql.append(',');
+            if (value instanceof String) {
+                appendString(sql, (String) value);
+            } else {
+                sql.append(value);
+            }
+        }
+        sql.append(')');
+    }
+
+    /**
+     * 单引号字符串，转义反斜杠和单引号
+     */
+    static void appendString(StringBuilder sql, String value) {
+        sql.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '\'') {
+                sql.append('\\');
+            }
+            sql.append(c);
+        }
+        sql.append('\'');
+    }
+
+    /**
+     * 一个子表在本批次内的数据，按列存放
+     */
+    @SuppressWarnings("unchecked")
+    static class SubTable {
+
+        private final String name;
+
+        private final TDEngineTable table;
+
+        private final String deviceId;
+
+        private final String itemid;
+
+        private final ArrayList<Long> clocks = new ArrayList<>();
+
+        private final ArrayList<Object>[] columns;
+
+        SubTable(String name, TDEngineInsertRequest request) {
+            this.name = name;
+            this.table = request.getTable();
+            this.deviceId = request.getDeviceId() == null ? "" : request.getDeviceId();
+            this.itemid = String.valueOf(request.getItemid());
+
+            this.columns = new ArrayList[table.getColumns()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ArrayList<>();
+            }
+        }
+
+        void add(long clock, Object[] values) {
+            clocks.add(clock);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(values[i]);
+            }
+        }
+    }
+}
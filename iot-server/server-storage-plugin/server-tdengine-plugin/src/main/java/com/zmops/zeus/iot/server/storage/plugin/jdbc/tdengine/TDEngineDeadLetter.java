@@ -0,0 +1,218 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineTable;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 重试后仍写入失败的数据，按行追加到本地死信文件，之后由服务启动或者
+ * {@link TDEngineDeadLetterReplay} 命令回放。
+ * <p>
+ * 每行一条数据：超级表枚举名、itemid、deviceid、clock、各列的值，用 TAB 分隔，字段内的 \ TAB 换行 转义。
+ * 回放前先把当前文件原子改名为 *.replay，回放期间新的失败数据写入新文件；回放失败的剩余数据写回死信文件。
+ */
+@Slf4j
+public class TDEngineDeadLetter {
+
+    private static final String ACTIVE_FILE = "tdengine.dlq";
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final Path dir;
+
+    public TDEngineDeadLetter(Path dir) {
+        this.dir = dir;
+    }
+
+    public synchronized void append(List<TDEngineInsertRequest> requests) {
+        try {
+            Files.createDirectories(dir);
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(ACTIVE_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (TDEngineInsertRequest request : requests) {
+                    writer.write(encode(request));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            log.error("write tdengine dead letter failed, {} rows lost", requests.size(), e);
+        }
+    }
+
+    /**
+     * 回放全部死信数据，遇到写入失败即停止
+     *
+     * @return 回放成功的行数
+     */
+    public int replay(Writer writer, int batchSize) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+
+        synchronized (this) {
+            Path active = dir.resolve(ACTIVE_FILE);
+            if (Files.exists(active)) {
+                Files.move(active, dir.resolve("tdengine-" + System.currentTimeMillis() + REPLAY_SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        // 包括上次回放中断留下的文件
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + REPLAY_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+
+        int replayed = 0;
+        for (Path file : files) {
+            int rows = replayFile(file, writer, batchSize);
+            if (rows < 0) {
+                break;
+            }
+            replayed += rows;
+        }
+        return replayed;
+    }
+
+    /**
+     * @return 回放行数，写入失败时返回 -1
+     */
+    private int replayFile(Path file, Writer writer, int batchSize) throws IOException {
+        int replayed = 0;
+        boolean failed = false;
+        List<TDEngineInsertRequest> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                TDEngineInsertRequest request = decode(line);
+                if (request == null) {
+                    log.warn("skip broken tdengine dead letter line in {}", file);
+                    continue;
+                }
+                batch.add(request);
+                if (batch.size() >= batchSize) {
+                    failed = replayBatch(file, writer, batch, failed);
+                    replayed += failed ? 0 : batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            failed = replayBatch(file, writer, batch, failed);
+            replayed += failed ? 0 : batch.size();
+        }
+
+        Files.delete(file);
+        log.info("replayed {} rows from tdengine dead letter {}", replayed, file);
+        return failed ? -1 : replayed;
+    }
+
+    /**
+     * 之前的批次已经失败时不再尝试，直接写回死信文件
+     *
+     * @return 是否失败
+     */
+    private boolean replayBatch(Path file, Writer writer, List<TDEngineInsertRequest> batch, boolean failed) {
+        if (!failed) {
+            try {
+                writer.write(batch);
+                return false;
+            } catch (Exception e) {
+                log.warn("replay tdengine dead letter {} failed: {}", file, e.getMessage());
+            }
+        }
+        append(batch);
+        return true;
+    }
+
+    static String encode(TDEngineInsertRequest request) {
+        StringBuilder line = new StringBuilder(64);
+        escape(line, request.getTable().name()).append('\t');
+        escape(line, String.valueOf(request.getItemid())).append('\t');
+        escape(line, request.getDeviceId() == null ? "" : request.getDeviceId()).append('\t');
+        escape(line, String.valueOf(request.getClock()));
+        for (String value : request.getValues()) {
+            line.append('\t');
+            escape(line, value == null ? "" : value);
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return 格式不正确时返回 null
+     */
+    static TDEngineInsertRequest decode(String line) {
+        List<String> fields = new ArrayList<>(8);
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\\' && i + 1 < line.length()) {
+                char next = line.charAt(++i);
+                field.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        if (fields.size() < 5) {
+            return null;
+        }
+        try {
+            TDEngineTable table = TDEngineTable.valueOf(fields.get(0));
+            if (fields.size() != 4 + table.getColumns()) {
+                return null;
+            }
+            return new TDEngineInsertRequest(table, Integer.valueOf(fields.get(1)), fields.get(2),
+                    Long.valueOf(fields.get(3)), fields.subList(4, fields.size()).toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static StringBuilder escape(StringBuilder line, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        return line;
+    }
+
+    public interface Writer {
+
+        void write(List<TDEngineInsertRequest> requests) throws Exception;
+    }
+}
@@ -0,0 +1,44 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.zmops.zeus.iot.server.client.jdbc.hikaricp.JDBCHikariCPClient;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.Properties;
+
+/**
+ * 手动回放 TDengine 死信数据，服务启动时也会自动回放，数据库恢复后不想重启服务时使用。
+ * <pre>
+ * TDEngineDeadLetterReplay.sh [deadLetterPath] [url] [user] [password]
+ * </pre>
+ */
+public class TDEngineDeadLetterReplay {
+
+    public static void main(String[] args) throws Exception {
+        TDEngineStorageConfig config = new TDEngineStorageConfig();
+        String path = args.length > 0 ? args[0] : config.getDeadLetterPath();
+        String url = args.length > 1 ? args[1] : "jdbc:TAOS://127.0.0.1:6030/zeus_data";
+        String user = args.length > 2 ? args[2] : "root";
+        String password = args.length > 3 ? args[3] : "taosdata";
+
+        Properties settings = new Properties();
+        settings.setProperty("jdbcUrl", url);
+        settings.setProperty("dataSource.user", user);
+        settings.setProperty("dataSource.password", password);
+        JDBCHikariCPClient client = new JDBCHikariCPClient(settings);
+        client.connect();
+
+        TDEngineBatchWriter writer = new TDEngineBatchWriter(config.isUseStmt(), config.getMaxSqlLength());
+        TDEngineDeadLetter deadLetter = new TDEngineDeadLetter(Paths.get(path));
+        try {
+            int rows = deadLetter.replay(requests -> {
+                try (Connection connection = client.getConnection()) {
+                    writer.write(connection, requests);
+                }
+            }, config.getDeadLetterReplayBatchSize());
+            System.out.println("replayed " + rows + " rows from " + path);
+        } finally {
+            client.shutdown();
+        }
+    }
+}
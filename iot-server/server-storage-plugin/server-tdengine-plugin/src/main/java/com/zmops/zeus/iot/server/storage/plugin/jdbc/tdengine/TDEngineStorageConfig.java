@@ -21,4 +21,15 @@ public class TDEngineStorageConfig extends ModuleConfig {
     private int oneFileDays = 10; // 每多少天一个数据文件
     private int memoryBlocks = 6; // 内存块数
     private int dataUpdate = 1; // 是否允许更新数据，1 允许
+
+    private boolean useStmt = true; // 驱动支持时使用 stmt 参数绑定写入，否则用 SQL 文本
+    private int maxSqlLength = 65480; // SQL 文本单条语句最大长度，与客户端 maxSQLLength 保持一致
+
+    private int writeThreads = 4; // 写入线程数
+    private int writeQueueSize = 8; // 等待写入的批次数，满了以后由消费线程直接写入，形成背压
+    private int maxRetries = 3; // 写入失败重试次数
+    private long retryBackoff = 200; // 首次重试等待毫秒数，之后翻倍
+    private long maxRetryBackoff = 5000; // 重试等待上限，毫秒
+    private String deadLetterPath = "deadletter"; // 重试失败数据的保存目录
+    private int deadLetterReplayBatchSize = 1000; // 死信回放每批行数
 }
@@ -22,6 +22,7 @@ public class TDEngineStorageProvider extends ModuleProvider {
 
     private final TDEngineStorageConfig config;
     private JDBCHikariCPClient client;
+    private TDEngineBatchDAO batchDAO;
 
     public TDEngineStorageProvider() {
         this.config = new TDEngineStorageConfig();
@@ -50,7 +51,8 @@ public class TDEngineStorageProvider extends ModuleProvider {
         settings.setProperty("dataSource.password", config.getPassword());
         client = new JDBCHikariCPClient(settings);
 
-        this.registerServiceImplementation(IBatchDAO.class, new TDEngineBatchDAO(client));
+        batchDAO = new TDEngineBatchDAO(client, config);
+        this.registerServiceImplementation(IBatchDAO.class, batchDAO);
         this.registerServiceImplementation(StorageDAO.class, new TDEngineStorageDAO(getManager(), client));
     }
 
@@ -69,6 +71,8 @@ public class TDEngineStorageProvider extends ModuleProvider {
         } catch (StorageException e) {
             e.printStackTrace();
         }
+
+        batchDAO.start(metricCreator);
 //            getManager().find(CoreModule.NAME).provider().getService(ModelCreator.class).addModelListener(installer);
     }
 
@@ -79,6 +83,6 @@ public class TDEngineStorageProvider extends ModuleProvider {
 
     @Override
     public String[] requiredModules() {
-        return new String[]{CoreModule.NAME};
+        return new String[]{CoreModule.NAME, TelemetryModule.NAME};
     }
 }
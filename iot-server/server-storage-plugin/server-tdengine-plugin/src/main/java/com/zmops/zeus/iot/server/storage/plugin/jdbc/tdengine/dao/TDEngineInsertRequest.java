@@ -0,0 +1,42 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao;
+
+import com.zmops.zeus.iot.server.client.request.InsertRequest;
+import com.zmops.zeus.iot.server.core.storage.PersistenceTracker;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 一行历史 / 趋势数据，只保存写入需要的字段，由 {@link com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.TDEngineBatchWriter}
+ * 按子表分组后生成语句，不再每行拼一段 SQL。
+ */
+@Getter
+public class TDEngineInsertRequest implements InsertRequest, PersistenceTracker.Tracked {
+
+    private final TDEngineTable table;
+
+    private final Integer itemid;
+
+    private final String deviceId;
+
+    private final Long clock;
+
+    /**
+     * 各数据列的值，个数与 {@link TDEngineTable#getColumns()} 一致
+     */
+    private final String[] values;
+
+    @Setter
+    private PersistenceTracker.Epoch epoch;
+
+    public TDEngineInsertRequest(TDEngineTable table, Integer itemid, String deviceId, Long clock, String... values) {
+        this.table = table;
+        this.itemid = itemid;
+        this.deviceId = deviceId;
+        this.clock = clock;
+        this.values = values;
+    }
+
+    public String subTable() {
+        return table.getSubTablePrefix() + itemid;
+    }
+}
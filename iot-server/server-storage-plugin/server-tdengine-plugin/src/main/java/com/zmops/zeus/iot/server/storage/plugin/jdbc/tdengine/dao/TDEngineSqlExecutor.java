@@ -4,13 +4,12 @@ import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.StrHistory;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.TextHistory;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.Trends;
+import com.zmops.zeus.iot.server.core.analysis.manual.trends.UIntTrends;
 import com.zmops.zeus.iot.server.core.storage.StorageData;
-import com.zmops.zeus.iot.server.storage.plugin.jdbc.SQLBuilder;
-import com.zmops.zeus.iot.server.storage.plugin.jdbc.SQLExecutor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 /**
  * @author nantian created at 2021/9/5 0:29
@@ -19,50 +18,35 @@ import java.util.List;
 @Slf4j
 public class TDEngineSqlExecutor {
 
-    protected <T extends StorageData> SQLExecutor getInsertExecutor(String modelName, T metrics) {
+    protected <T extends StorageData> TDEngineInsertRequest getInsertExecutor(String modelName, T metrics) throws IOException {
 
-        SQLBuilder sqlBuilder = new SQLBuilder();
-
-        if (modelName.equals("history")) {
-
-            History history = (History) metrics;
-            sqlBuilder.append("h_").append(metrics.itemid() + " USING ").append("history (deviceid, itemid) TAGS")
-                    .append("('").append(history.getDeviceId()).append("'")
-                    .append(",").append(history.getItemid() + " )")
-                    .append(" VALUES (")
-                    .append(history.getClock() + "").append(",").append(history.getValue()).append(")");
-
-        } else if (modelName.equals("history_uint")) {
-
-            UIntHistory uihistory = (UIntHistory) metrics;
-            sqlBuilder.append("huint_").append(metrics.itemid() + " USING ").append("history_uint (deviceid, itemid) TAGS")
-                    .append(" ('").append(uihistory.getDeviceId()).append("'")
-                    .append(",").append(uihistory.getItemid() + " )")
-                    .append(" VALUES (")
-                    .append(uihistory.getClock() + "").append(",").append(uihistory.getValue()).append(")");
-        } else if (modelName.equals("history_text")) {
-
-            TextHistory textHistory = (TextHistory) metrics;
-            String value = textHistory.getValue().replaceAll(",", "\\,");
-
-            sqlBuilder.append("htxt_").append(metrics.itemid() + " USING ").append("history_text (deviceid, itemid) TAGS")
-                    .append(" ('").append(textHistory.getDeviceId()).append("'")
-                    .append(",").append(textHistory.getItemid() + " )")
-                    .append(" VALUES (")
-                    .append(textHistory.getClock() + "").append(",'").append(value).append("')");
-        } else if (modelName.equals("history_str")) {
-
-            StrHistory strHistory = (StrHistory) metrics;
-            String value = strHistory.getValue().replaceAll(",", "\\,");
-            sqlBuilder.append("hstr_").append(metrics.itemid() + " USING ").append("history_str (deviceid, itemid) TAGS")
-                    .append(" ('").append(strHistory.getDeviceId()).append("'")
-                    .append(",").append(strHistory.getItemid() + " )")
-                    .append(" VALUES (")
-                    .append(strHistory.getClock() + "").append(",'").append(value).append("')");
+        TDEngineTable table = TDEngineTable.of(modelName);
+        if (table == null) {
+            throw new IOException("unsupported tdengine model: " + modelName);
         }
 
-        List<Object> param = new ArrayList<>();
-        return new SQLExecutor(sqlBuilder.toString(), param);
+        switch (table) {
+            case HISTORY:
+                History history = (History) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), history.getDeviceId(), history.getClock(), history.getValue());
+            case HISTORY_UINT:
+                UIntHistory uihistory = (UIntHistory) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), uihistory.getDeviceId(), uihistory.getClock(), uihistory.getValue());
+            case HISTORY_TEXT:
+                TextHistory textHistory = (TextHistory) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), textHistory.getDeviceId(), textHistory.getClock(), textHistory.getValue());
+            case HISTORY_STR:
+                StrHistory strHistory = (StrHistory) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), strHistory.getDeviceId(), strHistory.getClock(), strHistory.getValue());
+            case TRENDS:
+                Trends trends = (Trends) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), trends.getDeviceId(), trends.getClock(),
+                        String.valueOf(trends.getValueMin()), String.valueOf(trends.getValueAvg()), String.valueOf(trends.getValueMax()));
+            default:
+                UIntTrends uintTrends = (UIntTrends) metrics;
+                return new TDEngineInsertRequest(table, metrics.itemid(), uintTrends.getDeviceId(), uintTrends.getClock(),
+                        String.valueOf(uintTrends.getValueMin()), String.valueOf(uintTrends.getValueAvg()), String.valueOf(uintTrends.getValueMax()));
+        }
     }
 
 }
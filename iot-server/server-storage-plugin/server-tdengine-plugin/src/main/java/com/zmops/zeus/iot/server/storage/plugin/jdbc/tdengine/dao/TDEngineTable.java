@@ -0,0 +1,55 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao;
+
+import lombok.Getter;
+
+/**
+ * 历史 / 趋势数据超级表，子表名为 前缀 + itemid，标签为 (deviceid 或 hostid, itemid)，
+ * 除时间戳外有 columns 个同类型的数据列
+ */
+@Getter
+public enum TDEngineTable {
+
+    HISTORY("history", "h_", ValueType.DOUBLE, 0, 1),
+    HISTORY_UINT("history_uint", "huint_", ValueType.BIGINT, 0, 1),
+    HISTORY_TEXT("history_text", "htxt_", ValueType.NCHAR, 2048, 1),
+    HISTORY_STR("history_str", "hstr_", ValueType.NCHAR, 255, 1),
+    TRENDS("trends", "t_", ValueType.DOUBLE, 0, 3), // value_min, value_avg, value_max
+    TRENDS_UINT("trends_uint", "tuint_", ValueType.BIGINT, 0, 3);
+
+    private final String stable;
+
+    private final String subTablePrefix;
+
+    private final ValueType valueType;
+
+    /**
+     * NCHAR 列的长度，其他类型为 0
+     */
+    private final int valueLength;
+
+    private final int columns;
+
+    TDEngineTable(String stable, String subTablePrefix, ValueType valueType, int valueLength, int columns) {
+        this.stable = stable;
+        this.subTablePrefix = subTablePrefix;
+        this.valueType = valueType;
+        this.valueLength = valueLength;
+        this.columns = columns;
+    }
+
+    /**
+     * @return 不是历史 / 趋势数据模型时返回 null
+     */
+    public static TDEngineTable of(String modelName) {
+        for (TDEngineTable table : values()) {
+            if (table.stable.equals(modelName)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    public enum ValueType {
+        DOUBLE, BIGINT, NCHAR
+    }
+}
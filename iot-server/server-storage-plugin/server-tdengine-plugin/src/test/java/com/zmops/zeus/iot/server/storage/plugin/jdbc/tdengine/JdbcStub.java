@@ -0,0 +1,110 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内 JDBC 桩：动态代理实现 Connection / Statement / PreparedStatement，记录执行的 SQL。
+ * PreparedStatement 不支持 stmt 接口，写入走 SQL 文本；可以按顺序注入异常，模拟语句过长。
+ */
+class JdbcStub {
+
+    /**
+     * JNI 驱动返回的 TSDB_CODE_TSC_EXCEED_SQL_LIMIT
+     */
+    static final int JNI_SQL_TOO_LONG = 0x80000219;
+
+    final List<String> executed = new CopyOnWriteArrayList<>();
+
+    /**
+     * 依次在 executeUpdate 时抛出，为空时正常执行
+     */
+    final Queue<SQLException> failures = new ConcurrentLinkedQueue<>();
+
+    final AtomicInteger prepared = new AtomicInteger();
+
+    final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * 超过此长度的语句按驱动的方式报错
+     */
+    volatile int maxSqlLength = Integer.MAX_VALUE;
+
+    Connection connection() {
+        connections.incrementAndGet();
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createStatement":
+                    return statement(Statement.class);
+                case "prepareStatement":
+                    prepared.incrementAndGet();
+                    return statement(PreparedStatement.class);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    static SQLException sqlTooLong() {
+        return new SQLException("TDengine ERROR (80000219): invalid SQL: SQL statement too long", "", JNI_SQL_TOO_LONG);
+    }
+
+    private <T extends Statement> T statement(Class<T> type) {
+        return proxy(type, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeUpdate":
+                    return executeUpdate((String) args[0]);
+                case "isWrapperFor":
+                    return false;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private int executeUpdate(String sql) throws SQLException {
+        if (sql.length() > maxSqlLength) {
+            throw sqlTooLong();
+        }
+        SQLException failure = failures.poll();
+        if (failure != null) {
+            throw failure;
+        }
+        executed.add(sql);
+        return 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(JdbcStub.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            try {
+                return handler.invoke(proxy, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,191 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.zmops.zeus.iot.server.client.jdbc.hikaricp.JDBCHikariCPClient;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineTable;
+import com.zmops.zeus.iot.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 通过 {@link JdbcStub} 注入写入失败，验证重试、过长语句拆分和死信
+ */
+public class TDEngineBatchDAOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JdbcStub jdbc = new JdbcStub();
+
+    private Path deadLetterDir;
+
+    private TDEngineBatchDAO dao;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        deadLetterDir = folder.getRoot().toPath().resolve("deadletter");
+
+        TDEngineStorageConfig config = new TDEngineStorageConfig();
+        config.setMaxRetries(2);
+        config.setRetryBackoff(1);
+        config.setMaxRetryBackoff(4);
+        config.setWriteThreads(1);
+        config.setDeadLetterPath(deadLetterDir.toString());
+
+        dao = new TDEngineBatchDAO(new JDBCHikariCPClient(new Properties()) {
+            @Override
+            public Connection getConnection() {
+                return jdbc.connection();
+            }
+        }, config);
+        dao.start(new MetricsCreatorNoop());
+
+        // 启动时的死信回放和 flush 在同一个单线程池中排队，写入一行作为屏障，等回放结束
+        dao.flush(Collections.singletonList(rows(1).get(0)));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jdbc.executed.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, jdbc.executed.size());
+        jdbc.executed.clear();
+        jdbc.connections.set(0);
+    }
+
+    @Test
+    public void transientFailureIsRetried() throws IOException {
+        jdbc.failures.add(new SQLException("Unable to establish connection", "", 0x8000000B));
+        jdbc.failures.add(new SQLException("Unable to establish connection", "", 0x8000000B));
+
+        dao.writeWithRetry(rows(5));
+
+        assertEquals(3, jdbc.connections.get());
+        assertEquals(1, jdbc.executed.size());
+        assertEquals(0, deadLetterRows());
+    }
+
+    @Test
+    public void tooLongStatementIsSplitUntilItFits() throws IOException {
+        jdbc.maxSqlLength = 300;
+
+        dao.writeWithRetry(rows(40));
+
+        int subTables = 0;
+        for (String sql : jdbc.executed) {
+            assertTrue(sql, sql.length() <= 300);
+            subTables += sql.split(" USING ").length - 1;
+        }
+        assertEquals(40, subTables);
+        assertEquals(0, deadLetterRows());
+    }
+
+    @Test
+    public void exhaustedRetriesGoToDeadLetterAndReplay() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            jdbc.failures.add(new SQLException("Database not ready", "", 0x80000385));
+        }
+
+        dao.writeWithRetry(rows(5));
+
+        assertTrue(jdbc.executed.isEmpty());
+        assertEquals(5, deadLetterRows());
+
+        TDEngineBatchWriter writer = new TDEngineBatchWriter(false, 65480);
+        int replayed = new TDEngineDeadLetter(deadLetterDir)
+                .replay(requests -> writer.write(jdbc.connection(), requests), 2);
+
+        assertEquals(5, replayed);
+        assertEquals(3, jdbc.executed.size());
+        assertEquals(0, deadLetterRows());
+    }
+
+    @Test
+    public void singleRowTooLongIsNotSplitForever() throws IOException {
+        jdbc.maxSqlLength = 10;
+
+        dao.writeWithRetry(rows(2));
+
+        assertTrue(jdbc.executed.isEmpty());
+        assertEquals(2, deadLetterRows());
+    }
+
+    @Test
+    public void failedReplayKeepsRowsInDeadLetter() throws Exception {
+        new TDEngineDeadLetter(deadLetterDir).append(rows(3));
+
+        jdbc.failures.add(new SQLException("Database not ready", "", 0x80000385));
+        TDEngineBatchWriter writer = new TDEngineBatchWriter(false, 65480);
+        int replayed = new TDEngineDeadLetter(deadLetterDir)
+                .replay(requests -> writer.write(jdbc.connection(), requests), 2);
+
+        assertEquals(0, replayed);
+        try (Stream<Path> files = Files.list(deadLetterDir)) {
+            assertFalse(files.anyMatch(file -> file.toString().endsWith(".replay")));
+        }
+        assertEquals(3, deadLetterRows());
+    }
+
+    @Test
+    public void replaySplitsTooLongBatches() throws IOException {
+        new TDEngineDeadLetter(deadLetterDir).append(rows(40));
+        jdbc.maxSqlLength = 300;
+
+        assertEquals(40, dao.replayDeadLetter());
+        assertTrue(jdbc.executed.size() > 1);
+        assertEquals(0, deadLetterRows());
+    }
+
+    @Test
+    public void replayRetriesTransientFailure() throws IOException {
+        new TDEngineDeadLetter(deadLetterDir).append(rows(3));
+        jdbc.failures.add(new SQLException("Unable to establish connection", "", 0x8000000B));
+
+        assertEquals(3, dao.replayDeadLetter());
+        assertEquals(0, deadLetterRows());
+    }
+
+    @Test
+    public void replayStopsWhenRetriesAreExhausted() throws IOException {
+        new TDEngineDeadLetter(deadLetterDir).append(rows(3));
+        for (int i = 0; i < 3; i++) {
+            jdbc.failures.add(new SQLException("Database not ready", "", 0x80000385));
+        }
+
+        assertEquals(0, dao.replayDeadLetter());
+        assertEquals(3, deadLetterRows());
+    }
+
+    private int deadLetterRows() throws IOException {
+        Path file = deadLetterDir.resolve("tdengine.dlq");
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return Files.readAllLines(file, StandardCharsets.UTF_8).size();
+    }
+
+    private static List<TDEngineInsertRequest> rows(int count) {
+        List<TDEngineInsertRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(new TDEngineInsertRequest(TDEngineTable.HISTORY, 1000 + i, "device-" + i,
+                    1637000000000L + i, String.valueOf(i * 1.5)));
+        }
+        return Collections.unmodifiableList(requests);
+    }
+}
@@ -0,0 +1,108 @@
+package com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine;
+
+import com.zmops.zeus.iot.server.client.jdbc.JDBCClientException;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineInsertRequest;
+import com.zmops.zeus.iot.server.storage.plugin.jdbc.tdengine.dao.TDEngineTable;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TDEngineBatchWriterTest {
+
+    private final JdbcStub jdbc = new JdbcStub();
+
+    @Test
+    public void groupsRowsBySubTableAndSendsTagsOnce() throws SQLException {
+        new TDEngineBatchWriter(false, 65480).write(jdbc.connection(), Arrays.asList(
+                history(1, 1000L, "1.5"),
+                history(2, 1000L, "2.5"),
+                history(1, 2000L, "3.5")));
+
+        assertEquals(Arrays.asList("INSERT INTO"
+                + " h_1 USING history TAGS ('dev-1','1') VALUES (1000,1.5) (2000,3.5)"
+                + " h_2 USING history TAGS ('dev-2','2') VALUES (1000,2.5)"), jdbc.executed);
+    }
+
+    @Test
+    public void escapesQuotesAndBackslashes() throws SQLException {
+        new TDEngineBatchWriter(false, 65480).write(jdbc.connection(), Arrays.asList(
+                new TDEngineInsertRequest(TDEngineTable.HISTORY_STR, 7, "it's", 1000L, "a\\b'c")));
+
+        assertEquals(Arrays.asList("INSERT INTO hstr_7 USING history_str TAGS ('it\\'s','7') VALUES (1000,'a\\\\b\\'c')"),
+                jdbc.executed);
+    }
+
+    @Test
+    public void dropsRowsWithInvalidValueOrClock() throws SQLException {
+        new TDEngineBatchWriter(false, 65480).write(jdbc.connection(), Arrays.asList(
+                history(1, 1000L, "abc"),
+                history(1, null, "1"),
+                history(1, 2000L, "NaN"),
+                new TDEngineInsertRequest(TDEngineTable.HISTORY_UINT, 2, "dev-2", 1000L, "1.5"),
+                new TDEngineInsertRequest(TDEngineTable.TRENDS, 3, "dev-3", 1000L, "1", "2"),
+                history(1, 3000L, "4")));
+
+        assertEquals(Arrays.asList("INSERT INTO h_1 USING history TAGS ('dev-1','1') VALUES (3000,4.0)"), jdbc.executed);
+    }
+
+    @Test
+    public void splitsStatementsAtMaxSqlLength() throws SQLException {
+        List<TDEngineInsertRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            requests.add(history(i % 3, 1000L + i, String.valueOf(i)));
+        }
+        new TDEngineBatchWriter(false, 256).write(jdbc.connection(), requests);
+
+        assertTrue(jdbc.executed.size() > 1);
+        int rows = 0;
+        for (String sql : jdbc.executed) {
+            assertTrue(sql, sql.length() <= 256);
+            assertTrue(sql, sql.startsWith("INSERT INTO h_"));
+            // 每行一个 (clock,value)，表头 TAGS ( 也有一个括号
+            rows += count(sql, "(") - count(sql, "TAGS (");
+        }
+        assertEquals(200, rows);
+    }
+
+    @Test
+    public void fallsBackToSqlTextWhenDriverHasNoStmtApi() throws SQLException {
+        TDEngineBatchWriter writer = new TDEngineBatchWriter(true, 65480);
+        writer.write(jdbc.connection(), Arrays.asList(history(1, 1000L, "1")));
+        writer.write(jdbc.connection(), Arrays.asList(history(1, 2000L, "2")));
+
+        assertEquals(1, jdbc.prepared.get());
+        assertEquals(Arrays.asList(
+                "INSERT INTO h_1 USING history TAGS ('dev-1','1') VALUES (1000,1.0)",
+                "INSERT INTO h_1 USING history TAGS ('dev-1','1') VALUES (2000,2.0)"), jdbc.executed);
+    }
+
+    @Test
+    public void statementTooLongIsDetectedByErrorCode() {
+        assertTrue(TDEngineBatchWriter.isStatementTooLong(JdbcStub.sqlTooLong()));
+        // RESTful 驱动只返回低 16 位
+        assertTrue(TDEngineBatchWriter.isStatementTooLong(new SQLException("sql too long", "", 0x0219)));
+        assertTrue(TDEngineBatchWriter.isStatementTooLong(new JDBCClientException("wrapped", JdbcStub.sqlTooLong())));
+
+        assertFalse(TDEngineBatchWriter.isStatementTooLong(new SQLException("column name too long", "", 0x80000217)));
+        assertFalse(TDEngineBatchWriter.isStatementTooLong(new JDBCClientException("connection refused")));
+    }
+
+    private static int count(String sql, String token) {
+        int count = 0;
+        for (int i = sql.indexOf(token); i >= 0; i = sql.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static TDEngineInsertRequest history(int itemid, Long clock, String value) {
+        return new TDEngineInsertRequest(TDEngineTable.HISTORY, itemid, "dev-" + itemid, clock, value);
+    }
+}
@@ -33,4 +33,10 @@ public interface CounterMetrics {
      * Increase the given value to the counter
      */
     void inc(double value);
+
+    /**
+     * Remove this labelled child from the metrics, later updates are dropped
+     */
+    default void remove() {
+    }
 }
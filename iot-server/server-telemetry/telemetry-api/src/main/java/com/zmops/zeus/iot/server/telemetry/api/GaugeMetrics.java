@@ -51,4 +51,10 @@ public interface GaugeMetrics {
      * Get the current value of the gauge
      */
     double getValue();
+
+    /**
+     * Remove this labelled child from the metrics, later updates are dropped
+     */
+    default void remove() {
+    }
 }
@@ -36,6 +36,12 @@ public abstract class HistogramMetrics {
      */
     public abstract void observe(double value);
 
+    /**
+     * Remove this labelled child from the metrics, later updates are dropped
+     */
+    public void remove() {
+    }
+
     public class Timer implements Closeable {
         private final HistogramMetrics metrics;
         private final long startNanos;
@@ -0,0 +1,159 @@
+package com.zmops.zeus.iot.server.telemetry.api;
+
+import com.zmops.zeus.iot.server.telemetry.none.MetricsCreatorNoop;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 数据接入流水线分阶段指标，所有阶段共用三个指标名，按 stage、protocol、gateway 标签区分：
+ * <pre>
+ * pipeline_stage_items_count     阶段处理的数据条数
+ * pipeline_stage_errors_count    阶段处理失败的数据条数
+ * pipeline_stage_latency         阶段耗时（秒），每批观察一次
+ * </pre>
+ * 接入阶段 protocol 为接入协议，gateway 为网关路由 ID；存储阶段 protocol 为存储插件或模型名，gateway 为 {@link #ALL}。
+ * <p>
+ * 指标实例按标签缓存，调用方在初始化时取得 {@link Stage} 并持有，热点路径上只有 nanoTime 和计数器更新，
+ * 底层 Prometheus 计数器、直方图本身是分段累加（DoubleAdder），多线程更新不争用同一个变量。
+ */
+public final class PipelineMetrics {
+
+    public static final String RECEIVE = "receive";
+    public static final String PARSE = "parse";
+    public static final String PLUGIN = "plugin";
+    public static final String TRANSFER = "transfer";
+    public static final String QUEUE = "queue";
+    public static final String ZABBIX_SEND = "zabbix_send";
+    public static final String PERSIST = "persist";
+    public static final String STORAGE_FLUSH = "storage_flush";
+
+    /**
+     * 不区分协议或网关时的标签值
+     */
+    public static final String ALL = "all";
+
+    private static final double[] LATENCY_BUCKETS = {
+            0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10
+    };
+
+    private static final ConcurrentMap<String, Stage> STAGES = new ConcurrentHashMap<>();
+
+    private static final Stage NOOP = new Stage(new MetricsCreatorNoop(), ALL, ALL, ALL);
+
+    private PipelineMetrics() {
+    }
+
+    /**
+     * 取得阶段指标，同一组标签只创建一次
+     */
+    public static Stage stage(MetricsCreator metricsCreator, String stage, String protocol, String gateway) {
+        String p = protocol == null ? ALL : protocol;
+        String g = gateway == null ? ALL : gateway;
+        return STAGES.computeIfAbsent(stage + '|' + p + '|' + g, key -> new Stage(metricsCreator, stage, p, g));
+    }
+
+    /**
+     * 网关路由停止时移除其全部阶段指标，底层指标中这组标签的序列一并删除，不再出现在抓取结果中。
+     * 已取得的 {@link Stage} 标记为 {@link Stage#isRemoved() removed}，之后的更新被丢弃，调用方自己缓存的需要重新取得
+     */
+    public static void remove(String gateway) {
+        if (gateway == null) {
+            return;
+        }
+        STAGES.values().removeIf(stage -> {
+            if (!gateway.equals(stage.gateway)) {
+                return false;
+            }
+            stage.remove();
+            return true;
+        });
+    }
+
+    /**
+     * 不采集指标的阶段，用于脱离模块容器单独创建的处理器
+     */
+    public static Stage noop() {
+        return NOOP;
+    }
+
+    public static final class Stage {
+
+        private final CounterMetrics items;
+
+        private final CounterMetrics errors;
+
+        private final HistogramMetrics latency;
+
+        private final String gateway;
+
+        private volatile boolean removed;
+
+        private Stage(MetricsCreator metricsCreator, String stage, String protocol, String gateway) {
+            this.gateway = gateway;
+
+            MetricsTag.Keys keys = new MetricsTag.Keys("stage", "protocol", "gateway");
+            MetricsTag.Values values = new MetricsTag.Values(stage, protocol, gateway);
+
+            items = metricsCreator.createCounter("pipeline_stage_items_count",
+                    "The count number of items processed by each ingest pipeline stage", keys, values);
+            errors = metricsCreator.createCounter("pipeline_stage_errors_count",
+                    "The count number of items failed in each ingest pipeline stage", keys, values);
+            latency = metricsCreator.createHistogramMetric("pipeline_stage_latency",
+                    "The latency in seconds of each ingest pipeline stage", keys, values, LATENCY_BUCKETS);
+        }
+
+        /**
+         * @return 阶段开始时间，传给 {@link #finish(long, int)}
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /**
+         * 阶段结束，记录耗时和处理条数
+         */
+        public void finish(long startNanos, int count) {
+            latency.observe((System.nanoTime() - startNanos) / 1.0E9D);
+            if (count > 0) {
+                items.inc(count);
+            }
+        }
+
+        /**
+         * 只记录耗时，如排队时间
+         */
+        public void observe(long nanos) {
+            latency.observe(nanos / 1.0E9D);
+        }
+
+        /**
+         * 只记录处理条数
+         */
+        public void count(int count) {
+            if (count > 0) {
+                items.inc(count);
+            }
+        }
+
+        public void error(int count) {
+            if (count > 0) {
+                errors.inc(count);
+            }
+        }
+
+        private void remove() {
+            removed = true;
+            items.remove();
+            errors.remove();
+            latency.remove();
+        }
+
+        /**
+         * 所属网关路由已经停止
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.zmops.zeus.iot.server.telemetry.api;
+
+import com.zmops.zeus.iot.server.telemetry.none.MetricsCreatorNoop;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineMetricsTest {
+
+    private final MetricsCreator metricsCreator = new MetricsCreatorNoop();
+
+    @Test
+    public void sameLabelsShareOneStage() {
+        PipelineMetrics.Stage stage = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "shared");
+
+        assertSame(stage, PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "shared"));
+        assertNotSame(stage, PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "udp", "shared"));
+    }
+
+    @Test
+    public void removeDropsOnlyStagesOfThatGateway() {
+        PipelineMetrics.Stage parse = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "stopped");
+        PipelineMetrics.Stage plugin = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PLUGIN, "tcp", "stopped");
+        PipelineMetrics.Stage other = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "running");
+
+        PipelineMetrics.remove("stopped");
+
+        assertTrue(parse.isRemoved());
+        assertTrue(plugin.isRemoved());
+        assertFalse(other.isRemoved());
+        assertSame(other, PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "running"));
+
+        PipelineMetrics.Stage restarted = PipelineMetrics.stage(metricsCreator, PipelineMetrics.PARSE, "tcp", "stopped");
+        assertNotSame(parse, restarted);
+        assertFalse(restarted.isRemoved());
+    }
+
+    @Test
+    public void removeDropsLabelledChildrenOfTheCollectors() {
+        List<String> removed = new ArrayList<>();
+        MetricsCreator recording = new MetricsCreatorNoop() {
+            @Override
+            public CounterMetrics createCounter(String name, String tips, MetricsTag.Keys tagKeys,
+                                                MetricsTag.Values tagValues) {
+                return new CounterMetrics() {
+                    @Override
+                    public void inc() {
+                    }
+
+                    @Override
+                    public void inc(double value) {
+                    }
+
+                    @Override
+                    public void remove() {
+                        removed.add(name + tagValues.getValues()[2]);
+                    }
+                };
+            }
+
+            @Override
+            public HistogramMetrics createHistogramMetric(String name, String tips, MetricsTag.Keys tagKeys,
+                                                          MetricsTag.Values tagValues, double... buckets) {
+                return new HistogramMetrics() {
+                    @Override
+                    public void observe(double value) {
+                    }
+
+                    @Override
+                    public void remove() {
+                        removed.add(name + tagValues.getValues()[2]);
+                    }
+                };
+            }
+        };
+        PipelineMetrics.stage(recording, PipelineMetrics.RECEIVE, "mqtt", "collected");
+        PipelineMetrics.stage(recording, PipelineMetrics.RECEIVE, "mqtt", "kept");
+
+        PipelineMetrics.remove("collected");
+
+        assertEquals(3, removed.size());
+        assertTrue(removed.contains("pipeline_stage_items_countcollected"));
+        assertTrue(removed.contains("pipeline_stage_errors_countcollected"));
+        assertTrue(removed.contains("pipeline_stage_latencycollected"));
+    }
+}
@@ -22,22 +22,21 @@ import com.zmops.zeus.iot.server.telemetry.api.MetricsTag;
 import com.zmops.zeus.iot.server.telemetry.api.TelemetryRelatedContext;
 import io.prometheus.client.SimpleCollector;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * BaseMetrics parent class represents the metrics
  */
 public abstract class BaseMetrics<T extends SimpleCollector, C> {
-    private static Map<String, Object> ALL_METRICS = new HashMap<>();
+    private static final ConcurrentMap<String, SimpleCollector> ALL_METRICS = new ConcurrentHashMap<>();
 
     private volatile C metricsInstance;
+    private volatile boolean removed;
     protected final String name;
     protected final String tips;
     protected final MetricsTag.Keys labels;
     protected final MetricsTag.Values values;
-    private ReentrantLock lock = new ReentrantLock();
 
     public BaseMetrics(String name, String tips, MetricsTag.Keys labels, MetricsTag.Values values) {
         this.name = name;
@@ -53,46 +52,54 @@ public abstract class BaseMetrics<T extends SimpleCollector, C> {
     /**
      * Create real prometheus metrics with SkyWalking native labels, and provide to all metrics implementation. Metrics
      * name should be unique.
+     * <p>
+     * Registration is lock free: the collector of a name is created once by computeIfAbsent, and SimpleCollector#labels
+     * returns the same child for the same label values, so concurrent first calls resolve to the same instance.
      *
      * @return metric reference if the service instance id has been initialized. Or NULL.
      */
     protected C getMetric() {
-        if (metricsInstance == null) {
-            if (isIDReady()) {
-                lock.lock();
-                try {
-                    if (metricsInstance == null) {
-                        String[] labelNames = new String[labels.getKeys().length + 1];
-                        labelNames[0] = "sw_backend_instance";
-                        for (int i = 0; i < labels.getKeys().length; i++) {
-                            labelNames[i + 1] = labels.getKeys()[i];
-                        }
+        C instance = metricsInstance;
+        if (instance != null || removed || !isIDReady()) {
+            return instance;
+        }
 
-                        String[] labelValues = new String[values.getValues().length + 1];
-                        labelValues[0] = TelemetryRelatedContext.INSTANCE.getId();
-                        for (int i = 0; i < values.getValues().length; i++) {
-                            labelValues[i + 1] = values.getValues()[i];
-                        }
+        String[] labelNames = new String[labels.getKeys().length + 1];
+        labelNames[0] = "sw_backend_instance";
+        System.arraycopy(labels.getKeys(), 0, labelNames, 1, labels.getKeys().length);
 
-                        if (!ALL_METRICS.containsKey(name)) {
-                            synchronized (ALL_METRICS) {
-                                if (!ALL_METRICS.containsKey(name)) {
-                                    ALL_METRICS.put(name, create(labelNames));
-                                }
-                            }
-                        }
+        T metrics = (T) ALL_METRICS.computeIfAbsent(name, key -> create(labelNames));
 
-                        T metrics = (T) ALL_METRICS.get(name);
+        instance = (C) metrics.labels(labelValues());
+        metricsInstance = instance;
+        if (removed) {
+            // remove() ran while the child was being created
+            metricsInstance = null;
+            metrics.remove(labelValues());
+            return null;
+        }
+        return instance;
+    }
 
-                        metricsInstance = (C) metrics.labels(labelValues);
-                    }
-                } finally {
-                    lock.unlock();
-                }
-            }
+    /**
+     * Remove the child of these label values from the collector, so the series is no longer exported. Updates after
+     * removal are dropped.
+     */
+    public void remove() {
+        removed = true;
+        metricsInstance = null;
+
+        SimpleCollector metrics = ALL_METRICS.get(name);
+        if (metrics != null && isIDReady()) {
+            metrics.remove(labelValues());
         }
+    }
 
-        return metricsInstance;
+    private String[] labelValues() {
+        String[] labelValues = new String[values.getValues().length + 1];
+        labelValues[0] = TelemetryRelatedContext.INSTANCE.getId();
+        System.arraycopy(values.getValues(), 0, labelValues, 1, values.getValues().length);
+        return labelValues;
     }
 
     protected abstract T create(String[] labelNames);
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.zmops.zeus.iot.server.telemetry.prometheus;
+
+import com.zmops.zeus.iot.server.telemetry.api.MetricFamily;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A short-lived snapshot of the default registry, shared by the exporter endpoint and {@link PrometheusMetricsCollector}
+ * (health checker), so that the registry is walked at most once per ttl no matter how many readers there are.
+ */
+public final class MetricsSnapshot {
+
+    private static volatile long ttlMillis = 1000;
+
+    private static volatile Snapshot current;
+
+    private MetricsSnapshot() {
+    }
+
+    static void setTtlMillis(long ttl) {
+        ttlMillis = ttl;
+    }
+
+    /**
+     * @return samples of all registered collectors, shared and must not be modified
+     */
+    public static List<Collector.MetricFamilySamples> samples() {
+        return snapshot().samples;
+    }
+
+    /**
+     * @return the same snapshot converted to telemetry-api families, converted once per snapshot
+     */
+    static List<MetricFamily> families() {
+        return snapshot().families();
+    }
+
+    private static Snapshot snapshot() {
+        Snapshot snapshot = current;
+        if (snapshot != null && System.currentTimeMillis() - snapshot.createTime < ttlMillis) {
+            return snapshot;
+        }
+
+        synchronized (MetricsSnapshot.class) {
+            snapshot = current;
+            if (snapshot == null || System.currentTimeMillis() - snapshot.createTime >= ttlMillis) {
+                snapshot = new Snapshot(Collections.list(CollectorRegistry.defaultRegistry.metricFamilySamples()));
+                current = snapshot;
+            }
+            return snapshot;
+        }
+    }
+
+    private static class Snapshot {
+
+        private final long createTime = System.currentTimeMillis();
+
+        private final List<Collector.MetricFamilySamples> samples;
+
+        private volatile List<MetricFamily> families;
+
+        Snapshot(List<Collector.MetricFamilySamples> samples) {
+            this.samples = Collections.unmodifiableList(samples);
+        }
+
+        List<MetricFamily> families() {
+            List<MetricFamily> result = families;
+            if (result != null) {
+                return result;
+            }
+
+            result = new ArrayList<>(samples.size());
+            for (Collector.MetricFamilySamples metricFamilySamples : samples) {
+                List<MetricFamily.Sample> familySamples = new ArrayList<>(metricFamilySamples.samples.size());
+                for (Collector.MetricFamilySamples.Sample sample : metricFamilySamples.samples) {
+                    familySamples.add(new MetricFamily.Sample(sample.name, sample.labelNames, sample.labelValues,
+                            sample.value, sample.timestampMs));
+                }
+                result.add(new MetricFamily(metricFamilySamples.name, MetricFamily.Type.valueOf(metricFamilySamples.type
+                        .name()), metricFamilySamples.help, familySamples));
+            }
+            result = Collections.unmodifiableList(result);
+            families = result;
+            return result;
+        }
+    }
+}
@@ -33,4 +33,16 @@ public class PrometheusConfig extends ModuleConfig {
     private boolean sslEnabled = false;
     private String sslKeyPath;
     private String sslCertChainPath;
+    /**
+     * Compress the exposition when the scraper accepts gzip.
+     */
+    private boolean gzipEnabled = true;
+    /**
+     * Bytes per chunk of the chunked exposition response.
+     */
+    private int chunkSize = 65536;
+    /**
+     * How long a registry snapshot is shared by the exporter and the health checker, in milliseconds.
+     */
+    private long snapshotTtl = 1000;
 }
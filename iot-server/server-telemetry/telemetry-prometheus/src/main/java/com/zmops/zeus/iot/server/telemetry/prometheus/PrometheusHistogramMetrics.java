@@ -43,6 +43,11 @@ public class PrometheusHistogramMetrics extends HistogramMetrics {
         }
     }
 
+    @Override
+    public void remove() {
+        inner.remove();
+    }
+
     class InnerMetricObject extends BaseMetrics<Histogram, Histogram.Child> {
         public InnerMetricObject(String name, String tips, MetricsTag.Keys labels, MetricsTag.Values values) {
             super(name, tips, labels, values);
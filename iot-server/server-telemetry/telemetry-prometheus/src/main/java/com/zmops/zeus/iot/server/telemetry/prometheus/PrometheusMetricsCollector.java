@@ -20,29 +20,13 @@ package com.zmops.zeus.iot.server.telemetry.prometheus;
 
 import com.zmops.zeus.iot.server.telemetry.api.MetricFamily;
 import com.zmops.zeus.iot.server.telemetry.api.MetricsCollector;
-import io.prometheus.client.Collector;
-import io.prometheus.client.CollectorRegistry;
-
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.LinkedList;
-import java.util.List;
 
+/**
+ * Reads the shared {@link MetricsSnapshot}, the health checker does not walk the registry again when a scrape just did.
+ */
 public class PrometheusMetricsCollector implements MetricsCollector {
     @Override
     public Iterable<MetricFamily> collect() {
-        Enumeration<Collector.MetricFamilySamples> mfs = CollectorRegistry.defaultRegistry.metricFamilySamples();
-        List<MetricFamily> result = new LinkedList<>();
-        while (mfs.hasMoreElements()) {
-            Collector.MetricFamilySamples metricFamilySamples = mfs.nextElement();
-            List<MetricFamily.Sample> samples = new ArrayList<>(metricFamilySamples.samples.size());
-            MetricFamily m = new MetricFamily(metricFamilySamples.name, MetricFamily.Type.valueOf(metricFamilySamples.type
-                    .name()), metricFamilySamples.help, samples);
-            result.add(m);
-            for (Collector.MetricFamilySamples.Sample sample : metricFamilySamples.samples) {
-                samples.add(new MetricFamily.Sample(sample.name, sample.labelNames, sample.labelValues, sample.value, sample.timestampMs));
-            }
-        }
-        return result;
+        return MetricsSnapshot.families();
     }
 }
@@ -52,6 +52,7 @@ public class PrometheusTelemetryProvider extends ModuleProvider {
 
     @Override
     public void prepare() throws ServiceNotProvidedException, ModuleStartException {
+        MetricsSnapshot.setTtlMillis(config.getSnapshotTtl());
         this.registerServiceImplementation(MetricsCreator.class, new PrometheusMetricsCreator());
         this.registerServiceImplementation(MetricsCollector.class, new PrometheusMetricsCollector());
         try {
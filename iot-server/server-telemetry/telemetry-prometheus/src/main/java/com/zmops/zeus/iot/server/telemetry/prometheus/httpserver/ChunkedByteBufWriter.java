@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.zmops.zeus.iot.server.telemetry.prometheus.httpserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Encodes characters as UTF-8 straight into pooled {@link ByteBuf}s. Every time the current buffer reaches chunkSize
+ * it is handed to the sink and a new one is allocated, so the exposition never exists as one big String.
+ * <p>
+ * A high surrogate at the end of a write is held back until the next write, so a surrogate pair split across calls
+ * (Writer.write(int) receives one UTF-16 unit at a time) is still encoded as one 4-byte sequence.
+ * <p>
+ * The sink takes ownership of the buffers it receives. Not thread safe.
+ */
+public class ChunkedByteBufWriter extends Writer {
+
+    private final ByteBufAllocator allocator;
+
+    private final int chunkSize;
+
+    private final Consumer<ByteBuf> sink;
+
+    private ByteBuf buffer;
+
+    /**
+     * High surrogate waiting for its low surrogate, 0 if none
+     */
+    private char pendingHigh;
+
+    public ChunkedByteBufWriter(ByteBufAllocator allocator, int chunkSize, Consumer<ByteBuf> sink) {
+        this.allocator = allocator;
+        this.chunkSize = chunkSize;
+        this.sink = sink;
+        this.buffer = allocator.buffer(chunkSize);
+    }
+
+    @Override
+    public void write(int c) {
+        char ch = (char) c;
+        if (pendingHigh == 0 && ch < 0x80) {
+            buffer.writeByte(ch);
+        } else {
+            writeChars(String.valueOf(ch), 0, 1);
+        }
+        emitIfFull();
+    }
+
+    @Override
+    public void write(String str) {
+        writeChars(str, 0, str.length());
+        emitIfFull();
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        writeChars(str, off, off + len);
+        emitIfFull();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        writeChars(CharBuffer.wrap(cbuf), off, off + len);
+        emitIfFull();
+    }
+
+    private void writeChars(CharSequence seq, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        if (pendingHigh != 0) {
+            char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(seq.charAt(start))) {
+                writeCodePoint(Character.toCodePoint(high, seq.charAt(start)));
+                start++;
+            } else {
+                // lone surrogate, encoded the same way ByteBufUtil does
+                buffer.writeByte('?');
+            }
+        }
+        if (start < end && Character.isHighSurrogate(seq.charAt(end - 1))) {
+            pendingHigh = seq.charAt(end - 1);
+            end--;
+        }
+        if (start < end) {
+            ByteBufUtil.writeUtf8(buffer, seq, start, end);
+        }
+    }
+
+    private void writeCodePoint(int codePoint) {
+        buffer.writeByte(0xF0 | (codePoint >> 18));
+        buffer.writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+        buffer.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+        buffer.writeByte(0x80 | (codePoint & 0x3F));
+    }
+
+    private void emitIfFull() {
+        if (buffer.readableBytes() >= chunkSize) {
+            ByteBuf full = buffer;
+            buffer = allocator.buffer(chunkSize);
+            sink.accept(full);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Hands the remaining bytes, if any, to the sink.
+     */
+    @Override
+    public void close() {
+        if (pendingHigh != 0 && buffer != null) {
+            pendingHigh = 0;
+            buffer.writeByte('?');
+        }
+        ByteBuf last = buffer;
+        buffer = null;
+        if (last == null) {
+            return;
+        }
+        if (last.isReadable()) {
+            sink.accept(last);
+        } else {
+            last.release();
+        }
+    }
+
+    /**
+     * Drops the buffer that was not handed to the sink, used when rendering fails.
+     */
+    public void discard() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+}
@@ -60,7 +60,7 @@ public final class HttpServer {
         b.group(bossGroup, workerGroup)
                 .channel(NioServerSocketChannel.class)
                 .handler(new LoggingHandler(LogLevel.INFO))
-                .childHandler(new HttpServerInitializer(sslCtx));
+                .childHandler(new HttpServerInitializer(sslCtx, config.isGzipEnabled(), config.getChunkSize()));
 
         b.bind(config.getHost(), config.getPort()).sync();
         Optional.ofNullable(sslCtx).ifPresent(HttpDynamicSslContext::start);
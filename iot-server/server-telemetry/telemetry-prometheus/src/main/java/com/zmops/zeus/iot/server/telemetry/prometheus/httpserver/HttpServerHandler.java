@@ -18,32 +18,39 @@
 
 package com.zmops.zeus.iot.server.telemetry.prometheus.httpserver;
 
+import com.zmops.zeus.iot.server.telemetry.prometheus.MetricsSnapshot;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
-import io.netty.util.CharsetUtil;
-import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Collector;
 import io.prometheus.client.exporter.common.TextFormat;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.logging.log4j.core.util.StringBuilderWriter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 import static io.netty.channel.ChannelFutureListener.CLOSE;
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpHeaderValues.KEEP_ALIVE;
-import static io.netty.handler.codec.http.HttpHeaderValues.TEXT_PLAIN;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 
+/**
+ * Renders the shared {@link MetricsSnapshot} straight into pooled buffers. HTTP/1.1 clients get a chunked response
+ * flushed chunk by chunk, HTTP/1.0 clients get the same chunks as one composite buffer with a content length.
+ * Compression, when enabled, is done by the HttpContentCompressor in front of this handler.
+ */
 @Slf4j
+@RequiredArgsConstructor
 public class HttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
 
-    private final CollectorRegistry registry = CollectorRegistry.defaultRegistry;
-    private final StringBuilderWriter buf = new StringBuilderWriter();
+    private final int chunkSize;
 
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
@@ -56,44 +63,87 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
             HttpRequest req = (HttpRequest) msg;
 
             boolean keepAlive = HttpUtil.isKeepAlive(req);
+            List<Collector.MetricFamilySamples> samples = MetricsSnapshot.samples();
 
-            buf.getBuilder().setLength(0);
-            try {
-                TextFormat.write004(buf, registry.metricFamilySamples());
-            } catch (IOException e) {
-                ctx.fireExceptionCaught(e);
-                return;
-            }
-            FullHttpResponse response = new DefaultFullHttpResponse(req.protocolVersion(), OK,
-                    Unpooled.copiedBuffer(buf.getBuilder().toString(), CharsetUtil.UTF_8));
-            response.headers()
-                    .set(CONTENT_TYPE, TEXT_PLAIN)
-                    .setInt(CONTENT_LENGTH, response.content().readableBytes());
-
-            if (keepAlive) {
-                if (!req.protocolVersion().isKeepAliveDefault()) {
-                    response.headers().set(CONNECTION, KEEP_ALIVE);
-                }
+            ChannelFuture f;
+            if (HttpVersion.HTTP_1_0.equals(req.protocolVersion())) {
+                f = writeFull(ctx, req, samples, keepAlive);
             } else {
-                // Tell the client we're going to close the connection.
-                response.headers().set(CONNECTION, CLOSE);
+                f = writeChunked(ctx, req, samples, keepAlive);
             }
 
-            ChannelFuture f = ctx.write(response);
-
-            if (!keepAlive) {
+            if (f != null && !keepAlive) {
                 f.addListener(CLOSE);
             }
         }
     }
 
+    private ChannelFuture writeChunked(ChannelHandlerContext ctx, HttpRequest req,
+                                       List<Collector.MetricFamilySamples> samples, boolean keepAlive) {
+        HttpResponse response = new DefaultHttpResponse(req.protocolVersion(), OK);
+        response.headers().set(CONTENT_TYPE, TextFormat.CONTENT_TYPE_004);
+        HttpUtil.setTransferEncodingChunked(response, true);
+        setConnection(response, req, keepAlive);
+        ctx.write(response);
+
+        ChunkedByteBufWriter writer = new ChunkedByteBufWriter(ctx.alloc(), chunkSize,
+                chunk -> ctx.writeAndFlush(new DefaultHttpContent(chunk)));
+        try {
+            TextFormat.write004(writer, Collections.enumeration(samples));
+        } catch (IOException | RuntimeException e) {
+            // 响应头已经发出，只能断开连接
+            writer.discard();
+            log.error("Prometheus exporter error", e);
+            ctx.close();
+            return null;
+        }
+        writer.close();
+
+        return ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+    }
+
+    private ChannelFuture writeFull(ChannelHandlerContext ctx, HttpRequest req,
+                                    List<Collector.MetricFamilySamples> samples, boolean keepAlive) {
+        CompositeByteBuf content = ctx.alloc().compositeBuffer(Integer.MAX_VALUE);
+        ChunkedByteBufWriter writer = new ChunkedByteBufWriter(ctx.alloc(), chunkSize,
+                chunk -> content.addComponent(true, chunk));
+        try {
+            TextFormat.write004(writer, Collections.enumeration(samples));
+        } catch (IOException | RuntimeException e) {
+            writer.discard();
+            content.release();
+            ctx.fireExceptionCaught(e);
+            return null;
+        }
+        writer.close();
+
+        FullHttpResponse response = new DefaultFullHttpResponse(req.protocolVersion(), OK, content);
+        response.headers()
+                .set(CONTENT_TYPE, TextFormat.CONTENT_TYPE_004)
+                .setInt(CONTENT_LENGTH, content.readableBytes());
+        setConnection(response, req, keepAlive);
+
+        return ctx.write(response);
+    }
+
+    private static void setConnection(HttpResponse response, HttpRequest req, boolean keepAlive) {
+        if (keepAlive) {
+            if (!req.protocolVersion().isKeepAliveDefault()) {
+                response.headers().set(CONNECTION, KEEP_ALIVE);
+            }
+        } else {
+            // Tell the client we're going to close the connection.
+            response.headers().set(CONNECTION, HttpHeaderValues.CLOSE);
+        }
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
         log.error("Prometheus exporter error", cause);
         FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
                 INTERNAL_SERVER_ERROR,
-                Unpooled.wrappedBuffer(cause.getMessage().getBytes()));
+                Unpooled.wrappedBuffer(String.valueOf(cause.getMessage()).getBytes()));
         ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
         ctx.close();
     }
-}
\ No newline at end of file
+}
@@ -21,6 +21,7 @@ package com.zmops.zeus.iot.server.telemetry.prometheus.httpserver;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
 import io.netty.handler.ssl.SslContext;
@@ -31,6 +32,10 @@ public class HttpServerInitializer extends ChannelInitializer<SocketChannel> {
 
     private final SslContext sslCtx;
 
+    private final boolean gzipEnabled;
+
+    private final int chunkSize;
+
     @Override
     public void initChannel(SocketChannel ch) {
         ChannelPipeline p = ch.pipeline();
@@ -38,7 +43,11 @@ public class HttpServerInitializer extends ChannelInitializer<SocketChannel> {
             p.addLast(sslCtx.newHandler(ch.alloc()));
         }
         p.addLast(new HttpServerCodec());
+        if (gzipEnabled) {
+            // 按请求的 Accept-Encoding 压缩，分块响应逐块压缩
+            p.addLast(new HttpContentCompressor());
+        }
         p.addLast(new HttpServerExpectContinueHandler());
-        p.addLast(new HttpServerHandler());
+        p.addLast(new HttpServerHandler(chunkSize));
     }
 }
@@ -0,0 +1,82 @@
+package com.zmops.zeus.iot.server.telemetry.prometheus.httpserver;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChunkedByteBufWriterTest {
+
+    private static final String TEXT = "pipeline{gateway=\"网关😀\",le=\"0.5\"} 1\n";
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private int chunks;
+
+    @Test
+    public void surrogatePairWrittenOneCharAtATime() {
+        ChunkedByteBufWriter writer = writer(4);
+        for (int i = 0; i < TEXT.length(); i++) {
+            writer.write(TEXT.charAt(i));
+        }
+        writer.close();
+
+        assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertTrue(chunks > 1);
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossWrites() {
+        int low = TEXT.indexOf('\uDE00');
+        ChunkedByteBufWriter writer = writer(8192);
+        writer.write(TEXT, 0, low);
+        writer.write(TEXT.substring(low));
+        writer.close();
+
+        assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossCharArrays() {
+        char[] chars = TEXT.toCharArray();
+        int low = TEXT.indexOf('\uDE00');
+        ChunkedByteBufWriter writer = writer(8192);
+        writer.write(chars, 0, low);
+        writer.write(chars, low, chars.length - low);
+        writer.close();
+
+        assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    public void loneSurrogatesBecomeQuestionMarks() {
+        String text = "a\uD83Db\uDE00c\uD83D";
+        ChunkedByteBufWriter writer = writer(8192);
+        for (int i = 0; i < text.length(); i++) {
+            writer.write(text.charAt(i));
+        }
+        writer.close();
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    private ChunkedByteBufWriter writer(int chunkSize) {
+        return new ChunkedByteBufWriter(UnpooledByteBufAllocator.DEFAULT, chunkSize, this::collect);
+    }
+
+    private void collect(ByteBuf buf) {
+        chunks++;
+        try {
+            byte[] bytes = ByteBufUtil.getBytes(buf);
+            out.write(bytes, 0, bytes.length);
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -18,6 +18,70 @@ public class ServerTransferConfig extends ModuleConfig {
     private String pattern;
 
     // 文件读取超时 线程回收
-    private Integer fileMaxWait;
+    private Integer fileMaxWait = 30;
 
+    /**
+     * 读取位置保存文件
+     */
+    private String positionPath = "transfer/position.properties";
+
+    /**
+     * 读取位置写盘间隔，毫秒
+     */
+    private long positionFlushInterval = 5000;
+
+    /**
+     * 读取位置写盘前等待之前的数据写入存储的最长时间，毫秒；超时本次不写盘
+     */
+    private long persistWaitTimeout = 30000;
+
+    /**
+     * 是否用 WatchService 监听目录变化，关闭或不可用时只按 pollInterval 轮询
+     */
+    private boolean watchEnabled = true;
+
+    /**
+     * 轮询间隔，毫秒；开启 WatchService 时作为兜底扫描间隔
+     */
+    private long pollInterval = 1000;
+
+    /**
+     * 读缓冲区大小，也是单行最大长度，超长的行丢弃
+     */
+    private int readBufferSize = 1024 * 1024;
+
+    /**
+     * 每批发送的行数
+     */
+    private int batchLines = 4096;
+
+    /**
+     * 解析线程数，0 表示 CPU 核数
+     */
+    private int parseThreads = 0;
+
+    /**
+     * 每个解析任务处理的行数
+     */
+    private int parseChunkSize = 2048;
+
+    /**
+     * 每个文件最多未提交读取位置的批次数，超过后读取线程等待
+     */
+    private int maxPendingBatches = 16;
+
+    /**
+     * 投递失败重试次数，超过后丢弃并计数
+     */
+    private int sendMaxRetries = 3;
+
+    /**
+     * 投递失败首次重试间隔，毫秒，之后倍增
+     */
+    private long sendRetryBackoff = 1000;
+
+    /**
+     * 投递失败最大重试间隔，毫秒
+     */
+    private long maxSendRetryBackoff = 10000;
 }
@@ -2,12 +2,17 @@ package com.zmops.zeus.iot.server.transfer.provider;
 
 
 import com.zmops.zeus.iot.server.core.CoreModule;
+import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
+import com.zmops.zeus.iot.server.core.storage.StorageModule;
 import com.zmops.zeus.iot.server.transfer.module.ServerTransferModule;
+import com.zmops.zeus.iot.server.transfer.sender.SenderManager;
+import com.zmops.zeus.iot.server.transfer.tailer.ExportFileTailer;
 import com.zmops.zeus.server.library.module.*;
-import com.zmops.zeus.server.transfer.core.TransferManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
 /**
  * @author nantian created at 2021/9/22 16:44
  */
@@ -17,6 +22,8 @@ public class ServerTransferProvider extends ModuleProvider {
 
     private final ServerTransferConfig config;
 
+    private ExportFileTailer tailer;
+
     public ServerTransferProvider() {
         this.config = new ServerTransferConfig();
     }
@@ -38,36 +45,25 @@ public class ServerTransferProvider extends ModuleProvider {
 
     @Override
     public void prepare() throws ServiceNotProvidedException, ModuleStartException {
-
+        SenderManager.configure(config);
     }
 
 
-    /**
-     * Stopping agent gracefully if get killed.
-     *
-     * @param manager - agent manager
-     */
-    private static void stopManagerIfKilled(TransferManager manager) {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try {
-                LOGGER.info("stopping agent gracefully");
-                manager.stop();
-            } catch (Exception ex) {
-                LOGGER.error("exception while stopping threads", ex);
-            }
-        }));
-    }
-
     @Override
     public void start() throws ServiceNotProvidedException, ModuleStartException {
-//        TransferManager manager = new TransferManager(config);
-//        try {
-//            manager.start();
-//            stopManagerIfKilled(manager);
-////            manager.join();
-//        } catch (Exception e) {
-//            e.printStackTrace();
-//        }
+        IBatchDAO batchDAO = getManager().find(StorageModule.NAME).provider().getService(IBatchDAO.class);
+        tailer = new ExportFileTailer(config, batchDAO);
+        try {
+            tailer.start();
+        } catch (IOException e) {
+            throw new ModuleStartException("start export file tailer failed: " + e.getMessage(), e);
+        }
+
+        // Stopping tailer gracefully if get killed.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LOGGER.info("stopping export file tailer gracefully");
+            tailer.shutdown();
+        }, "transfer-shutdown"));
     }
 
     @Override
@@ -78,7 +74,8 @@ public class ServerTransferProvider extends ModuleProvider {
     @Override
     public String[] requiredModules() {
         return new String[]{
-                CoreModule.NAME
+                CoreModule.NAME,
+                StorageModule.NAME
         };
     }
 }
@@ -0,0 +1,409 @@
+package com.zmops.zeus.iot.server.transfer.sender;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Zabbix 历史数据导出文件（ndjson）单行解析，直接扫描 UTF-8 字节，只取 type、itemid、clock、ns、value、host.host，
+ * 其他字段（name、groups、item_tags 等）跳过不创建对象。
+ * <p>
+ * 导出行格式：
+ * <pre>
+ * {"host":{"host":"Zabbix server","name":"Zabbix server"},"groups":["Zabbix servers"],"item_tags":[...],
+ *  "itemid":23664,"name":"CPU idle time","clock":1519304285,"ns":123456789,"value":0.1,"type":0}
+ * </pre>
+ * 非线程安全，每个解析线程一个实例，解析结果写入实例字段，下一行解析时覆盖。
+ */
+class ExportLineParser {
+
+    private static final byte[] KEY_TYPE = bytes("type");
+    private static final byte[] KEY_ITEMID = bytes("itemid");
+    private static final byte[] KEY_CLOCK = bytes("clock");
+    private static final byte[] KEY_NS = bytes("ns");
+    private static final byte[] KEY_VALUE = bytes("value");
+    private static final byte[] KEY_HOST = bytes("host");
+
+    private final StringBuilder unescaped = new StringBuilder();
+
+    private byte[] line;
+    private int pos;
+    private int end;
+
+    int type;
+    int itemid;
+    long clock;
+    long ns;
+    String value;
+    String host;
+
+    /**
+     * @return 缺少必要字段、格式错误或者数值类型（type 0、3）的 value 不是数字时返回 false
+     */
+    boolean parse(byte[] line) {
+        this.line = line;
+        this.pos = 0;
+        this.end = line.length;
+
+        type = -1;
+        itemid = -1;
+        clock = -1;
+        ns = 0;
+        value = null;
+        host = null;
+
+        try {
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                return false;
+            }
+
+            while (true) {
+                skipWhitespace();
+                int keyStart = pos + 1;
+                int keyEnd = skipString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+
+                if (keyEquals(keyStart, keyEnd, KEY_TYPE)) {
+                    type = readInt();
+                } else if (keyEquals(keyStart, keyEnd, KEY_ITEMID)) {
+                    itemid = readInt();
+                } else if (keyEquals(keyStart, keyEnd, KEY_CLOCK)) {
+                    clock = readLong();
+                } else if (keyEquals(keyStart, keyEnd, KEY_NS)) {
+                    ns = readLong();
+                } else if (keyEquals(keyStart, keyEnd, KEY_VALUE)) {
+                    value = readScalar();
+                } else if (keyEquals(keyStart, keyEnd, KEY_HOST)) {
+                    host = readHost();
+                } else {
+                    skipValue();
+                }
+
+                skipWhitespace();
+                byte c = next();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    return false;
+                }
+            }
+        } catch (IllegalStateException e) {
+            return false;
+        }
+
+        return type >= 0 && itemid >= 0 && clock >= 0 && value != null && numeric();
+    }
+
+    /**
+     * 数值类型的值在这里校验，避免无法解析的值进入存储和聚合
+     */
+    private boolean numeric() {
+        try {
+            if (type == 0) {
+                Double.parseDouble(value);
+            } else if (type == 3) {
+                Long.parseLong(value);
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 毫秒时间戳，与 clock + ns 前三位拼接的结果一致
+     */
+    long timestamp() {
+        return clock * 1000 + ns / 1000000;
+    }
+
+    /**
+     * host 字段是对象 {"host":"...","name":"..."}，取其中的 host；兼容直接是字符串的情况
+     */
+    private String readHost() {
+        if (peek() == '"') {
+            return readString();
+        }
+
+        String result = null;
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return null;
+        }
+        while (true) {
+            skipWhitespace();
+            int keyStart = pos + 1;
+            int keyEnd = skipString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (keyEquals(keyStart, keyEnd, KEY_HOST) && peek() == '"') {
+                result = readString();
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            byte c = next();
+            if (c == '}') {
+                return result;
+            }
+            if (c != ',') {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * 字符串返回内容，数字、true/false 返回原文，null 返回 null
+     */
+    private String readScalar() {
+        byte c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalStateException();
+        }
+        int start = pos;
+        while (pos < end) {
+            c = line[pos];
+            if (c == ',' || c == '}' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw new IllegalStateException();
+        }
+        if (pos - start == 4 && line[start] == 'n' && line[start + 1] == 'u' && line[start + 2] == 'l' && line[start + 3] == 'l') {
+            return null;
+        }
+        return new String(line, start, pos - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private int readInt() {
+        long result = readLong();
+        if (result > Integer.MAX_VALUE || result < Integer.MIN_VALUE) {
+            throw new IllegalStateException();
+        }
+        return (int) result;
+    }
+
+    private long readLong() {
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            pos++;
+        }
+        boolean negative = peek() == '-';
+        if (negative) {
+            pos++;
+        }
+
+        int start = pos;
+        long result = 0;
+        while (pos < end) {
+            byte c = line[pos];
+            if (c < '0' || c > '9') {
+                break;
+            }
+            if (result > (Long.MAX_VALUE - (c - '0')) / 10) {
+                throw new IllegalStateException();
+            }
+            result = result * 10 + (c - '0');
+            pos++;
+        }
+        if (pos == start) {
+            throw new IllegalStateException();
+        }
+        if (quoted) {
+            expect('"');
+        }
+        return negative ? -result : result;
+    }
+
+    private String readString() {
+        expect('"');
+        int start = pos;
+        while (pos < end) {
+            byte c = line[pos];
+            if (c == '"') {
+                String result = new String(line, start, pos - start, StandardCharsets.UTF_8);
+                pos++;
+                return result;
+            }
+            if (c == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * 含转义字符的字符串，较少见，走 StringBuilder
+     */
+    private String readEscapedString(int start) {
+        unescaped.setLength(0);
+        int chunk = start;
+        while (pos < end) {
+            byte c = line[pos];
+            if (c == '"') {
+                unescaped.append(new String(line, chunk, pos - chunk, StandardCharsets.UTF_8));
+                pos++;
+                return unescaped.toString();
+            }
+            if (c != '\\') {
+                pos++;
+                continue;
+            }
+
+            unescaped.append(new String(line, chunk, pos - chunk, StandardCharsets.UTF_8));
+            if (pos + 1 >= end) {
+                throw new IllegalStateException();
+            }
+            byte escaped = line[pos + 1];
+            pos += 2;
+            switch (escaped) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > end) {
+                        throw new IllegalStateException();
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(line[pos + i], 16);
+                        if (digit < 0) {
+                            throw new IllegalStateException();
+                        }
+                        code = code << 4 | digit;
+                    }
+                    unescaped.append((char) code);
+                    pos += 4;
+                    break;
+                default:
+                    // " \ / 原样
+                    unescaped.append((char) escaped);
+            }
+            chunk = pos;
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * 跳过字符串
+     *
+     * @return 字符串内容的结束位置（右引号位置）
+     */
+    private int skipString() {
+        expect('"');
+        while (pos < end) {
+            byte c = line[pos];
+            if (c == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (c == '"') {
+                return pos++;
+            }
+            pos++;
+        }
+        throw new IllegalStateException();
+    }
+
+    private void skipValue() {
+        byte c = peek();
+        if (c == '"') {
+            skipString();
+            return;
+        }
+        if (c != '{' && c != '[') {
+            readScalar();
+            return;
+        }
+
+        int depth = 0;
+        while (pos < end) {
+            c = line[pos];
+            if (c == '"') {
+                skipString();
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    pos++;
+                    return;
+                }
+            }
+            pos++;
+        }
+        throw new IllegalStateException();
+    }
+
+    private boolean keyEquals(int start, int keyEnd, byte[] key) {
+        if (keyEnd - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (line[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = line[pos];
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private byte peek() {
+        if (pos >= end) {
+            throw new IllegalStateException();
+        }
+        return line[pos];
+    }
+
+    private byte next() {
+        if (pos >= end) {
+            throw new IllegalStateException();
+        }
+        return line[pos++];
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+}
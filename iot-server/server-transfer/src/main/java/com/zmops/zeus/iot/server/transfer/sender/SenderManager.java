@@ -1,41 +1,114 @@
 package com.zmops.zeus.iot.server.transfer.sender;
 
-import com.alibaba.fastjson.JSON;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.History;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.StrHistory;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.TextHistory;
 import com.zmops.zeus.iot.server.core.analysis.manual.history.UIntHistory;
 import com.zmops.zeus.iot.server.core.analysis.record.Record;
 import com.zmops.zeus.iot.server.core.analysis.worker.RecordStreamProcessor;
+import com.zmops.zeus.iot.server.transfer.provider.ServerTransferConfig;
 import com.zmops.zeus.server.transfer.conf.JobProfile;
 import com.zmops.zeus.server.transfer.core.task.TaskPositionManager;
 import com.zmops.zeus.server.transfer.metrics.PluginMetric;
-import lombok.Getter;
-import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * 发送管理
+ * <p>
+ * 每批数据按 parseChunkSize 切块，交给共享的解析线程池并行解析、投递；
+ * 文件读取位置按批次提交顺序推进，前面的批次没有完成时，后面已完成的批次等待，保证断点续传不跳过数据。
  */
 public class SenderManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SenderManager.class);
 
+    private static final ThreadLocal<ExportLineParser> PARSER = ThreadLocal.withInitial(ExportLineParser::new);
+
+    private static volatile ServerTransferConfig config = new ServerTransferConfig();
+
+    private static volatile ThreadPoolExecutor parseExecutor;
+
     private final TaskPositionManager taskPositionManager;
     private final String sourceFilePath;
+    private final String fileName;
+
+    /**
+     * 读取位置提交回调，按文件字节偏移量提交，没有时为 null
+     */
+    private final CommitListener commitListener;
 
     private final PluginMetric metric = new PluginMetric();
 
+    /**
+     * 未提交读取位置的批次，按提交顺序排列
+     */
+    private final ArrayDeque<PendingBatch> pendingBatches = new ArrayDeque<>();
+
     public SenderManager(JobProfile jobConf, String bid, String sourceFilePath) {
-        taskPositionManager = TaskPositionManager.getTaskPositionManager();
+        this(TaskPositionManager.getTaskPositionManager(), sourceFilePath, null);
+    }
+
+    /**
+     * 不经过 TaskPositionManager，读取位置由调用方通过 commitListener 自行保存
+     */
+    public SenderManager(String sourceFilePath, CommitListener commitListener) {
+        this(null, sourceFilePath, commitListener);
+    }
+
+    private SenderManager(TaskPositionManager taskPositionManager, String sourceFilePath, CommitListener commitListener) {
+        this.taskPositionManager = taskPositionManager;
         this.sourceFilePath = sourceFilePath;
+        this.commitListener = commitListener;
+
+        if (!System.getProperty("os.name").toLowerCase().startsWith("win")) {
+            String[] i = sourceFilePath.split("/");
+            this.fileName = i[i.length - 1];
+        } else {
+            this.fileName = sourceFilePath;
+        }
+    }
+
+    /**
+     * 设置解析参数，由 ServerTransferProvider 在启动时调用
+     */
+    public static synchronized void configure(ServerTransferConfig transferConfig) {
+        config = transferConfig;
+        if (parseExecutor != null) {
+            parseExecutor.shutdown();
+            parseExecutor = null;
+        }
+    }
+
+    private static ThreadPoolExecutor parseExecutor() {
+        ThreadPoolExecutor executor = parseExecutor;
+        if (executor == null) {
+            synchronized (SenderManager.class) {
+                executor = parseExecutor;
+                if (executor == null) {
+                    int threads = config.getParseThreads() > 0
+                            ? config.getParseThreads() : Runtime.getRuntime().availableProcessors();
+                    // 队列满时由读取线程自己解析，同时起到反压作用
+                    executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(threads * 4),
+                            new ThreadFactoryBuilder().setNameFormat("transfer-parser-%d").setDaemon(true).build(),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    parseExecutor = executor;
+                }
+            }
+        }
+        return executor;
     }
 
     /**
@@ -47,80 +120,185 @@ public class SenderManager {
      * @param retry    - retry time
      */
     public void sendBatch(String jobId, String bid, String tid, List<byte[]> bodyList, int retry, long dataTime) {
-        try {
-            bodyList.forEach(body -> {
-                ItemValue itemValue = JSON.parseObject(new String(body, StandardCharsets.UTF_8), ItemValue.class);
-
-                Record record;
-
-                if (itemValue.getType() == 3) { //uint
-                    record = new UIntHistory();
-                } else if (itemValue.getType() == 0) {
-                    record = new History();
-                } else if (itemValue.getType() == 4) { //text
-                    record = new TextHistory();
-                } else if (itemValue.getType() == 1) {
-                    record = new StrHistory();
-                } else {
+        sendBatch(jobId, bid, tid, bodyList, dataTime, -1);
+    }
+
+    /**
+     * 发送一批数据，全部投递完成并且之前的批次都已提交后，以 position 回调 commitListener
+     *
+     * @param position 这批数据之后的文件字节偏移量
+     */
+    public void sendBatch(String jobId, String bid, String tid, List<byte[]> bodyList, long dataTime, long position) {
+        if (bodyList.isEmpty()) {
+            return;
+        }
+
+        int chunkSize = Math.max(1, config.getParseChunkSize());
+        int chunks = (bodyList.size() + chunkSize - 1) / chunkSize;
+
+        PendingBatch batch = new PendingBatch(jobId, bid, tid, bodyList.size(), chunks, dataTime, position);
+        synchronized (pendingBatches) {
+            while (pendingBatches.size() >= Math.max(1, config.getMaxPendingBatches())) {
+                try {
+                    pendingBatches.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                     return;
                 }
+            }
+            pendingBatches.addLast(batch);
+        }
 
-                record.setItemid(itemValue.itemid);
-                record.setValue(itemValue.getHost().get("host"), itemValue.value, itemValue.getTimestamp());
+        if (chunks == 1) {
+            send(batch, bodyList);
+            return;
+        }
 
-                RecordStreamProcessor.getInstance().in(record);
-            });
+        ThreadPoolExecutor executor = parseExecutor();
+        for (int from = 0; from < bodyList.size(); from += chunkSize) {
+            // 调用方可能复用 bodyList，异步解析前复制一份引用
+            List<byte[]> chunk = new ArrayList<>(bodyList.subList(from, Math.min(bodyList.size(), from + chunkSize)));
+            executor.execute(() -> send(batch, chunk));
+        }
+    }
 
-            metric.sendSuccessNum.incr(bodyList.size());
-            taskPositionManager.updateFileSinkPosition(jobId, sourceFilePath, bodyList.size());
+    private void send(PendingBatch batch, List<byte[]> chunk) {
+        ExportLineParser parser = PARSER.get();
+        RecordStreamProcessor processor = RecordStreamProcessor.getInstance();
 
-            String fileName;
-            if (!System.getProperty("os.name").toLowerCase().startsWith("win")) {
-                String[] i = sourceFilePath.split("/");
-                fileName = i[i.length - 1];
-            } else {
-                fileName = sourceFilePath;
+        int failed = 0;
+        try {
+            for (byte[] body : chunk) {
+                try {
+                    if (!send(parser, processor, body)) {
+                        failed++;
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.error("drop line of {}: {}", fileName, new String(body, StandardCharsets.UTF_8), e);
+                    failed++;
+                }
             }
-
-            LOGGER.info("send bid [{}] with message size [{}], the job id is [{}],the tid is [{}], read file is {}, "
-                    + "dataTime is {}", bid, bodyList.size(), jobId, tid, fileName, dataTime);
-
-        } catch (Exception exception) {
-            LOGGER.error("Exception caught", exception);
-            // retry time
-            try {
-                TimeUnit.SECONDS.sleep(1);
-                sendBatch(jobId, bid, tid, bodyList, retry + 1, dataTime);
-            } catch (Exception ignored) {
-                // ignore it.
+        } finally {
+            // 无论成功与否都要完成这一块，否则读取线程会一直等待 pendingBatches
+            if (failed > 0) {
+                batch.failed.addAndGet(failed);
+            }
+            if (batch.remainingChunks.decrementAndGet() == 0) {
+                commitCompleted();
             }
         }
     }
 
-    @Setter
-    @Getter
-    static class ItemValue {
+    /**
+     * @return 解析失败或者投递失败时返回 false，不支持的类型忽略
+     */
+    private boolean send(ExportLineParser parser, RecordStreamProcessor processor, byte[] body) {
+        if (!parser.parse(body)) {
+            return false;
+        }
 
-        private Integer type;
+        Record record;
+        if (parser.type == 3) { //uint
+            record = new UIntHistory();
+        } else if (parser.type == 0) {
+            record = new History();
+        } else if (parser.type == 4) { //text
+            record = new TextHistory();
+        } else if (parser.type == 1) {
+            record = new StrHistory();
+        } else {
+            return true;
+        }
+
+        record.setItemid(parser.itemid);
+        record.setValue(parser.host, parser.value, parser.timestamp());
 
-        private String name;
+        return inWithRetry(processor, record);
+    }
 
-        private Long clock;
+    /**
+     * 有限次重试，间隔按 sendRetryBackoff 倍增
+     */
+    private boolean inWithRetry(RecordStreamProcessor processor, Record record) {
+        long backoff = config.getSendRetryBackoff();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                processor.in(record);
+                return true;
+            } catch (Exception e) {
+                if (attempt >= config.getSendMaxRetries()) {
+                    LOGGER.error("drop record of item [{}] from {} after {} retries", record.itemid(), fileName, attempt, e);
+                    return false;
+                }
+                LOGGER.warn("send record of item [{}] failed, retry in {} ms", record.itemid(), backoff, e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, config.getMaxSendRetryBackoff());
+            }
+        }
+    }
 
-        private Integer itemid;
+    /**
+     * 按提交顺序推进已完成批次的读取位置
+     */
+    private void commitCompleted() {
+        synchronized (pendingBatches) {
+            PendingBatch batch;
+            while ((batch = pendingBatches.peekFirst()) != null && batch.remainingChunks.get() == 0) {
+                pendingBatches.pollFirst();
 
-        private List<Map<String, String>> item_tags;
+                int failed = batch.failed.get();
+                metric.sendSuccessNum.incr(batch.size - failed);
+                if (failed > 0) {
+                    metric.sendFailedNum.incr(failed);
+                    LOGGER.warn("{} of {} lines from {} were unparseable or dropped", failed, batch.size, fileName);
+                }
+                if (taskPositionManager != null) {
+                    taskPositionManager.updateFileSinkPosition(batch.jobId, sourceFilePath, batch.size);
+                }
+                if (commitListener != null && batch.position >= 0) {
+                    commitListener.committed(batch.position);
+                }
 
-        private List<String> groups;
+                LOGGER.info("send bid [{}] with message size [{}], the job id is [{}],the tid is [{}], read file is {}, "
+                        + "dataTime is {}", batch.bid, batch.size, batch.jobId, batch.tid, fileName, batch.dataTime);
+            }
+            pendingBatches.notifyAll();
+        }
+    }
 
-        private Long ns;
+    private static class PendingBatch {
 
-        private String value;
+        private final String jobId;
+        private final String bid;
+        private final String tid;
+        private final int size;
+        private final long dataTime;
+        private final long position;
 
-        private Map<String, String> host;
+        private final AtomicInteger remainingChunks;
+        private final AtomicInteger failed = new AtomicInteger();
 
-        public Long getTimestamp() {
-            return Long.valueOf(clock + String.format("%09d", ns).substring(0, 3));
+        PendingBatch(String jobId, String bid, String tid, int size, int chunks, long dataTime, long position) {
+            this.jobId = jobId;
+            this.bid = bid;
+            this.tid = tid;
+            this.size = size;
+            this.dataTime = dataTime;
+            this.position = position;
+            this.remainingChunks = new AtomicInteger(chunks);
         }
     }
+
+    public interface CommitListener {
+
+        /**
+         * @param position 已投递完成的文件字节偏移量，按提交顺序单调递增
+         */
+        void committed(long position);
+    }
 }
@@ -0,0 +1,461 @@
+package com.zmops.zeus.iot.server.transfer.tailer;
+
+import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
+import com.zmops.zeus.iot.server.transfer.provider.ServerTransferConfig;
+import com.zmops.zeus.iot.server.transfer.sender.SenderManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Zabbix 历史数据导出文件跟踪读取。
+ * <p>
+ * pattern 的目录部分为监听目录，文件名部分为正则，匹配的文件逐行读取交给 {@link SenderManager}。
+ * 目录变化通过 WatchService（Linux 上为 inotify）唤醒，WatchService 不可用或者关闭时按 pollInterval 轮询；
+ * 即使开启 WatchService 也会按 pollInterval 兜底扫描，事件丢失不影响读取。
+ * <ul>
+ * <li>滚动：Zabbix 写满 ExportFileSize 后把文件改名为 .old 并新建同名文件，
+ * 发现同名文件的文件标识（inode）变化时，先把旧句柄读到末尾，再从头读新文件</li>
+ * <li>滚动时旧句柄已经因为空闲关闭的，按文件标识在目录中找到改名后的文件，从读取位置重新打开读完</li>
+ * <li>截断：文件长度小于读取位置时从头读</li>
+ * <li>位置：批次投递完成后按顺序提交，定时等之前的数据写入存储后原子写盘，重启后文件标识一致时从上次位置继续</li>
+ * <li>目录不存在时只记录一次日志，继续按 pollInterval 检查，目录创建后开始读取</li>
+ * <li>反压：SenderManager 未提交批次达到上限、存储 DataCarrier 队列满时读取线程阻塞，不再继续读文件</li>
+ * </ul>
+ */
+public class ExportFileTailer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportFileTailer.class);
+
+    private final ServerTransferConfig config;
+
+    private final Path dir;
+
+    private final Pattern namePattern;
+
+    private final PositionStore positionStore;
+
+    /**
+     * 读取位置写盘前等待数据写入存储，为 null 时不等待
+     */
+    private final IBatchDAO batchDAO;
+
+    private final Map<Path, TailedFile> files = new ConcurrentHashMap<>();
+
+    private final ByteBuffer buffer;
+
+    private WatchService watchService;
+
+    private Thread thread;
+
+    private volatile boolean running;
+
+    private long lastFlush;
+
+    private boolean dirMissing;
+
+    public ExportFileTailer(ServerTransferConfig config, IBatchDAO batchDAO) {
+        this.config = config;
+        this.batchDAO = batchDAO;
+
+        Path pattern = Paths.get(config.getPattern());
+        this.dir = pattern.getParent() == null ? Paths.get(".") : pattern.getParent();
+        this.namePattern = Pattern.compile(pattern.getFileName().toString());
+        this.positionStore = new PositionStore(Paths.get(config.getPositionPath()));
+        this.buffer = ByteBuffer.allocate(Math.max(4096, config.getReadBufferSize()));
+    }
+
+    public void start() throws IOException {
+        open();
+
+        thread = new Thread(this::run, "transfer-tailer");
+        thread.setDaemon(true);
+        thread.start();
+
+        LOGGER.info("tailing {} in {}, watch service: {}", namePattern, dir, watchService != null);
+    }
+
+    /**
+     * 加载读取位置，开始监听目录，之后由读取线程调用 {@link #scan()}
+     */
+    void open() throws IOException {
+        positionStore.load();
+        if (Files.isDirectory(dir)) {
+            watch();
+        }
+        running = true;
+    }
+
+    private void watch() {
+        if (!config.isWatchEnabled() || watchService != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("watch service is unavailable for {}, fall back to polling: {}", dir, e.getMessage());
+            closeWatchService();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeWatchService();
+        flushPositions();
+    }
+
+    boolean flushPositions() {
+        return positionStore.flush(batchDAO, config.getPersistWaitTimeout());
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                scan();
+            } catch (Exception e) {
+                LOGGER.error("tail {} failed", dir, e);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastFlush >= config.getPositionFlushInterval()) {
+                flushPositions();
+                lastFlush = now;
+            }
+
+            try {
+                await();
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+
+        for (TailedFile file : files.values()) {
+            file.close();
+        }
+        files.clear();
+    }
+
+    /**
+     * 等待目录事件或者轮询间隔
+     */
+    private void await() throws InterruptedException {
+        WatchService watcher = watchService;
+        if (watcher == null) {
+            TimeUnit.MILLISECONDS.sleep(config.getPollInterval());
+            return;
+        }
+
+        try {
+            WatchKey key = watcher.poll(config.getPollInterval(), TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents();
+                if (!key.reset()) {
+                    LOGGER.warn("watch key of {} is invalid, fall back to polling", dir);
+                    closeWatchService();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            TimeUnit.MILLISECONDS.sleep(config.getPollInterval());
+        }
+    }
+
+    void scan() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            if (!dirMissing) {
+                dirMissing = true;
+                LOGGER.warn("{} does not exist, wait for it to be created", dir);
+            }
+            drainMissing(Collections.emptySet());
+            return;
+        }
+        if (dirMissing) {
+            dirMissing = false;
+            LOGGER.info("{} is created, start tailing", dir);
+            watch();
+        }
+
+        Set<Path> seen = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                if (!namePattern.matcher(path.getFileName().toString()).matches() || !Files.isRegularFile(path)) {
+                    continue;
+                }
+                seen.add(path);
+
+                String fileKey;
+                try {
+                    fileKey = fileKey(path);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+
+                TailedFile file = files.get(path);
+                if (file == null) {
+                    file = open(path, fileKey);
+                } else if (!file.fileKey.equals(fileKey)) {
+                    LOGGER.info("{} rotated, finish the old file at {}", path, file.readPosition);
+                    drain(file);
+                    file = new TailedFile(path, fileKey, 0);
+                }
+                files.put(path, file);
+
+                read(file, false);
+            }
+        }
+
+        drainMissing(seen);
+    }
+
+    /**
+     * 文件被改名或删除、新文件还没有创建，读完旧句柄后关闭
+     */
+    private void drainMissing(Set<Path> seen) throws IOException {
+        for (Iterator<Map.Entry<Path, TailedFile>> it = files.entrySet().iterator(); it.hasNext(); ) {
+            TailedFile file = it.next().getValue();
+            if (!seen.contains(file.path)) {
+                drain(file);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 读完已经滚动走的文件后关闭
+     */
+    private void drain(TailedFile file) throws IOException {
+        if (file.channel == null && !file.reopenRotated()) {
+            LOGGER.warn("rotated file of {} is not found, stop reading it at {}", file.path, file.readPosition);
+            return;
+        }
+        try {
+            read(file, true);
+        } finally {
+            file.close();
+        }
+    }
+
+    private TailedFile open(Path path, String fileKey) throws IOException {
+        PositionStore.Position position = positionStore.get(path.toString());
+        long offset = 0;
+        if (position != null && position.fileKey.equals(fileKey)) {
+            offset = position.offset;
+        } else if (position != null) {
+            LOGGER.info("{} rotated while stopped, read from the beginning", path);
+        }
+        return new TailedFile(path, fileKey, offset);
+    }
+
+    /**
+     * 从读取位置读到文件末尾
+     *
+     * @param draining 文件已经滚动走，不再检查截断和空闲
+     */
+    private void read(TailedFile file, boolean draining) throws IOException {
+        FileChannel channel = file.channel;
+        if (channel == null) {
+            if (draining || Files.size(file.path) == file.readPosition) {
+                return;
+            }
+            channel = file.open();
+        }
+
+        long size = channel.size();
+        if (!draining && size < file.readPosition) {
+            LOGGER.warn("{} truncated from {} to {}, read from the beginning", file.path, file.readPosition, size);
+            file.close();
+            file = new TailedFile(file.path, file.fileKey, 0);
+            files.put(file.path, file);
+            channel = file.open();
+        }
+
+        if (file.readPosition >= size) {
+            if (!draining && System.currentTimeMillis() - file.lastReadTime > TimeUnit.SECONDS.toMillis(config.getFileMaxWait())) {
+                // 长时间没有新数据，释放句柄，有新数据时重新打开
+                file.close();
+            }
+            return;
+        }
+
+        byte[] array = buffer.array();
+        List<byte[]> lines = new ArrayList<>(config.getBatchLines());
+        while (running && file.readPosition < size) {
+            buffer.clear();
+            int n = channel.read(buffer, file.readPosition);
+            if (n <= 0) {
+                break;
+            }
+
+            int lineStart = 0;
+            for (int i = 0; i < n; i++) {
+                if (array[i] != '\n') {
+                    continue;
+                }
+                if (file.skipping) {
+                    file.skipping = false;
+                } else {
+                    int lineEnd = i > lineStart && array[i - 1] == '\r' ? i - 1 : i;
+                    if (lineEnd > lineStart) {
+                        lines.add(Arrays.copyOfRange(array, lineStart, lineEnd));
+                    }
+                }
+                lineStart = i + 1;
+            }
+
+            if (lineStart == 0 && n == array.length) {
+                // 单行超过读缓冲区，丢弃到下一个换行
+                LOGGER.warn("line at {}:{} exceeds {} bytes, skipped", file.path, file.readPosition, array.length);
+                file.skipping = true;
+                lineStart = n;
+            }
+            if (lineStart == 0) {
+                // 最后一行还没写完，等下次
+                break;
+            }
+            file.readPosition += lineStart;
+
+            if (lines.size() >= config.getBatchLines()) {
+                file.send(lines);
+                lines = new ArrayList<>(config.getBatchLines());
+            }
+        }
+
+        if (!lines.isEmpty()) {
+            file.send(lines);
+        }
+        file.lastReadTime = System.currentTimeMillis();
+    }
+
+    private void closeWatchService() {
+        WatchService watcher = watchService;
+        watchService = null;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+                // ignore it.
+            }
+        }
+    }
+
+    private static String fileKey(Path path) throws IOException {
+        Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        return key == null ? "" : key.toString();
+    }
+
+    /**
+     * 一个被跟踪的文件，滚动或截断后换新的实例，旧实例未完成的提交不再写入位置
+     */
+    private class TailedFile {
+
+        private final Path path;
+
+        private final String fileKey;
+
+        private final SenderManager sender;
+
+        private FileChannel channel;
+
+        private long readPosition;
+
+        private long lastReadTime = System.currentTimeMillis();
+
+        /**
+         * 正在丢弃超长行
+         */
+        private boolean skipping;
+
+        TailedFile(Path path, String fileKey, long readPosition) {
+            this.path = path;
+            this.fileKey = fileKey;
+            this.readPosition = readPosition;
+            this.sender = new SenderManager(path.toString(), this::committed);
+        }
+
+        FileChannel open() throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return channel;
+        }
+
+        /**
+         * 句柄空闲关闭后文件被改名，在目录中按文件标识查找并重新打开
+         *
+         * @return 没有找到时返回 false
+         */
+        boolean reopenRotated() throws IOException {
+            if (fileKey.isEmpty() || !Files.isDirectory(dir)) {
+                return false;
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path candidate : stream) {
+                    try {
+                        if (Files.isRegularFile(candidate) && fileKey.equals(fileKey(candidate))) {
+                            LOGGER.info("reopen rotated file {} of {} at {}", candidate, path, readPosition);
+                            channel = FileChannel.open(candidate, StandardOpenOption.READ);
+                            return true;
+                        }
+                    } catch (NoSuchFileException ignored) {
+                        // 扫描期间被删除
+                    }
+                }
+            }
+            return false;
+        }
+
+        void send(List<byte[]> lines) {
+            sender.sendBatch(config.getName(), config.getName(), path.getFileName().toString(),
+                    lines, System.currentTimeMillis(), readPosition);
+        }
+
+        private void committed(long position) {
+            if (files.get(path) == this) {
+                positionStore.update(path.toString(), fileKey, position);
+            }
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // ignore it.
+                }
+                channel = null;
+            }
+        }
+    }
+}
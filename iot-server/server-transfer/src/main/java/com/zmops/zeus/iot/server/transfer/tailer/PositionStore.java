@@ -0,0 +1,128 @@
+package com.zmops.zeus.iot.server.transfer.tailer;
+
+import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 文件读取位置持久化，properties 格式：文件路径 = 文件标识|字节偏移量。
+ * <p>
+ * 先写临时文件再原子替换，进程崩溃时要么是旧内容要么是新内容；文件标识用于重启后判断文件是否已经滚动。
+ * 写盘前等待位置之前的数据写入存储，重启后从保存的位置继续不会丢掉只进入了存储队列的数据。
+ */
+class PositionStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionStore.class);
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path file;
+
+    private final Map<String, Position> positions = new ConcurrentHashMap<>();
+
+    private volatile boolean dirty;
+
+    PositionStore(Path file) {
+        this.file = file;
+    }
+
+    void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+
+        for (String path : properties.stringPropertyNames()) {
+            String value = properties.getProperty(path);
+            int split = value.lastIndexOf('|');
+            try {
+                positions.put(path, new Position(value.substring(0, split), Long.parseLong(value.substring(split + 1))));
+            } catch (RuntimeException e) {
+                LOGGER.warn("ignore broken position of {}: {}", path, value);
+            }
+        }
+    }
+
+    /**
+     * @return 没有记录时返回 null
+     */
+    Position get(String path) {
+        return positions.get(path);
+    }
+
+    void update(String path, String fileKey, long offset) {
+        positions.put(path, new Position(fileKey, offset));
+        dirty = true;
+    }
+
+    /**
+     * 有变化时写盘。先取位置快照，等快照之前投递的数据都写入存储后再写盘，等待超时时本次不写盘
+     *
+     * @param batchDAO 为 null 时不等待
+     * @return 没有变化或者已经写盘时返回 true
+     */
+    synchronized boolean flush(IBatchDAO batchDAO, long timeoutMillis) {
+        if (!dirty) {
+            return true;
+        }
+        dirty = false;
+
+        Properties properties = new Properties();
+        positions.forEach((path, position) -> properties.setProperty(path, position.fileKey + "|" + position.offset));
+
+        try {
+            if (batchDAO != null && !batchDAO.awaitPersisted(timeoutMillis)) {
+                dirty = true;
+                LOGGER.warn("data before the transfer positions is not persisted in {} ms, keep the saved positions", timeoutMillis);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            dirty = true;
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile())) {
+                properties.store(out, "zeus transfer file positions");
+                out.getFD().sync();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.error("persist transfer positions to {} failed", file, e);
+            return false;
+        }
+    }
+
+    static class Position {
+
+        final String fileKey;
+
+        final long offset;
+
+        Position(String fileKey, long offset) {
+            this.fileKey = fileKey;
+            this.offset = offset;
+        }
+    }
+}
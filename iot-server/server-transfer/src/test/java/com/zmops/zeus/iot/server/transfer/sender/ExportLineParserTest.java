@@ -0,0 +1,65 @@
+package com.zmops.zeus.iot.server.transfer.sender;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportLineParserTest {
+
+    private final ExportLineParser parser = new ExportLineParser();
+
+    @Test
+    public void parsesExportLine() {
+        assertTrue(parse("{\"host\":{\"host\":\"Zabbix server\",\"name\":\"Zabbix server\"},\"groups\":[\"Zabbix servers\"],"
+                + "\"item_tags\":[{\"tag\":\"a\",\"value\":\"}\"}],\"itemid\":23664,\"name\":\"CPU idle time\","
+                + "\"clock\":1519304285,\"ns\":123456789,\"value\":0.1,\"type\":0}"));
+        assertEquals(0, parser.type);
+        assertEquals(23664, parser.itemid);
+        assertEquals(1519304285123L, parser.timestamp());
+        assertEquals("0.1", parser.value);
+        assertEquals("Zabbix server", parser.host);
+    }
+
+    @Test
+    public void unescapesStrings() {
+        assertTrue(parse("{\"host\":\"h\\\"1\",\"itemid\":1,\"clock\":1,\"value\":\"a\\u4e2d\\n\\\\b\",\"type\":4}"));
+        assertEquals("h\"1", parser.host);
+        assertEquals("a\u4e2d\n\\b", parser.value);
+    }
+
+    @Test
+    public void rejectsBadUnicodeEscape() {
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":\"\\u12zz\",\"type\":1}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":\"\\u-123\",\"type\":1}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":\"\\u12"));
+    }
+
+    @Test
+    public void rejectsNonNumericValueOfNumericTypes() {
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":\"abc\",\"type\":0}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":1.5,\"type\":3}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":true,\"type\":0}"));
+        assertTrue(parse("{\"itemid\":1,\"clock\":1,\"value\":\"abc\",\"type\":1}"));
+        assertTrue(parse("{\"itemid\":1,\"clock\":1,\"value\":\"-42\",\"type\":3}"));
+    }
+
+    @Test
+    public void rejectsBadOrOverflowingNumbers() {
+        assertFalse(parse("{\"itemid\":\"x\",\"clock\":1,\"value\":1,\"type\":0}"));
+        assertFalse(parse("{\"itemid\":2147483648,\"clock\":1,\"value\":1,\"type\":0}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":99999999999999999999,\"value\":1,\"type\":0}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"type\":0}"));
+        assertFalse(parse("{\"itemid\":1,\"clock\":1,\"value\":null,\"type\":0}"));
+        assertFalse(parse("not json"));
+        assertNull(parser.value);
+    }
+
+    private boolean parse(String line) {
+        return parser.parse(line.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,228 @@
+package com.zmops.zeus.iot.server.transfer.tailer;
+
+import com.zmops.zeus.iot.server.client.request.InsertRequest;
+import com.zmops.zeus.iot.server.client.request.PrepareRequest;
+import com.zmops.zeus.iot.server.core.analysis.worker.RecordStreamProcessor;
+import com.zmops.zeus.iot.server.core.storage.IBatchDAO;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
+import com.zmops.zeus.iot.server.transfer.provider.ServerTransferConfig;
+import com.zmops.zeus.iot.server.transfer.sender.SenderManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 直接调用 scan，读到的数据通过 RecordStreamProcessor 的最新值表检查
+ */
+public class ExportFileTailerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ExportFileTailer> tailers = new ArrayList<>();
+
+    private Path dir;
+
+    private Path positionFile;
+
+    private ServerTransferConfig config;
+
+    private LatestValueService latest;
+
+    private volatile boolean persisted = true;
+
+    private final IBatchDAO batchDAO = new IBatchDAO() {
+        @Override
+        public void insert(InsertRequest insertRequest) {
+        }
+
+        @Override
+        public void flush(List<PrepareRequest> prepareRequests) {
+        }
+
+        @Override
+        public boolean awaitPersisted(long timeoutMillis) {
+            return persisted;
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.getRoot().toPath().resolve("export");
+        Files.createDirectories(dir);
+        positionFile = folder.getRoot().toPath().resolve("position.properties");
+
+        config = new ServerTransferConfig();
+        config.setName("test");
+        config.setPattern(dir.resolve("history-[0-9]\\.ndjson").toString());
+        config.setPositionPath(positionFile.toString());
+        config.setWatchEnabled(false);
+        config.setReadBufferSize(4096);
+        SenderManager.configure(config);
+
+        resetLatest();
+    }
+
+    @After
+    public void tearDown() {
+        tailers.forEach(ExportFileTailer::shutdown);
+        RecordStreamProcessor.getInstance().setLatestValues(null);
+    }
+
+    @Test
+    public void rotationReopensIdleClosedFile() throws Exception {
+        config.setFileMaxWait(0);
+        Path file = dir.resolve("history-1.ndjson");
+        append(file, 1, 2);
+
+        ExportFileTailer tailer = open();
+        tailer.scan();
+        assertItems(1, 2);
+
+        // 空闲超过 fileMaxWait，句柄关闭
+        Thread.sleep(20);
+        tailer.scan();
+
+        append(file, 3, 4);
+        Files.move(file, dir.resolve("history-1.ndjson.old"));
+        append(file, 5);
+        tailer.scan();
+
+        assertItems(3, 4, 5);
+    }
+
+    @Test
+    public void rotationDrainsOpenFile() throws Exception {
+        Path file = dir.resolve("history-1.ndjson");
+        append(file, 1);
+
+        ExportFileTailer tailer = open();
+        tailer.scan();
+
+        append(file, 2);
+        Files.move(file, dir.resolve("history-1.ndjson.old"));
+        append(file, 3);
+        tailer.scan();
+
+        assertItems(1, 2, 3);
+    }
+
+    @Test
+    public void truncationRestartsFromBeginning() throws Exception {
+        Path file = dir.resolve("history-1.ndjson");
+        append(file, 1, 2, 3);
+
+        ExportFileTailer tailer = open();
+        tailer.scan();
+        assertItems(1, 2, 3);
+
+        resetLatest();
+        Files.write(file, line(4), StandardOpenOption.TRUNCATE_EXISTING);
+        tailer.scan();
+
+        assertItems(4);
+        assertMissing(1, 2, 3);
+    }
+
+    @Test
+    public void restartContinuesFromSavedPosition() throws Exception {
+        Path file = dir.resolve("history-1.ndjson");
+        append(file, 1, 2);
+
+        ExportFileTailer before = open();
+        before.scan();
+        assertTrue(before.flushPositions());
+        assertTrue(Files.exists(positionFile));
+
+        resetLatest();
+        append(file, 3);
+        ExportFileTailer after = open();
+        after.scan();
+
+        assertItems(3);
+        assertMissing(1, 2);
+    }
+
+    @Test
+    public void positionsWaitUntilDataIsPersisted() throws Exception {
+        Path file = dir.resolve("history-1.ndjson");
+        append(file, 1, 2);
+
+        persisted = false;
+        ExportFileTailer before = open();
+        before.scan();
+        assertFalse(before.flushPositions());
+        assertFalse(Files.exists(positionFile));
+
+        // 没有保存位置，重启后从头读
+        resetLatest();
+        ExportFileTailer after = open();
+        after.scan();
+        assertItems(1, 2);
+
+        persisted = true;
+        assertTrue(after.flushPositions());
+        assertTrue(Files.exists(positionFile));
+    }
+
+    @Test
+    public void missingDirectoryIsPolledUntilCreated() throws Exception {
+        dir = folder.getRoot().toPath().resolve("later");
+        config.setPattern(dir.resolve("history-[0-9]\\.ndjson").toString());
+
+        ExportFileTailer tailer = open();
+        tailer.scan();
+        tailer.scan();
+
+        Files.createDirectories(dir);
+        append(dir.resolve("history-2.ndjson"), 7);
+        tailer.scan();
+
+        assertItems(7);
+    }
+
+    private ExportFileTailer open() throws IOException {
+        ExportFileTailer tailer = new ExportFileTailer(config, batchDAO);
+        tailer.open();
+        tailers.add(tailer);
+        return tailer;
+    }
+
+    private void resetLatest() {
+        latest = new LatestValueService(16);
+        RecordStreamProcessor.getInstance().setLatestValues(latest);
+    }
+
+    private void assertItems(int... itemids) {
+        assertEquals(itemids.length, latest.get(itemids).size());
+    }
+
+    private void assertMissing(int... itemids) {
+        assertEquals(0, latest.get(itemids).size());
+    }
+
+    private static void append(Path file, int... itemids) throws IOException {
+        for (int itemid : itemids) {
+            Files.write(file, line(itemid), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static byte[] line(int itemid) {
+        return ("{\"host\":{\"host\":\"Zabbix server\",\"name\":\"Zabbix server\"},\"itemid\":" + itemid
+                + ",\"clock\":1637000000,\"ns\":0,\"value\":" + itemid + ",\"type\":3}\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
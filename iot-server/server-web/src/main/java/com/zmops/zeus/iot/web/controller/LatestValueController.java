@@ -0,0 +1,91 @@
+package com.zmops.zeus.iot.web.controller;
+
+import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
+import com.zmops.zeus.iot.server.receiver.service.LatestValueService;
+import com.zmops.zeus.server.library.module.ModuleManager;
+import com.zmops.zeus.server.library.web.core.Controller;
+import com.zmops.zeus.server.library.web.core.Path;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 监控项最新值查询，直接读 iot-server 内存中的最新值表
+ */
+@Path(value = "/latest")
+public class LatestValueController extends Controller {
+
+    /**
+     * 单次最多查询的监控项数
+     */
+    private static final int MAX_ITEMIDS = 10000;
+
+    /**
+     * 批量查询最新值，参数 itemids 为逗号分隔的监控项 ID，没有数据的监控项不返回。
+     * ID 超出 int 范围或者数量超过 {@link #MAX_ITEMIDS} 时返回 400
+     */
+    public void query() {
+        int[] itemids;
+        try {
+            itemids = parseItemids(getPara("itemids"));
+        } catch (IllegalArgumentException e) {
+            getResponse().setStatus(400);
+            renderJson("message", e.getMessage());
+            return;
+        }
+        if (itemids.length == 0) {
+            renderJson(Collections.emptyList());
+            return;
+        }
+
+        LatestValueService latestValueService = ModuleManager.getInstance()
+                .find(CamelReceiverModule.NAME).provider().getService(LatestValueService.class);
+
+        renderJson(latestValueService.get(itemids));
+    }
+
+    private static int[] parseItemids(String param) {
+        if (StringUtils.isBlank(param)) {
+            return new int[0];
+        }
+
+        int[] itemids = new int[Math.min(MAX_ITEMIDS, StringUtils.countMatches(param, ',') + 1)];
+        int count = 0;
+        long value = 0;
+        boolean digits = false;
+        for (int i = 0, length = param.length(); i <= length; i++) {
+            char c = i < length ? param.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("itemid out of range: " + itemidAt(param, i));
+                }
+                digits = true;
+            } else if (c == ',') {
+                if (digits) {
+                    if (count == MAX_ITEMIDS) {
+                        throw new IllegalArgumentException("too many itemids, at most " + MAX_ITEMIDS);
+                    }
+                    itemids[count++] = (int) value;
+                }
+                value = 0;
+                digits = false;
+            } else if (!Character.isWhitespace(c)) {
+                // 非法字符，丢弃当前这一项
+                value = 0;
+                digits = false;
+                while (i + 1 < length && param.charAt(i + 1) != ',') {
+                    i++;
+                }
+            }
+        }
+        return count == itemids.length ? itemids : Arrays.copyOf(itemids, count);
+    }
+
+    private static String itemidAt(String param, int index) {
+        int start = param.lastIndexOf(',', index) + 1;
+        int end = param.indexOf(',', index);
+        return param.substring(start, end < 0 ? param.length() : end).trim();
+    }
+}
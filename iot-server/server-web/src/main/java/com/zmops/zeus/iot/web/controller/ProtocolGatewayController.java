@@ -9,6 +9,7 @@ import com.zmops.zeus.iot.server.receiver.ProtocolEnum;
 import com.zmops.zeus.iot.server.receiver.module.CamelReceiverModule;
 import com.zmops.zeus.iot.server.receiver.routes.*;
 import com.zmops.zeus.iot.server.receiver.service.CamelContextHolderService;
+import com.zmops.zeus.iot.server.receiver.service.MqttTopicRouteService;
 import com.zmops.zeus.iot.web.domain.ProtocolGatewayMqtt;
 import com.zmops.zeus.server.library.module.ModuleManager;
 import com.zmops.zeus.server.library.web.core.Controller;
@@ -89,8 +90,10 @@ public class ProtocolGatewayController extends Controller {
 
         if (StringUtils.isNotBlank(mqttList)) {
             saveMqttList(mqttList);
+            reloadMqttTopicRoutes();
         }
         Map<String, Object> options = JSON.parseObject(option, Map.class);
+        putComponentUniqueId(options, protocolComponentId);
         createRoute(routeId, ProtocolEnum.valueOf(protocol), options);
     }
 
@@ -126,7 +129,9 @@ public class ProtocolGatewayController extends Controller {
         if (StringUtils.isNotBlank(mqttList)) {
             saveMqttList(mqttList);
         }
+        reloadMqttTopicRoutes();
         Map<String, Object> options = JSON.parseObject(option, Map.class);
+        putComponentUniqueId(options, protocolComponentId);
 
         ResultSet rs = localH2InsertDAO.queryRes("select * from protocol_service where id=?", protocolServiceId);
         String protocol = "";
@@ -149,6 +154,9 @@ public class ProtocolGatewayController extends Controller {
             case MqttClient:
                 route = new MqttClientRouteBuilder(routeId, options);
                 break;
+            case MqttBroker:
+                route = new MqttBrokerRouteBuilder(routeId, options);
+                break;
             case TcpServer:
                 route = new TcpServerRouteBuilder(routeId, options);
                 break;
@@ -186,6 +194,43 @@ public class ProtocolGatewayController extends Controller {
     }
 
 
+    /**
+     * TCP/UDP 等网关直接绑定协议插件，路由里按 uniqueId 调用插件解析
+     */
+    private void putComponentUniqueId(Map<String, Object> options, String protocolComponentId) {
+        if (options == null || StringUtils.isBlank(protocolComponentId)) {
+            return;
+        }
+
+        InsertDAO localH2InsertDAO = ModuleManager.getInstance()
+                .find(LocalH2Module.NAME).provider().getService(InsertDAO.class);
+
+        ResultSet rs = localH2InsertDAO.queryRes("select unique_id from protocol_component where id=?", protocolComponentId);
+        if (rs == null) {
+            return;
+        }
+
+        try {
+            if (rs.next()) {
+                options.put("uniqueId", rs.getString(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("query protocol component failed: " + protocolComponentId, e);
+        } finally {
+            localH2InsertDAO.close(rs);
+        }
+    }
+
+
+    /**
+     * MQTT 主题路由表在内存中，protocol_gateway_mqtt 变更后需要刷新
+     */
+    private void reloadMqttTopicRoutes() {
+        ModuleManager.getInstance().find(CamelReceiverModule.NAME).provider()
+                .getService(MqttTopicRouteService.class).reload();
+    }
+
+
     @Getter
     @Setter
     static class ProtocolService {
@@ -2,81 +2,125 @@ package com.zmops.iot.model.cache;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 封装了缓存的读写操作
+ * <p>
+ * 读不加锁：当前数据是一个 ConcurrentHashMap，全量更新时构建新 Map 后整体替换引用；
+ * 单条增删直接修改当前 Map，不再为一条数据复制整个缓存。写操作之间串行，每次变更版本号加一。
+ * <p>
+ * 值为 null 的 put 等同于 remove；key 为 null 的读取返回 null。
  *
  * @author yefei
  **/
 public abstract class AbstractCache<K, V> {
 
-    private final Map<K, V> cache;
+    private volatile Map<K, V> cache = new ConcurrentHashMap<>();
 
-    private final ReadWriteLock lock;
+    private final AtomicLong version = new AtomicLong();
 
     protected AbstractCache() {
-        this.cache = new HashMap<>();
-        this.lock = new ReentrantReadWriteLock();
     }
 
 
-    private volatile Map<K, V> view;
-
-
     public boolean containsKey(K k) {
-        return read(()
-                ->
-                cache.containsKey(k)
-        );
+        return k != null && cache.containsKey(k);
     }
 
+    public V get(K key) {
+        return key == null ? null : cache.get(key);
+    }
 
-    private <X> X read(Supplier<X> supplier) {
-        Lock readLock = this.lock.readLock();
-        readLock.lock();
-        try {
-            return supplier.get();
-        } finally {
-            readLock.unlock();
-        }
+    /**
+     * @return 只读视图，随后续增删变化；需要修改时先复制
+     */
+    public Map<K, V> getAll() {
+        return Collections.unmodifiableMap(cache);
     }
 
-    public V get(K key) {
-        return read(()
-                ->
-                cache.get(key)
-        );
+    /**
+     * 缓存版本，每次全量或增量变更后递增
+     */
+    public long getVersion() {
+        return version.get();
     }
 
-    public Map<K, V> getAll() {
-        return read(() -> view);
+    /**
+     * 全量替换
+     */
+    public synchronized void update(Map<K, V> values) {
+        replace(values);
     }
 
-    public void update(Map<K, V> values) {
-        Lock writeLock = this.lock.writeLock();
-        writeLock.lock();
-        try {
-            cache.clear();
-            cache.putAll(values);
-            view = new ConcurrentHashMap<>(cache);
-        } finally {
-            writeLock.unlock();
+    /**
+     * 全量替换，加载期间缓存有过其他变更（版本号不等于 expectedVersion）时放弃，由调用方重新加载
+     *
+     * @param expectedVersion 开始加载数据前取得的 {@link #getVersion()}
+     * @return 是否替换成功
+     */
+    public synchronized boolean update(Map<K, V> values, long expectedVersion) {
+        if (version.get() != expectedVersion) {
+            return false;
         }
+        replace(values);
+        return true;
     }
 
-
     public void update(Collection<V> values, Function<V, K> keyMapper) {
         this.update(values.stream().collect(Collectors.toMap(keyMapper, o -> o, (a, b) -> b)));
     }
 
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            cache.remove(key);
+        } else {
+            cache.put(key, value);
+        }
+        version.incrementAndGet();
+    }
 
+    public synchronized void putAll(Map<K, V> values) {
+        values.forEach((key, value) -> {
+            if (value == null) {
+                cache.remove(key);
+            } else {
+                cache.put(key, value);
+            }
+        });
+        version.incrementAndGet();
+    }
+
+    public synchronized void remove(K key) {
+        if (key != null && cache.remove(key) != null) {
+            version.incrementAndGet();
+        }
+    }
+
+    public synchronized void removeAll(Collection<K> keys) {
+        boolean changed = false;
+        for (K key : keys) {
+            if (key != null && cache.remove(key) != null) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            version.incrementAndGet();
+        }
+    }
+
+    private void replace(Map<K, V> values) {
+        Map<K, V> fresh = new ConcurrentHashMap<>(Math.max(16, (int) (values.size() / 0.75f) + 1));
+        values.forEach((key, value) -> {
+            if (key != null && value != null) {
+                fresh.put(key, value);
+            }
+        });
+        cache = fresh;
+        version.incrementAndGet();
+    }
 }
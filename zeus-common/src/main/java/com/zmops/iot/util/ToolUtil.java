@@ -35,7 +35,7 @@ public class ToolUtil {
         if (isNum(value)) {
             return value;
         }
-        return "\\\\\"" + value + "\\\\\"";
+        return "\"" + value + "\"";
     }
 
     /**
@@ -1,38 +1,176 @@
 package com.zmops.iot.core.auth.cache;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.zmops.iot.core.auth.cache.SessionStore.StoredSession;
+import com.zmops.iot.core.auth.jwt.JwtTokenUtil;
 import com.zmops.iot.core.auth.model.LoginUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * 基于内存的会话管理
+ * <p>
+ * 会话数超过 maxSize 时淘汰最久未访问的；存活超过 ttl 或空闲超过 maxIdle 的会话在访问时惰性失效，
+ * 不做全量扫描。每个用户的会话数超过 maxSessionsPerUser 时踢掉该用户最早登录的会话。
+ * 会话的创建、删除同步到 {@link SessionStore}，启动时从中恢复未过期的会话。
  *
  * @author fengshuonan
  */
+@Slf4j
 @Component
 public class DefaultSessionManager implements SessionManager {
 
-    private final Map<String, LoginUser> caches = new ConcurrentHashMap<>();
+    private final SessionProperties properties;
+
+    private final SessionStore sessionStore;
+
+    private final Cache<String, StoredSession> caches;
+
+    /**
+     * 用户 ID -> 该用户的 token，按登录先后排列，只在 maxSessionsPerUser 大于 0 时维护
+     */
+    private final Map<Long, Deque<String>> userSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 当前时间，毫秒
+     */
+    private final LongSupplier clock;
+
+    @Autowired
+    public DefaultSessionManager(SessionProperties properties, SessionStore sessionStore) {
+        this(properties, sessionStore, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 会话创建时间和缓存过期共用的时钟，测试时替换
+     */
+    DefaultSessionManager(SessionProperties properties, SessionStore sessionStore, LongSupplier clock) {
+        this.properties = properties;
+        this.sessionStore = sessionStore;
+        this.clock = clock;
+
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return TimeUnit.MILLISECONDS.toNanos(clock.getAsLong());
+                    }
+                })
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl(), TimeUnit.SECONDS);
+        if (properties.getMaxIdle() > 0) {
+            builder.expireAfterAccess(properties.getMaxIdle(), TimeUnit.SECONDS);
+        }
+        this.caches = builder.removalListener(this::onRemoval).build();
+
+        restore();
+    }
 
     @Override
     public void createSession(String token, LoginUser loginUser) {
-        caches.put(SESSION_PREFIX + token, loginUser);
+        StoredSession session = new StoredSession(loginUser, clock.getAsLong());
+        caches.put(SESSION_PREFIX + token, session);
+        sessionStore.save(token, session);
+        addUserSession(token, loginUser);
     }
 
     @Override
     public LoginUser getSession(String token) {
-        return caches.get(SESSION_PREFIX + token);
+        StoredSession session = caches.getIfPresent(SESSION_PREFIX + token);
+        if (session == null) {
+            return null;
+        }
+        // 恢复的会话写入时间是启动时间，按创建时间再判断一次
+        if (clock.getAsLong() - session.getCreateTime() >= TimeUnit.SECONDS.toMillis(properties.getTtl())) {
+            caches.invalidate(SESSION_PREFIX + token);
+            return null;
+        }
+        return session.getLoginUser();
     }
 
     @Override
     public void removeSession(String token) {
-        caches.remove(SESSION_PREFIX + token);
+        caches.invalidate(SESSION_PREFIX + token);
+        JwtTokenUtil.invalidate(token);
     }
 
     @Override
     public boolean haveSession(String token) {
-        return caches.containsKey(SESSION_PREFIX + token);
+        return getSession(token) != null;
+    }
+
+    private void restore() {
+        long deadline = clock.getAsLong() - TimeUnit.SECONDS.toMillis(properties.getTtl());
+        int restored = 0;
+        for (Map.Entry<String, StoredSession> entry : sessionStore.load().entrySet()) {
+            StoredSession session = entry.getValue();
+            if (session.getCreateTime() <= deadline || session.getLoginUser() == null) {
+                sessionStore.remove(entry.getKey());
+                continue;
+            }
+            caches.put(SESSION_PREFIX + entry.getKey(), session);
+            addUserSession(entry.getKey(), session.getLoginUser());
+            restored++;
+        }
+        if (restored > 0) {
+            log.info("restored {} sessions", restored);
+        }
+    }
+
+    /**
+     * 记录用户的会话，超过上限时踢掉最早的
+     */
+    private void addUserSession(String token, LoginUser loginUser) {
+        if (properties.getMaxSessionsPerUser() <= 0 || loginUser.getId() == null) {
+            return;
+        }
+
+        Deque<String> tokens = userSessions.computeIfAbsent(loginUser.getId(), id -> new ArrayDeque<>());
+        String kicked = null;
+        synchronized (tokens) {
+            tokens.remove(token);
+            tokens.addLast(token);
+            if (tokens.size() > properties.getMaxSessionsPerUser()) {
+                kicked = tokens.pollFirst();
+            }
+        }
+        if (kicked != null) {
+            removeSession(kicked);
+        }
+    }
+
+    /**
+     * 删除、过期、淘汰时清理用户索引和持久化；同一个 token 重新登录覆盖时不处理
+     */
+    private void onRemoval(RemovalNotification<String, StoredSession> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED || notification.getKey() == null) {
+            return;
+        }
+
+        String token = notification.getKey().substring(SESSION_PREFIX.length());
+        sessionStore.remove(token);
+
+        StoredSession session = notification.getValue();
+        if (session == null || session.getLoginUser() == null || session.getLoginUser().getId() == null) {
+            return;
+        }
+        Deque<String> tokens = userSessions.get(session.getLoginUser().getId());
+        if (tokens != null) {
+            synchronized (tokens) {
+                tokens.remove(token);
+            }
+        }
     }
 }
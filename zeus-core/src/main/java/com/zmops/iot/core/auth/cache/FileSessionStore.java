@@ -0,0 +1,139 @@
+package com.zmops.iot.core.auth.cache;
+
+import com.google.common.hash.Hashing;
+import com.zmops.iot.core.auth.model.LoginUser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 本地文件持久化，每个会话一个文件，文件名为 token 的 SHA-256，内容为 token 和会话的 Java 序列化。
+ * <p>
+ * 先写临时文件再原子替换，读取失败或含有不允许类型的文件删除后忽略。
+ */
+@Slf4j
+public class FileSessionStore implements SessionStore {
+
+    private static final String SUFFIX = ".session";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+
+    public FileSessionStore(String dir) {
+        this.dir = Paths.get(dir);
+    }
+
+    @Override
+    public Map<String, StoredSession> load() {
+        Map<String, StoredSession> sessions = new HashMap<>();
+        if (!Files.isDirectory(dir)) {
+            return sessions;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                try (InputStream in = Files.newInputStream(file); ObjectInputStream ois = new SessionInputStream(in)) {
+                    String token = (String) ois.readObject();
+                    sessions.put(token, (StoredSession) ois.readObject());
+                } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                    log.warn("ignore broken session file {}: {}", file, e.getMessage());
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.error("load sessions from {} failed", dir, e);
+        }
+        return sessions;
+    }
+
+    @Override
+    public void save(String token, StoredSession session) {
+        Path file = fileOf(token);
+        Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+        try {
+            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(tmp); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(token);
+                oos.writeObject(session);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("persist session to {} failed", file, e);
+        }
+    }
+
+    @Override
+    public void remove(String token) {
+        try {
+            Files.deleteIfExists(fileOf(token));
+        } catch (IOException e) {
+            log.error("delete session file of {} failed", dir, e);
+        }
+    }
+
+    private Path fileOf(String token) {
+        return dir.resolve(Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString() + SUFFIX);
+    }
+
+    /**
+     * 只反序列化会话、LoginUser 以及它们字段用到的 JDK 类型，其他类型（包括动态代理）直接拒绝，
+     * 被篡改的会话文件不能借反序列化执行任意代码
+     */
+    static class SessionInputStream extends ObjectInputStream {
+
+        private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(
+                StoredSession.class.getName(),
+                LoginUser.class.getName(),
+                Number.class.getName(),
+                Long.class.getName(),
+                Integer.class.getName(),
+                Double.class.getName(),
+                Boolean.class.getName(),
+                ArrayList.class.getName(),
+                LinkedList.class.getName(),
+                HashMap.class.getName(),
+                LinkedHashMap.class.getName(),
+                HashSet.class.getName(),
+                LinkedHashSet.class.getName()
+        ));
+
+        SessionInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!ALLOWED_CLASSES.contains(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not allowed in session file");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+            throw new InvalidClassException("proxy", "not allowed in session file");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.zmops.iot.core.auth.cache;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 不持久化，会话只保存在 {@link DefaultSessionManager} 的内存缓存中，重启后需要重新登录
+ */
+public class MemorySessionStore implements SessionStore {
+
+    @Override
+    public Map<String, StoredSession> load() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void save(String token, StoredSession session) {
+    }
+
+    @Override
+    public void remove(String token) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.zmops.iot.core.auth.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 会话存储配置，没有自定义 {@link SessionStore} 时按 zeus.session.store 选择
+ */
+@Configuration
+@EnableConfigurationProperties({SessionProperties.class})
+public class SessionConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(SessionStore.class)
+    public SessionStore sessionStore(SessionProperties sessionProperties) {
+        if ("file".equalsIgnoreCase(sessionProperties.getStore())) {
+            return new FileSessionStore(sessionProperties.getFilePath());
+        }
+        return new MemorySessionStore();
+    }
+}
@@ -0,0 +1,44 @@
+package com.zmops.iot.core.auth.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 会话存储配置
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "zeus.session")
+public class SessionProperties {
+
+    /**
+     * 会话从创建起的最长存活时间（秒），与 token 默认有效期一致
+     */
+    private long ttl = 86400;
+
+    /**
+     * 会话空闲多久后失效（秒），0 表示不按空闲时间失效
+     */
+    private long maxIdle = 0;
+
+    /**
+     * 最多保留的会话数，超过后淘汰最久未访问的
+     */
+    private long maxSize = 10000;
+
+    /**
+     * 每个用户最多同时保留的会话数，超过后踢掉该用户最早的会话，0 表示不限制
+     */
+    private int maxSessionsPerUser = 0;
+
+    /**
+     * 会话持久化方式：memory 不持久化，file 写本地文件，重启后恢复
+     */
+    private String store = "memory";
+
+    /**
+     * file 方式的会话文件目录
+     */
+    private String filePath = "./session";
+}
@@ -0,0 +1,59 @@
+package com.zmops.iot.core.auth.cache;
+
+import com.zmops.iot.core.auth.model.LoginUser;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 会话持久化扩展点，{@link DefaultSessionManager} 在会话创建、删除时调用，启动时恢复
+ * <p>
+ * 自定义实现注册为 Spring Bean 即可替换默认的 memory / file 实现
+ */
+public interface SessionStore {
+
+    /**
+     * 启动时加载已持久化的会话
+     *
+     * @return token -> 会话
+     */
+    Map<String, StoredSession> load();
+
+    /**
+     * 保存会话
+     */
+    void save(String token, StoredSession session);
+
+    /**
+     * 删除会话，退出登录、过期、被淘汰时调用
+     */
+    void remove(String token);
+
+    /**
+     * 持久化的会话
+     */
+    class StoredSession implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LoginUser loginUser;
+
+        /**
+         * 创建时间，毫秒
+         */
+        private final long createTime;
+
+        public StoredSession(LoginUser loginUser, long createTime) {
+            this.loginUser = loginUser;
+            this.createTime = createTime;
+        }
+
+        public LoginUser getLoginUser() {
+            return loginUser;
+        }
+
+        public long getCreateTime() {
+            return createTime;
+        }
+    }
+}
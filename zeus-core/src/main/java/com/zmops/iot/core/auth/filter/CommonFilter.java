@@ -5,9 +5,12 @@ import lombok.extern.slf4j.Slf4j;
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
+ * 缓存 JSON 请求体，供 {@link CommonInterceptor} 补充 tenantId；multipart 等其他请求原样放行，不读取请求体
+ *
  * @author yefei
  **/
 @Slf4j
@@ -15,6 +18,12 @@ public class CommonFilter implements Filter {
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            chain.doFilter(request, response);
+            return;
+        }
+
         CommonHttpServletRequestWrapper customHttpServletRequestWrapper = null;
         try {
             HttpServletRequest req = (HttpServletRequest)request;
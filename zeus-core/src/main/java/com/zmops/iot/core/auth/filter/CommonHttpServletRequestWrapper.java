@@ -5,89 +5,181 @@ import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
+ * 缓存请求体，可以重复读取
+ * <p>
+ * 请求体按字节保存一份，{@link #getInputStream()} 直接读这份字节，不再复制；
+ * 字符串形式按请求的字符集在第一次 {@link #getBody()} 时生成。
+ *
  * @author yefei
  **/
 public class CommonHttpServletRequestWrapper extends HttpServletRequestWrapper {
 
+    private static final int BUFFER_SIZE = 8192;
 
-    private String body;
+    /**
+     * 按 Content-Length 预分配的上限，超过的部分读取时再扩容
+     */
+    private static final int MAX_PREALLOCATE = 4 * 1024 * 1024;
 
-    public CommonHttpServletRequestWrapper(HttpServletRequest request) {
-        super(request);
-        StringBuilder  stringBuilder  = new StringBuilder();
-        BufferedReader bufferedReader = null;
-        InputStream    inputStream    = null;
-        try {
-            inputStream = request.getInputStream();
-            if (inputStream != null) {
-                bufferedReader = new BufferedReader(new InputStreamReader(inputStream));
-                char[] charBuffer = new char[128];
-                int bytesRead = -1;
-                while ((bytesRead = bufferedReader.read(charBuffer)) > 0) {
-                    stringBuilder.append(charBuffer, 0, bytesRead);
-                }
-            } else {
-                stringBuilder.append("");
-            }
-        } catch (IOException ex) {
+    private final Charset charset;
 
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (bufferedReader != null) {
-                try {
-                    bufferedReader.close();
-                }
-                catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    private byte[] body;
+
+    private String bodyString;
+
+    public CommonHttpServletRequestWrapper(HttpServletRequest request) throws IOException {
+        super(request);
+        this.charset = charsetOf(request);
+        try (InputStream inputStream = request.getInputStream()) {
+            this.body = inputStream == null ? new byte[0] : readFully(inputStream, request.getContentLength());
         }
-        body = stringBuilder.toString();
     }
 
     @Override
-    public ServletInputStream getInputStream() throws IOException {
-        final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(body.getBytes());
-        ServletInputStream servletInputStream = new ServletInputStream() {
-            @Override
-            public boolean isFinished() {
-                return false;
-            }
-            @Override
-            public boolean isReady() {
-                return false;
-            }
-            @Override
-            public void setReadListener(ReadListener readListener) {
-            }
-            @Override
-            public int read() throws IOException {
-                return byteArrayInputStream.read();
-            }
-        };
-        return servletInputStream;
+    public ServletInputStream getInputStream() {
+        return new BodyInputStream(body);
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
 
+    @Override
+    public int getContentLength() {
+        return body.length;
     }
 
     @Override
-    public BufferedReader getReader() throws IOException {
-        return new BufferedReader(new InputStreamReader(this.getInputStream()));
+    public long getContentLengthLong() {
+        return body.length;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return 请求体字节，不复制，调用方不要修改
+     */
+    public byte[] getBodyBytes() {
+        return body;
     }
 
     public String getBody() {
-        return this.body;
+        String s = bodyString;
+        if (s == null) {
+            s = new String(body, charset);
+            bodyString = s;
+        }
+        return s;
     }
 
     public void setBody(String body) {
+        this.body = body.getBytes(charset);
+        this.bodyString = body;
+    }
+
+    public void setBody(byte[] body) {
         this.body = body;
+        this.bodyString = null;
+    }
+
+    private static Charset charsetOf(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                // 不支持的字符集按 UTF-8 处理
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * 按 Content-Length 预分配，一次读满；长度未知或者不准时按需扩容
+     */
+    private static byte[] readFully(InputStream in, int contentLength) throws IOException {
+        byte[] buf = new byte[contentLength > 0 ? Math.min(contentLength, MAX_PREALLOCATE) : BUFFER_SIZE];
+        int len = 0;
+        int n;
+        while (true) {
+            if (len == buf.length) {
+                int next = in.read();
+                if (next < 0) {
+                    break;
+                }
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, BUFFER_SIZE));
+                buf[len++] = (byte) next;
+            }
+            n = in.read(buf, len, buf.length - len);
+            if (n < 0) {
+                break;
+            }
+            len += n;
+        }
+        return len == buf.length ? buf : Arrays.copyOf(buf, len);
+    }
+
+    private static class BodyInputStream extends ServletInputStream {
+
+        private final byte[] body;
+
+        private int pos;
+
+        BodyInputStream(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public int read() {
+            return pos < body.length ? body[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos >= body.length) {
+                return -1;
+            }
+            int n = Math.min(len, body.length - pos);
+            System.arraycopy(body, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, body.length - pos));
+            pos += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return body.length - pos;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return pos >= body.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.zmops.iot.core.auth.filter;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.zmops.iot.core.auth.context.LoginContext;
 import com.zmops.iot.core.auth.context.LoginContextHolder;
 import com.zmops.iot.core.auth.util.FixLengthLinkedList;
 import com.zmops.iot.model.exception.ServiceException;
@@ -15,6 +16,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author yefei
@@ -46,28 +48,44 @@ public class CommonInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 请求体是 JSON 对象并且没有 tenantId 时补充当前登录用户的租户，每个请求只处理一次
+     */
     private void pushTenantId2Body(HttpServletRequest request, HandlerMethod handlerMethod) {
         try {
 
             MethodParameter[] methodParameters = handlerMethod.getMethodParameters();
-            if (ArrayUtils.isEmpty(methodParameters)) {
+            if (ArrayUtils.isEmpty(methodParameters) || !(request instanceof CommonHttpServletRequestWrapper)) {
+                return;
+            }
+            CommonHttpServletRequestWrapper requestWrapper = (CommonHttpServletRequestWrapper) request;
+            if (requestWrapper.getBodyBytes().length == 0) {
+                return;
+            }
+
+            LoginContext loginContext = LoginContextHolder.getContext();
+            if (!loginContext.hasLogin()) {
+                return;
+            }
+            Long tenantId = loginContext.getUser().getTenantId();
+            if (tenantId == null) {
                 return;
             }
-            for (MethodParameter methodParameter : methodParameters) {
-                Class clazz = methodParameter.getParameterType();
 
-                if (request instanceof CommonHttpServletRequestWrapper) {
-                    CommonHttpServletRequestWrapper requestWrapper = (CommonHttpServletRequestWrapper) request;
-                    String body = requestWrapper.getBody();
-                    JSONObject param = JSONObject.parseObject(body);
-                    if (param == null || ToolUtil.isNotEmpty(param.getString("tenantId"))) {
-                        return;
-                    }
-                    param.put("tenantId", LoginContextHolder.getContext().getUser().getTenantId());
-                    requestWrapper.setBody(JSON.toJSONString(param));
+            if (StandardCharsets.UTF_8.equals(requestWrapper.getCharset())) {
+                byte[] body = TenantIdBodyRewriter.rewrite(requestWrapper.getBodyBytes(), tenantId);
+                if (body != null) {
+                    requestWrapper.setBody(body);
                 }
+                return;
+            }
 
+            JSONObject param = JSONObject.parseObject(requestWrapper.getBody());
+            if (param == null || ToolUtil.isNotEmpty(param.getString("tenantId"))) {
+                return;
             }
+            param.put("tenantId", tenantId);
+            requestWrapper.setBody(JSON.toJSONString(param));
         } catch (Exception e) {
             log.warn("fill userInfo to request body Error ", e);
         }
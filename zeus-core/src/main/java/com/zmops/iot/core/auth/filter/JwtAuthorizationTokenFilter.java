@@ -11,7 +11,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -35,6 +34,10 @@ import static com.zmops.iot.constant.ConstantsContext.getTokenHeaderName;
 @Component
 public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
 
+    private static final PathPatternMatcher FRONTEND_RESOURCES = new PathPatternMatcher(NoneAuthedResources.FRONTEND_RESOURCES);
+
+    private static final PathPatternMatcher BACKEND_RESOURCES = new PathPatternMatcher(NoneAuthedResources.BACKEND_RESOURCES);
+
     @Autowired
     private SessionManager sessionManager;
 
@@ -45,21 +48,19 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
 
         // 1.静态资源直接过滤，不走此过滤器
-        for (String reg : NoneAuthedResources.FRONTEND_RESOURCES) {
-            if (new AntPathMatcher().match(reg, request.getServletPath())) {
-                chain.doFilter(request, response);
-                return;
-            }
+        if (FRONTEND_RESOURCES.matches(request.getServletPath())) {
+            chain.doFilter(request, response);
+            return;
         }
 
         // 2.从cookie和header获取token
         String authToken = TokenUtil.getToken();
 
-        // 3.通过token获取用户名
+        // 3.通过token获取用户名，已校验过的token直接取缓存
         String username = null;
         if (ToolUtil.isNotEmpty(authToken)) {
             try {
-                username = JwtTokenUtil.getJwtPayLoad(authToken).getAccount();
+                username = JwtTokenUtil.getVerifiedJwtPayLoad(authToken).getAccount();
             } catch (IllegalArgumentException | JwtException e) {
                 //请求token为空或者token不正确，忽略，并不是所有接口都要鉴权
             }
@@ -91,11 +92,9 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
                 }
 
                 //如果是不需要权限校验的接口不需要返回session超时
-                for (String reg : NoneAuthedResources.BACKEND_RESOURCES) {
-                    if (new AntPathMatcher().match(reg, request.getServletPath())) {
-                        chain.doFilter(request, response);
-                        return;
-                    }
+                if (BACKEND_RESOURCES.matches(request.getServletPath())) {
+                    chain.doFilter(request, response);
+                    return;
                 }
 
                 //跳转到登录超时
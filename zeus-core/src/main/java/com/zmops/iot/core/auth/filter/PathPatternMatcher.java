@@ -0,0 +1,73 @@
+package com.zmops.iot.core.auth.filter;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预编译的 ANT 风格路径集合，构造时把模式分成三类：
+ * <ul>
+ * <li>不含通配符：精确匹配，哈希查找</li>
+ * <li>只以 /** 结尾：前缀匹配</li>
+ * <li>其他：共用一个 AntPathMatcher，模式的分词结果由它缓存</li>
+ * </ul>
+ * 匹配结果与逐个 {@code new AntPathMatcher().match(pattern, path)} 相同。
+ */
+public class PathPatternMatcher {
+
+    private static final String ANY_SUFFIX = "/**";
+
+    private final Set<String> exactPaths = new HashSet<>();
+
+    private final String[] prefixes;
+
+    private final String[] antPatterns;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    public PathPatternMatcher(String... patterns) {
+        List<String> prefixList = new ArrayList<>();
+        List<String> antList = new ArrayList<>();
+
+        for (String pattern : patterns) {
+            if (!antPathMatcher.isPattern(pattern)) {
+                exactPaths.add(pattern);
+            } else if (pattern.endsWith(ANY_SUFFIX)
+                    && !antPathMatcher.isPattern(pattern.substring(0, pattern.length() - ANY_SUFFIX.length()))) {
+                prefixList.add(pattern.substring(0, pattern.length() - ANY_SUFFIX.length()));
+            } else {
+                antList.add(pattern);
+            }
+        }
+
+        this.prefixes = prefixList.toArray(new String[0]);
+        this.antPatterns = antList.toArray(new String[0]);
+    }
+
+    public boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)
+                    && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+
+        for (String pattern : antPatterns) {
+            if (antPathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
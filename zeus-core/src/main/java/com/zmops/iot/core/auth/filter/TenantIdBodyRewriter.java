@@ -0,0 +1,132 @@
+package com.zmops.iot.core.auth.filter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 给 JSON 对象请求体补充顶层 tenantId 字段，只扫描一遍字节，不解析成对象再序列化
+ * <p>
+ * 顶层已有非空 tenantId 时不修改；没有或者为 null、"" 时在对象末尾追加。
+ * 重复的 tenantId 与 fastjson、Jackson 一样以最后一个为准：最后一个为空时追加的字段排在最后，绑定时生效。
+ * 只处理 UTF-8 等兼容 ASCII 的编码，JSON 结构字符都是单字节，多字节字符不会与之混淆。
+ **/
+final class TenantIdBodyRewriter {
+
+    private static final byte[] TENANT_ID = "tenantId".getBytes(StandardCharsets.US_ASCII);
+
+    private TenantIdBodyRewriter() {
+    }
+
+    /**
+     * @return 补充后的请求体；不是 JSON 对象、格式不完整或者已有 tenantId 时返回 null
+     */
+    static byte[] rewrite(byte[] body, long tenantId) {
+        int start = skipWhitespace(body, 0);
+        if (start >= body.length || body[start] != '{') {
+            return null;
+        }
+
+        int depth = 0;
+        boolean expectKey = false;
+        boolean hasMember = false;
+        // 最后一个顶层 tenantId 是否有值
+        boolean tenantIdSet = false;
+        int end = -1;
+
+        for (int i = start; i < body.length && end < 0; i++) {
+            byte b = body[i];
+            switch (b) {
+                case '"': {
+                    int close = closingQuote(body, i);
+                    if (close < 0) {
+                        return null;
+                    }
+                    if (depth == 1 && expectKey) {
+                        hasMember = true;
+                        expectKey = false;
+                        if (isTenantId(body, i + 1, close)) {
+                            tenantIdSet = !emptyValue(body, close + 1);
+                        }
+                    }
+                    i = close;
+                    break;
+                }
+                case '{':
+                case '[':
+                    depth++;
+                    expectKey = depth == 1;
+                    break;
+                case '}':
+                case ']':
+                    if (--depth == 0) {
+                        end = i;
+                    }
+                    break;
+                case ',':
+                    expectKey = depth == 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (end < 0 || tenantIdSet) {
+            return null;
+        }
+
+        byte[] field = ((hasMember ? "," : "") + "\"tenantId\":" + tenantId).getBytes(StandardCharsets.US_ASCII);
+        byte[] result = new byte[body.length + field.length];
+        System.arraycopy(body, 0, result, 0, end);
+        System.arraycopy(field, 0, result, end, field.length);
+        System.arraycopy(body, end, result, end + field.length, body.length - end);
+        return result;
+    }
+
+    private static int skipWhitespace(byte[] body, int i) {
+        while (i < body.length && (body[i] == ' ' || body[i] == '\t' || body[i] == '\r' || body[i] == '\n')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param open 开始引号的位置
+     * @return 结束引号的位置，没有时返回 -1
+     */
+    private static int closingQuote(byte[] body, int open) {
+        for (int i = open + 1; i < body.length; i++) {
+            if (body[i] == '\\') {
+                i++;
+            } else if (body[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isTenantId(byte[] body, int from, int to) {
+        if (to - from != TENANT_ID.length) {
+            return false;
+        }
+        for (int i = 0; i < TENANT_ID.length; i++) {
+            if (body[from + i] != TENANT_ID[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param from 键的结束引号之后
+     * @return 值是否为 null 或者空字符串
+     */
+    private static boolean emptyValue(byte[] body, int from) {
+        int i = skipWhitespace(body, from);
+        if (i >= body.length || body[i] != ':') {
+            return false;
+        }
+        i = skipWhitespace(body, i + 1);
+        if (i + 1 < body.length && body[i] == '"' && body[i + 1] == '"') {
+            return true;
+        }
+        return i + 3 < body.length && body[i] == 'n' && body[i + 1] == 'u' && body[i + 2] == 'l' && body[i + 3] == 'l';
+    }
+}
@@ -16,6 +16,8 @@
 package com.zmops.iot.core.auth.jwt;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.zmops.iot.constant.ConstantsContext;
 import com.zmops.iot.core.auth.jwt.payload.JwtPayLoad;
 import com.zmops.iot.util.ToolUtil;
@@ -41,6 +43,18 @@ import java.util.Map;
  */
 public class JwtTokenUtil {
 
+    /**
+     * 已校验 token 的缓存上限，超过后淘汰最久未使用的
+     */
+    private static final int MAX_VERIFIED_TOKENS = 10000;
+
+    /**
+     * 已校验通过的 token，key 为 token 本身，过期时间取 token 的 exp
+     */
+    private static final Cache<String, VerifiedToken> VERIFIED_TOKENS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_VERIFIED_TOKENS)
+            .build();
+
     /**
      * 生成token,根据userId和默认过期时间
      */
@@ -58,6 +72,42 @@ public class JwtTokenUtil {
         return JwtPayLoad.toBean(claimFromToken);
     }
 
+    /**
+     * 获取jwt的payload部分，校验通过的结果缓存到 token 过期，同一个 token 不重复验签
+     * <p>
+     * 密钥变更后缓存的结果不再使用；退出登录时调用 {@link #invalidate(String)}
+     */
+    public static JwtPayLoad getVerifiedJwtPayLoad(String token) {
+        if (ToolUtil.isEmpty(token)) {
+            throw new IllegalArgumentException("token参数为空！");
+        }
+
+        String jwtSecret = getJwtSecret();
+        VerifiedToken verified = VERIFIED_TOKENS.getIfPresent(token);
+        if (verified != null) {
+            if (verified.expiration > System.currentTimeMillis() && verified.secret.equals(jwtSecret)) {
+                return verified.payLoad;
+            }
+            VERIFIED_TOKENS.invalidate(token);
+        }
+
+        Claims claims = getClaimFromToken(token);
+        JwtPayLoad payLoad = JwtPayLoad.toBean(claims);
+        if (claims.getExpiration() != null) {
+            VERIFIED_TOKENS.put(token, new VerifiedToken(payLoad, claims.getExpiration().getTime(), jwtSecret));
+        }
+        return payLoad;
+    }
+
+    /**
+     * 移除 token 的校验缓存
+     */
+    public static void invalidate(String token) {
+        if (token != null) {
+            VERIFIED_TOKENS.invalidate(token);
+        }
+    }
+
     /**
      * 解析token是否正确(true-正确, false-错误)
      */
@@ -139,4 +189,19 @@ public class JwtTokenUtil {
     private static Long getExpireSeconds() {
         return ConstantsContext.getJwtSecretExpireSec();
     }
-}
\ No newline at end of file
+
+    private static class VerifiedToken {
+
+        private final JwtPayLoad payLoad;
+
+        private final long expiration;
+
+        private final String secret;
+
+        VerifiedToken(JwtPayLoad payLoad, long expiration, String secret) {
+            this.payLoad = payLoad;
+            this.expiration = expiration;
+            this.secret = secret;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.zmops.iot.core.auth.cache;
+
+import com.zmops.iot.core.auth.model.LoginUser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultSessionManagerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1637000000000L);
+
+    @Test
+    public void sessionExpiresAfterTtl() {
+        SessionProperties properties = new SessionProperties();
+        properties.setTtl(60);
+        DefaultSessionManager manager = manager(properties, new MemorySessionStore());
+
+        manager.createSession("t1", user(1L));
+        now.addAndGet(59 * SECOND);
+        assertNotNull(manager.getSession("t1"));
+
+        now.addAndGet(SECOND);
+        assertNull(manager.getSession("t1"));
+        assertFalse(manager.haveSession("t1"));
+    }
+
+    @Test
+    public void accessKeepsIdleSessionAlive() {
+        SessionProperties properties = new SessionProperties();
+        properties.setMaxIdle(10);
+        DefaultSessionManager manager = manager(properties, new MemorySessionStore());
+
+        manager.createSession("t1", user(1L));
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(9 * SECOND);
+            assertNotNull(manager.getSession("t1"));
+        }
+
+        now.addAndGet(10 * SECOND);
+        assertNull(manager.getSession("t1"));
+    }
+
+    @Test
+    public void oldestSessionOfUserIsKickedOverLimit() {
+        SessionProperties properties = new SessionProperties();
+        properties.setMaxSessionsPerUser(2);
+        DefaultSessionManager manager = manager(properties, new MemorySessionStore());
+
+        manager.createSession("a", user(1L));
+        manager.createSession("b", user(1L));
+        manager.createSession("c", user(1L));
+        manager.createSession("x", user(2L));
+
+        assertNull(manager.getSession("a"));
+        assertNotNull(manager.getSession("b"));
+        assertNotNull(manager.getSession("c"));
+        assertNotNull(manager.getSession("x"));
+
+        // 退出登录后腾出名额
+        manager.removeSession("b");
+        manager.createSession("d", user(1L));
+        assertNotNull(manager.getSession("c"));
+        assertNotNull(manager.getSession("d"));
+    }
+
+    @Test
+    public void sessionCountIsBounded() {
+        SessionProperties properties = new SessionProperties();
+        properties.setMaxSize(3);
+        DefaultSessionManager manager = manager(properties, new MemorySessionStore());
+
+        for (int i = 0; i < 10; i++) {
+            manager.createSession("s" + i, user((long) i));
+        }
+
+        int alive = 0;
+        for (int i = 0; i < 10; i++) {
+            if (manager.getSession("s" + i) != null) {
+                alive++;
+            }
+        }
+        assertTrue(alive <= 3);
+        assertNotNull(manager.getSession("s9"));
+    }
+
+    @Test
+    public void restartRestoresOnlyUnexpiredSessions() {
+        File dir = folder.getRoot();
+        SessionProperties properties = new SessionProperties();
+        properties.setTtl(60);
+
+        DefaultSessionManager before = manager(properties, new FileSessionStore(dir.getPath()));
+        before.createSession("old", user(1L));
+        now.addAndGet(30 * SECOND);
+        before.createSession("new", user(2L));
+        before.createSession("gone", user(3L));
+        before.removeSession("gone");
+        assertEquals(2, dir.list().length);
+
+        // 重启后按原创建时间计算存活时间，而不是从恢复时算起
+        now.addAndGet(40 * SECOND);
+        DefaultSessionManager after = manager(properties, new FileSessionStore(dir.getPath()));
+        assertNull(after.getSession("old"));
+        assertNull(after.getSession("gone"));
+        assertEquals(Long.valueOf(2L), after.getSession("new").getId());
+        assertEquals(1, dir.list().length);
+
+        now.addAndGet(30 * SECOND);
+        assertNull(after.getSession("new"));
+        assertEquals(0, dir.list().length);
+    }
+
+    private DefaultSessionManager manager(SessionProperties properties, SessionStore store) {
+        return new DefaultSessionManager(properties, store, now::get);
+    }
+
+    private static LoginUser user(Long id) {
+        LoginUser user = new LoginUser();
+        user.setId(id);
+        user.setAccount("user" + id);
+        return user;
+    }
+}
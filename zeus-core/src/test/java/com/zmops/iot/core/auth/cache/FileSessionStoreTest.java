@@ -0,0 +1,91 @@
+package com.zmops.iot.core.auth.cache;
+
+import com.zmops.iot.core.auth.cache.SessionStore.StoredSession;
+import com.zmops.iot.core.auth.model.LoginUser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileSessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void savedSessionIsLoadedBack() {
+        LoginUser user = new LoginUser(1L, "zbx-token");
+        user.setAccount("admin");
+        user.setTenantId(7L);
+        user.setRoleList(new ArrayList<>(Arrays.asList(1L, 2L)));
+        user.setPermissions(new LinkedHashSet<>(Arrays.asList("/device/list", "/device/create")));
+        Map<String, Object> systemType = new HashMap<>();
+        systemType.put("code", "iot");
+        systemType.put("sort", 1);
+        user.setSystemTypes(new ArrayList<>(Collections.singletonList(systemType)));
+
+        FileSessionStore store = new FileSessionStore(folder.getRoot().getPath());
+        store.save("token-1", new StoredSession(user, 1637000000000L));
+
+        Map<String, StoredSession> sessions = new FileSessionStore(folder.getRoot().getPath()).load();
+        assertEquals(1, sessions.size());
+        StoredSession session = sessions.get("token-1");
+        assertEquals(1637000000000L, session.getCreateTime());
+        assertEquals(user, session.getLoginUser());
+    }
+
+    @Test
+    public void fileWithDisallowedClassIsDeleted() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("forged.session");
+        try (OutputStream out = Files.newOutputStream(file); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject("token-1");
+            oos.writeObject(new Forged(new URL("http://127.0.0.1/")));
+        }
+
+        Map<String, StoredSession> sessions = new FileSessionStore(folder.getRoot().getPath()).load();
+
+        assertTrue(sessions.isEmpty());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void disallowedClassInsideLoginUserIsRejected() throws Exception {
+        LoginUser user = new LoginUser(1L, "zbx-token");
+        Map<String, Object> systemType = new HashMap<>();
+        systemType.put("url", new URL("http://127.0.0.1/"));
+        user.setSystemTypes(new ArrayList<>(Collections.singletonList(systemType)));
+
+        FileSessionStore store = new FileSessionStore(folder.getRoot().getPath());
+        store.save("token-1", new StoredSession(user, 1637000000000L));
+
+        assertTrue(new FileSessionStore(folder.getRoot().getPath()).load().isEmpty());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    private static class Forged implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final URL url;
+
+        Forged(URL url) {
+            this.url = url;
+        }
+    }
+}
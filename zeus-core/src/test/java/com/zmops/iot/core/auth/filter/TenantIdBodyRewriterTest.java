@@ -0,0 +1,60 @@
+package com.zmops.iot.core.auth.filter;
+
+import com.alibaba.fastjson.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TenantIdBodyRewriterTest {
+
+    @Test
+    public void missingTenantIdIsAppended() {
+        assertEquals("{\"name\":\"gw\",\"tenantId\":7}", rewrite("{\"name\":\"gw\"}"));
+        assertEquals("{\"tenantId\":7}", rewrite("{}"));
+        assertEquals(" {\"tags\":[{\"tenantId\":1}],\"tenantId\":7} ", rewrite(" {\"tags\":[{\"tenantId\":1}]} "));
+    }
+
+    @Test
+    public void emptyTenantIdIsOverridden() {
+        assertEquals(7L, tenantIdOf(rewrite("{\"tenantId\":null,\"name\":\"gw\"}")));
+        assertEquals(7L, tenantIdOf(rewrite("{\"tenantId\" : \"\"}")));
+    }
+
+    @Test
+    public void presentTenantIdIsKept() {
+        assertNull(rewrite("{\"tenantId\":3,\"name\":\"gw\"}"));
+        assertNull(rewrite("{\"name\":\"\\\"tenantId\\\"\",\"tenantId\":\"3\"}"));
+    }
+
+    @Test
+    public void duplicateKeysUseLastValue() {
+        // 最后一个为空，追加的字段排在最后生效
+        String body = rewrite("{\"tenantId\":3,\"tenantId\":null}");
+        assertEquals("{\"tenantId\":3,\"tenantId\":null,\"tenantId\":7}", body);
+        assertEquals(7L, tenantIdOf(body));
+
+        // 最后一个有值，与解析结果一致，不修改
+        assertNull(rewrite("{\"tenantId\":null,\"tenantId\":3}"));
+        assertEquals(3L, tenantIdOf("{\"tenantId\":null,\"tenantId\":3}"));
+    }
+
+    @Test
+    public void nonObjectOrBrokenBodyIsIgnored() {
+        assertNull(rewrite("[{\"name\":\"gw\"}]"));
+        assertNull(rewrite("{\"name\":\"gw\""));
+        assertNull(rewrite("{\"name\":\"gw}"));
+        assertNull(rewrite(""));
+    }
+
+    private static String rewrite(String body) {
+        byte[] result = TenantIdBodyRewriter.rewrite(body.getBytes(StandardCharsets.UTF_8), 7L);
+        return result == null ? null : new String(result, StandardCharsets.UTF_8);
+    }
+
+    private static long tenantIdOf(String body) {
+        return JSONObject.parseObject(body).getLongValue("tenantId");
+    }
+}
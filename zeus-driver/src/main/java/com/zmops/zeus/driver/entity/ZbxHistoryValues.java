@@ -0,0 +1,218 @@
+package com.zmops.zeus.driver.entity;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.annotation.JSONType;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONLexer;
+import com.alibaba.fastjson.parser.JSONToken;
+import com.alibaba.fastjson.parser.deserializer.ObjectDeserializer;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * history.get 返回的历史数据，按列保存
+ * <p>
+ * 解析时逐条读取数组元素直接写入 itemid、clock、ns、value 四列，
+ * 不为每个数据点创建 JSONObject 或实体对象，数据点多时占用的内存和分配次数都少得多。
+ */
+@JSONType(deserializer = ZbxHistoryValues.Deserializer.class)
+public class ZbxHistoryValues {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] itemids;
+
+    private long[] clocks;
+
+    private int[] ns;
+
+    private String[] values;
+
+    private int size;
+
+    public ZbxHistoryValues() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ZbxHistoryValues(int capacity) {
+        int n = Math.max(capacity, 1);
+        itemids = new long[n];
+        clocks = new long[n];
+        ns = new int[n];
+        values = new String[n];
+    }
+
+    public void add(long itemid, long clock, int nanos, String value) {
+        if (size == itemids.length) {
+            int n = size << 1;
+            itemids = Arrays.copyOf(itemids, n);
+            clocks = Arrays.copyOf(clocks, n);
+            ns = Arrays.copyOf(ns, n);
+            values = Arrays.copyOf(values, n);
+        }
+        itemids[size] = itemid;
+        clocks[size] = clock;
+        ns[size] = nanos;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getItemid(int index) {
+        checkIndex(index);
+        return itemids[index];
+    }
+
+    /**
+     * @return 秒级时间戳
+     */
+    public long getClock(int index) {
+        checkIndex(index);
+        return clocks[index];
+    }
+
+    public int getNs(int index) {
+        checkIndex(index);
+        return ns[index];
+    }
+
+    /**
+     * @return 原始值，数字类型的值也是 Zabbix 返回的字符串形式
+     */
+    public String getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * 流式读取 [{"itemid":"1","clock":"2","value":"3","ns":"4"}, ...]，不认识的字段跳过
+     */
+    public static class Deserializer implements ObjectDeserializer {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T deserialze(DefaultJSONParser parser, Type type, Object fieldName) {
+            JSONLexer lexer = parser.lexer;
+            if (lexer.token() == JSONToken.NULL) {
+                lexer.nextToken(JSONToken.COMMA);
+                return null;
+            }
+            if (lexer.token() != JSONToken.LBRACKET) {
+                throw new JSONException("history values must be an array, but " + lexer.tokenName());
+            }
+
+            ZbxHistoryValues result = new ZbxHistoryValues();
+            lexer.nextToken();
+            while (lexer.token() != JSONToken.RBRACKET) {
+                if (lexer.token() == JSONToken.COMMA) {
+                    lexer.nextToken();
+                    continue;
+                }
+                readPoint(parser, lexer, result);
+            }
+            lexer.nextToken(JSONToken.COMMA);
+            return (T) result;
+        }
+
+        private static void readPoint(DefaultJSONParser parser, JSONLexer lexer, ZbxHistoryValues result) {
+            if (lexer.token() != JSONToken.LBRACE) {
+                throw new JSONException("history value must be an object, but " + lexer.tokenName());
+            }
+            long itemid = 0;
+            long clock = 0;
+            int nanos = 0;
+            String value = null;
+
+            lexer.nextToken(JSONToken.LITERAL_STRING);
+            while (lexer.token() != JSONToken.RBRACE) {
+                if (lexer.token() == JSONToken.COMMA) {
+                    lexer.nextToken(JSONToken.LITERAL_STRING);
+                    continue;
+                }
+                if (lexer.token() != JSONToken.LITERAL_STRING) {
+                    throw new JSONException("history value field name expected, but " + lexer.tokenName());
+                }
+                String key = lexer.stringVal();
+                lexer.nextTokenWithColon();
+                switch (key) {
+                    case "itemid":
+                        itemid = readLong(lexer);
+                        break;
+                    case "clock":
+                        clock = readLong(lexer);
+                        break;
+                    case "ns":
+                        nanos = (int) readLong(lexer);
+                        break;
+                    case "value":
+                        value = readString(parser, lexer);
+                        break;
+                    default:
+                        parser.parse();
+                        break;
+                }
+            }
+            lexer.nextToken(JSONToken.COMMA);
+            result.add(itemid, clock, nanos, value);
+        }
+
+        private static long readLong(JSONLexer lexer) {
+            long v;
+            switch (lexer.token()) {
+                case JSONToken.LITERAL_STRING:
+                    String s = lexer.stringVal();
+                    v = s.isEmpty() ? 0 : Long.parseLong(s);
+                    break;
+                case JSONToken.LITERAL_INT:
+                    v = lexer.longValue();
+                    break;
+                case JSONToken.NULL:
+                    v = 0;
+                    break;
+                default:
+                    throw new JSONException("history value number expected, but " + lexer.tokenName());
+            }
+            lexer.nextToken(JSONToken.COMMA);
+            return v;
+        }
+
+        private static String readString(DefaultJSONParser parser, JSONLexer lexer) {
+            switch (lexer.token()) {
+                case JSONToken.LITERAL_STRING: {
+                    String s = lexer.stringVal();
+                    lexer.nextToken(JSONToken.COMMA);
+                    return s;
+                }
+                case JSONToken.LITERAL_INT:
+                case JSONToken.LITERAL_FLOAT: {
+                    String s = lexer.numberString();
+                    lexer.nextToken(JSONToken.COMMA);
+                    return s;
+                }
+                default: {
+                    Object o = parser.parse();
+                    return o == null ? null : o.toString();
+                }
+            }
+        }
+
+        @Override
+        public int getFastMatchToken() {
+            return JSONToken.LBRACKET;
+        }
+    }
+}
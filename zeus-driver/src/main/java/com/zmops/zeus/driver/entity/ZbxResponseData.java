@@ -4,14 +4,16 @@ import lombok.Data;
 
 /**
  * @author nantian created at 2021/8/2 16:59
+ *
+ * 接口方法声明返回 {@code ZbxResponseData<T>} 时，响应按 T 一次解析，result 不再转成字符串
  */
 
 @Data
-public class ZbxResponseData {
+public class ZbxResponseData<T> {
 
     private String jsonrpc;
 
-    private String result;
+    private T result;
 
     private ErrorInfo error;
 
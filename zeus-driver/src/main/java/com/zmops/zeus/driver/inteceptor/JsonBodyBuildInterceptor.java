@@ -1,6 +1,7 @@
 package com.zmops.zeus.driver.inteceptor;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 import com.dtflys.forest.http.ForestRequest;
 import com.dtflys.forest.http.ForestResponse;
 import com.dtflys.forest.interceptor.Interceptor;
@@ -12,10 +13,10 @@ import com.zmops.zeus.driver.annotation.ParamName;
 import com.zmops.zeus.driver.entity.ZbxResponseData;
 import com.zmops.zeus.driver.parser.JsonParseUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -26,10 +27,13 @@ import java.util.Objects;
  * @version 1.0  拦截器 基于 JSON 文件构建 JSON String 参数
  */
 @Slf4j
-public class JsonBodyBuildInterceptor implements Interceptor<String> {
+public class JsonBodyBuildInterceptor implements Interceptor<Object> {
 
     private static final String NO_AUTH_TAG = "authTag";
 
+    private static final Type STRING_RESULT = new TypeReference<ZbxResponseData<String>>() {
+    }.getType();
+
     /**
      * 方法调用之前获取 JSON path
      */
@@ -58,9 +62,11 @@ public class JsonBodyBuildInterceptor implements Interceptor<String> {
 
         JsonPath jsonPath = method.getMethod().getAnnotation(JsonPath.class);
         if (null != jsonPath && StringUtils.isNotBlank(jsonPath.value())) {
-            String body = Objects.requireNonNull(JsonParseUtil.parse(jsonPath.value() + ".ftl", paramMap));
-            String sendBody = StringEscapeUtils.unescapeJava(body);
-            log.debug("\n" + sendBody + "\n");
+            // 插值在渲染时已按 JSON 转义
+            String sendBody = Objects.requireNonNull(JsonParseUtil.parse(jsonPath.value() + ".ftl", paramMap));
+            if (log.isDebugEnabled()) {
+                log.debug("\n" + sendBody + "\n");
+            }
             request.replaceBody(sendBody);
             request.setContentType("application/json");
         }
@@ -68,16 +74,29 @@ public class JsonBodyBuildInterceptor implements Interceptor<String> {
 
     /**
      * Zabbix 接口异常返回异常信息捕捉
+     * <p>
+     * 方法返回 {@link ZbxResponseData} 时 Forest 已按声明的泛型类型把响应一次解析好，这里只检查错误；
+     * 返回 String 的方法仍把 result 转成 JSON 字符串交给调用方。
      */
     @Override
-    public void onSuccess(String data, ForestRequest request, ForestResponse response) {
-        ZbxResponseData responseData = JSON.parseObject(data, ZbxResponseData.class);
+    public void onSuccess(Object data, ForestRequest request, ForestResponse response) {
+        ZbxResponseData<?> responseData;
+        if (data instanceof ZbxResponseData) {
+            responseData = (ZbxResponseData<?>) data;
+            checkError(responseData, response);
+            response.setResult(responseData);
+        } else {
+            responseData = JSON.parseObject((String) data, STRING_RESULT);
+            checkError(responseData, response);
+            response.setResult(responseData.getResult());
+        }
+        Interceptor.super.onSuccess(data, request, response);
+    }
 
+    private static void checkError(ZbxResponseData<?> responseData, ForestResponse response) {
         if (null != responseData.getError()) {
             log.error(response.getContent());
             throw new ZbxApiException(responseData.getError().getCode(), responseData.getError().getData());
         }
-        response.setResult(responseData.getResult());
-        Interceptor.super.onSuccess(data, request, response);
     }
 }
@@ -1,15 +1,19 @@
 package com.zmops.zeus.driver.parser;
 
-import freemarker.cache.NullCacheStorage;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by nantian on 2021-03-13 0:17
+ * <p>
+ * 模板在 classpath 中，运行期间不会变化，第一次使用时解析，之后复用编译好的 Template；
+ * 插值按 {@link JsonStringOutputFormat} 转义，渲染结果就是合法的 JSON，不需要再做反转义。
  *
  * @version 1.0
  */
@@ -17,12 +21,15 @@ public class JsonParseUtil {
 
     private static final Configuration configuration;
 
+    private static final Map<String, Template> TEMPLATES = new ConcurrentHashMap<>();
+
     static {
         configuration = new Configuration(Configuration.DEFAULT_INCOMPATIBLE_IMPROVEMENTS);
         configuration.setDefaultEncoding("utf-8");
         configuration.setClassForTemplateLoading(JsonParseUtil.class, "/api-json");
-        configuration.setCacheStorage(new NullCacheStorage());
-        configuration.setTemplateUpdateDelayMilliseconds(1000);
+        configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+        configuration.setLocalizedLookup(false);
+        configuration.setOutputFormat(JsonStringOutputFormat.INSTANCE);
         try {
             configuration.setSetting("number_format", "computer");
         } catch (TemplateException e) {
@@ -39,9 +46,9 @@ public class JsonParseUtil {
      */
     public static String parse(String jsonPath, Map<String, Object> args) {
         try {
-            Template template = configuration.getTemplate(jsonPath);
+            Template template = getTemplate(jsonPath);
 
-            StringWriter out = new StringWriter();
+            StringWriter out = new StringWriter(1024);
             template.process(args, out);
 
             return out.toString();
@@ -52,4 +59,13 @@ public class JsonParseUtil {
 
         return null;
     }
+
+    private static Template getTemplate(String jsonPath) throws IOException {
+        Template template = TEMPLATES.get(jsonPath);
+        if (template == null) {
+            template = configuration.getTemplate(jsonPath);
+            TEMPLATES.putIfAbsent(jsonPath, template);
+        }
+        return template;
+    }
 }
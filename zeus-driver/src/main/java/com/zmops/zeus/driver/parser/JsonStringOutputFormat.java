@@ -0,0 +1,49 @@
+package com.zmops.zeus.driver.parser;
+
+import freemarker.core.CommonMarkupOutputFormat;
+import freemarker.template.utility.StringUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * JSON 请求模板的输出格式：${...} 插值按 JSON 字符串内容转义（引号、反斜杠、控制字符），
+ * 模板里写在引号外、本身就是 JSON 片段或数字的插值用 ?no_esc 原样输出
+ */
+public final class JsonStringOutputFormat extends CommonMarkupOutputFormat<TemplateJsonStringOutputModel> {
+
+    public static final JsonStringOutputFormat INSTANCE = new JsonStringOutputFormat();
+
+    private JsonStringOutputFormat() {
+    }
+
+    @Override
+    public String getName() {
+        return "JSONString";
+    }
+
+    @Override
+    public String getMimeType() {
+        return "application/json";
+    }
+
+    @Override
+    public void output(String textToEsc, Writer out) throws IOException {
+        out.write(escapePlainText(textToEsc));
+    }
+
+    @Override
+    public String escapePlainText(String plainTextContent) {
+        return StringUtil.jsonStringEnc(plainTextContent);
+    }
+
+    @Override
+    public boolean isLegacyBuiltInBypassed(String builtInName) {
+        return "json_string".equals(builtInName);
+    }
+
+    @Override
+    protected TemplateJsonStringOutputModel newTemplateMarkupOutputModel(String plainTextContent, String markupContent) {
+        return new TemplateJsonStringOutputModel(plainTextContent, markupContent);
+    }
+}
@@ -0,0 +1,18 @@
+package com.zmops.zeus.driver.parser;
+
+import freemarker.core.CommonTemplateMarkupOutputModel;
+
+/**
+ * {@link JsonStringOutputFormat} 的已转义内容
+ */
+public final class TemplateJsonStringOutputModel extends CommonTemplateMarkupOutputModel<TemplateJsonStringOutputModel> {
+
+    TemplateJsonStringOutputModel(String plainTextContent, String markupContent) {
+        super(plainTextContent, markupContent);
+    }
+
+    @Override
+    public JsonStringOutputFormat getOutputFormat() {
+        return JsonStringOutputFormat.INSTANCE;
+    }
+}
@@ -4,6 +4,8 @@ import com.dtflys.forest.annotation.BaseRequest;
 import com.dtflys.forest.annotation.Post;
 import com.zmops.zeus.driver.annotation.JsonPath;
 import com.zmops.zeus.driver.annotation.ParamName;
+import com.zmops.zeus.driver.entity.ZbxHistoryValues;
+import com.zmops.zeus.driver.entity.ZbxResponseData;
 import com.zmops.zeus.driver.inteceptor.JsonBodyBuildInterceptor;
 
 import java.util.List;
@@ -20,18 +22,18 @@ public interface ZbxHistoryGet {
 
     @Post
     @JsonPath("/history/history.get")
-    String historyGet(@ParamName("hostid") String hostid,
-                      @ParamName("itemids") List<String> itemids,
-                      @ParamName("hisNum") Integer hisNum,
-                      @ParamName("valueType") Integer valueType,
-                      @ParamName("timeFrom") Long timeFrom,
-                      @ParamName("timeTill") Long timeTill);
+    ZbxResponseData<ZbxHistoryValues> historyGet(@ParamName("hostid") String hostid,
+                                                 @ParamName("itemids") List<String> itemids,
+                                                 @ParamName("hisNum") Integer hisNum,
+                                                 @ParamName("valueType") Integer valueType,
+                                                 @ParamName("timeFrom") Long timeFrom,
+                                                 @ParamName("timeTill") Long timeTill);
 
     @Post(headers = "authTag: noAuth")
     @JsonPath("/history/history.get")
-    String historyGetWithNoAuth(@ParamName("hostid") String hostid,
-                                @ParamName("itemids") List<String> itemids,
-                                @ParamName("hisNum") Integer hisNum,
-                                @ParamName("valueType") Integer valueType,
-                                @ParamName("userAuth") String zbxApiToken);
+    ZbxResponseData<ZbxHistoryValues> historyGetWithNoAuth(@ParamName("hostid") String hostid,
+                                                           @ParamName("itemids") List<String> itemids,
+                                                           @ParamName("hisNum") Integer hisNum,
+                                                           @ParamName("valueType") Integer valueType,
+                                                           @ParamName("userAuth") String zbxApiToken);
 }
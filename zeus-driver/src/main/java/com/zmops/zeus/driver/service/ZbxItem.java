@@ -4,7 +4,9 @@ import com.dtflys.forest.annotation.BaseRequest;
 import com.dtflys.forest.annotation.Post;
 import com.zmops.zeus.driver.annotation.JsonPath;
 import com.zmops.zeus.driver.annotation.ParamName;
+import com.zmops.zeus.driver.entity.ZbxItemInfo;
 import com.zmops.zeus.driver.entity.ZbxProcessingStep;
+import com.zmops.zeus.driver.entity.ZbxResponseData;
 import com.zmops.zeus.driver.inteceptor.JsonBodyBuildInterceptor;
 
 import java.util.List;
@@ -98,23 +100,33 @@ public interface ZbxItem {
     @JsonPath("/item/item.get")
     String getItemInfo(@ParamName("itemId") String itemId, @ParamName("hostid") String hostid);
 
+    /**
+     * 根据itemid 获取 ITEM 基本信息，直接解析为 {@link ZbxItemInfo}
+     *
+     * @param itemId itemid
+     * @return ZbxResponseData
+     */
+    @Post
+    @JsonPath("/item/item.get")
+    ZbxResponseData<List<ZbxItemInfo>> getItemInfos(@ParamName("itemId") String itemId, @ParamName("hostid") String hostid);
+
     /**
      * 根据item key 获取 ITEM 信息
      *
      * @param key key
-     * @return String
+     * @return ZbxResponseData
      */
     @Post
     @JsonPath("/item/item.get")
-    String getItemList(@ParamName("key") String key, @ParamName("hostid") String hostid);
+    ZbxResponseData<List<ZbxItemInfo>> getItemList(@ParamName("key") String key, @ParamName("hostid") String hostid);
 
     /**
      * 根据item name 获取 ITEM 信息
      *
      * @param name name
-     * @return String
+     * @return ZbxResponseData
      */
     @Post
     @JsonPath("/item/item.name.get")
-    String getItemListByName(@ParamName("name") String name);
+    ZbxResponseData<List<ZbxItemInfo>> getItemListByName(@ParamName("name") String name);
 }
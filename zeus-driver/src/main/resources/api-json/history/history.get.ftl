@@ -3,26 +3,26 @@
     "method": "history.get",
     "params": {
         "output": "extend",
-        "history": ${valueType},
+        "history": ${valueType?no_esc},
         <#if hostid??>
             "hostids": "${hostid}",
         </#if>
         <#if itemids??>
             "itemids": [
             <#list itemids as itemid>
-                ${itemid}<#if itemid_has_next>,</#if>
+                ${itemid?no_esc}<#if itemid_has_next>,</#if>
             </#list>
             ],
         </#if>
         <#if timeFrom??>
-            "time_from":${timeFrom},
+            "time_from":${timeFrom?no_esc},
         </#if>
         <#if timeTill??>
-            "time_till":${timeTill},
+            "time_till":${timeTill?no_esc},
         </#if>
         "sortfield": "clock",
         "sortorder": "DESC",
-        "limit": ${hisNum}
+        "limit": ${hisNum?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
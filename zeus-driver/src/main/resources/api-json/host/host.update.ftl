@@ -6,9 +6,9 @@
         <#if interfaces??>
             "interfaces": [
                 {
-                    "type": ${interfaces.type},
-                    "main": ${interfaces.main},
-                    "useip": ${interfaces.useip},
+                    "type": ${interfaces.type?no_esc},
+                    "main": ${interfaces.main?no_esc},
+                    "useip": ${interfaces.useip?no_esc},
                     "ip": "${interfaces.ip}",
                     "dns": "${interfaces.dns}",
                     "port": "${interfaces.port}"
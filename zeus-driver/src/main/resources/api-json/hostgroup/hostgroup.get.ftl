@@ -3,7 +3,7 @@
     "method": "hostgroup.get",
     "params": {
         "output": "extend",
-        "groupids": ${groupids}
+        "groupids": ${groupids?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
@@ -2,7 +2,7 @@
     "jsonrpc": "2.0",
     "method": "hostinterface.get",
     "params": {
-        "hostids": ${hostid}
+        "hostids": ${hostid?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
@@ -11,10 +11,10 @@
             },
         </#if>
         <#if itemId??>
-            "itemids": ${itemId},
+            "itemids": ${itemId?no_esc},
         </#if>
         <#if hostid??>
-            "hostids": ${hostid},
+            "hostids": ${hostid?no_esc},
         </#if>
         "output": [
             "itemid",
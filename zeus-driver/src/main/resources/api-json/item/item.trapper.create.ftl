@@ -5,7 +5,7 @@
         "name": "${itemName}",
         "key_": "${itemKey}",
         "hostid": "${hostId}",
-        "type": ${source},
+        "type": ${source?no_esc},
         <#if interfaceid??>
         "interfaceid": "${interfaceid}",
         </#if>
@@ -15,11 +15,11 @@
         </#if>
         "history":"30d",
         <#if source == '18'>
-            "master_itemid":${masterItemid},
+            "master_itemid":${masterItemid?no_esc},
         </#if>
-        "value_type": ${valueType},
+        "value_type": ${valueType?no_esc},
         <#if valuemapid?? && valuemapid != ''>
-            "valuemapid":${valuemapid},
+            "valuemapid":${valuemapid?no_esc},
         </#if>
         <#if valueType == '0' || valueType == '3'>
         <#if units??>
@@ -30,7 +30,7 @@
         <#if processList??>
             <#list processList as process>
             {
-                "type": ${process.type},
+                "type": ${process.type?no_esc},
                 "params": "${process.params}",
                 "error_handler": "0",
                 "error_handler_params": ""
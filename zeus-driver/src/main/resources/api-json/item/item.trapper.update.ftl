@@ -9,16 +9,16 @@
         <#if interfaceid??>
             "interfaceid": "${interfaceid}",
         </#if>
-        "type": ${source},
+        "type": ${source?no_esc},
         <#if delay??>
             "delay":"${delay}",
         </#if>
         <#if source == '18'>
-            "master_itemid":${masterItemid},
+            "master_itemid":${masterItemid?no_esc},
         </#if>
-        "value_type": ${valueType},
+        "value_type": ${valueType?no_esc},
         <#if valuemapid?? && valuemapid != ''>
-            "valuemapid":${valuemapid},
+            "valuemapid":${valuemapid?no_esc},
         </#if>
         <#if valueType == '0' || valueType == '3'>
             <#if units??>
@@ -29,7 +29,7 @@
         <#if processList??>
             <#list processList as process>
             {
-                "type": ${process.type},
+                "type": ${process.type?no_esc},
                 "params": "${process.params}",
                 "error_handler": "0",
                 "error_handler_params": ""
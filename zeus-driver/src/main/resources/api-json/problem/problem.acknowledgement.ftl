@@ -3,7 +3,7 @@
     "method": "event.acknowledge",
     "params": {
         "eventids": "${eventId}",
-        "action": ${action}
+        "action": ${action?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
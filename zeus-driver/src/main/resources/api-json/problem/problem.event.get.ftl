@@ -4,16 +4,16 @@
     "params": {
         "output": "extend",
         "selectTags": "extend",
-        "recent": ${recent},
+        "recent": ${recent?no_esc},
         "sortfield": ["eventid"],
         <#if hostId??>
-            "hostids":${hostId},
+            "hostids":${hostId?no_esc},
         </#if>
         <#if timeFrom??>
-            "time_from":${timeFrom},
+            "time_from":${timeFrom?no_esc},
         </#if>
         <#if timeTill??>
-            "time_till":${timeTill},
+            "time_till":${timeTill?no_esc},
         </#if>
         "tags":[{"tag": "__event__"}],
         "filter":{
@@ -4,7 +4,7 @@
     "params": {
         "output": "extend",
         "selectInterface": "extend",
-        "proxyids": ${proxyids}
+        "proxyids": ${proxyids?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
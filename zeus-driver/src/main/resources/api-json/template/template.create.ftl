@@ -4,7 +4,7 @@
     "params": {
         "host": "${templateName}",
             "groups": {
-                "groupid": ${groupId}
+                "groupid": ${groupId?no_esc}
             }
         },
     "auth": "${userAuth}",
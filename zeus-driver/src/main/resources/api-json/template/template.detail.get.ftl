@@ -6,7 +6,7 @@
         "selectTags":"extend",
         "selectMacros":"extend",
         "selectValueMaps":"extend",
-        "templateids":${templateid}
+        "templateids":${templateid?no_esc}
         },
     "auth": "${userAuth}",
     "id": 1
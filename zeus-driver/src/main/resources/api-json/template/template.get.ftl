@@ -3,7 +3,7 @@
     "method": "template.get",
     "params": {
         "output": "extend",
-        "templateids":${templateid}
+        "templateids":${templateid?no_esc}
         },
     "auth": "${userAuth}",
     "id": 1
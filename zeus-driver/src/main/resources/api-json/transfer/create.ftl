@@ -1,7 +1,7 @@
 {
     "name": "${runnerName}",
-    "batch_interval": ${batchInterval},
-    "batch_size":   ${batchSize},
+    "batch_interval": ${batchInterval?no_esc},
+    "batch_size":   ${batchSize?no_esc},
     "extra_info": false,
     "reader": {
         "log_path": "${logPath}",
@@ -2,7 +2,7 @@
     "jsonrpc": "2.0",
     "method": "trigger.delete",
     "params": [
-        ${triggerid}
+        ${triggerid?no_esc}
     ],
     "id": 1,
     "auth": "${userAuth}"
@@ -4,7 +4,7 @@
     "params": {
         "description": "${triggerName}",
         "expression": "${expression}",
-        "priority" : ${ruleLevel},
+        "priority" : ${ruleLevel?no_esc},
         "manual_close":1,
         "recovery_mode":2,
         "type":1
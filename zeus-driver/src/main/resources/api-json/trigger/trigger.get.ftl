@@ -5,14 +5,14 @@
         "selectHosts":["host"],
         "selectTags":["tag"],
         <#if triggerIds??>
-            "triggerids":${triggerIds},
+            "triggerids":${triggerIds?no_esc},
         </#if>
         <#if host??>
             "host":"${host}",
         </#if>
         <#if description??>
         "filter":{
-            "description":${description}
+            "description":${description?no_esc}
         },
         </#if>
         "output": "extend"
@@ -3,7 +3,7 @@
     "method": "trigger.update",
     "params": {
         "triggerid": "${triggerid}",
-        "status": ${status}
+        "status": ${status?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
@@ -4,7 +4,7 @@
     "params": {
         "triggerid": "${triggerId}",
         "expression": "${expression}",
-        "priority" : ${ruleLevel}
+        "priority" : ${ruleLevel?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
@@ -3,7 +3,7 @@
     "method": "trigger.get",
     "params": {
         "selectTags":"extend",
-        "triggerids":${triggerIds},
+        "triggerids":${triggerIds?no_esc},
         "output": "extend"
     },
     "id": 1,
@@ -5,7 +5,7 @@
         <#--删除用户 ID-->
         <#if usrids??>
             <#list usrids as usrid>
-                ${usrid} <#if usrid_has_next>,</#if>
+                ${usrid?no_esc} <#if usrid_has_next>,</#if>
             </#list>
         </#if>
     ],
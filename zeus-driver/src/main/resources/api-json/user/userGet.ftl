@@ -3,7 +3,7 @@
     "method": "user.get",
     "params": {
         "output": "extend",
-        "userids": ${userids}
+        "userids": ${userids?no_esc}
     },
     "id": 1,
     "auth": "${userAuth}"
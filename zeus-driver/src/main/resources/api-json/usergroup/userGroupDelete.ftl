@@ -5,7 +5,7 @@
         <#--删除用户组 ids -->
         <#if usrgrpids??>
             <#list usrgrpids as id>
-                ${id} <#if id_has_next>,</#if>
+                ${id?no_esc} <#if id_has_next>,</#if>
             </#list>
         </#if>
     ],
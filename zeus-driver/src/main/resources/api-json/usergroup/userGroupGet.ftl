@@ -3,7 +3,7 @@
     "method": "usergroup.get",
     "params": {
         "output": "extend",
-        "usrgrpids": ${usrgrpids}
+        "usrgrpids": ${usrgrpids?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
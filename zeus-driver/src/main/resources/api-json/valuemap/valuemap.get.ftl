@@ -4,7 +4,7 @@
     "params": {
         "output": "extend",
         "selectMappings": "extend",
-        "valuemapids": ${valuemapids}
+        "valuemapids": ${valuemapids?no_esc}
     },
     "auth": "${userAuth}",
     "id": 1
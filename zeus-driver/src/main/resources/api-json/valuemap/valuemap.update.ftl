@@ -3,7 +3,7 @@
 "method": "valuemap.update",
 "params": {
 "name": "${valueMapName}",
-"valuemapid":${valueMapId},
+"valuemapid":${valueMapId?no_esc},
 "mappings": [
 <#if valMaps??>
     <#list valMaps?keys as key>
@@ -0,0 +1,170 @@
+package com.zmops.zeus.driver.entity;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.TypeReference;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用 src/test/resources/zabbix 下录制的 Zabbix API 响应检查按声明类型解析的结果
+ */
+public class ZbxResponseDataTest {
+
+    private static final Type HISTORY = new TypeReference<ZbxResponseData<ZbxHistoryValues>>() {
+    }.getType();
+
+    private static final Type ITEMS = new TypeReference<ZbxResponseData<List<ZbxItemInfo>>>() {
+    }.getType();
+
+    private static final Type STRING_RESULT = new TypeReference<ZbxResponseData<String>>() {
+    }.getType();
+
+    @Test
+    public void historyGet() throws IOException {
+        ZbxResponseData<ZbxHistoryValues> data = JSON.parseObject(fixture("history-get.json"), HISTORY);
+
+        assertEquals("2.0", data.getJsonrpc());
+        assertNull(data.getError());
+        ZbxHistoryValues values = data.getResult();
+        assertEquals(4, values.size());
+
+        assertEquals(33201L, values.getItemid(0));
+        assertEquals(1637000000L, values.getClock(0));
+        assertEquals(120000000, values.getNs(0));
+        assertEquals("23.5", values.getValue(0));
+        assertEquals("-0.0001", values.getValue(1));
+
+        assertEquals("温度传感器 \"A\\B\"", values.getValue(2));
+        assertEquals(5, values.getNs(2));
+
+        // 日志类型多出的 id、timestamp、source 等字段跳过
+        assertEquals(33203L, values.getItemid(3));
+        assertEquals(1637000002L, values.getClock(3));
+        assertEquals(999999999, values.getNs(3));
+        assertEquals("line1\nline2\té", values.getValue(3));
+    }
+
+    @Test
+    public void historyGetMatchesStringResult() throws IOException {
+        String json = fixture("history-get.json");
+        ZbxHistoryValues values = JSON.<ZbxResponseData<ZbxHistoryValues>>parseObject(json, HISTORY).getResult();
+        ZbxResponseData<String> legacy = JSON.parseObject(json, STRING_RESULT);
+        JSONArray points = JSON.parseArray(legacy.getResult());
+
+        assertEquals(points.size(), values.size());
+        for (int i = 0; i < points.size(); i++) {
+            JSONObject point = points.getJSONObject(i);
+            assertEquals(point.getLongValue("itemid"), values.getItemid(i));
+            assertEquals(point.getLongValue("clock"), values.getClock(i));
+            assertEquals(point.getIntValue("ns"), values.getNs(i));
+            assertEquals(point.getString("value"), values.getValue(i));
+        }
+    }
+
+    @Test
+    public void historyGetUnknownFieldsAndNumericLiterals() throws IOException {
+        ZbxHistoryValues values = JSON.<ZbxResponseData<ZbxHistoryValues>>parseObject(
+                fixture("history-get-unknown-fields.json"), HISTORY).getResult();
+
+        assertEquals(3, values.size());
+        assertEquals(33204L, values.getItemid(0));
+        assertEquals(1637000000L, values.getClock(0));
+        assertEquals(7, values.getNs(0));
+        assertEquals("42", values.getValue(0));
+
+        assertEquals(33205L, values.getItemid(1));
+        assertEquals(0, values.getNs(1));
+        assertEquals(1250.0, Double.parseDouble(values.getValue(1)), 0);
+
+        assertEquals(33206L, values.getItemid(2));
+        assertNull(values.getValue(2));
+    }
+
+    @Test
+    public void historyGetEmptyResult() throws IOException {
+        ZbxResponseData<ZbxHistoryValues> data = JSON.parseObject(fixture("history-get-empty.json"), HISTORY);
+
+        assertTrue(data.getResult().isEmpty());
+        assertEquals(0, data.getResult().size());
+    }
+
+    @Test
+    public void historyGetNullResult() throws IOException {
+        ZbxResponseData<ZbxHistoryValues> data = JSON.parseObject(fixture("history-get-null.json"), HISTORY);
+
+        assertEquals("2.0", data.getJsonrpc());
+        assertNull(data.getResult());
+        assertNull(data.getError());
+    }
+
+    @Test(expected = JSONException.class)
+    public void historyGetRejectsNonArrayResult() {
+        JSON.parseObject("{\"jsonrpc\":\"2.0\",\"result\":{\"itemid\":\"1\"},\"id\":1}", HISTORY);
+    }
+
+    @Test
+    public void errorResponse() throws IOException {
+        String json = fixture("error.json");
+        for (Type type : new Type[]{HISTORY, ITEMS, STRING_RESULT}) {
+            ZbxResponseData<?> data = JSON.parseObject(json, type);
+
+            assertNull(data.getResult());
+            assertEquals(-32602, data.getError().getCode().intValue());
+            assertEquals("Invalid params.", data.getError().getMessage());
+            assertEquals("Session terminated, re-login, please.", data.getError().getData());
+        }
+    }
+
+    @Test
+    public void itemGet() throws IOException {
+        List<ZbxItemInfo> items = JSON.<ZbxResponseData<List<ZbxItemInfo>>>parseObject(
+                fixture("item-get.json"), ITEMS).getResult();
+
+        assertEquals(2, items.size());
+        ZbxItemInfo temperature = items.get(0);
+        assertEquals("33201", temperature.getItemid());
+        assertEquals("10501", temperature.getHostid());
+        assertEquals("温度", temperature.getName());
+        assertEquals("temperature", temperature.getKey_());
+        assertEquals("0", temperature.getValue_type());
+        assertEquals("℃", temperature.getUnits());
+        assertEquals("", temperature.getError());
+        assertEquals(1, temperature.getHosts().size());
+        assertEquals("10501", temperature.getHosts().get(0).getHostid());
+        assertEquals("device-一号", temperature.getHosts().get(0).getHost());
+
+        ZbxItemInfo status = items.get(1);
+        assertEquals("1", status.getStatus());
+        assertEquals("12", status.getValuemapid());
+        assertEquals("Value \"x\" of type \"string\" is not suitable", status.getError());
+        assertTrue(status.getHosts().isEmpty());
+    }
+
+    private static String fixture(String name) throws IOException {
+        try (InputStream in = ZbxResponseDataTest.class.getResourceAsStream("/zabbix/" + name)) {
+            if (in == null) {
+                throw new IOException("fixture not found: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.zmops.iot.web.analyse.dto;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.zmops.iot.model.cache.filter.CachedValue;
 import com.zmops.iot.model.cache.filter.CachedValueFilter;
+import com.zmops.zeus.driver.entity.ZbxHistoryValues;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author yefei
  **/
@@ -33,4 +37,21 @@ public class LatestDto {
     @CachedValue(value = "UNITS",fieldName = "unitsName")
     private String units;
 
+    /**
+     * 按 history.get 返回的数据点生成，只填 itemid、clock、value
+     */
+    public static List<LatestDto> fromHistory(ZbxHistoryValues values) {
+        if (values == null) {
+            return new ArrayList<>();
+        }
+        List<LatestDto> latestDtos = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            LatestDto latestDto = new LatestDto();
+            latestDto.setItemid(String.valueOf(values.getItemid(i)));
+            latestDto.setClock(String.valueOf(values.getClock(i)));
+            latestDto.setValue(values.getValue(i));
+            latestDtos.add(latestDto);
+        }
+        return latestDtos;
+    }
 }
@@ -148,8 +148,7 @@ public class HistoryService {
     }
 
     public List<LatestDto> queryHitoryData(String hostId, List<String> itemIds, int hisNum, Integer valueType, Long timeFrom, Long timeTill) {
-        String res = zbxHistoryGet.historyGet(hostId, itemIds, hisNum, valueType, timeFrom, timeTill);
-        return JSONObject.parseArray(res, LatestDto.class);
+        return LatestDto.fromHistory(zbxHistoryGet.historyGet(hostId, itemIds, hisNum, valueType, timeFrom, timeTill).getResult());
     }
 
 }
@@ -1,7 +1,6 @@
 package com.zmops.iot.web.analyse.service;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.dtflys.forest.http.ForestResponse;
 import com.zmops.iot.core.auth.context.LoginContextHolder;
 import com.zmops.iot.domain.alarm.Problem;
@@ -150,8 +149,7 @@ public class HomeService {
      * @return
      */
     private Map<String, String> getItemMap() {
-        String itemList = zbxItem.getItemList(KEY, hostId);
-        List<ZbxItemInfo> itemInfos = JSONObject.parseArray(itemList, ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemList(KEY, hostId).getResult();
         for (ZbxItemInfo itemInfo : itemInfos) {
             ITEM_Map.put(itemInfo.getItemid(), formatName(itemInfo.getName()));
         }
@@ -17,6 +17,7 @@ import com.zmops.iot.web.analyse.dto.ValueMap;
 import com.zmops.iot.web.analyse.dto.param.LatestParam;
 import com.zmops.iot.web.device.dto.TaosResponseData;
 import com.zmops.iot.web.init.BasicSettingsInit;
+import com.zmops.zeus.driver.entity.ZbxHistoryValues;
 import com.zmops.zeus.driver.service.TDEngineRest;
 import com.zmops.zeus.driver.service.ZbxHistoryGet;
 import com.zmops.zeus.driver.service.ZbxValueMap;
@@ -199,8 +200,8 @@ public class LatestService {
         for (Map.Entry<String, List<ProductAttribute>> map : valueTypeMap.entrySet()) {
             //取出属性对应的ItemID
             List<String> itemIds = map.getValue().parallelStream().map(ProductAttribute::getZbxId).collect(Collectors.toList());
-            String res = zbxHistoryGet.historyGet(zbxId, itemIds, map.getValue().size(), Integer.parseInt(map.getKey()), null, null);
-            latestDtos.addAll(JSONObject.parseArray(res, LatestDto.class));
+            ZbxHistoryValues values = zbxHistoryGet.historyGet(zbxId, itemIds, map.getValue().size(), Integer.parseInt(map.getKey()), null, null).getResult();
+            latestDtos.addAll(LatestDto.fromHistory(values));
         }
 
         //根据itemid去重
@@ -223,8 +224,8 @@ public class LatestService {
 
         //根据属性值类型 查询最新数据
 
-        String res = zbxHistoryGet.historyGetWithNoAuth(hostid, zbxIds, 1, valueType, BasicSettingsInit.zbxApiToken);
-        List<LatestDto> latestDtos = JSONObject.parseArray(res, LatestDto.class);
+        ZbxHistoryValues values = zbxHistoryGet.historyGetWithNoAuth(hostid, zbxIds, 1, valueType, BasicSettingsInit.zbxApiToken).getResult();
+        List<LatestDto> latestDtos = LatestDto.fromHistory(values);
 
         latestDtos.forEach(latestDto -> {
             latestDto.setClock(LocalDateTimeUtils.convertTimeToString(Integer.parseInt(latestDto.getClock()), "yyyy-MM-dd HH:mm:ss"));
@@ -1,7 +1,6 @@
 package com.zmops.iot.web.analyse.service;
 
 import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONObject;
 import com.zmops.iot.util.LocalDateTimeUtils;
 import com.zmops.iot.util.ObjectUtils;
 import com.zmops.iot.util.ToolUtil;
@@ -10,6 +9,7 @@ import com.zmops.iot.web.analyse.enums.CpuLoadEnum;
 import com.zmops.iot.web.analyse.enums.MemoryUtilizationEnum;
 import com.zmops.iot.web.analyse.enums.ProcessEnum;
 import com.zmops.iot.web.product.dto.ZbxTriggerInfo;
+import com.zmops.zeus.driver.entity.ZbxHistoryValues;
 import com.zmops.zeus.driver.entity.ZbxItemInfo;
 import com.zmops.zeus.driver.service.ZbxHistoryGet;
 import com.zmops.zeus.driver.service.ZbxHost;
@@ -129,11 +129,10 @@ public class SelfMonitorService {
         if (ToolUtil.isEmpty(itemId)) {
             return;
         }
-        String res = zbxHistoryGet.historyGet(null, Collections.singletonList(itemId), 1, itemValueType, null, null);
-        List<LatestDto> latestDtos = JSONObject.parseArray(res, LatestDto.class);
+        ZbxHistoryValues values = zbxHistoryGet.historyGet(null, Collections.singletonList(itemId), 1, itemValueType, null, null).getResult();
 
-        if (ToolUtil.isNotEmpty(latestDtos)) {
-            String value = ObjectUtils.convertUnits(latestDtos.get(0).getValue(), unit);
+        if (values != null && !values.isEmpty()) {
+            String value = ObjectUtils.convertUnits(values.getValue(0), unit);
             resMap.put(name, value);
         }
     }
@@ -197,8 +196,7 @@ public class SelfMonitorService {
             return "";
         }
 
-        String item = zbxItem.getItemList(key, hostId);
-        List<ZbxItemInfo> itemInfos = JSON.parseArray(item, ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemList(key, hostId).getResult();
         if (ToolUtil.isNotEmpty(itemInfos)) {
             return itemInfos.get(0).getItemid();
         }
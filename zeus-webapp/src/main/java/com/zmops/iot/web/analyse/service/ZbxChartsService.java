@@ -1,6 +1,5 @@
 package com.zmops.iot.web.analyse.service;
 
-import com.alibaba.fastjson.JSONObject;
 import com.zmops.iot.domain.product.query.QProductAttribute;
 import com.zmops.iot.util.LocalDateTimeUtils;
 import com.zmops.iot.util.ToolUtil;
@@ -134,7 +133,7 @@ public class ZbxChartsService {
             return false;
         }
 
-        List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemInfo(itemids.toString(), null), ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(itemids.toString(), null).getResult();
         if (ToolUtil.isEmpty(itemInfos)) {
             return false;
         }
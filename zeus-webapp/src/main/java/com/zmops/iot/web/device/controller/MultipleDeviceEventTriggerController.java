@@ -13,6 +13,7 @@ import com.zmops.iot.enums.CommonStatus;
 import com.zmops.iot.model.exception.ServiceException;
 import com.zmops.iot.model.page.Pager;
 import com.zmops.iot.model.response.ResponseData;
+import com.zmops.iot.util.DefinitionsUtil;
 import com.zmops.iot.util.ToolUtil;
 import com.zmops.iot.web.device.dto.MultipleDeviceEventDto;
 import com.zmops.iot.web.device.dto.MultipleDeviceEventRule;
@@ -286,6 +287,7 @@ public class MultipleDeviceEventTriggerController {
 
         //step 4:删除 触发器
         new QProductEvent().eventRuleId.eq(eventRule.getEventRuleId()).delete();
+        DefinitionsUtil.getProductEventCache().remove(eventRule.getEventRuleId());
 
         return ResponseData.success();
     }
@@ -97,7 +97,7 @@ public class DeviceEventRuleService {
         DB.saveAll(productEventRelationList);
 
         //更新缓存
-        productEventRuleService.updateProductEvent();
+        productEventRuleService.updateProductEvent(event);
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -164,7 +164,7 @@ public class DeviceEventRuleService {
         DB.saveAll(productEventRelationList);
 
         //更新缓存
-        productEventRuleService.updateProductEvent();
+        productEventRuleService.updateProductEvent(event);
     }
 
 
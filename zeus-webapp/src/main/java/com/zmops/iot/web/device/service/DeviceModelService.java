@@ -81,8 +81,7 @@ public class DeviceModelService {
         //查询zbx item 信息
         List<String> zbxIds = pagedList.parallelStream().map(ProductAttrDto::getZbxId).collect(Collectors.toList());
 
-        String itemInfo = zbxItem.getItemInfo(zbxIds.toString(), null);
-        List<ZbxItemInfo> itemInfos = JSONObject.parseArray(itemInfo, ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(zbxIds.toString(), null).getResult();
         Map<String, String> errorMap = itemInfos.parallelStream().collect(Collectors.toMap(ZbxItemInfo::getItemid, o -> Optional.ofNullable(o.getError()).orElse("")));
 
         pagedList.forEach(productAttrDto -> {
@@ -245,7 +244,7 @@ public class DeviceModelService {
                 ZbxProcessingStep step = new ZbxProcessingStep();
 
                 step.setType(i.getType());
-                step.setParams(i.getParams().replaceAll("\n","").replaceAll("\"", "\\\\\\\\\""));
+                step.setParams(i.getParams());
 
                 processingSteps.add(step);
             });
@@ -292,7 +291,7 @@ public class DeviceModelService {
             productAttr.getProcessStepList().forEach(i -> {
                 ZbxProcessingStep step = new ZbxProcessingStep();
                 step.setType(i.getType());
-                step.setParams(i.getParams().replaceAll("\n","").replaceAll("\"", "\\\\\\\\\""));
+                step.setParams(i.getParams());
                 processingSteps.add(step);
             });
         }
@@ -345,7 +344,7 @@ public class DeviceModelService {
         List<String> zbxIds = new QProductAttribute().select(QProductAttribute.alias().zbxId).attrId.in(productAttr.getAttrIds()).zbxId.isNotNull().findSingleAttributeList();
         //删除zbx item
         if (ToolUtil.isNotEmpty(zbxIds)) {
-            List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemInfo(zbxIds.toString(), null), ZbxItemInfo.class);
+            List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(zbxIds.toString(), null).getResult();
             if (ToolUtil.isNotEmpty(itemInfos)) {
                 zbxItem.deleteTrapperItem(itemInfos.parallelStream().map(ZbxItemInfo::getItemid).collect(Collectors.toList()));
             }
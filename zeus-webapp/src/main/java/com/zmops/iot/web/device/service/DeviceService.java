@@ -459,28 +459,30 @@ public class DeviceService implements CommandLineRunner {
      * 更新设备名称缓存
      */
     private void updateDeviceCache() {
-        List<Device> deviceList = new QDevice().select(QDevice.Alias.deviceId, QDevice.Alias.name).findList();
-        Map<String, String> map = deviceList.parallelStream()
-                .collect(Collectors.toMap(Device::getDeviceId, Device::getName, (a, b) -> a));
-        DefinitionsUtil.updateDeviceCache(map);
+        // 加载期间有设备增删改时重新加载，避免旧数据覆盖增量更新
+        long version;
+        Map<String, String> map;
+        do {
+            version = DefinitionsUtil.getDeviceCache().getVersion();
+            List<Device> deviceList = new QDevice().select(QDevice.Alias.deviceId, QDevice.Alias.name).findList();
+            map = deviceList.parallelStream()
+                    .filter(device -> device.getName() != null)
+                    .collect(Collectors.toMap(Device::getDeviceId, Device::getName, (a, b) -> a));
+        } while (!DefinitionsUtil.getDeviceCache().update(map, version));
     }
 
     /**
      * 更新设备名称缓存
      */
     private void updateDeviceNameCache(String deviceId, String name) {
-        Map<String, String> all = DefinitionsUtil.getDeviceCache().getAll();
-        all.put(deviceId, name);
-        DefinitionsUtil.updateDeviceCache(all);
+        DefinitionsUtil.getDeviceCache().put(deviceId, name);
     }
 
     /**
      * 更新设备名称缓存
      */
     private void removeDeviceNameCache(String deviceId) {
-        Map<String, String> all = DefinitionsUtil.getDeviceCache().getAll();
-        all.remove(deviceId);
-        DefinitionsUtil.updateDeviceCache(all);
+        DefinitionsUtil.getDeviceCache().remove(deviceId);
     }
 
     @Override
@@ -1,6 +1,5 @@
 package com.zmops.iot.web.device.service.event;
 
-import com.alibaba.fastjson.JSONObject;
 import com.zmops.iot.domain.product.ProductAttribute;
 import com.zmops.iot.domain.product.ProductAttributeEvent;
 import com.zmops.iot.domain.product.query.QProductAttribute;
@@ -55,8 +54,7 @@ public class UpdateAttrZbxIdEventHandler implements ApplicationListener<DeviceSa
         //取出 ZBX hostid
 
         //根据hostid 取出监控项
-        List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemInfo(null, deviceDto.getZbxId()),
-                ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(null, deviceDto.getZbxId()).getResult();
         if (ToolUtil.isEmpty(itemInfos)) {
             return;
         }
@@ -11,6 +11,7 @@ import com.zmops.iot.domain.product.query.*;
 import com.zmops.iot.model.exception.ServiceException;
 import com.zmops.iot.model.page.Pager;
 import com.zmops.iot.model.response.ResponseData;
+import com.zmops.iot.util.DefinitionsUtil;
 import com.zmops.iot.util.ToolUtil;
 import com.zmops.iot.web.auth.Permission;
 import com.zmops.iot.web.exception.enums.BizExceptionEnum;
@@ -173,6 +174,8 @@ public class ProductController {
             new QProductService().id.in(serviceIds).delete();
             new QProductServiceParam().serviceId.in(serviceIds).delete();
             new QProductServiceRelation().relationId.eq(product.getProductId() + "").delete();
+            DefinitionsUtil.getProductServiceCache().removeAll(serviceIds);
+            DefinitionsUtil.getProductServiceParamCache().removeAll(serviceIds);
         }
 
         List<Long> eventIds = new QProductEventRelation().select(QProductEventRelation.alias().eventRuleId).relationId.eq(product.getProductId() + "").findSingleAttributeList();
@@ -181,6 +184,7 @@ public class ProductController {
             new QProductEventExpression().eventRuleId.in(eventIds).delete();
             new QProductEventService().eventRuleId.in(eventIds).delete();
             new QProductEventRelation().relationId.eq(product.getProductId() + "").delete();
+            DefinitionsUtil.getProductEventCache().removeAll(eventIds);
         }
 
         new QProductAttribute().productId.eq(product.getProductId() + "").delete();
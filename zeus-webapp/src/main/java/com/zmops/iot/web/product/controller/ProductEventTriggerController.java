@@ -14,6 +14,7 @@ import com.zmops.iot.enums.InheritStatus;
 import com.zmops.iot.model.exception.ServiceException;
 import com.zmops.iot.model.page.Pager;
 import com.zmops.iot.model.response.ResponseData;
+import com.zmops.iot.util.DefinitionsUtil;
 import com.zmops.iot.util.ToolUtil;
 import com.zmops.iot.web.event.applicationEvent.ProductEventTriggerCreateEvent;
 import com.zmops.iot.web.event.applicationEvent.ProductEventTriggerUpdateEvent;
@@ -246,6 +247,7 @@ public class ProductEventTriggerController {
 
         //step 4:删除 触发器
         new QProductEvent().eventRuleId.eq(eventRule.getEventRuleId()).delete();
+        DefinitionsUtil.getProductEventCache().remove(eventRule.getEventRuleId());
 
 
         return ResponseData.success();
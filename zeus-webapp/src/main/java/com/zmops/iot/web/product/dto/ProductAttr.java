@@ -97,9 +97,9 @@ public class ProductAttr {
             StringBuilder paramStr = new StringBuilder();
             if (null != params && params.length > 0) {
                 for (String param : params) {
-                    paramStr.append(param).append("\\\\n");
+                    paramStr.append(param).append("\n");
                 }
-                return paramStr.substring(0, paramStr.length() - 3);
+                return paramStr.substring(0, paramStr.length() - 1);
             }
             return "";
         }
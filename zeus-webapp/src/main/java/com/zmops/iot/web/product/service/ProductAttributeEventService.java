@@ -300,7 +300,7 @@ public class ProductAttributeEventService {
         List<String> zbxIds = new QProductAttributeEvent().select(QProductAttributeEvent.alias().zbxId).attrId.in(productAttr.getAttrIds()).findSingleAttributeList();
         //删除zbx item
         if (ToolUtil.isNotEmpty(zbxIds)) {
-            List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemInfo(zbxIds.toString(), null), ZbxItemInfo.class);
+            List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(zbxIds.toString(), null).getResult();
             if (ToolUtil.isNotEmpty(itemInfos)) {
                 zbxItem.deleteTrapperItem(itemInfos.parallelStream().map(ZbxItemInfo::getItemid).collect(Collectors.toList()));
             }
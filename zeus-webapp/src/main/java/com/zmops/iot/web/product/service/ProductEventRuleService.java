@@ -92,7 +92,7 @@ public class ProductEventRuleService implements CommandLineRunner {
         DB.save(productEventRelation);
 
         //更新緩存
-        updateProductEvent();
+        updateProductEvent(event);
     }
 
     /**
@@ -148,7 +148,7 @@ public class ProductEventRuleService implements CommandLineRunner {
         }
 
         //更新緩存
-        updateProductEvent();
+        updateProductEvent(event);
     }
 
 
@@ -295,6 +295,13 @@ public class ProductEventRuleService implements CommandLineRunner {
         return productEventRuleDto;
     }
 
+    /**
+     * 单个告警规则名称更新到缓存
+     */
+    public void updateProductEvent(ProductEvent event) {
+        DefinitionsUtil.getProductEventCache().put(event.getEventRuleId(), event.getEventRuleName());
+    }
+
     public void updateProductEvent() {
         List<ProductEvent> deviceList = new QProductEvent().findList();
         Map<Long, String> map = deviceList.parallelStream().collect(Collectors.toMap(ProductEvent::getEventRuleId, ProductEvent::getEventRuleName, (a, b) -> a));
@@ -221,7 +221,7 @@ public class ProductModelService {
                 ZbxProcessingStep step = new ZbxProcessingStep();
 
                 step.setType(i.getType());
-                step.setParams(i.getParams().replaceAll("\n", "").replaceAll("\"", "\\\\\\\\\""));
+                step.setParams(i.getParams());
 
                 processingSteps.add(step);
             });
@@ -262,7 +262,7 @@ public class ProductModelService {
                 ZbxProcessingStep step = new ZbxProcessingStep();
 
                 step.setType(i.getType());
-                step.setParams(i.getParams().replaceAll("\n", "").replaceAll("\"", "\\\\\\\\\""));
+                step.setParams(i.getParams());
 
                 processingSteps.add(step);
             });
@@ -321,7 +321,7 @@ public class ProductModelService {
         List<String> zbxIds = new QProductAttribute().select(QProductAttribute.alias().zbxId).attrId.in(productAttr.getAttrIds()).findSingleAttributeList();
         //删除zbx item
         if (ToolUtil.isNotEmpty(zbxIds)) {
-            List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemInfo(zbxIds.toString(), null), ZbxItemInfo.class);
+            List<ZbxItemInfo> itemInfos = zbxItem.getItemInfos(zbxIds.toString(), null).getResult();
             if (ToolUtil.isNotEmpty(itemInfos)) {
                 zbxItem.deleteTrapperItem(itemInfos.parallelStream().map(ZbxItemInfo::getItemid).collect(Collectors.toList()));
             }
@@ -163,7 +163,7 @@ public class ProductSvcService implements CommandLineRunner {
         if (ToolUtil.isNum(productServiceDto.getRelationId())) {
             publisher.publishEvent(new ProductServiceCreateEvent(this, productServiceDto));
         }
-        updateService();
+        updateService(productServiceDto.getId(), productServiceDto.getName());
         return productServiceDto;
     }
 
@@ -205,7 +205,7 @@ public class ProductSvcService implements CommandLineRunner {
         if (ToolUtil.isNum(productServiceDto.getRelationId())) {
             publisher.publishEvent(new ProductServiceUpdateEvent(this, productServiceDto));
         }
-        updateService();
+        updateService(productServiceDto.getId(), productServiceDto.getName());
         return productServiceDto;
     }
 
@@ -231,6 +231,9 @@ public class ProductSvcService implements CommandLineRunner {
         new QProductServiceParam().serviceId.in(ids).delete();
         new QProductServiceRelation().serviceId.in(ids).delete();
         new QProductService().id.in(ids).delete();
+
+        DefinitionsUtil.getProductServiceCache().removeAll(ids);
+        DefinitionsUtil.getProductServiceParamCache().removeAll(ids);
     }
 
     /**
@@ -240,6 +243,14 @@ public class ProductSvcService implements CommandLineRunner {
         return new QProductServiceParam().serviceId.eq(serviceId).findList();
     }
 
+    /**
+     * 单个服务名称、参数更新到缓存
+     */
+    private void updateService(Long serviceId, String name) {
+        DefinitionsUtil.getProductServiceCache().put(serviceId, name);
+        DefinitionsUtil.getProductServiceParamCache().put(serviceId, new QProductServiceParam().serviceId.eq(serviceId).findList());
+    }
+
     /**
      * 更新服务名称 服务参数 缓存
      */
@@ -1,7 +1,6 @@
 package com.zmops.iot.web.product.service.event;
 
 
-import com.alibaba.fastjson.JSONObject;
 import com.zmops.iot.domain.product.ProductAttribute;
 import com.zmops.iot.domain.product.query.QProductAttribute;
 import com.zmops.iot.util.ToolUtil;
@@ -40,7 +39,7 @@ public class AsyncAttrZbxIdEventHandler implements ApplicationListener<ProductMo
         Long attrId = productAttr.getAttrId();
 
         //根据name 取出监控项
-        List<ZbxItemInfo> itemInfos = JSONObject.parseArray(zbxItem.getItemListByName(attrId + ""), ZbxItemInfo.class);
+        List<ZbxItemInfo> itemInfos = zbxItem.getItemListByName(attrId + "").getResult();
         if (ToolUtil.isEmpty(itemInfos)) {
             return;
         }
@@ -8,6 +8,7 @@ import lombok.Getter;
 public enum ProtocolEnum {
     HttpServer("5","HttpServer"),
     MqttClient("1","MqttClient"),
+    MqttBroker("3","MqttBroker"),
     TcpServer("2","TcpServer"),
     UdpServer("4","UdpServer"),
     CoapServer("9","CoapServer"),